@@ -5,11 +5,13 @@ CREATE TABLE
     last_name VARCHAR(255) NOT NULL,
     email VARCHAR(255) UNIQUE NOT NULL,
     phone VARCHAR(50) UNIQUE,
-    role JSON NOT NULL, -- ['employee', 'manager', 'admin']
+    role JSON NOT NULL, -- ['employee', 'manager', 'admin', 'terminal']
+    role_mask TINYINT UNSIGNED NOT NULL DEFAULT 0, -- bits of role: 1 employee, 2 manager, 4 admin, 8 terminal
     poste VARCHAR(100),
     avatar_url VARCHAR(500),
     password VARCHAR(255) NOT NULL,
     first_connection BOOLEAN NOT NULL DEFAULT TRUE, 
+    time_zone VARCHAR(64) NULL, -- IANA id; server zone when NULL
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
   );
 
@@ -18,6 +20,16 @@ VALUES
   (UUID(), 'System', 'Bot', 'system@time-manager.local', NULL, JSON_ARRAY('admin'), 'SYSTEM', '$2b$12$AiWFHiPzTeqWJhKtjMj5B.6ldZgGY0hcHJ3sn.o2wmoPgcXLGENDS');
 
 
+-- one row per user and role, kept in sync with users.role by the application
+CREATE TABLE
+  user_roles (
+    user_id CHAR(36) NOT NULL,
+    role VARCHAR(16) NOT NULL, -- EMPLOYEE, MANAGER, ADMIN, TERMINAL
+    PRIMARY KEY (user_id, role),
+    INDEX idx_user_roles_role (role),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+  );
+
 CREATE TABLE
   teams (
     id INT PRIMARY KEY AUTO_INCREMENT,
@@ -42,6 +54,47 @@ CREATE TABLE
     user_id CHAR(36) NOT NULL,
     kind ENUM ('IN', 'OUT') NOT NULL,
     `at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- local day in the user's zone, set by the application at punch time
+    -- (the default only covers raw inserts such as the seed data)
+    work_date DATE NOT NULL DEFAULT (DATE(`at`)),
+    -- per-user punch number; the unique key rejects two racing punches across nodes
+    seq BIGINT NOT NULL,
+    UNIQUE KEY uq_clocks_user_seq (user_id, seq),
+    INDEX idx_clocks_user_at_id (user_id, `at`, id),
+    INDEX idx_clocks_at (`at`),
+    INDEX idx_clocks_user_work_date (user_id, work_date),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+  );
+
+-- Closed months moved out of `clocks` by the nightly archival job (same ids),
+-- all in this one table: it is not split or partitioned per month
+CREATE TABLE
+  clocks_archive (
+    id INT PRIMARY KEY,
+    user_id CHAR(36) NOT NULL,
+    kind ENUM ('IN', 'OUT') NOT NULL,
+    `at` TIMESTAMP NOT NULL,
+    work_date DATE NOT NULL,
+    seq BIGINT NOT NULL,
+    INDEX idx_clocks_archive_user_at_id (user_id, `at`, id),
+    INDEX idx_clocks_archive_user_seq (user_id, seq),
+    INDEX idx_clocks_archive_user_work_date (user_id, work_date),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+  );
+
+CREATE TABLE
+  daily_attendance (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id CHAR(36) NOT NULL,
+    work_date DATE NOT NULL,
+    first_in TIMESTAMP NULL,
+    last_out TIMESTAMP NULL,
+    open_in TIMESTAMP NULL,
+    last_punch_at TIMESTAMP NULL,
+    worked_seconds BIGINT NOT NULL DEFAULT 0,
+    punch_count INT NOT NULL DEFAULT 0,
+    UNIQUE KEY uq_attendance_user_date (user_id, work_date),
+    INDEX idx_attendance_date (work_date),
     FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
   );
 
@@ -58,12 +111,18 @@ CREATE TABLE reports (
   severity VARCHAR(16) NOT NULL DEFAULT 'INFO',
 
   rule_key VARCHAR(160) UNIQUE,
+  -- set by ReportWriter to the batch that inserted the row
+  write_token CHAR(36) NULL,
 
   title VARCHAR(255) NOT NULL,
   body TEXT,
 
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   updated_at TIMESTAMP NULL DEFAULT NULL ON UPDATE CURRENT_TIMESTAMP,
+  read_at TIMESTAMP NULL,
+
+  INDEX idx_reports_target_created (target_user_id, created_at),
+  FULLTEXT INDEX ft_reports_title_body (title, body),
 
   CONSTRAINT fk_reports_author
     FOREIGN KEY (author_id) REFERENCES users (id) ON DELETE CASCADE,
@@ -75,6 +134,15 @@ CREATE TABLE reports (
     FOREIGN KEY (subject_user_id) REFERENCES users (id) ON DELETE SET NULL
 );
 
+-- Unread received reports per user, kept by ReportInbox on insert, read and
+-- delete so the inbox badge reads one row.
+CREATE TABLE
+  report_inbox (
+    user_id CHAR(36) PRIMARY KEY,
+    unread INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+  );
+
 
 CREATE TABLE
   work_schedules (
@@ -85,6 +153,7 @@ CREATE TABLE
     start_time TIME NOT NULL,
     end_time TIME NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_work_schedules_user_day (user_id, day_of_week),
     FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
   );
 
@@ -162,4 +231,116 @@ CREATE TABLE
     INDEX idx_ledger_account_date (account_id, entry_date),
     FOREIGN KEY (account_id) REFERENCES leave_accounts (id) ON DELETE CASCADE,
     FOREIGN KEY (reference_absence_id) REFERENCES absence (id) ON DELETE SET NULL
-  );
\ No newline at end of file
+  );
+
+CREATE TABLE
+  auto_report_outbox (
+    id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    type VARCHAR(32) NOT NULL,
+    user_id CHAR(36) NULL,
+    clock_kind VARCHAR(3) NULL,
+    clock_at TIMESTAMP NULL,
+    clock_work_date DATE NULL,
+    absence_id BIGINT NULL,
+    actor_email VARCHAR(255) NULL,
+    previous_status VARCHAR(20) NULL,
+    new_status VARCHAR(20) NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(500) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_at TIMESTAMP NULL,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_outbox_status_id (status, id)
+  );
+
+-- Per-user, per-day KPI rollup, maintained by the rollup job from the raw tables
+CREATE TABLE
+  kpi_user_daily (
+    user_id CHAR(36) NOT NULL,
+    day DATE NOT NULL,
+    planned TINYINT NOT NULL DEFAULT 0,
+    planned_minutes INT NOT NULL DEFAULT 0,
+    present TINYINT NOT NULL DEFAULT 0,
+    worked_day TINYINT NOT NULL DEFAULT 0,
+    worked_minutes INT NOT NULL DEFAULT 0,
+    absence_units DECIMAL(4, 1) NOT NULL DEFAULT 0,
+    reports_authored INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, day),
+    INDEX idx_kpi_user_daily_day (day),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+  );
+
+-- Per-team, per-day sums of kpi_user_daily over the current members
+CREATE TABLE
+  kpi_team_daily (
+    team_id INT NOT NULL,
+    day DATE NOT NULL,
+    planned_days INT NOT NULL DEFAULT 0,
+    planned_minutes INT NOT NULL DEFAULT 0,
+    present_days INT NOT NULL DEFAULT 0,
+    worked_days INT NOT NULL DEFAULT 0,
+    worked_minutes BIGINT NOT NULL DEFAULT 0,
+    absence_units DECIMAL(8, 1) NOT NULL DEFAULT 0,
+    reports_authored INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (team_id, day),
+    INDEX idx_kpi_team_daily_day (day),
+    FOREIGN KEY (team_id) REFERENCES teams (id) ON DELETE CASCADE
+  );
+
+-- User days and teams whose rollup rows must be recomputed by the next run;
+-- version is bumped on every re-marking so a run never drops a newer mark
+CREATE TABLE
+  kpi_dirty_days (
+    user_id CHAR(36) NOT NULL,
+    day DATE NOT NULL,
+    version INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, day)
+  );
+
+CREATE TABLE
+  kpi_dirty_teams (
+    team_id INT PRIMARY KEY,
+    version INT NOT NULL DEFAULT 0
+  );
+
+-- Long-range KPI computations run in the background by KpiJobService.
+-- active_key holds the job's scope, target and period while PENDING or
+-- RUNNING, so an equal request joins the running job instead of starting one.
+CREATE TABLE
+  kpi_jobs (
+    id CHAR(36) PRIMARY KEY,
+    scope VARCHAR(8) NOT NULL,
+    target_id VARCHAR(36) NULL,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    active_key VARCHAR(80) NULL,
+    requested_by CHAR(36) NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    result LONGTEXT NULL,
+    error VARCHAR(500) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP NULL,
+    heartbeat_at TIMESTAMP NULL, -- touched by the node running the job
+    finished_at TIMESTAMP NULL,
+    UNIQUE KEY uq_kpi_jobs_active (active_key),
+    INDEX idx_kpi_jobs_status_created (status, created_at)
+  );
+
+-- One row per date, filled years ahead by CalendarService; KPI SQL joins it
+-- instead of generating dates. A holiday is never a planned day.
+CREATE TABLE
+  calendar (
+    day DATE PRIMARY KEY,
+    day_of_week ENUM ('MON', 'TUE', 'WED', 'THU', 'FRI', 'SAT', 'SUN') NOT NULL,
+    iso_year SMALLINT NOT NULL,
+    iso_week TINYINT NOT NULL,
+    month_start DATE NOT NULL,
+    is_weekend TINYINT(1) NOT NULL,
+    is_holiday TINYINT(1) NOT NULL DEFAULT 0,
+    holiday_name VARCHAR(100) NULL,
+    INDEX idx_calendar_dow (day_of_week, day),
+    INDEX idx_calendar_iso_week (iso_year, iso_week),
+    INDEX idx_calendar_month (month_start)
+  );
@@ -87,7 +87,14 @@ VALUES
   ((SELECT id FROM users WHERE email = 'armand.braud@epitech.eu'), 'FRI', 'AM', '09:00:00', '12:00:00'),
   ((SELECT id FROM users WHERE email = 'armand.braud@epitech.eu'), 'FRI', 'PM', '13:30:00', '16:30:00');
 
-INSERT INTO clocks (user_id, kind, `at`)
+-- seeded through a staging table so each punch gets its per-user seq
+CREATE TEMPORARY TABLE seed_clocks (
+  user_id CHAR(36) NOT NULL,
+  kind ENUM ('IN', 'OUT') NOT NULL,
+  `at` TIMESTAMP NOT NULL
+);
+
+INSERT INTO seed_clocks (user_id, kind, `at`)
 VALUES
   -- ==========================================================
   -- CLOCKS — 2025-12-01 → 2026-01-08 (NO clocks after 2026-01-08)
@@ -371,6 +378,13 @@ VALUES
   ((SELECT id FROM users WHERE email='alex.fraioli@epitech.eu'),'OUT','2026-01-08 17:05:00')
 ;
 
+INSERT INTO clocks (user_id, kind, `at`, seq)
+SELECT user_id, kind, `at`, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY `at`)
+FROM seed_clocks
+ORDER BY `at`;
+
+DROP TEMPORARY TABLE seed_clocks;
+
 
 -- ==========================================================
 -- REPORTS (manager notifications)
@@ -718,6 +732,10 @@ VALUES
   )
 ;
 
+-- Unread counters of the reports above (ReportInbox keeps them from here on)
+INSERT INTO report_inbox (user_id, unread)
+SELECT target_user_id, COUNT(*) FROM reports WHERE read_at IS NULL GROUP BY target_user_id;
+
 -- ==========================================================
 -- LEAVE TYPES
 -- ==========================================================
@@ -1049,3 +1067,28 @@ VALUES (
   @abs_armand_personal_am_2026_jan,
   'Personal leave (half-day AM) - 15/01/2026'
 );
+
+-- ==========================================================
+-- DAILY ATTENDANCE — rebuilt from the seeded clocks
+-- (the application maintains it incrementally afterwards)
+-- ==========================================================
+INSERT INTO daily_attendance
+  (user_id, work_date, first_in, last_out, open_in, last_punch_at, worked_seconds, punch_count)
+SELECT
+  user_id,
+  work_date,
+  MIN(CASE WHEN kind = 'IN' THEN `at` END),
+  MAX(CASE WHEN kind = 'OUT' THEN `at` END),
+  MAX(CASE WHEN rn_desc = 1 AND kind = 'IN' THEN `at` END),
+  MAX(`at`),
+  SUM(CASE WHEN kind = 'OUT' AND prev_kind = 'IN' AND `at` > prev_at
+           THEN TIMESTAMPDIFF(SECOND, prev_at, `at`) ELSE 0 END),
+  COUNT(*)
+FROM (
+  SELECT user_id, kind, `at`, work_date,
+         LAG(kind) OVER (PARTITION BY user_id, work_date ORDER BY `at`, id) AS prev_kind,
+         LAG(`at`) OVER (PARTITION BY user_id, work_date ORDER BY `at`, id) AS prev_at,
+         ROW_NUMBER() OVER (PARTITION BY user_id, work_date ORDER BY `at` DESC, id DESC) AS rn_desc
+  FROM clocks
+) c
+GROUP BY user_id, work_date;
@@ -0,0 +1,7 @@
+-- Full-text report search (searchReports) on databases created before
+-- ft_reports_title_body was added to 01-init.sql. Fresh databases already
+-- have it; this file is run by hand, it is not in docker-entrypoint-initdb.d.
+--
+-- The first FULLTEXT index of an InnoDB table rebuilds the table and holds
+-- writes to reports while it runs: apply it in a maintenance window, once.
+ALTER TABLE reports ADD FULLTEXT INDEX IF NOT EXISTS ft_reports_title_body (title, body);
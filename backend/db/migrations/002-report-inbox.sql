@@ -0,0 +1,18 @@
+-- Unread report counters (report_inbox) on databases created before the
+-- table was added to 01-init.sql, and for reports inserted by hand since.
+--
+-- One statement sets every user's count from the reports table, zero
+-- included; ReportInbox keeps the counters from then on. Run it while the
+-- backend is stopped so no read or new report lands between the count and
+-- the write.
+CREATE TABLE IF NOT EXISTS report_inbox (
+  user_id CHAR(36) PRIMARY KEY,
+  unread INT NOT NULL DEFAULT 0,
+  FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO report_inbox (user_id, unread)
+SELECT u.id, COUNT(r.id) FROM users u
+LEFT JOIN reports r ON r.target_user_id = u.id AND r.read_at IS NULL
+GROUP BY u.id
+ON DUPLICATE KEY UPDATE unread = VALUES(unread);
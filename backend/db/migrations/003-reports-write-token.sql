@@ -0,0 +1,4 @@
+-- Automatic reports tag the rows of each batch they insert, to count the new
+-- ones when the driver answers SUCCESS_NO_INFO for the whole batch. Deploy
+-- this before the backend that writes the column.
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS write_token CHAR(36) NULL AFTER rule_key;
@@ -0,0 +1,12 @@
+-- Terminal accounts whose role_mask was derived before the terminal role had
+-- its bit (8): add the bit and the matching user_roles row. Rows still at
+-- role_mask = 0 are left to UserService.backfillRoles, which derives the
+-- whole mask at startup.
+UPDATE users
+SET role_mask = role_mask | 8
+WHERE role_mask <> 0
+  AND role_mask & 8 = 0
+  AND (JSON_CONTAINS(LOWER(role), '"terminal"') OR JSON_CONTAINS(LOWER(role), '"role_terminal"'));
+
+INSERT IGNORE INTO user_roles (user_id, role)
+SELECT id, 'TERMINAL' FROM users WHERE role_mask & 8 <> 0;
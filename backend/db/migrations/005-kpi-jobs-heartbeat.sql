@@ -0,0 +1,6 @@
+-- Heartbeat of running KPI jobs: KpiJobService requeues a RUNNING job once
+-- its heartbeat_at is older than kpi.jobs.stale-seconds. Jobs already running
+-- start from their started_at.
+ALTER TABLE kpi_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP NULL AFTER started_at;
+
+UPDATE kpi_jobs SET heartbeat_at = started_at WHERE status = 'RUNNING' AND heartbeat_at IS NULL;
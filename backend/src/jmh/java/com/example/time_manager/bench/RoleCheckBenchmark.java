@@ -0,0 +1,86 @@
+package com.example.time_manager.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.time_manager.model.Role;
+import com.example.time_manager.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * "Is this user a manager?" as the services answered it by parsing
+ * User.role on every check, against the bit test on the precomputed mask.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoleCheckBenchmark {
+
+    private static final String[] ROLES = {
+            "[\"employee\"]", "[\"employee\",\"manager\"]", "[\"admin\"]", "[\"employee manager\"]",
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private User[] users;
+    private int i;
+
+    @Setup
+    public void setup() {
+        users = new User[ROLES.length];
+        for (int k = 0; k < ROLES.length; k++) {
+            users[k] = new User();
+            users[k].setRole(ROLES[k]);
+        }
+    }
+
+    private User next() {
+        i = (i + 1) & (ROLES.length - 1);
+        return users[i];
+    }
+
+    /** TeamService: Jackson, then a split of each entry. */
+    @Benchmark
+    public boolean jsonParse() {
+        try {
+            List<String> roles = mapper.readValue(next().getRole(), new TypeReference<List<String>>() {});
+            return roles.stream()
+                    .filter(Objects::nonNull)
+                    .flatMap(r -> Arrays.stream(r.split("[\\s,;|]+")))
+                    .anyMatch("manager"::equalsIgnoreCase);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** AbsenceService: regex clean-up and split. */
+    @Benchmark
+    public boolean regexSplit() {
+        String cleaned = next().getRole().replaceAll("[\\[\\]\"]", "").toUpperCase();
+        for (String token : cleaned.split("[\\s,;|,]+")) {
+            if (token.trim().equals("MANAGER")) return true;
+        }
+        return false;
+    }
+
+    /** Parsing the stored string once, as {@link User#setRole} does. */
+    @Benchmark
+    public int maskOf() {
+        return Role.maskOf(next().getRole());
+    }
+
+    @Benchmark
+    public boolean bitTest() {
+        return next().hasRole(Role.MANAGER);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.time_manager.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Two connection pools behind the application's single DataSource: the write
+ * pool (spring.datasource.*) serves punches, absences and every read-write
+ * transaction; the analytics pool (analytics.datasource.*) serves read-only
+ * transactions run through {@link #ANALYTICS_TX}, so a slow dashboard waits
+ * on its own pool instead of starving badge terminals.
+ *
+ * analytics.datasource.url may point at a read replica; left empty, the
+ * analytics pool opens its connections on the primary database.
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class AnalyticsDataSourceConfig {
+
+    /** Transaction manager of read-only analytics work (KPIs, report listings). */
+    public static final String ANALYTICS_TX = "analyticsTransactionManager";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writePool(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("analytics.datasource.hikari")
+    public HikariDataSource analyticsPool(DataSourceProperties properties,
+                                          @Value("${analytics.datasource.url:}") String url,
+                                          @Value("${analytics.datasource.username:}") String username,
+                                          @Value("${analytics.datasource.password:}") String password) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(url)) pool.setJdbcUrl(url);
+        if (StringUtils.hasText(username)) pool.setUsername(username);
+        if (StringUtils.hasText(password)) pool.setPassword(password);
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writePool") HikariDataSource writePool,
+                                 @Qualifier("analyticsPool") HikariDataSource analyticsPool) {
+        AnalyticsRoutingDataSource routing = new AnalyticsRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                AnalyticsRoutingDataSource.WRITE, writePool,
+                AnalyticsRoutingDataSource.ANALYTICS, analyticsPool));
+        routing.setDefaultTargetDataSource(writePool);
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public RoutingTransactionManager transactionManager(EntityManagerFactory emf) {
+        return new RoutingTransactionManager(emf, false);
+    }
+
+    @Bean(ANALYTICS_TX)
+    public RoutingTransactionManager analyticsTransactionManager(EntityManagerFactory emf) {
+        return new RoutingTransactionManager(emf, true);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.time_manager.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections from the write pool, or from the analytics pool while
+ * a read-only transaction of the analytics transaction manager is open on the
+ * current thread. The route is chosen when the transaction acquires its
+ * connection and holds until it completes.
+ */
+public class AnalyticsRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String WRITE = "write";
+    static final String ANALYTICS = "analytics";
+
+    private static final ThreadLocal<Boolean> ANALYTICS_ROUTE = new ThreadLocal<>();
+
+    static boolean isAnalytics() {
+        return Boolean.TRUE.equals(ANALYTICS_ROUTE.get());
+    }
+
+    static void route(boolean analytics) {
+        if (analytics) ANALYTICS_ROUTE.set(Boolean.TRUE);
+        else ANALYTICS_ROUTE.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isAnalytics() ? ANALYTICS : WRITE;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.time_manager.config;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * JPA transaction manager that picks the {@link AnalyticsRoutingDataSource}
+ * route before its transaction acquires a connection.
+ *
+ * The analytics instance routes read-only transactions to the analytics pool;
+ * the default instance always routes to the write pool, so a REQUIRES_NEW
+ * write opened inside an analytics read still reaches the primary. A
+ * suspended transaction gets its route back when resumed.
+ */
+public class RoutingTransactionManager extends JpaTransactionManager {
+
+    private final boolean analytics;
+
+    public RoutingTransactionManager(EntityManagerFactory emf, boolean analytics) {
+        super(emf);
+        this.analytics = analytics;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        AnalyticsRoutingDataSource.route(analytics && definition.isReadOnly());
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            AnalyticsRoutingDataSource.route(false);
+            throw e;
+        }
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        Suspended suspended = new Suspended(super.doSuspend(transaction), AnalyticsRoutingDataSource.isAnalytics());
+        AnalyticsRoutingDataSource.route(false);
+        return suspended;
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        Suspended suspended = (Suspended) suspendedResources;
+        AnalyticsRoutingDataSource.route(suspended.analytics());
+        super.doResume(transaction, suspended.resources());
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            AnalyticsRoutingDataSource.route(false);
+        }
+    }
+
+    private record Suspended(Object resources, boolean analytics) {}
+}
@@ -0,0 +1,47 @@
+package com.example.time_manager.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Bounded pool evaluating automatic-report rules off the request thread.
+     * The queue is sized to the worker's in-flight limit, so it never rejects.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor autoReportExecutor(
+            @Value("${auto-report.outbox.workers:4}") int workers,
+            @Value("${auto-report.outbox.max-in-flight:64}") int maxInFlight) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("auto-report-");
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(maxInFlight);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bounded pool running long-range KPI jobs. KpiJobService claims no more
+     * jobs than there are workers, so the queue stays empty.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor kpiJobExecutor(@Value("${kpi.jobs.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("kpi-job-");
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.time_manager.controller;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.time_manager.service.export.TimesheetExportService;
+import com.example.time_manager.service.export.TimesheetExportService.Format;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * File exports, streamed over plain HTTP: GraphQL responses are built in
+ * memory, which a month of every user's days does not fit.
+ */
+@RestController
+@RequestMapping("/api/exports")
+public class ExportController {
+
+    private final TimesheetExportService timesheetExport;
+
+    public ExportController(TimesheetExportService timesheetExport) {
+        this.timesheetExport = timesheetExport;
+    }
+
+    @GetMapping("/timesheet")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public void timesheet(@RequestParam String startDate,
+                          @RequestParam String endDate,
+                          @RequestParam(defaultValue = "csv") String format,
+                          HttpServletResponse response) throws IOException {
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(startDate);
+            end = LocalDate.parse(endDate);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format, expected yyyy-MM-dd", e);
+        }
+        Format f = Format.parse(format);
+        timesheetExport.checkPeriod(start, end);
+
+        response.setContentType(f.contentType);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"timesheet_" + start + "_" + end + "." + f.extension + "\"");
+        timesheetExport.export(start, end, f, response.getOutputStream());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -9,5 +9,6 @@ public record UpdateUserInput(
     String role,
     String poste,
     String avatarUrl,
-    String password
+    String password,
+    String timeZone
 ) {}
@@ -0,0 +1,15 @@
+package com.example.time_manager.dto.calendar;
+
+import java.time.LocalDate;
+
+public class Holiday {
+    public LocalDate day;
+    public String name;
+
+    public Holiday() {}
+
+    public Holiday(LocalDate day, String name) {
+        this.day = day;
+        this.name = name;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.time_manager.dto.clock;
+
+import java.time.Instant;
+import com.example.time_manager.model.ClockKind;
+import jakarta.validation.constraints.NotNull;
+
+public record ClockBatchPunch(
+        @NotNull String userId,
+        @NotNull ClockKind kind,
+        Instant at
+) {}
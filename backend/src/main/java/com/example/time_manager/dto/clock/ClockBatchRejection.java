@@ -0,0 +1,15 @@
+package com.example.time_manager.dto.clock;
+
+public class ClockBatchRejection {
+    public int index;
+    public String userId;
+    public String reason;
+
+    public ClockBatchRejection() {}
+
+    public ClockBatchRejection(int index, String userId, String reason) {
+        this.index = index;
+        this.userId = userId;
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.time_manager.dto.clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClockBatchResult {
+    public int accepted;
+    public List<ClockBatchRejection> rejected = new ArrayList<>();
+}
@@ -0,0 +1,11 @@
+package com.example.time_manager.dto.clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.time_manager.dto.common.PageInfo;
+
+public class ClockConnection {
+    public List<ClockEdge> edges = new ArrayList<>();
+    public PageInfo pageInfo = new PageInfo();
+}
@@ -0,0 +1,13 @@
+package com.example.time_manager.dto.clock;
+
+public class ClockEdge {
+    public String cursor;
+    public ClockResponse node;
+
+    public ClockEdge() {}
+
+    public ClockEdge(String cursor, ClockResponse node) {
+        this.cursor = cursor;
+        this.node = node;
+    }
+}
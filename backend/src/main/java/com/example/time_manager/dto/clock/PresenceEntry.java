@@ -0,0 +1,12 @@
+package com.example.time_manager.dto.clock;
+
+import com.example.time_manager.model.ClockKind;
+import java.time.Instant;
+
+public class PresenceEntry {
+    public String userId;
+    /** Last punch kind, null when the user never punched. */
+    public ClockKind state;
+    public Instant lastPunchAt;
+    public Long secondsSinceLastPunch;
+}
@@ -0,0 +1,14 @@
+package com.example.time_manager.dto.common;
+
+/** Relay-style page metadata shared by the cursor-paginated queries. */
+public class PageInfo {
+    public boolean hasNextPage;
+    public String endCursor;
+
+    public PageInfo() {}
+
+    public PageInfo(boolean hasNextPage, String endCursor) {
+        this.hasNextPage = hasNextPage;
+        this.endCursor = endCursor;
+    }
+}
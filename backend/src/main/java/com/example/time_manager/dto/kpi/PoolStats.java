@@ -0,0 +1,10 @@
+package com.example.time_manager.dto.kpi;
+
+public record PoolStats(
+    String name,
+    int active,
+    int idle,
+    int total,
+    int waiting,
+    int maxSize
+) {}
@@ -0,0 +1,12 @@
+package com.example.time_manager.dto.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.time_manager.dto.common.PageInfo;
+
+public class ReportConnection {
+    public List<ReportEdge> edges = new ArrayList<>();
+    public PageInfo pageInfo = new PageInfo();
+    public int unreadCount;
+}
@@ -0,0 +1,13 @@
+package com.example.time_manager.dto.report;
+
+public class ReportEdge {
+    public String cursor;
+    public ReportResponse node;
+
+    public ReportEdge() {}
+
+    public ReportEdge(String cursor, ReportResponse node) {
+        this.cursor = cursor;
+        this.node = node;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.time_manager.dto.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A search match: the report as listed, its relevance and the marked-up fragments that matched. */
+public class ReportHit {
+    public ReportResponse report;
+    public double score;
+    public List<String> highlights = new ArrayList<>();
+
+    public ReportHit() {}
+
+    public ReportHit(ReportResponse report, double score, List<String> highlights) {
+        this.report = report;
+        this.score = score;
+        this.highlights = highlights;
+    }
+}
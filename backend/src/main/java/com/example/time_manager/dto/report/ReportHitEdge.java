@@ -0,0 +1,13 @@
+package com.example.time_manager.dto.report;
+
+public class ReportHitEdge {
+    public String cursor;
+    public ReportHit node;
+
+    public ReportHitEdge() {}
+
+    public ReportHitEdge(String cursor, ReportHit node) {
+        this.cursor = cursor;
+        this.node = node;
+    }
+}
@@ -20,9 +20,11 @@ public class ReportResponse {
 
   private String title;
   private String body;
+  private String preview;
 
   private Instant createdAt;
   private Instant updatedAt;
+  private Instant readAt;
 
   public ReportResponse() {}
 
@@ -59,9 +61,15 @@ public class ReportResponse {
   public String getBody() { return body; }
   public void setBody(String body) { this.body = body; }
 
+  public String getPreview() { return preview; }
+  public void setPreview(String preview) { this.preview = preview; }
+
   public Instant getCreatedAt() { return createdAt; }
   public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
   public Instant getUpdatedAt() { return updatedAt; }
   public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+  public Instant getReadAt() { return readAt; }
+  public void setReadAt(Instant readAt) { this.readAt = readAt; }
 }
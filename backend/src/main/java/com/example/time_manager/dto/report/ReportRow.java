@@ -0,0 +1,39 @@
+package com.example.time_manager.dto.report;
+
+import java.time.Instant;
+
+/**
+ * A report as listed: the three users' id and email come from the same
+ * statement and only the start of the body is read, the whole body is read
+ * when the report is opened.
+ */
+public record ReportRow(
+    Long id,
+    String authorId,
+    String authorEmail,
+    String targetUserId,
+    String targetEmail,
+    String subjectUserId,
+    String subjectEmail,
+    String type,
+    String severity,
+    String title,
+    String preview,
+    Instant createdAt,
+    Instant updatedAt,
+    Instant readAt
+) {
+
+    /** Characters of the body shown in lists. */
+    public static final int PREVIEW_LENGTH = 100;
+
+    public ReportRow {
+        preview = preview(preview);
+    }
+
+    /** The first {@link #PREVIEW_LENGTH} characters of a body, with "…" when there is more. */
+    public static String preview(String body) {
+        if (body == null || body.length() <= PREVIEW_LENGTH) return body;
+        return body.substring(0, PREVIEW_LENGTH) + "…";
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.time_manager.dto.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.time_manager.dto.common.PageInfo;
+
+public class ReportSearchConnection {
+    public List<ReportHitEdge> edges = new ArrayList<>();
+    public PageInfo pageInfo = new PageInfo();
+}
@@ -0,0 +1,45 @@
+package com.example.time_manager.graphql.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+
+import com.example.time_manager.dto.calendar.Holiday;
+import com.example.time_manager.service.CalendarService;
+
+/**
+ * Holidays of the calendar dimension. Anyone can read them; only ADMIN can
+ * change them, which re-plans that day in the KPI rollups.
+ */
+@PreAuthorize("isAuthenticated()")
+@Controller
+public class CalendarGraphQLController {
+
+    private final CalendarService calendarService;
+
+    public CalendarGraphQLController(CalendarService calendarService) {
+        this.calendarService = calendarService;
+    }
+
+    @QueryMapping
+    public List<Holiday> holidays(@Argument String from, @Argument String to) {
+        return calendarService.holidays(LocalDate.parse(from), LocalDate.parse(to));
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @MutationMapping
+    public Holiday setHoliday(@Argument String day, @Argument String name) {
+        return calendarService.setHoliday(LocalDate.parse(day), name);
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @MutationMapping
+    public boolean clearHoliday(@Argument String day) {
+        return calendarService.clearHoliday(LocalDate.parse(day));
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.time_manager.graphql.controller;
 
+import com.example.time_manager.dto.clock.ClockBatchPunch;
+import com.example.time_manager.dto.clock.ClockBatchResult;
+import com.example.time_manager.dto.clock.ClockConnection;
 import com.example.time_manager.dto.clock.ClockCreateRequest;
 import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.service.ClockIngestService;
 import com.example.time_manager.service.ClockService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -18,9 +22,11 @@ import java.util.List;
 public class ClockGraphQLController {
 
     private final ClockService clockService;
+    private final ClockIngestService clockIngestService;
 
-    public ClockGraphQLController(ClockService clockService) {
+    public ClockGraphQLController(ClockService clockService, ClockIngestService clockIngestService) {
         this.clockService = clockService;
+        this.clockIngestService = clockIngestService;
     }
 
     // === QUERIES ===
@@ -47,6 +53,26 @@ public class ClockGraphQLController {
         return clockService.listForUser(userId, fromInstant, toInstant);
     }
 
+    /** Cursor-paginated history (newest first), no date range needed */
+    @QueryMapping
+    public ClockConnection myClockHistory(
+            @Argument Integer first,
+            @Argument String after,
+            Authentication auth
+    ) {
+        return clockService.historyForEmail(auth.getName(), first, after);
+    }
+
+    @PreAuthorize("hasAnyAuthority('MANAGER','ADMIN')")
+    @QueryMapping
+    public ClockConnection clockHistoryForUser(
+            @Argument String userId,
+            @Argument Integer first,
+            @Argument String after
+    ) {
+        return clockService.historyForUser(userId, first, after);
+    }
+
     // === MUTATIONS ===
     @MutationMapping
     public ClockResponse createClockForMe(
@@ -65,6 +91,13 @@ public class ClockGraphQLController {
         return clockService.createForUser(userId, input);
     }
 
+    /** Badge terminals: bulk punches, validated per user and written in JDBC batches */
+    @PreAuthorize("hasAnyAuthority('TERMINAL','MANAGER','ADMIN')")
+    @MutationMapping
+    public ClockBatchResult ingestClockBatch(@Argument List<ClockBatchPunch> input) {
+        return clockIngestService.ingest(input);
+    }
+
     // === EXCEPTIONS ===
     @org.springframework.web.bind.annotation.ExceptionHandler(IllegalStateException.class)
     public String handleIllegalState(IllegalStateException ex) {
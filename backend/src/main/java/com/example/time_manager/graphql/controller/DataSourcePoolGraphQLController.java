@@ -0,0 +1,26 @@
+package com.example.time_manager.graphql.controller;
+
+import java.util.List;
+
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+
+import com.example.time_manager.dto.kpi.PoolStats;
+import com.example.time_manager.service.DataSourcePoolService;
+
+@PreAuthorize("hasAuthority('ADMIN')")
+@Controller
+public class DataSourcePoolGraphQLController {
+
+    private final DataSourcePoolService poolService;
+
+    public DataSourcePoolGraphQLController(DataSourcePoolService poolService) {
+        this.poolService = poolService;
+    }
+
+    @QueryMapping
+    public List<PoolStats> dataSourcePools() {
+        return poolService.stats();
+    }
+}
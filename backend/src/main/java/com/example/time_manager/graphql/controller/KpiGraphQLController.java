@@ -1,11 +1,20 @@
 package com.example.time_manager.graphql.controller;
 import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.KpiGranularity;
+import com.example.time_manager.model.kpi.KpiJob;
+import com.example.time_manager.model.kpi.KpiPoint;
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.PunchHeatCell;
+import com.example.time_manager.model.kpi.PunctualityStats;
 import com.example.time_manager.model.kpi.TeamKpiSummary;
 import com.example.time_manager.model.kpi.UserKpiSummary;
 import com.example.time_manager.repository.UserRepository;
 import com.example.time_manager.service.KpiService;
+import com.example.time_manager.service.TeamService;
+import com.example.time_manager.service.kpi.KpiJobService;
 
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
@@ -14,6 +23,7 @@ import org.springframework.security.access.AccessDeniedException;
 
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @PreAuthorize("isAuthenticated()")
@@ -22,11 +32,17 @@ public class KpiGraphQLController {
 
     private final KpiService kpiService;
     private final UserRepository userRepository;
+    private final TeamService teamService;
+    private final KpiJobService kpiJobService;
 
     public KpiGraphQLController(KpiService kpiService,
-                                UserRepository userRepository) {
+                                UserRepository userRepository,
+                                TeamService teamService,
+                                KpiJobService kpiJobService) {
         this.kpiService = kpiService;
         this.userRepository = userRepository;
+        this.teamService = teamService;
+        this.kpiJobService = kpiJobService;
     }
 
       @QueryMapping
@@ -80,6 +96,62 @@ public class KpiGraphQLController {
         return kpiService.getTeam(teamId, start, end);
     }
 
+    @QueryMapping
+    @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+    public List<TeamKpiSummary> teamKpis(@Argument List<Integer> teamIds,
+                                         @Argument String startDate,
+                                         @Argument String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end   = LocalDate.parse(endDate);
+        return kpiService.getTeams(teamIds, start, end);
+    }
+
+    @QueryMapping
+    @PreAuthorize("hasAuthority('MANAGER')")
+    public List<TeamKpiSummary> myManagedTeamsKpi(@Argument String startDate,
+                                                  @Argument String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end   = LocalDate.parse(endDate);
+        List<Integer> teamIds = teamService.findManagedByCurrentUser().stream()
+                .map(t -> t.getId().intValue())
+                .toList();
+        return kpiService.getTeams(teamIds, start, end);
+    }
+
+    @QueryMapping
+    @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+    public List<KpiPoint> kpiSeries(@Argument KpiScope scope,
+                                    @Argument String id,
+                                    @Argument String startDate,
+                                    @Argument String endDate,
+                                    @Argument KpiGranularity granularity) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end   = LocalDate.parse(endDate);
+        return kpiService.getSeries(scope, id, start, end, granularity);
+    }
+
+    @QueryMapping
+    @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+    public PunctualityStats punctuality(@Argument KpiScope scope,
+                                        @Argument String id,
+                                        @Argument String startDate,
+                                        @Argument String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end   = LocalDate.parse(endDate);
+        return kpiService.getPunctuality(scope, id, start, end);
+    }
+
+    @QueryMapping
+    @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+    public List<PunchHeatCell> punchHeatmap(@Argument KpiScope scope,
+                                            @Argument String id,
+                                            @Argument String startDate,
+                                            @Argument String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end   = LocalDate.parse(endDate);
+        return kpiService.getPunchHeatmap(scope, id, start, end);
+    }
+
     @QueryMapping
     @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
     public UserKpiSummary userKpi(@Argument UUID userId,
@@ -89,4 +161,25 @@ public class KpiGraphQLController {
         LocalDate end   = LocalDate.parse(endDate);
         return kpiService.getUser(userId, start, end);
     }
+
+    @MutationMapping
+    @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+    public KpiJob startKpiJob(@Argument KpiScope scope,
+                              @Argument String id,
+                              @Argument String startDate,
+                              @Argument String endDate,
+                              Authentication authentication) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end   = LocalDate.parse(endDate);
+        String requestedBy = userRepository.findByEmail(authentication.getName())
+                .map(u -> u.getId())
+                .orElse(null);
+        return kpiJobService.start(scope, id, start, end, requestedBy);
+    }
+
+    @QueryMapping
+    @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+    public KpiJob kpiJob(@Argument String id) {
+        return kpiJobService.find(id);
+    }
 }
@@ -0,0 +1,40 @@
+package com.example.time_manager.graphql.controller;
+
+import java.util.List;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+
+import com.example.time_manager.dto.clock.PresenceEntry;
+import com.example.time_manager.service.PresenceService;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Live team board: current IN/OUT state of each member, served from the
+ * in-memory presence index. Same access rule as team membership changes.
+ */
+@Controller
+public class PresenceGraphQLController {
+
+    private final PresenceService presenceService;
+
+    public PresenceGraphQLController(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN') or (hasAuthority('MANAGER') and @teamService.isCurrentUserMemberOfTeam(#teamId))")
+    @QueryMapping
+    public List<PresenceEntry> teamPresence(@Argument Long teamId) {
+        return presenceService.teamPresence(teamId);
+    }
+
+    @PreAuthorize("hasAuthority('ADMIN') or (hasAuthority('MANAGER') and @teamService.isCurrentUserMemberOfTeam(#teamId))")
+    @SubscriptionMapping
+    public Flux<PresenceEntry> teamPresenceChanged(@Argument Long teamId) {
+        return presenceService.teamPresenceChanges(teamId);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.time_manager.graphql.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -9,8 +10,10 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
+import com.example.time_manager.dto.report.ReportConnection;
 import com.example.time_manager.dto.report.ReportCreateRequest;
 import com.example.time_manager.dto.report.ReportResponse;
+import com.example.time_manager.dto.report.ReportSearchConnection;
 import com.example.time_manager.dto.report.ReportUpdateRequest;
 import com.example.time_manager.service.ReportService;
 
@@ -41,12 +44,43 @@ public class ReportGraphQLController {
     return reportService.listAuthoredByEmail(auth.getName());
   }
 
-  /** Reports where I am the target */
+  /** Reports where I am the target (500 most recent) */
   @QueryMapping
   public List<ReportResponse> reportsForMe(Authentication auth) {
     return reportService.listReceivedByEmail(auth.getName());
   }
 
+  /** Reports where I am the target, newest first, one page at a time */
+  @QueryMapping
+  public ReportConnection reportInbox(@Argument Integer first, @Argument String after, Authentication auth) {
+    return reportService.inboxForEmail(auth.getName(), first, after);
+  }
+
+  /** Number of my received reports not read yet */
+  @QueryMapping
+  public Integer unreadReportCount(Authentication auth) {
+    return reportService.unreadCountForEmail(auth.getName());
+  }
+
+  /** Full-text search, best matches first (admin: all reports, manager: authored or received) */
+  @QueryMapping
+  @PreAuthorize("hasAnyAuthority('ADMIN','MANAGER')")
+  public ReportSearchConnection searchReports(
+      @Argument String query,
+      @Argument String type,
+      @Argument String severity,
+      @Argument String from,
+      @Argument String to,
+      @Argument Integer first,
+      @Argument String after,
+      Authentication auth
+  ) {
+    return reportService.searchVisibleTo(auth.getName(), query, type, severity,
+        from != null ? LocalDate.parse(from) : null,
+        to != null ? LocalDate.parse(to) : null,
+        first, after);
+  }
+
   /** Single report (visible if admin / author / target) */
   @QueryMapping
   public ReportResponse report(@Argument Long id, Authentication auth) {
@@ -74,6 +108,18 @@ public class ReportGraphQLController {
     return reportService.updateVisibleTo(auth.getName(), id, input);
   }
 
+  /** Mark a received report read (target only) */
+  @MutationMapping
+  public Boolean markReportRead(@Argument Long id, Authentication auth) {
+    return reportService.markReadForEmail(auth.getName(), id);
+  }
+
+  /** Mark all my received reports read; returns how many were unread */
+  @MutationMapping
+  public Integer markAllReportsRead(Authentication auth) {
+    return reportService.markAllReadForEmail(auth.getName());
+  }
+
   /** Delete report (admin or author) */
   @MutationMapping
   public Boolean deleteReport(@Argument Long id, Authentication auth) {
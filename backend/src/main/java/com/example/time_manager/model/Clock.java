@@ -2,15 +2,26 @@ package com.example.time_manager.model;
 
 import jakarta.persistence.*;
 import java.time.Instant;
+import java.time.LocalDate;
 
 @Entity
-@Table(name = "clocks")
+@Table(
+    name = "clocks",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uq_clocks_user_seq", columnNames = {"user_id", "seq"})
+    },
+    indexes = {
+        @Index(name = "idx_clocks_user_at_id", columnList = "user_id,at,id"),
+        @Index(name = "idx_clocks_at", columnList = "at"),
+        @Index(name = "idx_clocks_user_work_date", columnList = "user_id,work_date")
+    }
+)
 public class Clock {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
     private User user;
 
@@ -21,6 +32,14 @@ public class Clock {
     @Column(name = "at", nullable = false)
     private Instant at;
 
+    /** Local day of {@code at} in the user's time zone, fixed at punch time. */
+    @Column(name = "work_date", nullable = false)
+    private LocalDate workDate;
+
+    /** Per-user punch number, 1, 2, 3... The unique (user_id, seq) key rejects racing punches. */
+    @Column(name = "seq", nullable = false)
+    private Long seq;
+
     // getters/setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -33,4 +52,10 @@ public class Clock {
 
     public Instant getAt() { return at; }
     public void setAt(Instant at) { this.at = at; }
+
+    public LocalDate getWorkDate() { return workDate; }
+    public void setWorkDate(LocalDate workDate) { this.workDate = workDate; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
 }
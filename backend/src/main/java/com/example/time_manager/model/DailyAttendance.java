@@ -0,0 +1,107 @@
+package com.example.time_manager.model;
+
+import jakarta.persistence.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One row per (user, work date), maintained from the punch path so that
+ * KPIs and auto-report rules never have to replay raw clock history.
+ */
+@Entity
+@Table(
+    name = "daily_attendance",
+    uniqueConstraints = @UniqueConstraint(name = "uq_attendance_user_date", columnNames = {"user_id", "work_date"}),
+    indexes = @Index(name = "idx_attendance_date", columnList = "work_date")
+)
+public class DailyAttendance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 36)
+    private String userId;
+
+    @Column(name = "work_date", nullable = false)
+    private LocalDate workDate;
+
+    @Column(name = "first_in")
+    private Instant firstIn;
+
+    @Column(name = "last_out")
+    private Instant lastOut;
+
+    /** Start of the session still running, null once it has been closed by an OUT. */
+    @Column(name = "open_in")
+    private Instant openIn;
+
+    @Column(name = "last_punch_at")
+    private Instant lastPunchAt;
+
+    @Column(name = "worked_seconds", nullable = false)
+    private long workedSeconds;
+
+    @Column(name = "punch_count", nullable = false)
+    private int punchCount;
+
+    /**
+     * Folds one punch into the day. Punches must be applied in time order;
+     * pauses are excluded because only closed IN -> OUT sessions are summed.
+     */
+    public void apply(ClockKind kind, Instant at) {
+        punchCount++;
+        lastPunchAt = at;
+
+        if (kind == ClockKind.IN) {
+            if (firstIn == null) firstIn = at;
+            if (openIn == null) openIn = at;
+            return;
+        }
+
+        lastOut = at;
+        if (openIn != null && at.isAfter(openIn)) {
+            workedSeconds += Duration.between(openIn, at).getSeconds();
+            openIn = null;
+        }
+    }
+
+    public void reset() {
+        firstIn = null;
+        lastOut = null;
+        openIn = null;
+        lastPunchAt = null;
+        workedSeconds = 0;
+        punchCount = 0;
+    }
+
+    public int getWorkedMinutes() { return (int) (workedSeconds / 60); }
+
+    // getters/setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public LocalDate getWorkDate() { return workDate; }
+    public void setWorkDate(LocalDate workDate) { this.workDate = workDate; }
+
+    public Instant getFirstIn() { return firstIn; }
+    public void setFirstIn(Instant firstIn) { this.firstIn = firstIn; }
+
+    public Instant getLastOut() { return lastOut; }
+    public void setLastOut(Instant lastOut) { this.lastOut = lastOut; }
+
+    public Instant getOpenIn() { return openIn; }
+    public void setOpenIn(Instant openIn) { this.openIn = openIn; }
+
+    public Instant getLastPunchAt() { return lastPunchAt; }
+    public void setLastPunchAt(Instant lastPunchAt) { this.lastPunchAt = lastPunchAt; }
+
+    public long getWorkedSeconds() { return workedSeconds; }
+    public void setWorkedSeconds(long workedSeconds) { this.workedSeconds = workedSeconds; }
+
+    public int getPunchCount() { return punchCount; }
+    public void setPunchCount(int punchCount) { this.punchCount = punchCount; }
+}
@@ -61,6 +61,10 @@ public class Report {
   )
   private Instant updatedAt;
 
+  /** Set once the target opened it; written by ReportInbox only. */
+  @Column(name = "read_at", insertable = false, updatable = false)
+  private Instant readAt;
+
   @PrePersist
   protected void onCreate() {
     if (createdAt == null) {
@@ -101,4 +105,6 @@ public class Report {
   public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
   public Instant getUpdatedAt() { return updatedAt; }
+
+  public Instant getReadAt() { return readAt; }
 }
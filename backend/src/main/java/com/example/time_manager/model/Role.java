@@ -0,0 +1,87 @@
+package com.example.time_manager.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Global roles of a user, as bits of {@link User#getRoleMask()} and rows of
+ * the user_roles table.
+ *
+ * Bits are stored: a constant keeps its bit forever and a new role takes a
+ * new one, whatever the declaration order.
+ */
+public enum Role {
+    EMPLOYEE(1), MANAGER(2), ADMIN(4),
+    /** Badge terminal account, allowed to upload punch batches. */
+    TERMINAL(8);
+
+    private static final Role[] VALUES = values();
+
+    private final int bit;
+
+    Role(int bit) {
+        this.bit = bit;
+    }
+
+    public int bit() {
+        return bit;
+    }
+
+    public boolean in(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    /** The role of a name such as "manager" or "ROLE_MANAGER", null when unknown. */
+    public static Role from(String name) {
+        if (name == null) return null;
+        int mask = maskOf(name);
+        for (Role r : VALUES) {
+            if (r.in(mask)) return r;
+        }
+        return null;
+    }
+
+    public static Set<Role> of(int mask) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role r : VALUES) {
+            if (r.in(mask)) roles.add(r);
+        }
+        return roles;
+    }
+
+    /**
+     * Bits of the roles named in a stored role string, whatever its shape:
+     * a JSON array (["employee","manager"]), a delimited list
+     * ("manager,employee") or a single name, in any case. Unknown names are
+     * ignored.
+     */
+    public static int maskOf(String raw) {
+        if (raw == null) return 0;
+        int mask = 0;
+        int n = raw.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && !isNameChar(raw.charAt(i))) i++;
+            int start = i;
+            while (i < n && isNameChar(raw.charAt(i))) i++;
+            if (i > start) mask |= bitOf(raw, start, i - start);
+        }
+        return mask;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    private static int bitOf(String raw, int start, int len) {
+        if (len > 5 && raw.regionMatches(true, start, "ROLE_", 0, 5)) {
+            start += 5;
+            len -= 5;
+        }
+        for (Role r : VALUES) {
+            String name = r.name();
+            if (len == name.length() && raw.regionMatches(true, start, name, 0, len)) return r.bit();
+        }
+        return 0;
+    }
+}
@@ -1,10 +1,19 @@
 package com.example.time_manager.model;
 
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.Set;
+
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Table;
 
 @Entity
@@ -25,6 +34,15 @@ public class User {
 
     private String phone;
     private String role;
+    /** Bits of {@link Role}, derived from role on every change. */
+    @Column(name = "role_mask", nullable = false)
+    private int roleMask;
+    /** Same roles as rows of user_roles, indexed by role for counts. */
+    @ElementCollection
+    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role", length = 16)
+    private Set<Role> roles = EnumSet.noneOf(Role.class);
     private String poste;
     private String password;
     @Column(name = "avatar_url", length = 500)
@@ -32,6 +50,9 @@ public class User {
     private String azureOid;
     @Column(name = "first_connection", nullable = false)
     private boolean firstConnection = true;
+    /** IANA zone id (e.g. Europe/Paris) used to bucket punches into work days; server zone when null. */
+    @Column(name = "time_zone", length = 64)
+    private String timeZone;
 
     public User() {
     }
@@ -54,7 +75,17 @@ public class User {
     public void setPhone(String phone) {this.phone = phone;}
 
     public String getRole() {return role;}
-    public void setRole(String role) {this.role = role;}
+    public void setRole(String role) {
+        this.role = role;
+        this.roleMask = Role.maskOf(role);
+        Set<Role> now = Role.of(roleMask);
+        roles.retainAll(now);
+        roles.addAll(now);
+    }
+
+    public int getRoleMask() { return roleMask; }
+
+    public boolean hasRole(Role r) { return r.in(roleMask); }
 
     public String getPoste() {return poste;}
     public void setPoste(String poste) {this.poste = poste;}
@@ -71,5 +102,14 @@ public class User {
     public boolean isFirstConnection() { return firstConnection; }
     public void setFirstConnection(boolean firstConnection) { this.firstConnection = firstConnection; }
 
+    public String getTimeZone() { return timeZone; }
+    public void setTimeZone(String timeZone) { this.timeZone = timeZone; }
+
+    public ZoneId zoneId() { return zoneOf(timeZone); }
+
+    public static ZoneId zoneOf(String timeZone) {
+        return (timeZone == null || timeZone.isBlank()) ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+    }
+
 
 }
@@ -0,0 +1,3 @@
+package com.example.time_manager.model.kpi;
+
+public enum KpiGranularity { DAY, WEEK, MONTH }
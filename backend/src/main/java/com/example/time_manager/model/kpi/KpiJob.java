@@ -0,0 +1,64 @@
+package com.example.time_manager.model.kpi;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/** A KPI computation run in the background; exactly one of global, team and user is set once DONE. */
+public class KpiJob {
+
+    private String id;
+    private KpiJobStatus status;
+    private KpiScope scope;
+    private String targetId;
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private String error;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    private GlobalKpiSummary global;
+    private TeamKpiSummary team;
+    private UserKpiSummary user;
+
+    public KpiJob() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public KpiJobStatus getStatus() { return status; }
+    public void setStatus(KpiJobStatus status) { this.status = status; }
+
+    public KpiScope getScope() { return scope; }
+    public void setScope(KpiScope scope) { this.scope = scope; }
+
+    public String getTargetId() { return targetId; }
+    public void setTargetId(String targetId) { this.targetId = targetId; }
+
+    public LocalDate getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+
+    public LocalDate getPeriodEnd() { return periodEnd; }
+    public void setPeriodEnd(LocalDate periodEnd) { this.periodEnd = periodEnd; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public GlobalKpiSummary getGlobal() { return global; }
+    public void setGlobal(GlobalKpiSummary global) { this.global = global; }
+
+    public TeamKpiSummary getTeam() { return team; }
+    public void setTeam(TeamKpiSummary team) { this.team = team; }
+
+    public UserKpiSummary getUser() { return user; }
+    public void setUser(UserKpiSummary user) { this.user = user; }
+}
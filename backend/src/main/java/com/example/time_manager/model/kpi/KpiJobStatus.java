@@ -0,0 +1,3 @@
+package com.example.time_manager.model.kpi;
+
+public enum KpiJobStatus { PENDING, RUNNING, DONE, FAILED }
\ No newline at end of file
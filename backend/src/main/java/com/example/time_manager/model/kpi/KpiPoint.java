@@ -0,0 +1,47 @@
+package com.example.time_manager.model.kpi;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+
+public class KpiPoint {
+private LocalDate bucketStart;
+private LocalDate bucketEnd; // inclusive, clipped to the requested period
+
+
+private BigDecimal presenceRate;
+private BigDecimal avgHoursPerDay;
+private BigDecimal absenceUnits; // in days (AM/PM = 0.5)
+
+
+private BigDecimal lateRate; // late days / planned days
+private BigDecimal avgDelayMinutes;
+
+
+public LocalDate getBucketStart() { return bucketStart; }
+public void setBucketStart(LocalDate bucketStart) { this.bucketStart = bucketStart; }
+
+
+public LocalDate getBucketEnd() { return bucketEnd; }
+public void setBucketEnd(LocalDate bucketEnd) { this.bucketEnd = bucketEnd; }
+
+
+public BigDecimal getPresenceRate() { return presenceRate; }
+public void setPresenceRate(BigDecimal presenceRate) { this.presenceRate = presenceRate; }
+
+
+public BigDecimal getAvgHoursPerDay() { return avgHoursPerDay; }
+public void setAvgHoursPerDay(BigDecimal avgHoursPerDay) { this.avgHoursPerDay = avgHoursPerDay; }
+
+
+public BigDecimal getAbsenceUnits() { return absenceUnits; }
+public void setAbsenceUnits(BigDecimal absenceUnits) { this.absenceUnits = absenceUnits; }
+
+
+public BigDecimal getLateRate() { return lateRate; }
+public void setLateRate(BigDecimal lateRate) { this.lateRate = lateRate; }
+
+
+public BigDecimal getAvgDelayMinutes() { return avgDelayMinutes; }
+public void setAvgDelayMinutes(BigDecimal avgDelayMinutes) { this.avgDelayMinutes = avgDelayMinutes; }
+}
\ No newline at end of file
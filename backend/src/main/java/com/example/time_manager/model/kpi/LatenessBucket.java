@@ -0,0 +1,30 @@
+package com.example.time_manager.model.kpi;
+
+
+public class LatenessBucket {
+private Integer minMinutes;
+private Integer maxMinutes; // null for the open-ended last bucket
+private Integer count;
+
+
+public LatenessBucket() {}
+
+
+public LatenessBucket(Integer minMinutes, Integer maxMinutes, Integer count) {
+this.minMinutes = minMinutes;
+this.maxMinutes = maxMinutes;
+this.count = count;
+}
+
+
+public Integer getMinMinutes() { return minMinutes; }
+public void setMinMinutes(Integer minMinutes) { this.minMinutes = minMinutes; }
+
+
+public Integer getMaxMinutes() { return maxMinutes; }
+public void setMaxMinutes(Integer maxMinutes) { this.maxMinutes = maxMinutes; }
+
+
+public Integer getCount() { return count; }
+public void setCount(Integer count) { this.count = count; }
+}
\ No newline at end of file
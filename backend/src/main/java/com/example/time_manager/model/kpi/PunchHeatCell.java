@@ -0,0 +1,36 @@
+package com.example.time_manager.model.kpi;
+
+
+public class PunchHeatCell {
+private String dayOfWeek; // MON..SUN, in the user's time zone
+private Integer hour;     // 0..23, local
+private Integer ins;
+private Integer outs;
+
+
+public PunchHeatCell() {}
+
+
+public PunchHeatCell(String dayOfWeek, Integer hour, Integer ins, Integer outs) {
+this.dayOfWeek = dayOfWeek;
+this.hour = hour;
+this.ins = ins;
+this.outs = outs;
+}
+
+
+public String getDayOfWeek() { return dayOfWeek; }
+public void setDayOfWeek(String dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+
+
+public Integer getHour() { return hour; }
+public void setHour(Integer hour) { this.hour = hour; }
+
+
+public Integer getIns() { return ins; }
+public void setIns(Integer ins) { this.ins = ins; }
+
+
+public Integer getOuts() { return outs; }
+public void setOuts(Integer outs) { this.outs = outs; }
+}
\ No newline at end of file
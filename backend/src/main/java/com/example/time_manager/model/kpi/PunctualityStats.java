@@ -1,11 +1,18 @@
 package com.example.time_manager.model.kpi;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 
 public class PunctualityStats {
 private BigDecimal lateRate;
 private BigDecimal avgDelayMinutes;
+private Integer lateCount;
+private Integer plannedDays;
+private List<LatenessBucket> distribution; // late arrivals by delay
+
+
+public PunctualityStats() {}
 
 
 public PunctualityStats(BigDecimal lateRate, BigDecimal avgDelayMinutes) {
@@ -20,4 +27,16 @@ public void setLateRate(BigDecimal lateRate) { this.lateRate = lateRate; }
 
 public BigDecimal getAvgDelayMinutes() { return avgDelayMinutes; }
 public void setAvgDelayMinutes(BigDecimal avgDelayMinutes) { this.avgDelayMinutes = avgDelayMinutes; }
+
+
+public Integer getLateCount() { return lateCount; }
+public void setLateCount(Integer lateCount) { this.lateCount = lateCount; }
+
+
+public Integer getPlannedDays() { return plannedDays; }
+public void setPlannedDays(Integer plannedDays) { this.plannedDays = plannedDays; }
+
+
+public List<LatenessBucket> getDistribution() { return distribution; }
+public void setDistribution(List<LatenessBucket> distribution) { this.distribution = distribution; }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.example.time_manager.model.outbox;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.absence.AbsenceStatus;
+
+import jakarta.persistence.*;
+
+/**
+ * Transactional outbox row: an automatic-report trigger recorded in the same
+ * transaction as the write that caused it, evaluated later by the worker.
+ */
+@Entity
+@Table(
+  name = "auto_report_outbox",
+  indexes = {
+    @Index(name = "idx_outbox_status_id", columnList = "status,id")
+  }
+)
+public class AutoReportEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 32)
+  private AutoReportEventType type;
+
+  /* CLOCK_CREATED */
+  @Column(name = "user_id", length = 36)
+  private String userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "clock_kind", length = 3)
+  private ClockKind clockKind;
+
+  @Column(name = "clock_at")
+  private Instant clockAt;
+
+  @Column(name = "clock_work_date")
+  private LocalDate clockWorkDate;
+
+  /* ABSENCE_* */
+  @Column(name = "absence_id")
+  private Long absenceId;
+
+  @Column(name = "actor_email", length = 255)
+  private String actorEmail;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "previous_status", length = 20)
+  private AbsenceStatus previousStatus;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "new_status", length = 20)
+  private AbsenceStatus newStatus;
+
+  /* processing state */
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private OutboxStatus status = OutboxStatus.PENDING;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(name = "last_error", length = 500)
+  private String lastError;
+
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private Instant createdAt;
+
+  @Column(name = "claimed_at")
+  private Instant claimedAt;
+
+  @Column(name = "processed_at")
+  private Instant processedAt;
+
+  @PrePersist
+  protected void onCreate() {
+    if (createdAt == null) {
+      createdAt = Instant.now();
+    }
+  }
+
+  /* getters/setters */
+
+  public Long getId() { return id; }
+  public void setId(Long id) { this.id = id; }
+
+  public AutoReportEventType getType() { return type; }
+  public void setType(AutoReportEventType type) { this.type = type; }
+
+  public String getUserId() { return userId; }
+  public void setUserId(String userId) { this.userId = userId; }
+
+  public ClockKind getClockKind() { return clockKind; }
+  public void setClockKind(ClockKind clockKind) { this.clockKind = clockKind; }
+
+  public Instant getClockAt() { return clockAt; }
+  public void setClockAt(Instant clockAt) { this.clockAt = clockAt; }
+
+  public LocalDate getClockWorkDate() { return clockWorkDate; }
+  public void setClockWorkDate(LocalDate clockWorkDate) { this.clockWorkDate = clockWorkDate; }
+
+  public Long getAbsenceId() { return absenceId; }
+  public void setAbsenceId(Long absenceId) { this.absenceId = absenceId; }
+
+  public String getActorEmail() { return actorEmail; }
+  public void setActorEmail(String actorEmail) { this.actorEmail = actorEmail; }
+
+  public AbsenceStatus getPreviousStatus() { return previousStatus; }
+  public void setPreviousStatus(AbsenceStatus previousStatus) { this.previousStatus = previousStatus; }
+
+  public AbsenceStatus getNewStatus() { return newStatus; }
+  public void setNewStatus(AbsenceStatus newStatus) { this.newStatus = newStatus; }
+
+  public OutboxStatus getStatus() { return status; }
+  public void setStatus(OutboxStatus status) { this.status = status; }
+
+  public int getAttempts() { return attempts; }
+  public void setAttempts(int attempts) { this.attempts = attempts; }
+
+  public String getLastError() { return lastError; }
+  public void setLastError(String lastError) { this.lastError = lastError; }
+
+  public Instant getCreatedAt() { return createdAt; }
+  public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+  public Instant getClaimedAt() { return claimedAt; }
+  public void setClaimedAt(Instant claimedAt) { this.claimedAt = claimedAt; }
+
+  public Instant getProcessedAt() { return processedAt; }
+  public void setProcessedAt(Instant processedAt) { this.processedAt = processedAt; }
+}
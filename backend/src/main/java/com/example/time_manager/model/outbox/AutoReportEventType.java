@@ -0,0 +1,3 @@
+package com.example.time_manager.model.outbox;
+
+public enum AutoReportEventType { CLOCK_CREATED, ABSENCE_REQUESTED, ABSENCE_STATUS_CHANGED }
@@ -0,0 +1,3 @@
+package com.example.time_manager.model.outbox;
+
+public enum OutboxStatus { PENDING, PROCESSING, DONE, FAILED }
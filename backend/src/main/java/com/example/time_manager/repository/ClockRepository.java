@@ -1,10 +1,14 @@
 package com.example.time_manager.repository;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.time_manager.model.Clock;
@@ -18,7 +22,26 @@ public interface ClockRepository extends JpaRepository<Clock, Long> {
         Instant to
     );
 
-    List<Clock> findByUser_IdOrderByAtDesc(String userId);
+    /** One user's work day (work_date in the user's zone), served by idx_clocks_user_work_date. */
+    List<Clock> findByUser_IdAndWorkDateOrderByAtAscIdAsc(String userId, LocalDate workDate);
+
+    /** Newest first, bounded by the page size; backs the capped history and the first keyset page. */
+    List<Clock> findByUser_IdOrderByAtDescIdDesc(String userId, Pageable page);
+
+    /** Keyset page: rows strictly older than the (at, id) cursor, served by idx_clocks_user_at_id. */
+    @Query("select c from Clock c where c.user.id = :userId " +
+           "and (c.at < :at or (c.at = :at and c.id < :id)) " +
+           "order by c.at desc, c.id desc")
+    List<Clock> findPageBefore(
+        @Param("userId") String userId,
+        @Param("at") Instant at,
+        @Param("id") Long id,
+        Pageable page
+    );
 
     Optional<Clock> findTopByUser_IdOrderByAtDescIdDesc(String userId);
+
+    /** Highest punch number of the user in the hot table, served by uq_clocks_user_seq. */
+    @Query("select max(c.seq) from Clock c where c.user.id = :userId")
+    Long findMaxSeq(@Param("userId") String userId);
 }
@@ -0,0 +1,24 @@
+package com.example.time_manager.repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.time_manager.model.DailyAttendance;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface DailyAttendanceRepository extends JpaRepository<DailyAttendance, Long> {
+
+    Optional<DailyAttendance> findByUserIdAndWorkDate(String userId, LocalDate workDate);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from DailyAttendance a where a.userId = :userId and a.workDate = :workDate")
+    Optional<DailyAttendance> findForUpdate(@Param("userId") String userId, @Param("workDate") LocalDate workDate);
+}
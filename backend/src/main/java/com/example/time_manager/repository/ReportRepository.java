@@ -1,18 +1,43 @@
 package com.example.time_manager.repository;
 
+import java.time.Instant;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.example.time_manager.dto.report.ReportRow;
 import com.example.time_manager.model.Report;
 
 public interface ReportRepository extends JpaRepository<Report, Long> {
 
-  boolean existsByRuleKey(String ruleKey);
-
-  List<Report> findAllByOrderByCreatedAtDesc();
-
-  List<Report> findByAuthor_IdOrderByCreatedAtDesc(String authorId);
-
-  List<Report> findByTarget_IdOrderByCreatedAtDesc(String targetId);
+  /** Listing columns: users joined once, no body. */
+  String ROW = "select new com.example.time_manager.dto.report.ReportRow(" +
+      "r.id, a.id, a.email, t.id, t.email, s.id, s.email, " +
+      "r.type, r.severity, r.title, substring(r.body, 1, " + (ReportRow.PREVIEW_LENGTH + 1) + "), " +
+      "r.createdAt, r.updatedAt, r.readAt) " +
+      "from Report r join r.author a join r.target t left join r.subject s ";
+
+  @Query(ROW + "order by r.createdAt desc, r.id desc")
+  List<ReportRow> findAllRows();
+
+  @Query(ROW + "where a.id = :authorId order by r.createdAt desc, r.id desc")
+  List<ReportRow> findRowsByAuthor(@Param("authorId") String authorId);
+
+  /** Newest received reports, on idx_reports_target_created. */
+  @Query(ROW + "where t.id = :targetId order by r.createdAt desc, r.id desc")
+  List<ReportRow> findRowsByTarget(@Param("targetId") String targetId, Pageable page);
+
+  /** Inbox page after the (createdAt, id) cursor, on idx_reports_target_created. */
+  @Query(ROW + "where t.id = :targetId " +
+         "and (r.createdAt < :at or (r.createdAt = :at and r.id < :id)) " +
+         "order by r.createdAt desc, r.id desc")
+  List<ReportRow> findInboxRowsBefore(
+      @Param("targetId") String targetId,
+      @Param("at") Instant at,
+      @Param("id") Long id,
+      Pageable page
+  );
 }
@@ -1,5 +1,6 @@
 package com.example.time_manager.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,4 +28,8 @@ public interface TeamMemberRepository extends JpaRepository<TeamMember, Long> {
   @Query("select tm.user.id from TeamMember tm where tm.team.id = :teamId")
   List<String> findUserIdsByTeamId(@Param("teamId") Long teamId);
 
+  /** (team id, user id) pairs of the given teams. */
+  @Query("select tm.team.id, tm.user.id from TeamMember tm where tm.team.id in :teamIds")
+  List<Object[]> findTeamAndUserIdsByTeamIds(@Param("teamIds") Collection<Long> teamIds);
+
 }
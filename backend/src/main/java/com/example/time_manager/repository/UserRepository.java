@@ -1,7 +1,10 @@
 package com.example.time_manager.repository;
 
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
 import java.util.List;
@@ -14,4 +17,9 @@ public interface UserRepository extends JpaRepository<User, String> {
     boolean existsByEmail(String email);
     Optional<User> findByEmail(String email);
     Optional<User> findByAzureOid(String azureOid);
+    List<User> findByRoleMask(int roleMask);
+
+    /** Users holding a global role, through the user_roles index. */
+    @Query("select u from User u join u.roles r where r = :role")
+    List<User> findWithRole(@Param("role") Role role);
 }
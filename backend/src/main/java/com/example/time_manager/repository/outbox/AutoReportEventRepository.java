@@ -0,0 +1,36 @@
+package com.example.time_manager.repository.outbox;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.time_manager.model.outbox.AutoReportEvent;
+import com.example.time_manager.model.outbox.OutboxStatus;
+
+public interface AutoReportEventRepository extends JpaRepository<AutoReportEvent, Long> {
+
+  @Query("select e.id from AutoReportEvent e where e.status = :status order by e.id asc")
+  List<Long> findIdsByStatus(@Param("status") OutboxStatus status, Pageable page);
+
+  /** Atomic PENDING -> PROCESSING claim; returns 0 when another worker got it first. */
+  @Modifying
+  @Query("update AutoReportEvent e set e.status = com.example.time_manager.model.outbox.OutboxStatus.PROCESSING, " +
+         "e.claimedAt = :now where e.id = :id and e.status = com.example.time_manager.model.outbox.OutboxStatus.PENDING")
+  int claim(@Param("id") Long id, @Param("now") Instant now);
+
+  /** Puts back events whose worker died mid-flight. */
+  @Modifying
+  @Query("update AutoReportEvent e set e.status = com.example.time_manager.model.outbox.OutboxStatus.PENDING " +
+         "where e.status = com.example.time_manager.model.outbox.OutboxStatus.PROCESSING and e.claimedAt < :cutoff")
+  int releaseStale(@Param("cutoff") Instant cutoff);
+
+  @Modifying
+  @Query("delete from AutoReportEvent e where e.status = com.example.time_manager.model.outbox.OutboxStatus.DONE " +
+         "and e.processedAt < :cutoff")
+  int purgeDone(@Param("cutoff") Instant cutoff);
+}
@@ -1,6 +1,6 @@
 package com.example.time_manager.security;
 
-import com.example.time_manager.model.User;
+import com.example.time_manager.model.Role;
 import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.repository.UserRepository;
 import org.springframework.security.access.AccessDeniedException;
@@ -53,17 +53,13 @@ public class WorkScheduleAccess {
 
   private boolean isAdmin(String userId) {
     return userRepo.findById(userId)
-        .map(User::getRole)
-        .map(String::toLowerCase)
-        .map(s -> s.contains("admin"))
+        .map(u -> u.hasRole(Role.ADMIN))
         .orElse(false);
   }
 
   private boolean isManager(String userId) {
     return userRepo.findById(userId)
-        .map(User::getRole)
-        .map(String::toLowerCase)
-        .map(s -> s.contains("manager"))
+        .map(u -> u.hasRole(Role.MANAGER))
         .orElse(false);
   }
 }
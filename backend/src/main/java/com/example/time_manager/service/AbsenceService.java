@@ -5,6 +5,7 @@ import com.example.time_manager.dto.absence.AbsenceDayResponse;
 import com.example.time_manager.dto.absence.AbsenceResponse;
 import com.example.time_manager.dto.absence.AbsenceStatusUpdateRequest;
 import com.example.time_manager.dto.absence.AbsenceUpdateRequest;
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.User;
 import com.example.time_manager.model.absence.Absence;
 import com.example.time_manager.model.absence.AbsenceDay;
@@ -14,7 +15,9 @@ import com.example.time_manager.repository.AbsenceDayRepository;
 import com.example.time_manager.repository.AbsenceRepository;
 import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.repository.UserRepository;
+import com.example.time_manager.service.kpi.KpiRollupService;
 import com.example.time_manager.service.leave.LeaveAccountingBridge;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -37,20 +40,23 @@ public class AbsenceService {
   private final UserRepository userRepo;
   private final TeamMemberRepository teamMemberRepo;
   private final LeaveAccountingBridge leaveAccountingBridge; 
-  private final AutoReportService autoReportService;
+  private final AutoReportOutbox autoReportOutbox;
+  private final KpiRollupService kpiRollups;
 
   public AbsenceService(AbsenceRepository absenceRepo,
                         AbsenceDayRepository dayRepo,
                         UserRepository userRepo,
                         TeamMemberRepository teamMemberRepo,
                         LeaveAccountingBridge leaveAccountingBridge,
-                        AutoReportService autoReportService) { 
+                        AutoReportOutbox autoReportOutbox,
+                        KpiRollupService kpiRollups) { 
     this.absenceRepo = absenceRepo;
     this.dayRepo = dayRepo;
     this.userRepo = userRepo;
     this.teamMemberRepo = teamMemberRepo;
     this.leaveAccountingBridge = leaveAccountingBridge; 
-    this.autoReportService = autoReportService;
+    this.autoReportOutbox = autoReportOutbox;
+    this.kpiRollups = kpiRollups;
   }
 
   /* =================== CREATE =================== */
@@ -71,9 +77,10 @@ public class AbsenceService {
     a.setStatus(AbsenceStatus.PENDING);
 
     a = absenceRepo.save(a);
-    autoReportService.onAbsenceRequested(a);
+    autoReportOutbox.absenceRequested(a);
 
     generateDays(a, req.getPeriodByDate());
+    kpiRollups.markDirty(a.getUserId(), a.getStartDate(), a.getEndDate());
     var days = dayRepo.findByAbsenceIdOrderByAbsenceDateAsc(a.getId());
     return toDto(a, days);
   }
@@ -94,8 +101,8 @@ public class AbsenceService {
     var requester = userRepo.findById(requesterId)
         .orElseThrow(() -> new EntityNotFoundException("Requester not found: " + requesterId));
 
-    boolean isAdmin = hasRole(requester, "ADMIN");
-    boolean isManager = hasRole(requester, "MANAGER");
+    boolean isAdmin = requester.hasRole(Role.ADMIN);
+    boolean isManager = requester.hasRole(Role.MANAGER);
     boolean isOwner = requesterId.equals(targetUserId);
 
     if (!(isAdmin || isOwner || (isManager && canManagerActOn(requester, targetUserId)))) {
@@ -122,8 +129,8 @@ public class AbsenceService {
     var a = absenceRepo.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Absence not found: " + id));
 
-    boolean isAdmin   = hasRole(requester, "ADMIN");
-    boolean isManager = hasRole(requester, "MANAGER");
+    boolean isAdmin   = requester.hasRole(Role.ADMIN);
+    boolean isManager = requester.hasRole(Role.MANAGER);
     boolean isOwner   = a.getUserId().equals(requester.getId());
 
     if (isAdmin || isOwner || (isManager && canManagerActOn(requester, a.getUserId()))) {
@@ -189,9 +196,9 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
         var a = absenceRepo.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Absence not found: " + id));
 
-    boolean isAdmin = hasRole(requester, "ADMIN");
+    boolean isAdmin = requester.hasRole(Role.ADMIN);
     boolean isOwner = a.getUserId().equals(requester.getId());
-    boolean isManager = hasRole(requester, "MANAGER");
+    boolean isManager = requester.hasRole(Role.MANAGER);
 
     if (!(isAdmin || isOwner || (isManager && canManagerActOn(requester, a.getUserId())))) {
       throw new org.springframework.security.access.AccessDeniedException("Forbidden");
@@ -200,6 +207,8 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
           throw new org.springframework.security.access.AccessDeniedException("Forbidden: owner can edit only while PENDING");
       }
 
+    // the days may move: both the old and the new range are evicted
+    kpiRollups.markDirty(a.getUserId(), a.getStartDate(), a.getEndDate());
     if (req.getStartDate() != null) a.setStartDate(req.getStartDate());
     if (req.getEndDate()   != null) a.setEndDate(req.getEndDate());
     if (req.getType()      != null) a.setType(req.getType());
@@ -208,6 +217,7 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
 
     validateDates(a.getStartDate(), a.getEndDate());
     a = absenceRepo.save(a);
+    kpiRollups.markDirty(a.getUserId(), a.getStartDate(), a.getEndDate());
 
     if (a.getStatus() == AbsenceStatus.APPROVED) {
       leaveAccountingBridge.ensureDebitForApprovedAbsence(a);
@@ -231,8 +241,8 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
     var a = absenceRepo.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Absence not found: " + id));
 
-    boolean isAdmin   = hasRole(approver, "ADMIN");
-    boolean isManager = hasRole(approver, "MANAGER");
+    boolean isAdmin   = approver.hasRole(Role.ADMIN);
+    boolean isManager = approver.hasRole(Role.MANAGER);
 
     if (!(isAdmin || (isManager && canManagerActOn(approver, a.getUserId())))) {
       throw new org.springframework.security.access.AccessDeniedException("Forbidden");
@@ -246,7 +256,8 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
     a.setApprovedBy(approver.getId());
     a.setApprovedAt(LocalDateTime.now());
     a = absenceRepo.save(a);
-    autoReportService.onAbsenceStatusChanged(approverEmail, a, prev);
+    autoReportOutbox.absenceStatusChanged(approverEmail, a, prev);
+    kpiRollups.markDirty(a.getUserId(), a.getStartDate(), a.getEndDate());
     switch (a.getStatus()) {
       case APPROVED -> leaveAccountingBridge.ensureDebitForApprovedAbsence(a);
       case REJECTED -> leaveAccountingBridge.removeDebitForAbsence(a.getId());
@@ -265,9 +276,9 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
     var a = absenceRepo.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Absence not found: " + id));
 
-    boolean isAdmin = hasRole(requester, "ADMIN");
+    boolean isAdmin = requester.hasRole(Role.ADMIN);
     boolean isOwner = a.getUserId().equals(requester.getId());
-    boolean isManager = hasRole(requester, "MANAGER");
+    boolean isManager = requester.hasRole(Role.MANAGER);
 
     if (!(isAdmin || isOwner || (isManager && canManagerActOn(requester, a.getUserId())))) {
       throw new org.springframework.security.access.AccessDeniedException("Forbidden");
@@ -278,6 +289,7 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
     leaveAccountingBridge.removeDebitForAbsence(id);
     dayRepo.deleteByAbsenceId(id);
     absenceRepo.deleteById(id);
+    kpiRollups.markDirty(a.getUserId(), a.getStartDate(), a.getEndDate());
   }
 
   /* =================== Helpers =================== */
@@ -356,20 +368,6 @@ public List<AbsenceResponse> listTeamAbsences(String managerEmail, Long teamId)
     return dto;
   }
 
-private boolean hasRole(User u, String roleUpper) {
-  String raw = u.getRole();
-  if (raw == null || raw.isBlank()) return false;
-
-  String cleaned = raw.replaceAll("[\\[\\]\"]", "").toUpperCase();
-  for (String token : cleaned.split("[\\s,;|,]+")) {
-    String r = token.trim();
-    if (!r.isEmpty() && r.equals(roleUpper)) {
-      return true;
-    }
-  }
-  return false;
-}
-
 
   private String currentUserId() {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -400,6 +398,6 @@ private boolean hasRole(User u, String roleUpper) {
 }
 
     private boolean isManager(User u) {
-        return hasRole(u, "MANAGER");
+        return u.hasRole(Role.MANAGER);
     }
 }
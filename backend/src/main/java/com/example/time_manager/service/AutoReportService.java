@@ -6,27 +6,28 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.example.time_manager.dto.clock.ClockResponse;
 import com.example.time_manager.dto.work_schedule.WorkScheduleResponse;
 import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.DailyAttendance;
 import com.example.time_manager.model.Report;
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.User;
 import com.example.time_manager.model.WorkDay;
 import com.example.time_manager.model.absence.Absence;
 import com.example.time_manager.model.absence.AbsenceStatus;
-import com.example.time_manager.repository.ReportRepository;
 import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.repository.UserRepository;
+import com.example.time_manager.service.report.ReportWriter;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -40,18 +41,18 @@ public class AutoReportService {
 
   private final UserRepository userRepo;
   private final TeamMemberRepository teamMemberRepo;
-  private final ReportRepository reportRepo;
+  private final ReportWriter reportWriter;
   private final WorkScheduleService workScheduleService;
 
   public AutoReportService(
       UserRepository userRepo,
       TeamMemberRepository teamMemberRepo,
-      ReportRepository reportRepo,
+      ReportWriter reportWriter,
       WorkScheduleService workScheduleService
   ) {
     this.userRepo = userRepo;
     this.teamMemberRepo = teamMemberRepo;
-    this.reportRepo = reportRepo;
+    this.reportWriter = reportWriter;
     this.workScheduleService = workScheduleService;
   }
 
@@ -76,9 +77,9 @@ public class AutoReportService {
         "Type : " + absence.getType() + "\n" +
         (absence.getReason() != null ? ("Reason : " + absence.getReason() + "\n") : "");
 
+    List<Report> reports = new ArrayList<>(managers.size());
     for (User manager : managers) {
       String ruleKey = "ABSENCE_REQUEST:" + absence.getId() + ":" + manager.getId();
-      if (reportRepo.existsByRuleKey(ruleKey)) continue;
 
       Report r = new Report();
       r.setAuthor(employee); 
@@ -92,8 +93,9 @@ public class AutoReportService {
       r.setTitle(title);
       r.setBody(body);
 
-      reportRepo.save(r);
+      reports.add(r);
     }
+    reportWriter.write(reports);
   }
 
   /* ==========================================================
@@ -120,7 +122,6 @@ public class AutoReportService {
         "Nouveau statut : " + absence.getStatus() + "\n";
 
     String ruleKey = "ABSENCE_STATUS:" + absence.getId() + ":" + newStatus + ":" + employee.getId();
-    if (reportRepo.existsByRuleKey(ruleKey)) return;
 
     Report r = new Report();
     r.setAuthor(changer);      // manager/admin -> employee
@@ -134,7 +135,7 @@ public class AutoReportService {
     r.setTitle(title);
     r.setBody(body);
 
-    reportRepo.save(r);
+    reportWriter.write(List.of(r));
   }
 
   /* ==========================================================
@@ -142,36 +143,29 @@ public class AutoReportService {
    * ========================================================== */
 
   /**
-   * @param dayClocks
+   * @param attendance the user's daily_attendance row for the day of {@code at}
    */
-  public void onClockCreated(String userId, ClockKind kind, Instant at, List<ClockResponse> dayClocks) {
-    if (userId == null || at == null || dayClocks == null || dayClocks.isEmpty()) return;
+  public void onClockCreated(String userId, ClockKind kind, Instant at, DailyAttendance attendance) {
+    if (userId == null || at == null || attendance == null || attendance.getPunchCount() == 0) return;
 
-    ZoneId zone = ZoneId.systemDefault();
-    LocalDate day = at.atZone(zone).toLocalDate();
-
-    var clocks = dayClocks.stream()
-        .sorted(Comparator.comparing(c -> c.at))
-        .toList();
+    // the row's work_date was fixed at punch time in the user's zone
+    ZoneId zone = zoneOf(userId);
+    LocalDate day = attendance.getWorkDate() != null ? attendance.getWorkDate() : at.atZone(zone).toLocalDate();
 
     if (kind == ClockKind.IN) {
-      handleFirstInLateRule(userId, at, day, zone, clocks);
+      handleFirstInLateRule(userId, at, day, zone, attendance);
       return;
     }
 
     if (kind == ClockKind.OUT) {
-      handleOutEndOfDayRules(userId, at, day, zone, clocks);
+      handleOutEndOfDayRules(userId, at, day, zone, attendance);
     }
   }
 
-  private void handleFirstInLateRule(String userId, Instant at, LocalDate day, ZoneId zone, List<ClockResponse> clocks) {
-    var firstIn = clocks.stream()
-        .filter(c -> c.kind == ClockKind.IN)
-        .min(Comparator.comparing(c -> c.at))
-        .orElse(null);
-
+  private void handleFirstInLateRule(String userId, Instant at, LocalDate day, ZoneId zone, DailyAttendance attendance) {
+    Instant firstIn = attendance.getFirstIn();
     if (firstIn == null) return;
-    if (!firstIn.at.equals(at)) return;
+    if (!firstIn.equals(at)) return;
 
     ScheduleWindow w = scheduleWindow(userId, day);
     if (w == null || w.expectedStart == null) return;
@@ -180,20 +174,23 @@ public class AutoReportService {
     if (!actual.isAfter(w.expectedStart.plusMinutes(LATE_GRACE_MIN))) return;
 
     User subject = requireUser(userId);
-    boolean subjectIsManager = hasRole(subject, "manager");
-
-    if (subjectIsManager) {
-      for (User admin : admins()) createLateReport(admin, subject, day, w.expectedStart, actual, "WARN");
-    } else {
-      for (User manager : managersOfUserTeams(userId)) createLateReport(manager, subject, day, w.expectedStart, actual, "INFO");
+    boolean subjectIsManager = subject.hasRole(Role.MANAGER);
+    Collection<User> recipients = subjectIsManager ? admins() : managersOfUserTeams(userId);
+    if (recipients.isEmpty()) return;
+    String severity = subjectIsManager ? "WARN" : "INFO";
+
+    User system = systemUser();
+    List<Report> reports = new ArrayList<>(recipients.size());
+    for (User recipient : recipients) {
+      reports.add(lateReport(system, recipient, subject, day, w.expectedStart, actual, severity));
     }
+    reportWriter.write(reports);
   }
 
-  private void handleOutEndOfDayRules(String userId, Instant at, LocalDate day, ZoneId zone, List<ClockResponse> clocks) {
-    if (clocks.isEmpty()) return;
+  private void handleOutEndOfDayRules(String userId, Instant at, LocalDate day, ZoneId zone, DailyAttendance attendance) {
+    if (attendance.getPunchCount() == 0) return;
 
-    var last = clocks.get(clocks.size() - 1);
-    if (!last.at.equals(at)) return;
+    if (!at.equals(attendance.getLastPunchAt())) return;
 
     ScheduleWindow w = scheduleWindow(userId, day);
     if (w == null) return;
@@ -206,30 +203,32 @@ public class AutoReportService {
       if (outTime.isBefore(threshold)) return;
     }
 
-    int worked = workedMinutes(clocks);
+    int worked = attendance.getWorkedMinutes();
     int expected = w.expectedMinutes();
 
     if (expected > 0 && worked > expected + OVERWORK_GRACE_MIN) {
       User subject = requireUser(userId);
-      boolean subjectIsManager = hasRole(subject, "manager");
+      boolean subjectIsManager = subject.hasRole(Role.MANAGER);
       int extra = worked - expected;
+      Collection<User> recipients = subjectIsManager ? admins() : managersOfUserTeams(userId);
+      if (recipients.isEmpty()) return;
 
-      if (subjectIsManager) {
-        for (User admin : admins()) createOverworkReport(admin, subject, day, worked, expected, extra);
-      } else {
-        for (User manager : managersOfUserTeams(userId)) createOverworkReport(manager, subject, day, worked, expected, extra);
+      User system = systemUser();
+      List<Report> reports = new ArrayList<>(recipients.size());
+      for (User recipient : recipients) {
+        reports.add(overworkReport(system, recipient, subject, day, worked, expected, extra));
       }
+      reportWriter.write(reports);
     }
   }
 
-  private void createLateReport(User recipient, User subject, LocalDate day,
-                                LocalTime expectedStart, LocalTime actual, String severity) {
+  private Report lateReport(User system, User recipient, User subject, LocalDate day,
+                            LocalTime expectedStart, LocalTime actual, String severity) {
     String type = "LATE_ARRIVAL";
     String ruleKey = type + ":" + day + ":" + subject.getId() + "->" + recipient.getId();
-    if (reportRepo.existsByRuleKey(ruleKey)) return;
 
     Report r = new Report();
-    r.setAuthor(systemUser());
+    r.setAuthor(system);
     r.setTarget(recipient);
     r.setSubject(subject);
 
@@ -244,18 +243,16 @@ public class AutoReportService {
         "Prévu : " + expectedStart + " (+" + LATE_GRACE_MIN + " min)\n" +
         "Réel : " + actual + "\n"
     );
-
-    reportRepo.save(r);
+    return r;
   }
 
-  private void createOverworkReport(User recipient, User subject, LocalDate day,
-                                    int workedMin, int expectedMin, int extraMin) {
+  private Report overworkReport(User system, User recipient, User subject, LocalDate day,
+                                int workedMin, int expectedMin, int extraMin) {
     String type = "OVERWORK";
     String ruleKey = type + ":" + day + ":" + subject.getId() + "->" + recipient.getId();
-    if (reportRepo.existsByRuleKey(ruleKey)) return;
 
     Report r = new Report();
-    r.setAuthor(systemUser());
+    r.setAuthor(system);
     r.setTarget(recipient);
     r.setSubject(subject);
 
@@ -271,25 +268,7 @@ public class AutoReportService {
         "Travaillé : " + fmtMinutes(workedMin) + "\n" +
         "Dépassement : " + fmtMinutes(extraMin) + " (seuil +" + OVERWORK_GRACE_MIN + " min)\n"
     );
-
-    reportRepo.save(r);
-  }
-
-  private int workedMinutes(List<ClockResponse> clocks) {
-    Instant currentIn = null;
-    long totalSeconds = 0;
-
-    for (var c : clocks) {
-      if (c.kind == ClockKind.IN) {
-        if (currentIn == null) currentIn = c.at;
-      } else {
-        if (currentIn != null && c.at.isAfter(currentIn)) {
-          totalSeconds += Duration.between(currentIn, c.at).getSeconds();
-          currentIn = null;
-        }
-      }
-    }
-    return (int) (totalSeconds / 60);
+    return r;
   }
 
   private String fmtMinutes(int minutes) {
@@ -375,16 +354,14 @@ public class AutoReportService {
       List<User> users = teamMemberRepo.findUsersByTeamId(teamId);
       if (users == null) continue;
       for (User u : users) {
-        if (hasRole(u, "manager")) managers.add(u);
+        if (u.hasRole(Role.MANAGER)) managers.add(u);
       }
     }
     return managers;
   }
 
   private List<User> admins() {
-    return userRepo.findAll().stream()
-        .filter(u -> hasRole(u, "admin"))
-        .collect(Collectors.toList());
+    return userRepo.findWithRole(Role.ADMIN);
   }
 
   private User systemUser() {
@@ -392,6 +369,10 @@ public class AutoReportService {
         .orElseThrow(() -> new EntityNotFoundException("SYSTEM user missing: " + SYSTEM_EMAIL));
   }
 
+  private ZoneId zoneOf(String userId) {
+    return userRepo.findById(userId).map(User::zoneId).orElseGet(ZoneId::systemDefault);
+  }
+
   private User requireUser(String id) {
     return userRepo.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("User not found: " + id));
@@ -401,14 +382,4 @@ public class AutoReportService {
     return userRepo.findByEmail(email)
         .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
   }
-
-  private boolean hasRole(User u, String roleLower) {
-    String raw = u.getRole();
-    if (raw == null) return false;
-    String normalized = raw.replace("[", "").replace("]", "").replace("\"", "").toLowerCase();
-    for (String part : normalized.split(",")) {
-      if (part.trim().contains(roleLower)) return true;
-    }
-    return false;
-  }
 }
@@ -0,0 +1,107 @@
+package com.example.time_manager.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.time_manager.dto.calendar.Holiday;
+import com.example.time_manager.model.WorkDay;
+import com.example.time_manager.service.kpi.KpiRollupService;
+
+/**
+ * The calendar dimension: one row per date with its weekday, ISO week, month
+ * and holiday flag, joined by the KPI SQL instead of generating dates.
+ *
+ * Dates from calendar.first-year to calendar.years-ahead past the current
+ * year are filled at startup. Flagging or clearing a holiday re-marks that
+ * day for every user, so the rollups stop (or start) counting it as planned.
+ */
+@Service
+public class CalendarService {
+
+    static final int CHUNK = 1000;
+
+    private final JdbcTemplate jdbc;
+    private final KpiRollupService kpiRollups;
+    private final int firstYear;
+    private final int yearsAhead;
+
+    public CalendarService(JdbcTemplate jdbc,
+                           KpiRollupService kpiRollups,
+                           @Value("${calendar.first-year:2000}") int firstYear,
+                           @Value("${calendar.years-ahead:10}") int yearsAhead) {
+        this.jdbc = jdbc;
+        this.kpiRollups = kpiRollups;
+        this.firstYear = firstYear;
+        this.yearsAhead = yearsAhead;
+    }
+
+    /* ======================= MAINTENANCE ======================= */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void ensureCoverage() {
+        LocalDate from = LocalDate.of(firstYear, 1, 1);
+        LocalDate to = LocalDate.of(LocalDate.now().getYear() + yearsAhead, 12, 31);
+        Integer present = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM calendar WHERE day BETWEEN ? AND ?",
+                Integer.class, Date.valueOf(from), Date.valueOf(to));
+        if (present != null && present == ChronoUnit.DAYS.between(from, to) + 1) return;
+
+        // existing rows keep their holiday flags
+        List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+        jdbc.batchUpdate(
+                "INSERT IGNORE INTO calendar (day, day_of_week, iso_year, iso_week, month_start, is_weekend) " +
+                "VALUES (?, ?, ?, ?, ?, ?)",
+                days, CHUNK,
+                (ps, d) -> {
+                    ps.setDate(1, Date.valueOf(d));
+                    // WorkDay is declared MON..SUN, in DayOfWeek order
+                    ps.setString(2, WorkDay.values()[d.getDayOfWeek().getValue() - 1].name());
+                    ps.setInt(3, d.get(IsoFields.WEEK_BASED_YEAR));
+                    ps.setInt(4, d.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                    ps.setDate(5, Date.valueOf(d.withDayOfMonth(1)));
+                    ps.setBoolean(6, d.getDayOfWeek().getValue() >= 6);
+                });
+    }
+
+    /* ======================= HOLIDAYS ======================= */
+
+    @Transactional(readOnly = true)
+    public List<Holiday> holidays(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) throw new IllegalArgumentException("to must not be before from");
+        return jdbc.query(
+                "SELECT day, holiday_name FROM calendar WHERE is_holiday = 1 AND day BETWEEN ? AND ? ORDER BY day",
+                (rs, i) -> new Holiday(rs.getDate("day").toLocalDate(), rs.getString("holiday_name")),
+                from, to);
+    }
+
+    @Transactional
+    public Holiday setHoliday(LocalDate day, String name) {
+        int updated = jdbc.update(
+                "UPDATE calendar SET is_holiday = 1, holiday_name = ? WHERE day = ?",
+                name, day);
+        if (updated == 0) throw new IllegalArgumentException("Date outside the calendar: " + day);
+        kpiRollups.markAllDirty(day, day);
+        return new Holiday(day, name);
+    }
+
+    /** @return false when the day was not a holiday */
+    @Transactional
+    public boolean clearHoliday(LocalDate day) {
+        int updated = jdbc.update(
+                "UPDATE calendar SET is_holiday = 0, holiday_name = NULL WHERE day = ? AND is_holiday = 1",
+                day);
+        if (updated == 0) return false;
+        kpiRollups.markAllDirty(day, day);
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.time_manager.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.model.ClockKind;
+
+/**
+ * Hot/cold split of the clocks table.
+ *
+ * {@code clocks} only keeps the last {@code clocks.archive.hot-months} calendar
+ * months; closed months are moved by a nightly job to {@code clocks_archive},
+ * one unpartitioned table for every archived month, read through its
+ * (user_id, at) and (user_id, work_date) indexes.
+ * Everything before {@link #hotHorizon()} may live in the archive, so readers
+ * only touch it when their range starts before that instant.
+ */
+@Service
+public class ClockArchiveService {
+
+    static final int MOVE_CHUNK = 5000;
+
+    private static final RowMapper<ClockResponse> ROW = (rs, i) -> {
+        ClockResponse r = new ClockResponse();
+        r.id = rs.getLong("id");
+        r.userId = rs.getString("user_id");
+        r.kind = ClockKind.valueOf(rs.getString("kind"));
+        r.at = rs.getTimestamp("at").toInstant();
+        return r;
+    };
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int hotMonths;
+
+    public ClockArchiveService(JdbcTemplate jdbc,
+                               PlatformTransactionManager txManager,
+                               @Value("${clocks.archive.hot-months:2}") int hotMonths) {
+        if (hotMonths < 1) throw new IllegalArgumentException("clocks.archive.hot-months must be >= 1");
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.hotMonths = hotMonths;
+    }
+
+    /** First instant guaranteed to be in the hot table: start of the oldest hot month. */
+    public Instant hotHorizon() {
+        ZoneId zone = ZoneId.systemDefault();
+        return YearMonth.now(zone).minusMonths(hotMonths - 1L).atDay(1).atStartOfDay(zone).toInstant();
+    }
+
+    public boolean reachesArchive(Instant from) {
+        return from == null || from.isBefore(hotHorizon());
+    }
+
+    /**
+     * Whether a work day may hold archived punches. Work dates are in the
+     * user's zone, so one day of slack covers zones ahead of the server's.
+     */
+    public boolean reachesArchive(LocalDate workDate) {
+        LocalDate horizon = hotHorizon().atZone(ZoneId.systemDefault()).toLocalDate();
+        return !workDate.isAfter(horizon.plusDays(1));
+    }
+
+    /* ======================= ARCHIVAL JOB ======================= */
+
+    /** Moves every punch older than the hot horizon, chunk by chunk, one transaction per chunk. */
+    @Scheduled(cron = "${clocks.archive.cron:0 30 2 * * *}")
+    public int archiveClosedMonths() {
+        Timestamp cutoff = Timestamp.from(hotHorizon());
+        int moved = 0;
+        while (true) {
+            Integer n = tx.execute(s -> moveChunk(cutoff));
+            if (n == null || n == 0) return moved;
+            moved += n;
+        }
+    }
+
+    private int moveChunk(Timestamp cutoff) {
+        List<Long> ids = jdbc.queryForList(
+                "SELECT id FROM clocks WHERE `at` < ? ORDER BY id LIMIT " + MOVE_CHUNK,
+                Long.class, cutoff);
+        if (ids.isEmpty()) return 0;
+
+        String in = placeholders(ids.size());
+        jdbc.update(
+                "INSERT INTO clocks_archive (id, user_id, kind, `at`, work_date, seq) " +
+                "SELECT id, user_id, kind, `at`, work_date, seq FROM clocks WHERE id IN (" + in + ")",
+                ids.toArray());
+        jdbc.update("DELETE FROM clocks WHERE id IN (" + in + ")", ids.toArray());
+        return ids.size();
+    }
+
+    /* ======================= ARCHIVE READS ======================= */
+
+    /** Archived punches in [from, to], oldest first. */
+    public List<ClockResponse> listBetween(String userId, Instant from, Instant to) {
+        if (!reachesArchive(from)) return List.of();
+        return jdbc.query(
+                "SELECT id, user_id, kind, `at` FROM clocks_archive " +
+                "WHERE user_id = ? AND `at` BETWEEN ? AND ? ORDER BY `at`, id",
+                ROW, userId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    /** Archived punches of one work day, oldest first. */
+    public List<ClockResponse> listOnDay(String userId, LocalDate workDate) {
+        if (!reachesArchive(workDate)) return List.of();
+        return jdbc.query(
+                "SELECT id, user_id, kind, `at` FROM clocks_archive " +
+                "WHERE user_id = ? AND work_date = ? ORDER BY `at`, id",
+                ROW, userId, Date.valueOf(workDate));
+    }
+
+    /** Newest-first archived punches strictly before the (at, id) cursor, or from the top when at is null. */
+    public List<ClockResponse> pageBefore(String userId, Instant at, Long id, int limit) {
+        if (at == null) {
+            return jdbc.query(
+                    "SELECT id, user_id, kind, `at` FROM clocks_archive WHERE user_id = ? " +
+                    "ORDER BY `at` DESC, id DESC LIMIT " + limit,
+                    ROW, userId);
+        }
+        Timestamp ts = Timestamp.from(at);
+        return jdbc.query(
+                "SELECT id, user_id, kind, `at` FROM clocks_archive WHERE user_id = ? " +
+                "AND (`at` < ? OR (`at` = ? AND id < ?)) " +
+                "ORDER BY `at` DESC, id DESC LIMIT " + limit,
+                ROW, userId, ts, ts, id);
+    }
+
+    /** Last archived punch kind, for users without any hot punch. */
+    public Optional<ClockKind> lastKind(String userId) {
+        List<ClockResponse> last = pageBefore(userId, null, null, 1);
+        return last.isEmpty() ? Optional.empty() : Optional.of(last.get(0).kind);
+    }
+
+    public Map<String, ClockKind> lastKinds(Collection<String> userIds) {
+        if (userIds.isEmpty()) return Map.of();
+        Map<String, ClockKind> out = new HashMap<>();
+        jdbc.query(
+                "SELECT user_id, kind FROM (" +
+                "  SELECT user_id, kind, " +
+                "         ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY `at` DESC, id DESC) AS rn " +
+                "  FROM clocks_archive WHERE user_id IN (" + placeholders(userIds.size()) + ")" +
+                ") t WHERE rn = 1",
+                rs -> {
+                    out.put(rs.getString("user_id"), ClockKind.valueOf(rs.getString("kind")));
+                },
+                new ArrayList<>(userIds).toArray());
+        return out;
+    }
+
+    /** Highest archived punch number, 0 when nothing is archived (idx_clocks_archive_user_seq). */
+    public long maxSeq(String userId) {
+        Long max = jdbc.queryForObject(
+                "SELECT MAX(seq) FROM clocks_archive WHERE user_id = ?", Long.class, userId);
+        return max != null ? max : 0L;
+    }
+
+    public Map<String, Long> maxSeqs(Collection<String> userIds) {
+        if (userIds.isEmpty()) return Map.of();
+        Map<String, Long> out = new HashMap<>();
+        jdbc.query(
+                "SELECT user_id, MAX(seq) AS seq FROM clocks_archive " +
+                "WHERE user_id IN (" + placeholders(userIds.size()) + ") GROUP BY user_id",
+                rs -> {
+                    out.put(rs.getString("user_id"), rs.getLong("seq"));
+                },
+                new ArrayList<>(userIds).toArray());
+        return out;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
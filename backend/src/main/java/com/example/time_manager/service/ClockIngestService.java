@@ -0,0 +1,295 @@
+package com.example.time_manager.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.time_manager.dto.clock.ClockBatchPunch;
+import com.example.time_manager.dto.clock.ClockBatchRejection;
+import com.example.time_manager.dto.clock.ClockBatchResult;
+import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.User;
+import com.example.time_manager.service.kpi.ClockSnapshot;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
+import com.example.time_manager.service.outbox.AutoReportOutbox.ClockTrigger;
+
+/**
+ * Bulk ingestion of badge-terminal punches.
+ *
+ * A batch is validated in memory (known users, IN/OUT alternation per user
+ * against the stored punches around it, so back-dated uploads from an offline
+ * terminal may fall between punches made since), each punch gets its work_date
+ * in the user's own time zone, and the accepted punches are
+ * written with JDBC batch inserts instead of one JPA save per punch.
+ * Invalid punches are reported back individually, they never fail the batch.
+ * Automatic-report triggers are queued in the outbox with the same batch.
+ */
+@Service
+@Transactional
+public class ClockIngestService {
+
+    static final int MAX_BATCH_SIZE = 5000;
+    private static final int INSERT_CHUNK = 500;
+
+    private final JdbcTemplate jdbc;
+    private final ClockArchiveService archive;
+    private final PunchLocks punchLocks;
+    private final DailyAttendanceService attendanceService;
+    private final PresenceService presenceService;
+    private final AutoReportOutbox autoReportOutbox;
+    private final ClockSnapshot clockSnapshot;
+
+    public ClockIngestService(JdbcTemplate jdbc, ClockArchiveService archive, PunchLocks punchLocks,
+                              DailyAttendanceService attendanceService, PresenceService presenceService,
+                              AutoReportOutbox autoReportOutbox, ClockSnapshot clockSnapshot) {
+        this.jdbc = jdbc;
+        this.archive = archive;
+        this.punchLocks = punchLocks;
+        this.attendanceService = attendanceService;
+        this.presenceService = presenceService;
+        this.autoReportOutbox = autoReportOutbox;
+        this.clockSnapshot = clockSnapshot;
+    }
+
+    public ClockBatchResult ingest(List<ClockBatchPunch> punches) {
+        if (punches == null || punches.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        if (punches.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch too large (max " + MAX_BATCH_SIZE + " punches)");
+        }
+
+        ClockBatchResult result = new ClockBatchResult();
+        Instant now = Instant.now();
+
+        /* ---------- shape validation + grouping by user ---------- */
+        Map<String, List<Pending>> byUser = new LinkedHashMap<>();
+        for (int i = 0; i < punches.size(); i++) {
+            ClockBatchPunch p = punches.get(i);
+            if (p == null || p.userId() == null || p.userId().isBlank() || p.kind() == null) {
+                result.rejected.add(new ClockBatchRejection(i, p != null ? p.userId() : null,
+                        "userId and kind are required"));
+                continue;
+            }
+            Instant at = p.at() != null ? p.at() : now;
+            byUser.computeIfAbsent(p.userId(), k -> new ArrayList<>()).add(new Pending(i, p.userId(), p.kind(), at, null, 0L));
+        }
+        if (byUser.isEmpty()) return result;
+
+        Map<String, ZoneId> zones = userZones(byUser.keySet());
+        // same per-user serialisation as single punches, for every user of the batch
+        punchLocks.lockUntilCompletion(zones.keySet());
+        Map<String, Instant> earliest = new HashMap<>();
+        for (String userId : zones.keySet()) {
+            earliest.put(userId, byUser.get(userId).stream().map(Pending::at).min(Comparator.naturalOrder()).orElseThrow());
+        }
+        Map<String, ClockKind> kindsBefore = lastKindBefore(earliest);
+        Map<String, List<Stored>> storedSince = storedSince(earliest);
+        Map<String, Long> lastSeqs = lastSeqByUser(zones.keySet());
+
+        /* ---------- IN/OUT alternation, per user, in time order ---------- */
+        List<Pending> accepted = new ArrayList<>();
+        for (var entry : byUser.entrySet()) {
+            String userId = entry.getKey();
+            List<Pending> rows = entry.getValue();
+
+            ZoneId zone = zones.get(userId);
+            if (zone == null) {
+                for (Pending p : rows) {
+                    result.rejected.add(new ClockBatchRejection(p.index(), userId, "User not found: " + userId));
+                }
+                continue;
+            }
+
+            rows.sort(Comparator.comparing((Pending p) -> p.at()).thenComparingInt(p -> p.index()));
+            // stored punches cut the batch into runs; each run must alternate
+            // with the stored punch before it and the one after it
+            List<Stored> later = storedSince.getOrDefault(userId, List.of());
+            ClockKind previous = kindsBefore.get(userId);
+            List<Pending> run = new ArrayList<>();
+            int next = 0;
+            long seq = lastSeqs.getOrDefault(userId, 0L);
+            for (Pending p : rows) {
+                while (next < later.size() && !later.get(next).at().isAfter(p.at())) {
+                    seq = closeRun(run, later.get(next).kind(), zone, seq, accepted, result);
+                    previous = later.get(next).kind();
+                    next++;
+                }
+                if (previous == p.kind()) {
+                    result.rejected.add(new ClockBatchRejection(p.index(), userId,
+                            "Cannot punch " + p.kind() + " twice in a row"));
+                    continue;
+                }
+                run.add(p);
+                previous = p.kind();
+            }
+            closeRun(run, next < later.size() ? later.get(next).kind() : null, zone, seq, accepted, result);
+        }
+
+        result.rejected.sort(Comparator.comparingInt(r -> r.index));
+        if (accepted.isEmpty()) return result;
+
+        try {
+            jdbc.batchUpdate(
+                    "INSERT INTO clocks (user_id, kind, `at`, work_date, seq) VALUES (?, ?, ?, ?, ?)",
+                    accepted, INSERT_CHUNK,
+                    (ps, p) -> {
+                        ps.setString(1, p.userId());
+                        ps.setString(2, p.kind().name());
+                        ps.setTimestamp(3, Timestamp.from(p.at()));
+                        ps.setDate(4, Date.valueOf(p.workDate()));
+                        ps.setLong(5, p.seq());
+                    });
+        } catch (DataIntegrityViolationException ex) {
+            // another node punched for one of these users in between; the whole batch is retried
+            throw new IllegalStateException("Concurrent punch for a user of this batch, try again");
+        }
+        result.accepted = accepted.size();
+
+        // accepted is grouped by user and time-ordered: each touched day is folded once, in order
+        Map<DayKey, List<ClockResponse>> days = new LinkedHashMap<>();
+        for (Pending p : accepted) {
+            ClockResponse c = new ClockResponse();
+            c.userId = p.userId();
+            c.kind = p.kind();
+            c.at = p.at();
+            days.computeIfAbsent(new DayKey(p.userId(), p.workDate()), k -> new ArrayList<>()).add(c);
+            presenceService.onPunch(p.userId(), p.kind(), p.at());
+            clockSnapshot.onPunch(p.userId(), p.seq(), p.kind(), p.at());
+        }
+        days.forEach((day, dayPunches) -> attendanceService.onPunches(day.userId(), day.workDate(), dayPunches));
+
+        autoReportOutbox.clockCreated(accepted.stream()
+                .map(p -> new ClockTrigger(p.userId(), p.kind(), p.at(), p.workDate()))
+                .toList());
+        return result;
+    }
+
+    /**
+     * Accepts an alternating run of batch punches; when its last punch has
+     * the kind of the stored punch that follows, that one is rejected.
+     */
+    private static long closeRun(List<Pending> run, ClockKind nextStored, ZoneId zone, long seq,
+                                 List<Pending> accepted, ClockBatchResult result) {
+        if (!run.isEmpty() && run.get(run.size() - 1).kind() == nextStored) {
+            Pending clash = run.remove(run.size() - 1);
+            result.rejected.add(new ClockBatchRejection(clash.index(), clash.userId(),
+                    "Cannot punch " + clash.kind() + " right before a stored " + nextStored + " punch"));
+        }
+        for (Pending p : run) {
+            accepted.add(p.accept(p.at().atZone(zone).toLocalDate(), ++seq));
+        }
+        run.clear();
+        return seq;
+    }
+
+    /* ======================= LOOKUPS ======================= */
+
+    /** Time zone of every existing user among ids; unknown ids are absent from the map. */
+    private Map<String, ZoneId> userZones(Collection<String> ids) {
+        Map<String, ZoneId> out = new HashMap<>();
+        jdbc.query(
+                "SELECT id, time_zone FROM users WHERE id IN (" + placeholders(ids.size()) + ")",
+                rs -> {
+                    out.put(rs.getString("id"), User.zoneOf(rs.getString("time_zone")));
+                },
+                ids.toArray());
+        return out;
+    }
+
+    /** Kind of each user's last stored punch before their earliest batch punch. */
+    private Map<String, ClockKind> lastKindBefore(Map<String, Instant> earliest) {
+        if (earliest.isEmpty()) return Map.of();
+        Map<String, ClockKind> out = new HashMap<>();
+        jdbc.query(
+                "SELECT user_id, kind FROM (" +
+                "  SELECT user_id, kind, " +
+                "         ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY `at` DESC, id DESC) AS rn " +
+                "  FROM clocks WHERE " + perUser(earliest.size(), "`at` < ?") +
+                ") t WHERE rn = 1",
+                rs -> {
+                    out.put(rs.getString("user_id"), ClockKind.valueOf(rs.getString("kind")));
+                },
+                perUserArgs(earliest));
+
+        // users idle for longer than the hot window only have archived punches
+        if (out.size() < earliest.size()) {
+            List<String> idle = earliest.keySet().stream().filter(id -> !out.containsKey(id)).toList();
+            out.putAll(archive.lastKinds(idle));
+        }
+        return out;
+    }
+
+    /** Stored punches at or after each user's earliest batch punch, in time order; empty unless back-dated. */
+    private Map<String, List<Stored>> storedSince(Map<String, Instant> earliest) {
+        if (earliest.isEmpty()) return Map.of();
+        Map<String, List<Stored>> out = new HashMap<>();
+        jdbc.query(
+                "SELECT user_id, kind, `at` FROM clocks WHERE " + perUser(earliest.size(), "`at` >= ?") +
+                " ORDER BY user_id, `at`, id",
+                rs -> {
+                    out.computeIfAbsent(rs.getString("user_id"), k -> new ArrayList<>())
+                            .add(new Stored(ClockKind.valueOf(rs.getString("kind")), rs.getTimestamp("at").toInstant()));
+                },
+                perUserArgs(earliest));
+        return out;
+    }
+
+    // (user_id = ? AND <cond>) OR ..., one range of idx_clocks_user_at_id per user
+    private static String perUser(int n, String cond) {
+        return String.join(" OR ", Collections.nCopies(n, "(user_id = ? AND " + cond + ")"));
+    }
+
+    private static Object[] perUserArgs(Map<String, Instant> bounds) {
+        List<Object> args = new ArrayList<>(bounds.size() * 2);
+        bounds.forEach((userId, at) -> {
+            args.add(userId);
+            args.add(Timestamp.from(at));
+        });
+        return args.toArray();
+    }
+
+    /** Highest punch number per user, across the hot table and the archive. */
+    private Map<String, Long> lastSeqByUser(Collection<String> ids) {
+        if (ids.isEmpty()) return Map.of();
+        Map<String, Long> out = new HashMap<>(archive.maxSeqs(ids));
+        jdbc.query(
+                "SELECT user_id, MAX(seq) AS seq FROM clocks " +
+                "WHERE user_id IN (" + placeholders(ids.size()) + ") GROUP BY user_id",
+                rs -> {
+                    out.merge(rs.getString("user_id"), rs.getLong("seq"), Math::max);
+                },
+                ids.toArray());
+        return out;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    private record Stored(ClockKind kind, Instant at) {}
+
+    private record DayKey(String userId, LocalDate workDate) {}
+
+    private record Pending(int index, String userId, ClockKind kind, Instant at, LocalDate workDate, long seq) {
+        Pending accept(LocalDate day, long number) {
+            return new Pending(index, userId, kind, at, day, number);
+        }
+    }
+}
@@ -1,33 +1,61 @@
 package com.example.time_manager.service;
 
+import com.example.time_manager.dto.clock.ClockConnection;
 import com.example.time_manager.dto.clock.ClockCreateRequest;
+import com.example.time_manager.dto.clock.ClockEdge;
 import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.dto.common.PageInfo;
 import com.example.time_manager.model.Clock;
 import com.example.time_manager.model.ClockKind;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.ClockRepository;
 import com.example.time_manager.repository.UserRepository;
+import com.example.time_manager.service.kpi.ClockSnapshot;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
 @Transactional
 public class ClockService {
 
+    static final int HISTORY_CAP = 500;
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
+    private static final Comparator<ClockResponse> OLDEST_FIRST =
+            Comparator.comparing((ClockResponse c) -> c.at).thenComparing(c -> c.id);
+
     private final ClockRepository clockRepo;
     private final UserRepository userRepo;
-    private final AutoReportService autoReportService;
-
-    public ClockService(ClockRepository clockRepo, UserRepository userRepo, AutoReportService autoReportService) {
+    private final ClockArchiveService archive;
+    private final PunchLocks punchLocks;
+    private final DailyAttendanceService attendanceService;
+    private final PresenceService presenceService;
+    private final AutoReportOutbox autoReportOutbox;
+    private final ClockSnapshot clockSnapshot;
+
+    public ClockService(ClockRepository clockRepo, UserRepository userRepo, ClockArchiveService archive,
+                        PunchLocks punchLocks, DailyAttendanceService attendanceService, PresenceService presenceService,
+                        AutoReportOutbox autoReportOutbox, ClockSnapshot clockSnapshot) {
         this.clockRepo = clockRepo;
         this.userRepo = userRepo;
-        this.autoReportService = autoReportService;
+        this.archive = archive;
+        this.punchLocks = punchLocks;
+        this.attendanceService = attendanceService;
+        this.presenceService = presenceService;
+        this.autoReportOutbox = autoReportOutbox;
+        this.clockSnapshot = clockSnapshot;
     }
 
 
@@ -48,8 +76,13 @@ public class ClockService {
                 : userRepo.findByEmail(email)
                 .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
 
-        var last = clockRepo.findTopByUser_IdOrderByAtDescIdDesc(user.getId());
-        if (last.isPresent() && last.get().getKind() == kind) {
+        // one punch at a time per user, until commit; other users run in parallel
+        punchLocks.lockUntilCompletion(user.getId());
+
+        var last = clockRepo.findTopByUser_IdOrderByAtDescIdDesc(user.getId())
+                .map(Clock::getKind)
+                .or(() -> archive.lastKind(user.getId()));
+        if (last.isPresent() && last.get() == kind) {
             throw new IllegalStateException("Cannot punch " + kind + " twice in a row");
         }
 
@@ -57,19 +90,30 @@ public class ClockService {
         c.setUser(user);
         c.setKind(kind);
         c.setAt(at != null ? at : Instant.now());
-
-        c = clockRepo.save(c);
-        ZoneId zone = ZoneId.systemDefault();
-        LocalDate day = c.getAt().atZone(zone).toLocalDate();
-        Instant dayStart = day.atStartOfDay(zone).toInstant();
-        Instant dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant();
-
-        List<ClockResponse> dayClocks = listForUser(user.getId(), dayStart, dayEnd);
-        autoReportService.onClockCreated(user.getId(), c.getKind(), c.getAt(), dayClocks);
+        // days are bucketed once, here, in the user's own zone
+        c.setWorkDate(c.getAt().atZone(user.zoneId()).toLocalDate());
+        c.setSeq(nextSeq(user.getId()));
+
+        try {
+            c = clockRepo.save(c);
+        } catch (DataIntegrityViolationException ex) {
+            // another node recorded a punch for this user in between
+            throw new IllegalStateException("Concurrent punch for this user, try again");
+        }
+        attendanceService.onPunch(user.getId(), c.getKind(), c.getAt(), c.getWorkDate());
+        presenceService.onPunch(user.getId(), c.getKind(), c.getAt());
+        autoReportOutbox.clockCreated(user.getId(), c.getKind(), c.getAt(), c.getWorkDate());
+        clockSnapshot.onPunch(user.getId(), c.getSeq(), c.getKind(), c.getAt());
 
         return toDto(c);
     }
 
+    /** Back-dated punches can be archived before older-numbered ones, so both tables are checked. */
+    private long nextSeq(String userId) {
+        Long hot = clockRepo.findMaxSeq(userId);
+        return Math.max(hot != null ? hot : 0L, archive.maxSeq(userId)) + 1;
+    }
+
     /* ======================= READ ======================= */
 
     @Transactional(readOnly = true)
@@ -82,13 +126,98 @@ public class ClockService {
 
     @Transactional(readOnly = true)
     public List<ClockResponse> listForUser(String userId, Instant from, Instant to) {
-        List<Clock> rows;
-        if (from != null && to != null) {
-            rows = clockRepo.findByUser_IdAndAtBetweenOrderByAtAsc(userId, from, to);
+        if (from == null || to == null) {
+            // unbounded history is capped; older punches go through the paginated history
+            return newestFirst(userId, null, null, HISTORY_CAP);
+        }
+
+        List<ClockResponse> rows = new ArrayList<>(clockRepo.findByUser_IdAndAtBetweenOrderByAtAsc(userId, from, to)
+                .stream().map(this::toDto).toList());
+        // the archive is only read when the range starts before the hot horizon
+        List<ClockResponse> cold = archive.listBetween(userId, from, to);
+        if (cold.isEmpty()) return rows;
+
+        rows.addAll(cold);
+        rows.sort(OLDEST_FIRST);
+        return rows;
+    }
+
+    /* ======================= HISTORY (keyset) ======================= */
+
+    @Transactional(readOnly = true)
+    public ClockConnection historyForEmail(String email, Integer first, String after) {
+        String userId = userRepo.findByEmail(email)
+                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email))
+                .getId();
+        return historyForUser(userId, first, after);
+    }
+
+    /**
+     * Newest-first page of punches. The cursor encodes the last (at, id) seen,
+     * so each page is an index range scan whatever the size of the history.
+     */
+    @Transactional(readOnly = true)
+    public ClockConnection historyForUser(String userId, Integer first, String after) {
+        int size = first != null ? first : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("first must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<ClockResponse> rows;
+        if (after == null || after.isBlank()) {
+            rows = newestFirst(userId, null, null, size + 1);
         } else {
-            rows = clockRepo.findByUser_IdOrderByAtDesc(userId);
+            String[] cursor = decodeCursor(after);
+            rows = newestFirst(userId, Instant.parse(cursor[0]), Long.valueOf(cursor[1]), size + 1);
+        }
+
+        ClockConnection conn = new ClockConnection();
+        boolean hasNext = rows.size() > size;
+        for (ClockResponse c : hasNext ? rows.subList(0, size) : rows) {
+            conn.edges.add(new ClockEdge(encodeCursor(c), c));
+        }
+        conn.pageInfo = new PageInfo(hasNext, conn.edges.isEmpty() ? null : conn.edges.get(conn.edges.size() - 1).cursor);
+        return conn;
+    }
+
+    /**
+     * Up to {@code limit} punches strictly before the (at, id) cursor, newest first.
+     * Archived punches are all older than the hot horizon, so the archive is
+     * only queried when the hot page is short or already reaches past it.
+     */
+    private List<ClockResponse> newestFirst(String userId, Instant beforeAt, Long beforeId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<Clock> hot = beforeAt == null
+                ? clockRepo.findByUser_IdOrderByAtDescIdDesc(userId, page)
+                : clockRepo.findPageBefore(userId, beforeAt, beforeId, page);
+        List<ClockResponse> rows = new ArrayList<>(hot.stream().map(this::toDto).toList());
+
+        boolean full = rows.size() == limit;
+        if (full && !rows.get(rows.size() - 1).at.isBefore(archive.hotHorizon())) return rows;
+
+        List<ClockResponse> cold = archive.pageBefore(userId, beforeAt, beforeId, limit);
+        if (cold.isEmpty()) return rows;
+
+        rows.addAll(cold);
+        rows.sort(OLDEST_FIRST.reversed());
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    private static String encodeCursor(ClockResponse c) {
+        String raw = c.at.toString() + "|" + c.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            Instant.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
-        return rows.stream().map(this::toDto).toList();
     }
 
     /* ======================= MAPPER ======================= */
@@ -0,0 +1,115 @@
+package com.example.time_manager.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.model.Clock;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.DailyAttendance;
+import com.example.time_manager.repository.ClockRepository;
+import com.example.time_manager.repository.DailyAttendanceRepository;
+import com.example.time_manager.service.kpi.KpiRollupService;
+
+/**
+ * Keeps the daily_attendance read model in step with the clocks table.
+ * In-order punches are folded into the existing row; a back-dated punch
+ * falls back to replaying that single day.
+ */
+@Service
+@Transactional
+public class DailyAttendanceService {
+
+    private final DailyAttendanceRepository repo;
+    private final ClockRepository clockRepo;
+    private final ClockArchiveService archive;
+    private final KpiRollupService kpiRollups;
+
+    public DailyAttendanceService(DailyAttendanceRepository repo, ClockRepository clockRepo,
+                                  ClockArchiveService archive, KpiRollupService kpiRollups) {
+        this.repo = repo;
+        this.clockRepo = clockRepo;
+        this.archive = archive;
+        this.kpiRollups = kpiRollups;
+    }
+
+    /**
+     * Must be called after the clock row has been written, in the same transaction.
+     * {@code workDate} is the clock's persisted work_date.
+     */
+    public DailyAttendance onPunch(String userId, ClockKind kind, Instant at, LocalDate workDate) {
+        DailyAttendance row = repo.findForUpdate(userId, workDate).orElseGet(() -> newRow(userId, workDate));
+
+        if (row.getLastPunchAt() != null && at.isBefore(row.getLastPunchAt())) {
+            replay(row);
+        } else {
+            row.apply(kind, at);
+        }
+        kpiRollups.markDirty(userId, workDate, workDate);
+        return repo.save(row);
+    }
+
+    /**
+     * Several punches of one day written together (terminal batches), in
+     * time order, after all of them were inserted. A back-dated batch
+     * replays the day once: the replay already sees every punch of the
+     * batch, so none of them may be folded in again.
+     */
+    public DailyAttendance onPunches(String userId, LocalDate workDate, List<ClockResponse> punches) {
+        DailyAttendance row = repo.findForUpdate(userId, workDate).orElseGet(() -> newRow(userId, workDate));
+
+        if (row.getLastPunchAt() != null && punches.get(0).at.isBefore(row.getLastPunchAt())) {
+            replay(row);
+        } else {
+            for (ClockResponse c : punches) {
+                row.apply(c.kind, c.at);
+            }
+        }
+        kpiRollups.markDirty(userId, workDate, workDate);
+        return repo.save(row);
+    }
+
+    /** Rebuilds one day from raw clocks (back-dated punches, repairs). */
+    public DailyAttendance recompute(String userId, LocalDate day) {
+        DailyAttendance row = repo.findForUpdate(userId, day).orElseGet(() -> newRow(userId, day));
+        replay(row);
+        kpiRollups.markDirty(userId, day, day);
+        if (row.getPunchCount() == 0) {
+            if (row.getId() != null) repo.delete(row);
+            return row;
+        }
+        return repo.save(row);
+    }
+
+    private void replay(DailyAttendance row) {
+        List<ClockResponse> clocks = new ArrayList<>();
+        for (Clock c : clockRepo.findByUser_IdAndWorkDateOrderByAtAscIdAsc(row.getUserId(), row.getWorkDate())) {
+            ClockResponse r = new ClockResponse();
+            r.id = c.getId();
+            r.kind = c.getKind();
+            r.at = c.getAt();
+            clocks.add(r);
+        }
+        // a day older than the hot horizon may be partly archived
+        clocks.addAll(archive.listOnDay(row.getUserId(), row.getWorkDate()));
+        clocks.sort(Comparator.comparing((ClockResponse c) -> c.at).thenComparing(c -> c.id));
+
+        row.reset();
+        for (ClockResponse c : clocks) {
+            row.apply(c.kind, c.at);
+        }
+    }
+
+    private static DailyAttendance newRow(String userId, LocalDate day) {
+        DailyAttendance row = new DailyAttendance();
+        row.setUserId(userId);
+        row.setWorkDate(day);
+        return row;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.time_manager.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.example.time_manager.dto.kpi.PoolStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Live figures of the write and analytics connection pools, to check that
+ * dashboard load stays on its own pool.
+ */
+@Service
+public class DataSourcePoolService {
+
+    private final HikariDataSource writePool;
+    private final HikariDataSource analyticsPool;
+
+    public DataSourcePoolService(@Qualifier("writePool") HikariDataSource writePool,
+                                 @Qualifier("analyticsPool") HikariDataSource analyticsPool) {
+        this.writePool = writePool;
+        this.analyticsPool = analyticsPool;
+    }
+
+    public List<PoolStats> stats() {
+        return List.of(stats("write", writePool), stats("analytics", analyticsPool));
+    }
+
+    private static PoolStats stats(String name, HikariDataSource pool) {
+        // null until the pool opened its first connection
+        HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+        if (mx == null) return new PoolStats(name, 0, 0, 0, 0, pool.getMaximumPoolSize());
+        return new PoolStats(name,
+                mx.getActiveConnections(),
+                mx.getIdleConnections(),
+                mx.getTotalConnections(),
+                mx.getThreadsAwaitingConnection(),
+                pool.getMaximumPoolSize());
+    }
+}
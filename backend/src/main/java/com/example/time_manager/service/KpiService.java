@@ -3,39 +3,76 @@ package com.example.time_manager.service;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.example.time_manager.model.kpi.AbsenceBreakdown;
+import com.example.time_manager.config.AnalyticsDataSourceConfig;
+import com.example.time_manager.model.User;
 import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.KpiGranularity;
+import com.example.time_manager.model.kpi.KpiPoint;
+import com.example.time_manager.model.kpi.KpiScope;
 import com.example.time_manager.model.kpi.LeaveBalance;
+import com.example.time_manager.model.kpi.PunchHeatCell;
 import com.example.time_manager.model.kpi.PunctualityStats;
 import com.example.time_manager.model.kpi.TeamKpiSummary;
 import com.example.time_manager.model.kpi.UserKpiSummary;
+import com.example.time_manager.service.kpi.KpiCache;
+import com.example.time_manager.service.kpi.KpiSections;
+import com.example.time_manager.service.kpi.KpiSeriesPass;
+import com.example.time_manager.service.kpi.PunchHeatmap;
+import com.example.time_manager.service.kpi.PunctualityEngine;
+import com.example.time_manager.service.kpi.UserKpiPass;
+
+import jakarta.persistence.EntityNotFoundException;
 
 @Service
 public class KpiService {
 
+    static final int MAX_TEAMS = 200;
+
+    private static final String TEAM_SUMS =
+            "SUM(planned_days) AS planned_days, SUM(present_days) AS present_days, " +
+            "SUM(worked_days) AS worked_days, SUM(worked_minutes) AS worked_minutes, " +
+            "SUM(absence_units) AS absence_days, SUM(reports_authored) AS reports ";
+
+    private record Slot(String dayOfWeek, LocalTime from, LocalTime to) {}
+    private record Attendance(LocalDate day, Instant firstIn, Instant lastOut, int punchCount) {}
+    private record AbsenceRow(String type, String period) {}
+
     private final JdbcTemplate jdbc;
+    private final KpiCache cache;
+    private final KpiSections sections;
+    private final PunctualityEngine punctuality;
+    private final PunchHeatmap heatmap;
 
-    public KpiService(JdbcTemplate jdbc) {
+    public KpiService(JdbcTemplate jdbc, KpiCache cache, KpiSections sections, PunctualityEngine punctuality,
+                      PunchHeatmap heatmap) {
         this.jdbc = jdbc;
+        this.cache = cache;
+        this.sections = sections;
+        this.punctuality = punctuality;
+        this.heatmap = heatmap;
     }
 
     // -------------------- Helpers --------------------
-    private static String weekdayEnumExpr(String aliasDateCol) {
-        return "CASE WEEKDAY(" + aliasDateCol + ") "
-             + "WHEN 0 THEN 'MON' WHEN 1 THEN 'TUE' WHEN 2 THEN 'WED' WHEN 3 THEN 'THU' "
-             + "WHEN 4 THEN 'FRI' WHEN 5 THEN 'SAT' ELSE 'SUN' END";
-    }
-
     private static BigDecimal nz(Number n) {
         if (n == null) return BigDecimal.ZERO;
         if (n instanceof BigDecimal bd) return bd;
@@ -57,6 +94,10 @@ public class KpiService {
     }
 
 
+    private static Instant instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+
     private BigDecimal avgHoursPerDay(Number totalMinutes, Number dayCount) {
         long days = (dayCount == null) ? 0L : dayCount.longValue();
         if (days <= 0L) {
@@ -69,304 +110,326 @@ public class KpiService {
     }
 
     // -------------------- Global --------------------
-    @Transactional(readOnly = true)
+    // getGlobal, getTeam and getUser run their statements as KpiSections, each
+    // on its own read-only connection: no transaction is held around them.
     public GlobalKpiSummary getGlobal(LocalDate start, LocalDate end) {
+        return cache.global(start, end, () -> computeGlobal(start, end));
+    }
+
+    private GlobalKpiSummary computeGlobal(LocalDate start, LocalDate end) {
         GlobalKpiSummary k = new GlobalKpiSummary();
         k.setPeriodStart(start);
         k.setPeriodEnd(end);
 
-        Integer headcount = jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
-        k.setHeadcount(headcount);
-
-        Integer managers = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM users WHERE JSON_CONTAINS(role, JSON_QUOTE('manager'))",
-                Integer.class);
-        Integer admins = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM users WHERE JSON_CONTAINS(role, JSON_QUOTE('admin'))",
-                Integer.class);
-
-        k.setManagersShare(ratio(managers, headcount));
-        k.setAdminsShare(ratio(admins, headcount));
-
-        Number presentDays = jdbc.queryForObject(
-                "SELECT COUNT(DISTINCT CONCAT(user_id,'#', DATE(`at`))) FROM clocks " +
-                "WHERE `at` BETWEEN ? AND ? AND kind='IN'",
-                Number.class, start, end.plusDays(1));
-
-        Number plannedDays = jdbc.queryForObject(
-                "WITH RECURSIVE d AS (" +
-                "  SELECT ? AS dt UNION ALL " +
-                "  SELECT DATE_ADD(dt, INTERVAL 1 DAY) FROM d WHERE dt < ?" +
-                ") " +
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT DISTINCT ws.user_id, d.dt " +
-                "  FROM d " +
-                "  JOIN work_schedules ws ON ws.day_of_week = " + weekdayEnumExpr("d.dt") +
-                ") x",
-                Number.class, start, end);
-        k.setPresenceRate(ratio(presentDays, plannedDays));
-
-        Number totalMinutes = jdbc.queryForObject(
-                "SELECT COALESCE(SUM(TIMESTAMPDIFF(MINUTE, first_in, last_out)),0) FROM (" +
-                "  SELECT user_id, DATE(`at`) d, " +
-                "         MIN(CASE WHEN kind='IN' THEN `at` END) AS first_in, " +
-                "         MAX(CASE WHEN kind='OUT' THEN `at` END) AS last_out " +
-                "  FROM clocks " +
-                "  WHERE `at` BETWEEN ? AND ? " +
-                "  GROUP BY user_id, DATE(`at`) " +
-                "  HAVING first_in IS NOT NULL AND last_out IS NOT NULL" +
-                ") t",
-                Number.class, start, end.plusDays(1));
-
-        Number dayCount = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT user_id, DATE(`at`) d " +
-                "  FROM clocks WHERE `at` BETWEEN ? AND ? " +
-                "  GROUP BY user_id, DATE(`at`)" +
-                ") s",
-                Number.class, start, end.plusDays(1));
-        k.setAvgHoursPerDay(avgHoursPerDay(totalMinutes, dayCount));
-
-        Number absenceDays = jdbc.queryForObject(
-                "SELECT COALESCE(SUM(CASE period " +
-                " WHEN 'FULL_DAY' THEN 1 WHEN 'AM' THEN 0.5 WHEN 'PM' THEN 0.5 END),0) " +
-                "FROM absence_days ad " +
-                "JOIN absence a ON a.id = ad.absence_id " +
-                "WHERE absence_date BETWEEN ? AND ?",
-                Number.class, start, end);
-        k.setTotalAbsenceDays(nz(absenceDays));
-        k.setAbsenceRate(ratio(absenceDays, plannedDays));
-
-        Number approvalDelay = jdbc.queryForObject(
+        KpiSections.Batch batch = sections.batch();
+        Supplier<Integer> headcount = batch.add(() -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM users", Integer.class));
+        // index lookups on user_roles, no parsing of users.role
+        Supplier<Integer> managers = batch.add(() -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM user_roles WHERE role = 'MANAGER'",
+                Integer.class));
+        Supplier<Integer> admins = batch.add(() -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM user_roles WHERE role = 'ADMIN'",
+                Integer.class));
+        // one row per user and day, kept up to date by KpiRollupService
+        Supplier<Map<String, Object>> rollup = batch.add(() -> jdbc.queryForMap(
+                "SELECT SUM(planned) AS planned_days, SUM(present) AS present_days, " +
+                "       SUM(worked_day) AS worked_days, SUM(worked_minutes) AS worked_minutes, " +
+                "       SUM(absence_units) AS absence_days, SUM(reports_authored) AS reports " +
+                "FROM kpi_user_daily WHERE day BETWEEN ? AND ?",
+                start, end));
+        Supplier<Number> approvalDelay = batch.add(() -> jdbc.queryForObject(
                 "SELECT AVG(TIMESTAMPDIFF(HOUR, created_at, approved_at)) " +
                 "FROM absence " +
                 "WHERE approved_at IS NOT NULL AND created_at BETWEEN ? AND ?",
-                Number.class, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        k.setApprovalDelayHours(approvalDelay == null ? null : nz(approvalDelay));
+                Number.class, start.atStartOfDay(), end.plusDays(1).atStartOfDay()));
+        batch.join();
+
+        k.setHeadcount(headcount.get());
+        k.setManagersShare(ratio(managers.get(), headcount.get()));
+        k.setAdminsShare(ratio(admins.get(), headcount.get()));
 
-        Integer totalReports = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM reports WHERE created_at BETWEEN ? AND ?",
-                Integer.class, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        k.setTotalReports(totalReports);
+        Map<String, Object> r = rollup.get();
+        Number plannedDays = (Number) r.get("planned_days");
+        Number absenceDays = (Number) r.get("absence_days");
+
+        k.setPresenceRate(ratio((Number) r.get("present_days"), plannedDays));
+        k.setAvgHoursPerDay(avgHoursPerDay((Number) r.get("worked_minutes"), (Number) r.get("worked_days")));
+        k.setTotalAbsenceDays(nz(absenceDays));
+        k.setAbsenceRate(ratio(absenceDays, plannedDays));
+
+        k.setApprovalDelayHours(approvalDelay.get() == null ? null : nz(approvalDelay.get()));
+
+        k.setTotalReports(nz((Number) r.get("reports")).intValue());
 
         return k;
     }
 
     // -------------------- Team --------------------
-    @Transactional(readOnly = true)
     public TeamKpiSummary getTeam(Integer teamId, LocalDate start, LocalDate end) {
+        return cache.team(teamId, start, end, () -> computeTeam(teamId, start, end));
+    }
+
+    private TeamKpiSummary computeTeam(Integer teamId, LocalDate start, LocalDate end) {
         TeamKpiSummary k = new TeamKpiSummary();
         k.setTeamId(teamId);
         k.setPeriodStart(start);
         k.setPeriodEnd(end);
 
-        Map<String, Object> team = jdbc.queryForMap("SELECT id, name FROM teams WHERE id=?", teamId);
-        k.setTeamName((String) team.get("name"));
-
-        Integer headcount = jdbc.queryForObject(
+        KpiSections.Batch batch = sections.batch();
+        Supplier<Map<String, Object>> team = batch.add(() -> jdbc.queryForMap(
+                "SELECT id, name FROM teams WHERE id=?", teamId));
+        Supplier<Integer> headcount = batch.add(() -> jdbc.queryForObject(
                 "SELECT COUNT(*) FROM team_members WHERE team_id = ?",
-                Integer.class, teamId);
-        k.setHeadcount(headcount);
-
-        Number presentDays = jdbc.queryForObject(
-                "SELECT COUNT(DISTINCT CONCAT(c.user_id,'#', DATE(c.`at`))) " +
-                "FROM clocks c " +
-                "JOIN team_members tm ON tm.user_id = c.user_id AND tm.team_id = ? " +
-                "WHERE c.`at` BETWEEN ? AND ? AND c.kind='IN'",
-                Number.class, teamId, start, end.plusDays(1));
-
-        Number plannedDays = jdbc.queryForObject(
-                "WITH RECURSIVE d AS (" +
-                "  SELECT ? AS dt UNION ALL " +
-                "  SELECT DATE_ADD(dt, INTERVAL 1 DAY) FROM d WHERE dt < ?" +
-                ") " +
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT DISTINCT ws.user_id, d.dt " +
-                "  FROM d " +
-                "  JOIN team_members tm ON tm.team_id = ? " +
-                "  JOIN work_schedules ws ON ws.user_id = tm.user_id " +
-                "     AND ws.day_of_week = " + weekdayEnumExpr("d.dt") +
-                ") x",
-                Number.class, start, end, teamId);
-
-        k.setPresenceRate(ratio(presentDays, plannedDays));
-
-        Number totalMinutes = jdbc.queryForObject(
-                "SELECT COALESCE(SUM(TIMESTAMPDIFF(MINUTE, first_in, last_out)),0) FROM (" +
-                "  SELECT c.user_id, DATE(c.`at`) d, " +
-                "         MIN(CASE WHEN c.kind='IN' THEN c.`at` END) AS first_in, " +
-                "         MAX(CASE WHEN c.kind='OUT' THEN c.`at` END) AS last_out " +
-                "  FROM clocks c " +
-                "  JOIN team_members tm ON tm.user_id = c.user_id AND tm.team_id = ? " +
-                "  WHERE c.`at` BETWEEN ? AND ? " +
-                "  GROUP BY c.user_id, DATE(c.`at`) " +
-                "  HAVING first_in IS NOT NULL AND last_out IS NOT NULL" +
-                ") t",
-                Number.class, teamId, start, end.plusDays(1));
-
-        Number dayCount = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT c.user_id, DATE(c.`at`) d " +
-                "  FROM clocks c " +
-                "  JOIN team_members tm ON tm.user_id=c.user_id AND tm.team_id=? " +
-                "  WHERE c.`at` BETWEEN ? AND ? " +
-                "  GROUP BY c.user_id, DATE(c.`at`)" +
-                ") s",
-                Number.class, teamId, start, end.plusDays(1));
-
-        k.setAvgHoursPerDay(avgHoursPerDay(totalMinutes, dayCount));
-
-        Number absenceDays = jdbc.queryForObject(
-                "SELECT COALESCE(SUM(CASE ad.period " +
-                " WHEN 'FULL_DAY' THEN 1 WHEN 'AM' THEN 0.5 WHEN 'PM' THEN 0.5 END),0) " +
-                "FROM absence_days ad " +
-                "JOIN absence a ON a.id = ad.absence_id " +
-                "JOIN team_members tm ON tm.user_id = a.user_id AND tm.team_id = ? " +
-                "WHERE ad.absence_date BETWEEN ? AND ?",
-                Number.class, teamId, start, end);
+                Integer.class, teamId));
+        // one row per team and day, kept up to date by KpiRollupService
+        Supplier<Map<String, Object>> rollup = batch.add(() -> jdbc.queryForMap(
+                "SELECT " + TEAM_SUMS +
+                "FROM kpi_team_daily WHERE team_id = ? AND day BETWEEN ? AND ?",
+                teamId, start, end));
+        batch.join();
+
+        k.setTeamName((String) team.get().get("name"));
+        k.setHeadcount(headcount.get());
+        applyTeamSums(k, rollup.get());
 
-        k.setAbsenceRate(ratio(absenceDays, plannedDays));
+        return k;
+    }
 
-        Integer reports = jdbc.queryForObject(
-                "SELECT COUNT(*) " +
-                "FROM reports r " +
-                "JOIN team_members tm ON tm.user_id = r.author_id " +
-                "WHERE tm.team_id = ? AND r.created_at BETWEEN ? AND ?",
-                Integer.class, teamId, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        k.setReportsAuthored(reports);
+    /**
+     * KPIs of several teams, in the order asked and without duplicates.
+     * Whatever the number of teams, the ones not cached are computed with the
+     * same three statements, each grouped by team.
+     */
+    @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
+    public List<TeamKpiSummary> getTeams(Collection<Integer> teamIds, LocalDate start, LocalDate end) {
+        if (teamIds == null || teamIds.isEmpty()) return List.of();
+        Set<Integer> ids = new LinkedHashSet<>(teamIds);
+        if (ids.size() > MAX_TEAMS) {
+            throw new IllegalArgumentException("Too many teams: " + ids.size() + " (max " + MAX_TEAMS + ")");
+        }
 
-        return k;
+        Map<Integer, TeamKpiSummary> byId = cache.teams(ids, start, end, missing -> computeTeams(missing, start, end));
+        List<TeamKpiSummary> out = new ArrayList<>(ids.size());
+        for (Integer id : ids) out.add(byId.get(id));
+        return out;
+    }
+
+    private Map<Integer, TeamKpiSummary> computeTeams(List<Integer> teamIds, LocalDate start, LocalDate end) {
+        String in = String.join(",", Collections.nCopies(teamIds.size(), "?"));
+
+        Map<Integer, TeamKpiSummary> byId = new HashMap<>();
+        for (Map<String, Object> t : jdbc.queryForList(
+                "SELECT id, name FROM teams WHERE id IN (" + in + ")", teamIds.toArray())) {
+            TeamKpiSummary k = new TeamKpiSummary();
+            k.setTeamId(((Number) t.get("id")).intValue());
+            k.setTeamName((String) t.get("name"));
+            k.setPeriodStart(start);
+            k.setPeriodEnd(end);
+            k.setHeadcount(0);
+            applyTeamSums(k, Map.of());
+            byId.put(k.getTeamId(), k);
+        }
+        for (Integer id : teamIds) {
+            if (!byId.containsKey(id)) throw new EntityNotFoundException("Team not found: " + id);
+        }
+
+        for (Map<String, Object> h : jdbc.queryForList(
+                "SELECT team_id, COUNT(*) AS headcount FROM team_members " +
+                "WHERE team_id IN (" + in + ") GROUP BY team_id",
+                teamIds.toArray())) {
+            byId.get(((Number) h.get("team_id")).intValue())
+                    .setHeadcount(((Number) h.get("headcount")).intValue());
+        }
+
+        List<Object> args = new ArrayList<>(teamIds);
+        args.add(start);
+        args.add(end);
+        for (Map<String, Object> r : jdbc.queryForList(
+                "SELECT team_id, " + TEAM_SUMS +
+                "FROM kpi_team_daily WHERE team_id IN (" + in + ") AND day BETWEEN ? AND ? GROUP BY team_id",
+                args.toArray())) {
+            applyTeamSums(byId.get(((Number) r.get("team_id")).intValue()), r);
+        }
+        return byId;
+    }
+
+    private void applyTeamSums(TeamKpiSummary k, Map<String, Object> r) {
+        Number plannedDays = (Number) r.get("planned_days");
+        k.setPresenceRate(ratio((Number) r.get("present_days"), plannedDays));
+        k.setAvgHoursPerDay(avgHoursPerDay((Number) r.get("worked_minutes"), (Number) r.get("worked_days")));
+        k.setAbsenceRate(ratio((Number) r.get("absence_days"), plannedDays));
+        k.setReportsAuthored(nz((Number) r.get("reports")).intValue());
+    }
+
+    // -------------------- Series --------------------
+    /**
+     * Presence, hours, absences and lateness per day, week or month bucket.
+     * The range is read once: the daily rollups for the rates and the
+     * arrivals of {@link PunctualityEngine#arrivals} for lateness, each row
+     * folded into its bucket by a {@link KpiSeriesPass}. A 52-week chart
+     * costs two statements.
+     */
+    @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
+    public List<KpiPoint> getSeries(KpiScope scope, String id, LocalDate start, LocalDate end,
+                                    KpiGranularity granularity) {
+        if (scope == null) throw new IllegalArgumentException("scope is required");
+        if (scope != KpiScope.GLOBAL && (id == null || id.isBlank())) {
+            throw new IllegalArgumentException("id is required for scope " + scope);
+        }
+        KpiSeriesPass pass = new KpiSeriesPass(granularity, start, end);
+
+        // rollup rows of the scope, and the matching users for schedules and arrivals
+        String rollup;
+        Object[] rollupArgs;
+        String who;
+        Object[] whoArgs;
+        switch (scope) {
+            case USER -> {
+                rollup = "SELECT day, planned AS planned_days, present AS present_days, worked_day AS worked_days, " +
+                         "       worked_minutes, absence_units " +
+                         "FROM kpi_user_daily WHERE user_id = ? AND day BETWEEN ? AND ?";
+                rollupArgs = new Object[] { id, start, end };
+                who = "x.user_id = ?";
+                whoArgs = new Object[] { id };
+            }
+            case TEAM -> {
+                Integer teamId = Integer.valueOf(id);
+                rollup = "SELECT day, planned_days, present_days, worked_days, worked_minutes, absence_units " +
+                         "FROM kpi_team_daily WHERE team_id = ? AND day BETWEEN ? AND ?";
+                rollupArgs = new Object[] { teamId, start, end };
+                who = "x.user_id IN (SELECT user_id FROM team_members WHERE team_id = ?)";
+                whoArgs = new Object[] { teamId };
+            }
+            default -> {
+                rollup = "SELECT day, SUM(planned) AS planned_days, SUM(present) AS present_days, " +
+                         "       SUM(worked_day) AS worked_days, SUM(worked_minutes) AS worked_minutes, " +
+                         "       SUM(absence_units) AS absence_units " +
+                         "FROM kpi_user_daily WHERE day BETWEEN ? AND ? GROUP BY day";
+                rollupArgs = new Object[] { start, end };
+                who = "TRUE";
+                whoArgs = new Object[0];
+            }
+        }
+
+        jdbc.query(rollup,
+                rs -> {
+                    pass.day(rs.getDate("day").toLocalDate(),
+                            rs.getLong("planned_days"), rs.getLong("present_days"),
+                            rs.getLong("worked_days"), rs.getLong("worked_minutes"),
+                            rs.getBigDecimal("absence_units"));
+                },
+                rollupArgs);
+
+        // lateness as the punctuality KPI defines it, folded per bucket
+        Object[] arrivalArgs = new Object[whoArgs.length + 2];
+        System.arraycopy(whoArgs, 0, arrivalArgs, 0, whoArgs.length);
+        arrivalArgs[whoArgs.length] = start;
+        arrivalArgs[whoArgs.length + 1] = end;
+        punctuality.arrivals(who, arrivalArgs, pass::arrival);
+
+        return points(pass);
+    }
+
+    private List<KpiPoint> points(KpiSeriesPass pass) {
+        List<KpiPoint> out = new ArrayList<>(pass.size());
+        for (int i = 0; i < pass.size(); i++) {
+            KpiPoint p = new KpiPoint();
+            p.setBucketStart(pass.bucketStart(i));
+            p.setBucketEnd(pass.bucketEnd(i));
+            p.setPresenceRate(ratio(pass.presentDays(i), pass.plannedDays(i)));
+            p.setAvgHoursPerDay(avgHoursPerDay(pass.workedMinutes(i), pass.workedDays(i)));
+            p.setAbsenceUnits(pass.absenceUnits(i));
+            p.setLateRate(ratio(pass.lateDays(i), pass.plannedDays(i)));
+            p.setAvgDelayMinutes(pass.avgDelayMinutes(i));
+            out.add(p);
+        }
+        return out;
+    }
+
+    // -------------------- Punctuality --------------------
+    /** Late rate, average delay and lateness distribution of a user, a team or everyone. */
+    public PunctualityStats getPunctuality(KpiScope scope, String id, LocalDate start, LocalDate end) {
+        return punctuality.compute(scope, id, start, end);
+    }
+
+    // -------------------- Punch heatmap --------------------
+    @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
+    public List<PunchHeatCell> getPunchHeatmap(KpiScope scope, String id, LocalDate start, LocalDate end) {
+        return heatmap.compute(scope, id, start, end);
     }
 
     // -------------------- User --------------------
-    @Transactional(readOnly = true)
+    /**
+     * Single-pass user KPIs: one header row, the schedule, the period's
+     * attendance and absence rows, and the leave balances, read concurrently
+     * and then folded into a {@link UserKpiPass}. The round-trip count no
+     * longer grows with the range.
+     */
     public UserKpiSummary getUser(UUID userId, LocalDate start, LocalDate end) {
+        return cache.user(userId, start, end, () -> computeUser(userId, start, end));
+    }
+
+    private UserKpiSummary computeUser(UUID userId, LocalDate start, LocalDate end) {
         UserKpiSummary k = new UserKpiSummary();
         k.setUserId(userId);
         k.setPeriodStart(start);
         k.setPeriodEnd(end);
+        String uid = userId.toString();
+
+        // each list is filled by its own section, then folded once the zone is known
+        List<Slot> slots = new ArrayList<>();
+        List<Attendance> days = new ArrayList<>();
+        List<AbsenceRow> absences = new ArrayList<>();
+        List<LocalDate> holidays = new ArrayList<>();
+
+        KpiSections.Batch batch = sections.batch();
+        Supplier<Map<String, Object>> header = batch.add(() -> jdbc.queryForMap(
+                "SELECT CONCAT(u.first_name, ' ', u.last_name) AS full_name, u.time_zone, " +
+                "  (SELECT COUNT(*) FROM reports r WHERE r.author_id = u.id AND r.created_at BETWEEN ? AND ?) AS authored, " +
+                "  (SELECT COUNT(*) FROM reports r WHERE r.target_user_id = u.id AND r.created_at BETWEEN ? AND ?) AS received " +
+                "FROM users u WHERE u.id = ?",
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(),
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(),
+                uid));
+
+        batch.run(() -> jdbc.query(
+                "SELECT day_of_week, start_time, end_time FROM work_schedules WHERE user_id = ?",
+                rs -> {
+                    slots.add(new Slot(rs.getString("day_of_week"),
+                            rs.getTime("start_time").toLocalTime(),
+                            rs.getTime("end_time").toLocalTime()));
+                },
+                uid));
+
+        batch.run(() -> jdbc.query(
+                "SELECT day FROM calendar WHERE is_holiday = 1 AND day BETWEEN ? AND ?",
+                rs -> {
+                    holidays.add(rs.getDate("day").toLocalDate());
+                },
+                start, end));
+
+        batch.run(() -> jdbc.query(
+                "SELECT work_date, first_in, last_out, punch_count FROM daily_attendance " +
+                "WHERE user_id = ? AND work_date BETWEEN ? AND ?",
+                rs -> {
+                    days.add(new Attendance(rs.getDate("work_date").toLocalDate(),
+                            instant(rs.getTimestamp("first_in")),
+                            instant(rs.getTimestamp("last_out")),
+                            rs.getInt("punch_count")));
+                },
+                uid, start, end));
+
+        batch.run(() -> jdbc.query(
+                "SELECT a.type, ad.period FROM absence_days ad " +
+                "JOIN absence a ON a.id = ad.absence_id " +
+                "WHERE a.user_id = ? AND ad.absence_date BETWEEN ? AND ?",
+                rs -> {
+                    absences.add(new AbsenceRow(rs.getString("type"), rs.getString("period")));
+                },
+                uid, start, end));
 
-        Map<String, Object> u = jdbc.queryForMap(
-                "SELECT CONCAT(first_name, ' ', last_name) AS full_name FROM users WHERE id = ?",
-                userId.toString());
-        k.setFullName((String) u.get("full_name"));
-
-        Number presentDays = jdbc.queryForObject(
-                "SELECT COUNT(DISTINCT DATE(`at`)) " +
-                "FROM clocks WHERE user_id = ? AND `at` BETWEEN ? AND ? AND kind='IN'",
-                Number.class, userId.toString(), start, end.plusDays(1));
-
-        Number plannedDays = jdbc.queryForObject(
-                "WITH RECURSIVE d AS (" +
-                "  SELECT ? AS dt UNION ALL " +
-                "  SELECT DATE_ADD(dt, INTERVAL 1 DAY) FROM d WHERE dt < ?" +
-                ") " +
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT DISTINCT d.dt " +
-                "  FROM d " +
-                "  JOIN work_schedules ws ON ws.user_id = ? " +
-                "     AND ws.day_of_week = " + weekdayEnumExpr("d.dt") +
-                ") x",
-                Number.class, start, end, userId.toString());
-
-        k.setPresenceRate(ratio(presentDays, plannedDays));
-
-        Number totalMinutes = jdbc.queryForObject(
-                "SELECT COALESCE(SUM(TIMESTAMPDIFF(MINUTE, first_in, last_out)),0) FROM (" +
-                "  SELECT DATE(`at`) d, " +
-                "         MIN(CASE WHEN kind='IN' THEN `at` END) AS first_in, " +
-                "         MAX(CASE WHEN kind='OUT' THEN `at` END) AS last_out " +
-                "  FROM clocks " +
-                "  WHERE user_id = ? AND `at` BETWEEN ? AND ? " +
-                "  GROUP BY DATE(`at`) " +
-                "  HAVING first_in IS NOT NULL AND last_out IS NOT NULL" +
-                ") t",
-                Number.class, userId.toString(), start, end.plusDays(1));
-
-        Number dayCount = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT DATE(`at`) d " +
-                "  FROM clocks WHERE user_id=? AND `at` BETWEEN ? AND ? " +
-                "  GROUP BY DATE(`at`)" +
-                ") s",
-                Number.class, userId.toString(), start, end.plusDays(1));
-
-        k.setAvgHoursPerDay(avgHoursPerDay(totalMinutes, dayCount));
-
-        Number plannedMinutes = jdbc.queryForObject(
-                "WITH RECURSIVE d AS (" +
-                "  SELECT ? AS dt UNION ALL " +
-                "  SELECT DATE_ADD(dt, INTERVAL 1 DAY) FROM d WHERE dt < ?" +
-                ") " +
-                "SELECT COALESCE(SUM(TIMESTAMPDIFF(MINUTE, ws.start_time, ws.end_time)),0) " +
-                "FROM d " +
-                "JOIN work_schedules ws ON ws.user_id = ? " +
-                "  AND ws.day_of_week = " + weekdayEnumExpr("d.dt"),
-                Number.class, start, end, userId.toString());
-
-        BigDecimal overtime = nz(totalMinutes)
-                .subtract(nz(plannedMinutes))
-                .divide(BigDecimal.valueOf(60), 2, java.math.RoundingMode.HALF_UP);
-        k.setOvertimeHours(overtime);
-
-        Number lateCount = jdbc.queryForObject(
-                "WITH RECURSIVE d AS (" +
-                "  SELECT ? AS dt UNION ALL " +
-                "  SELECT DATE_ADD(dt, INTERVAL 1 DAY) FROM d WHERE dt < ?" +
-                ") " +
-                "SELECT COUNT(*) FROM (" +
-                "  SELECT d.dt, " +
-                "    (SELECT MIN(start_time) FROM work_schedules ws " +
-                "     WHERE ws.user_id=? AND ws.day_of_week = " + weekdayEnumExpr("d.dt") + ") AS plan_start, " +
-                "    (SELECT MIN(`at`) FROM clocks c " +
-                "     WHERE c.user_id=? AND DATE(c.`at`)=d.dt AND c.kind='IN') AS first_in " +
-                "  FROM d" +
-                ") z " +
-                "WHERE plan_start IS NOT NULL AND first_in IS NOT NULL AND TIME(first_in) > plan_start",
-                Number.class, start, end, userId.toString(), userId.toString());
-
-        BigDecimal lateRate = ratio(lateCount, plannedDays);
-
-        Number avgDelayMin = jdbc.queryForObject(
-                "WITH RECURSIVE d AS (" +
-                "  SELECT ? AS dt UNION ALL " +
-                "  SELECT DATE_ADD(dt, INTERVAL 1 DAY) FROM d WHERE dt < ?" +
-                ") " +
-                "SELECT AVG(TIMESTAMPDIFF(MINUTE, plan_start, first_in)) FROM (" +
-                "  SELECT d.dt, " +
-                "    (SELECT MIN(start_time) FROM work_schedules ws " +
-                "     WHERE ws.user_id=? AND ws.day_of_week = " + weekdayEnumExpr("d.dt") + ") AS plan_start, " +
-                "    (SELECT MIN(`at`) FROM clocks c " +
-                "     WHERE c.user_id=? AND DATE(c.`at`)=d.dt AND c.kind='IN') AS first_in " +
-                "  FROM d" +
-                ") z " +
-                "WHERE plan_start IS NOT NULL AND first_in IS NOT NULL AND TIME(first_in) > plan_start",
-                Number.class, start, end, userId.toString(), userId.toString());
-
-        BigDecimal avgDelay = (avgDelayMin == null ? null : nz(avgDelayMin));
-        k.setPunctuality(new PunctualityStats(lateRate, avgDelay));
-
-        Number absDays = jdbc.queryForObject(
-                "SELECT COALESCE(SUM(CASE period " +
-                " WHEN 'FULL_DAY' THEN 1 WHEN 'AM' THEN 0.5 WHEN 'PM' THEN 0.5 END),0) " +
-                "FROM absence_days ad " +
-                "JOIN absence a ON a.id=ad.absence_id " +
-                "WHERE a.user_id=? AND ad.absence_date BETWEEN ? AND ?",
-                Number.class, userId.toString(), start, end);
-        k.setAbsenceDays(nz(absDays));
-
-        List<AbsenceBreakdown> byType = jdbc.query(
-                "SELECT a.type, " +
-                "       SUM(CASE ad.period WHEN 'FULL_DAY' THEN 1 WHEN 'AM' THEN 0.5 WHEN 'PM' THEN 0.5 END) AS days " +
-                "FROM absence a " +
-                "JOIN absence_days ad ON a.id=ad.absence_id " +
-                "WHERE a.user_id=? AND ad.absence_date BETWEEN ? AND ? " +
-                "GROUP BY a.type",
-                (rs, i) -> new AbsenceBreakdown(rs.getString("type"), rs.getBigDecimal("days")),
-                userId.toString(), start, end);
-        k.setAbsenceByType(byType);
-
-        List<LeaveBalance> balances = jdbc.query(
+        Supplier<List<LeaveBalance>> balances = batch.add(() -> jdbc.query(
                 "SELECT la.leave_type, la.opening_balance, " +
                 "       COALESCE(SUM(CASE ll.kind WHEN 'ACCRUAL' THEN ll.amount END),0) AS accrued, " +
                 "       COALESCE(SUM(CASE ll.kind WHEN 'DEBIT' THEN ll.amount END),0)   AS debited, " +
@@ -389,17 +452,30 @@ public class KpiService {
                                 opening, accrued, debited, adjustments, expired, current
                         );
                     }
-                }, start, end, userId.toString());
-        k.setLeaveBalances(balances);
-
-        Integer authored = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM reports WHERE author_id=? AND created_at BETWEEN ? AND ?",
-                Integer.class, userId.toString(), start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        Integer received = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM reports WHERE target_user_id=? AND created_at BETWEEN ? AND ?",
-                Integer.class, userId.toString(), start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        k.setReportsAuthored(authored);
-        k.setReportsReceived(received);
+                }, start, end, uid));
+
+        batch.join();
+
+        Map<String, Object> u = header.get();
+        k.setFullName((String) u.get("full_name"));
+        k.setReportsAuthored(u.get("authored") == null ? 0 : ((Number) u.get("authored")).intValue());
+        k.setReportsReceived(u.get("received") == null ? 0 : ((Number) u.get("received")).intValue());
+
+        UserKpiPass pass = new UserKpiPass(start, end, User.zoneOf((String) u.get("time_zone")));
+        for (Slot s : slots) pass.schedule(s.dayOfWeek(), s.from(), s.to());
+        for (LocalDate h : holidays) pass.holiday(h);
+        for (Attendance d : days) pass.attendance(d.day(), d.firstIn(), d.lastOut(), d.punchCount());
+        for (AbsenceRow a : absences) pass.absence(a.type(), a.period());
+
+        long plannedDays = pass.plannedDays();
+        k.setPresenceRate(ratio(pass.presentDays(), plannedDays));
+        k.setAvgHoursPerDay(avgHoursPerDay(pass.workedMinutes(), pass.workedDays()));
+        k.setOvertimeHours(BigDecimal.valueOf(pass.workedMinutes() - pass.plannedMinutes())
+                .divide(BigDecimal.valueOf(60), 2, java.math.RoundingMode.HALF_UP));
+        k.setPunctuality(pass.punctuality());
+        k.setAbsenceDays(pass.absenceDays());
+        k.setAbsenceByType(pass.absenceByType());
+        k.setLeaveBalances(balances.get());
 
         return k;
     }
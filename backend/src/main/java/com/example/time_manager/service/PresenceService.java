@@ -0,0 +1,144 @@
+package com.example.time_manager.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.time_manager.dto.clock.PresenceEntry;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.repository.TeamMemberRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * In-memory "who is in right now" index.
+ *
+ * Holds the last punch of every user, updated from the punch path once the
+ * clock row is committed and rebuilt from the clocks table at startup. Team
+ * boards read it without touching the database; team membership is cached
+ * and evicted by {@link TeamService} once a change commits.
+ *
+ * A punch only hands its change to the subscribers' queues: each
+ * subscription filters on its own worker, so a membership lookup never runs
+ * on the punching thread or under the emission lock.
+ */
+@Service
+public class PresenceService {
+
+    private record State(ClockKind kind, Instant at) {}
+
+    private final JdbcTemplate jdbc;
+    private final TeamMemberRepository teamMemberRepo;
+
+    private final Map<String, State> index = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> teamMembers = new ConcurrentHashMap<>();
+    private final Sinks.Many<PresenceEntry> changes = Sinks.many().multicast().directBestEffort();
+
+    public PresenceService(JdbcTemplate jdbc, TeamMemberRepository teamMemberRepo) {
+        this.jdbc = jdbc;
+        this.teamMemberRepo = teamMemberRepo;
+    }
+
+    /* ======================= MAINTENANCE ======================= */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // users idle for longer than the hot window are absent anyway
+        jdbc.query(
+                "SELECT user_id, kind, `at` FROM (" +
+                "  SELECT user_id, kind, `at`, " +
+                "         ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY `at` DESC, id DESC) AS rn " +
+                "  FROM clocks" +
+                ") t WHERE rn = 1",
+                rs -> {
+                    apply(rs.getString("user_id"),
+                            ClockKind.valueOf(rs.getString("kind")),
+                            rs.getTimestamp("at").toInstant(),
+                            false);
+                });
+    }
+
+    /** Records a punch; inside a transaction it only becomes visible after commit. */
+    public void onPunch(String userId, ClockKind kind, Instant at) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userId, kind, at, true);
+                }
+            });
+        } else {
+            apply(userId, kind, at, true);
+        }
+    }
+
+    /** Membership change; inside a transaction the cached members are dropped after commit. */
+    public void evictTeam(Long teamId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // evicting earlier would let a concurrent read cache the pre-commit members for good
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    teamMembers.remove(teamId);
+                }
+            });
+        } else {
+            teamMembers.remove(teamId);
+        }
+    }
+
+    private void apply(String userId, ClockKind kind, Instant at, boolean publish) {
+        State next = new State(kind, at);
+        // per-key atomic merge; a late back-dated punch never overrides a newer one
+        State kept = index.merge(userId, next, (old, neu) -> neu.at().isBefore(old.at()) ? old : neu);
+        if (publish && kept == next) {
+            synchronized (changes) {
+                changes.tryEmitNext(toEntry(userId, next, Instant.now()));
+            }
+        }
+    }
+
+    /* ======================= READ ======================= */
+
+    public List<PresenceEntry> teamPresence(Long teamId) {
+        Instant now = Instant.now();
+        return members(teamId).stream()
+                .sorted()
+                .map(userId -> toEntry(userId, index.get(userId), now))
+                .toList();
+    }
+
+    public Flux<PresenceEntry> teamPresenceChanges(Long teamId) {
+        return changes.asFlux()
+                .publishOn(Schedulers.boundedElastic())
+                .filter(e -> members(teamId).contains(e.userId));
+    }
+
+    private Set<String> members(Long teamId) {
+        return teamMembers.computeIfAbsent(teamId, id -> new HashSet<>(teamMemberRepo.findUserIdsByTeamId(id)));
+    }
+
+    private static PresenceEntry toEntry(String userId, State s, Instant now) {
+        PresenceEntry e = new PresenceEntry();
+        e.userId = userId;
+        if (s != null) {
+            e.state = s.kind();
+            e.lastPunchAt = s.at();
+            e.secondsSinceLastPunch = Math.max(0, Duration.between(s.at(), now).getSeconds());
+        }
+        return e;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.time_manager.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Striped in-process locks serialising punches of the same user.
+ *
+ * A user id always maps to the same stripe, so two punches of one user run
+ * one after the other while different users only meet on a hash collision.
+ * Locks are held until the surrounding transaction completes, so the next
+ * punch reads the committed last punch. Across nodes, the unique
+ * (user_id, seq) constraint on clocks is the guard.
+ */
+@Component
+public class PunchLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+
+    public PunchLocks(@Value("${clocks.punch-lock.stripes:1024}") int stripes,
+                      @Value("${clocks.punch-lock.timeout-ms:5000}") long timeoutMs) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("clocks.punch-lock.stripes must be a power of two");
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) this.stripes[i] = new ReentrantLock();
+        this.timeoutMs = timeoutMs;
+    }
+
+    /** Locks the user's stripe until the current transaction commits or rolls back. */
+    public void lockUntilCompletion(String userId) {
+        lockUntilCompletion(List.of(userId));
+    }
+
+    /** Batch variant; stripes are taken in index order so two batches never deadlock. */
+    public void lockUntilCompletion(Collection<String> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Punch locks require an active transaction");
+        }
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String userId : userIds) indexes.add(stripeOf(userId));
+
+        List<ReentrantLock> held = new ArrayList<>(indexes.size());
+        try {
+            for (int i : indexes) {
+                ReentrantLock lock = stripes[i];
+                if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Another punch is in progress, try again");
+                }
+                held.add(lock);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            held.forEach(ReentrantLock::unlock);
+            throw new IllegalStateException("Interrupted while waiting for punch lock");
+        } catch (RuntimeException ex) {
+            held.forEach(ReentrantLock::unlock);
+            throw ex;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                held.forEach(ReentrantLock::unlock);
+            }
+        });
+    }
+
+    int stripeOf(String userId) {
+        int h = userId.hashCode();
+        // spread the high bits, as HashMap does, before masking
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
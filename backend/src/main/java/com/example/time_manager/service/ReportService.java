@@ -1,18 +1,35 @@
 package com.example.time_manager.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Base64;
 import java.util.List;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.time_manager.config.AnalyticsDataSourceConfig;
+import com.example.time_manager.dto.common.PageInfo;
+import com.example.time_manager.dto.report.ReportConnection;
 import com.example.time_manager.dto.report.ReportCreateRequest;
+import com.example.time_manager.dto.report.ReportEdge;
 import com.example.time_manager.dto.report.ReportResponse;
+import com.example.time_manager.dto.report.ReportRow;
+import com.example.time_manager.dto.report.ReportSearchConnection;
 import com.example.time_manager.dto.report.ReportUpdateRequest;
 import com.example.time_manager.model.Report;
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.ReportRepository;
 import com.example.time_manager.repository.UserRepository;
+import com.example.time_manager.service.kpi.KpiRollupService;
+import com.example.time_manager.service.report.ReportInbox;
+import com.example.time_manager.service.report.ReportSearch;
+import com.example.time_manager.service.report.ReportWriter;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -21,17 +38,32 @@ import jakarta.persistence.EntityNotFoundException;
  * - Any authenticated user can create a report to ANY target user
  * - Author can update/delete their own reports; ADMIN can manage all
  * - Visibility: a report is visible to its author, its target, or an ADMIN
+ * - Lists are read as {@link ReportRow} projections, one statement per list;
+ *   only a single opened report carries its body
  */
 @Service
 @Transactional
 public class ReportService {
 
+  static final int INBOX_CAP = 500;
+  static final int DEFAULT_PAGE_SIZE = 50;
+  static final int MAX_PAGE_SIZE = 200;
+
   private final ReportRepository reportRepo;
   private final UserRepository userRepo;
+  private final KpiRollupService kpiRollups;
+  private final ReportInbox inbox;
+  private final ReportWriter reportWriter;
+  private final ReportSearch reportSearch;
 
-  public ReportService(ReportRepository reportRepo, UserRepository userRepo) {
+  public ReportService(ReportRepository reportRepo, UserRepository userRepo, KpiRollupService kpiRollups,
+                       ReportInbox inbox, ReportWriter reportWriter, ReportSearch reportSearch) {
     this.reportRepo = reportRepo;
     this.userRepo = userRepo;
+    this.kpiRollups = kpiRollups;
+    this.inbox = inbox;
+    this.reportWriter = reportWriter;
+    this.reportSearch = reportSearch;
   }
 
   /* ======================== CREATE ======================== */
@@ -60,31 +92,34 @@ public class ReportService {
     r.setBody(req.getBody());
 
     r = reportRepo.save(r);
+    inbox.delivered(target.getId());
+    kpiRollups.markDirty(author.getId(), LocalDate.now(), LocalDate.now());
     return toDto(r);
   }
 
   /* ======================== READ ======================== */
 
-  @Transactional(readOnly = true)
+  @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
   public List<ReportResponse> listAllForAdmin(String email) {
     User me = userByEmail(email);
     requireAdmin(me);
 
-    return reportRepo.findAllByOrderByCreatedAtDesc()
+    return reportRepo.findAllRows()
         .stream().map(this::toDto).toList();
   }
 
-  @Transactional(readOnly = true)
+  @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
   public List<ReportResponse> listAuthoredByEmail(String email) {
     User me = userByEmail(email);
-    return reportRepo.findByAuthor_IdOrderByCreatedAtDesc(me.getId())
+    return reportRepo.findRowsByAuthor(me.getId())
         .stream().map(this::toDto).toList();
   }
 
-  @Transactional(readOnly = true)
+  /** The {@link #INBOX_CAP} most recent received reports; older ones go through the inbox pages. */
+  @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
   public List<ReportResponse> listReceivedByEmail(String email) {
     User me = userByEmail(email);
-    return reportRepo.findByTarget_IdOrderByCreatedAtDesc(me.getId())
+    return reportRepo.findRowsByTarget(me.getId(), PageRequest.of(0, INBOX_CAP))
         .stream().map(this::toDto).toList();
   }
 
@@ -102,6 +137,71 @@ public class ReportService {
     throw new AccessDeniedException("Forbidden");
   }
 
+  /* ======================== INBOX (keyset) ======================== */
+
+  /**
+   * Newest-first page of received reports. The cursor encodes the last
+   * (createdAt, id) seen, so each page is a range scan of
+   * idx_reports_target_created whatever the size of the inbox.
+   */
+  @Transactional(readOnly = true)
+  public ReportConnection inboxForEmail(String email, Integer first, String after) {
+    int size = first != null ? first : DEFAULT_PAGE_SIZE;
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("first must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    User me = userByEmail(email);
+
+    PageRequest page = PageRequest.of(0, size + 1);
+    List<ReportRow> rows;
+    if (after == null || after.isBlank()) {
+      rows = reportRepo.findRowsByTarget(me.getId(), page);
+    } else {
+      String[] cursor = decodeCursor(after);
+      rows = reportRepo.findInboxRowsBefore(me.getId(), Instant.parse(cursor[0]), Long.valueOf(cursor[1]), page);
+    }
+
+    ReportConnection conn = new ReportConnection();
+    boolean hasNext = rows.size() > size;
+    for (ReportRow r : hasNext ? rows.subList(0, size) : rows) {
+      ReportResponse dto = toDto(r);
+      conn.edges.add(new ReportEdge(encodeCursor(dto), dto));
+    }
+    conn.pageInfo = new PageInfo(hasNext, conn.edges.isEmpty() ? null : conn.edges.get(conn.edges.size() - 1).cursor);
+    conn.unreadCount = inbox.unread(me.getId());
+    return conn;
+  }
+
+  @Transactional(readOnly = true)
+  public int unreadCountForEmail(String email) {
+    return inbox.unread(userByEmail(email).getId());
+  }
+
+  /** Only the target can mark a report read; false when it already was. */
+  public boolean markReadForEmail(String email, Long id) {
+    User me = userByEmail(email);
+    if (inbox.markRead(me.getId(), id)) return true;
+
+    Report r = reportRepo.findById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Report not found: " + id));
+    if (!isTarget(me, r)) throw new AccessDeniedException("Forbidden");
+    return false;
+  }
+
+  public int markAllReadForEmail(String email) {
+    return inbox.markAllRead(userByEmail(email).getId());
+  }
+
+  /* ======================== SEARCH ======================== */
+
+  /** Ranked full-text search; ADMIN searches every report, others the ones they authored or received. */
+  @Transactional(readOnly = true, transactionManager = AnalyticsDataSourceConfig.ANALYTICS_TX)
+  public ReportSearchConnection searchVisibleTo(String email, String query, String type, String severity,
+                                                LocalDate from, LocalDate to, Integer first, String after) {
+    User me = userByEmail(email);
+    return reportSearch.search(query, type, severity, from, to, isAdmin(me) ? null : me.getId(), first, after);
+  }
+
   /* ======================== UPDATE / DELETE ======================== */
 
   public ReportResponse updateVisibleTo(String email, Long id, ReportUpdateRequest req) {
@@ -132,18 +232,54 @@ public class ReportService {
     }
 
     reportRepo.deleteById(id);
+    if (r.getTarget() != null && r.getReadAt() == null) {
+      inbox.removed(r.getTarget().getId());
+    }
+    reportWriter.forget(r.getRuleKey());
+    if (r.getAuthor() != null && r.getCreatedAt() != null) {
+      LocalDate day = r.getCreatedAt().atZone(ZoneId.systemDefault()).toLocalDate();
+      kpiRollups.markDirty(r.getAuthor().getId(), day, day);
+    }
   }
 
   /* ======================== Mapping ======================== */
 
+  /** Listed reports carry a preview, not the body; {@link #getVisibleTo} returns it. */
+  private ReportResponse toDto(ReportRow r) {
+    ReportResponse dto = new ReportResponse();
+
+    dto.setId(r.id());
+    dto.setTitle(r.title());
+    dto.setPreview(r.preview());
+    dto.setCreatedAt(r.createdAt());
+    dto.setUpdatedAt(r.updatedAt());
+    dto.setReadAt(r.readAt());
+
+    dto.setAuthorId(r.authorId());
+    dto.setAuthorEmail(r.authorEmail());
+
+    dto.setTargetUserId(r.targetUserId());
+    dto.setTargetEmail(r.targetEmail());
+
+    dto.setSubjectUserId(r.subjectUserId());
+    dto.setSubjectEmail(r.subjectEmail());
+
+    dto.setType(r.type());
+    dto.setSeverity(r.severity());
+
+    return dto;
+  }
+
   private ReportResponse toDto(Report r) {
     ReportResponse dto = new ReportResponse();
 
     dto.setId(r.getId());
     dto.setTitle(r.getTitle());
     dto.setBody(r.getBody());
+    dto.setPreview(ReportRow.preview(r.getBody()));
     dto.setCreatedAt(r.getCreatedAt());
     dto.setUpdatedAt(r.getUpdatedAt());
+    dto.setReadAt(r.getReadAt());
 
     dto.setAuthorId(r.getAuthor().getId());
     dto.setAuthorEmail(r.getAuthor().getEmail());
@@ -167,6 +303,23 @@ public class ReportService {
 
   /* ======================== Helpers ======================== */
 
+  private static String encodeCursor(ReportResponse r) {
+    String raw = r.getCreatedAt().toString() + "|" + r.getId();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String[] decodeCursor(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\\|", 2);
+      Instant.parse(parts[0]);
+      Long.parseLong(parts[1]);
+      return parts;
+    } catch (RuntimeException ex) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+  }
+
   private User userByEmail(String email) {
     return userRepo.findByEmail(email)
         .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
@@ -185,30 +338,6 @@ public class ReportService {
   }
 
   private boolean isAdmin(User u) {
-    return hasRole(u, "ADMIN");
-  }
-
-  private boolean hasRole(User u, String roleUpper) {
-    String raw = u.getRole();
-    if (raw == null || raw.isBlank()) return false;
-
-    String wanted = roleUpper.toUpperCase();
-
-    String normalized = raw
-        .replace("[", "")
-        .replace("]", "")
-        .replace("\"", "")
-        .trim()
-        .toUpperCase();
-
-    for (String p : normalized.split(",")) {
-      String r = p.trim();
-      if (r.equals(wanted)) return true;
-
-      if (wanted.equals("MANAGER") && r.contains("MANAGER")) return true;
-      if (wanted.equals("ADMIN") && r.contains("ADMIN")) return true;
-      if (wanted.equals("EMPLOYEE") && r.contains("EMPLOYEE")) return true;
-    }
-    return false;
+    return u.hasRole(Role.ADMIN);
   }
 }
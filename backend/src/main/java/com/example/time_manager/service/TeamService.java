@@ -1,13 +1,15 @@
 package com.example.time_manager.service;
 
 import com.example.time_manager.dto.team.TeamDto;
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.Team;
 import com.example.time_manager.model.TeamMember;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.repository.TeamRepository;
 import com.example.time_manager.repository.UserRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.time_manager.service.kpi.KpiCache;
+import com.example.time_manager.service.kpi.KpiRollupService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.security.core.Authentication;
@@ -36,7 +38,8 @@ import java.util.*;
  * role
  *
  * Notes: - User.role is stored as JSON String (e.g.
- * ["employee","manager","admin"]) - User.id is a String UUID (CHAR(36))
+ * ["employee","manager","admin"]) and checked through its role mask - User.id
+ * is a String UUID (CHAR(36))
  */
 @Service
 @Transactional
@@ -45,15 +48,22 @@ public class TeamService {
     private final TeamRepository teamRepo;
     private final TeamMemberRepository teamMemberRepo;
     private final UserRepository userRepo;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PresenceService presenceService;
+    private final KpiCache kpiCache;
+    private final KpiRollupService kpiRollups;
 
     public TeamService(TeamRepository teamRepo,
             TeamMemberRepository teamMemberRepo,
-            UserRepository userRepo) {
+            UserRepository userRepo,
+            PresenceService presenceService,
+            KpiCache kpiCache,
+            KpiRollupService kpiRollups) {
         this.teamRepo = teamRepo;
         this.teamMemberRepo = teamMemberRepo;
         this.userRepo = userRepo;
+        this.presenceService = presenceService;
+        this.kpiCache = kpiCache;
+        this.kpiRollups = kpiRollups;
     }
 
     /* ===================== Queries ===================== */
@@ -114,7 +124,7 @@ public class TeamService {
     public List<User> listTeamManagers(Long teamId) {
         assertCanViewTeamMembers(teamId);
         List<User> members = teamMemberRepo.findUsersByTeamId(teamId);
-        return members.stream().filter(u -> hasGlobalRole(u, "manager")).toList();
+        return members.stream().filter(u -> u.hasRole(Role.MANAGER)).toList();
     }
     public boolean isCurrentUserMemberOfTeam(Long teamId) {
     return isMemberOf(teamId, currentUserId());
@@ -146,6 +156,7 @@ public class TeamService {
         if (dto.getDescription() != null) {
             t.setDescription(dto.getDescription());
         }
+        kpiCache.evictTeam(id);
         return teamRepo.save(t);
     }
 
@@ -158,6 +169,8 @@ public class TeamService {
             throw new EntityNotFoundException("Team not found: " + id);
         }
         teamRepo.deleteById(id);
+        presenceService.evictTeam(id);
+        kpiCache.evictTeam(id);
     }
 
     /**
@@ -180,6 +193,8 @@ public class TeamService {
         tm.setTeam(team); // uses relationship field, not primitive ID
         tm.setUser(user); // uses relationship field, not primitive ID
         teamMemberRepo.save(tm);
+        presenceService.evictTeam(teamId);
+        kpiRollups.markTeamDirty(teamId);
     }
 
     /**
@@ -192,6 +207,8 @@ public class TeamService {
             return;
         }
         teamMemberRepo.deleteByTeam_IdAndUser_Id(teamId, userId);
+        presenceService.evictTeam(teamId);
+        kpiRollups.markTeamDirty(teamId);
     }
 
     /* ===================== AuthZ Helpers ===================== */
@@ -245,35 +262,8 @@ private void requireRole(String roleUpper) {
         throw new AccessDeniedException("Forbidden: requires " + roleUpper);
     }
 }
-    /**
-     * Check if a user entity has a given global role (roles stored as JSON
-     * string). Example JSON: ["employee","manager","admin"]
-     */
-
     private boolean isMemberOf(Long teamId, String userId) { return teamMemberRepo.existsByTeam_IdAndUser_Id(teamId, userId); }
 
-    private boolean hasGlobalRole(User u, String roleLower) {
-        String roleRaw = u.getRole();
-        if (roleRaw == null) {
-            return false;
-        }
-
-        try {
-            // Si c'est du JSON (ex: ["employee manager"] ou ["employee","manager"])
-            java.util.List<String> roles = objectMapper.readValue(
-                    roleRaw, new com.fasterxml.jackson.core.type.TypeReference<java.util.List<String>>() {
-            });
-            return roles.stream()
-                    .filter(java.util.Objects::nonNull)
-                    .flatMap(r -> java.util.Arrays.stream(r.split("[\\s,;|]+")))
-                    .anyMatch(t -> roleLower.equalsIgnoreCase(t));
-        } catch (Exception ignore) {
-            // Pas JSON -> on split directement
-            return java.util.Arrays.stream(roleRaw.split("[\\s,;|]+"))
-                    .anyMatch(t -> roleLower.equalsIgnoreCase(t));
-        }
-    }
-
     /**
      * Allow viewing team members if: - current user is ADMIN, or - current user
      * is a member of the team.
@@ -1,8 +1,12 @@
 package com.example.time_manager.service;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -10,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 import com.example.time_manager.dto.auth.UpdateUserInput;
 
 
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.UserRepository;
 
@@ -41,6 +46,24 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found: " + id));
     }
 
+    /* ================== MAINTENANCE ================== */
+
+    /**
+     * Derives role_mask and user_roles for rows written without them (SQL
+     * seeds, databases older than both columns). Masks derived before the
+     * terminal role had a bit are fixed by db/migrations/004-terminal-role-bit.sql.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public int backfillRoles() {
+        int n = 0;
+        for (User u : userRepository.findByRoleMask(0)) {
+            if (Role.maskOf(u.getRole()) == u.getRoleMask()) continue;
+            u.setRole(u.getRole());
+            n++;
+        }
+        return n;
+    }
+
     /* ================== CREATE ================== */
 
     public User saveUser(User user) {
@@ -110,6 +133,7 @@ public User updateUser(String id, UpdateUserInput in) {
     if (in.role()      != null) u.setRole(in.role());
     if (in.poste()     != null) u.setPoste(in.poste());
     if (in.avatarUrl() != null) u.setAvatarUrl(in.avatarUrl());
+    if (in.timeZone()  != null) u.setTimeZone(validTimeZone(in.timeZone()));
     if (in.password()  != null && !in.password().isBlank()) {
         u.setPassword(passwordEncoder.encode(in.password()));
     }
@@ -117,6 +141,15 @@ public User updateUser(String id, UpdateUserInput in) {
     return userRepository.save(u);
 }
 
+private static String validTimeZone(String timeZone) {
+    if (timeZone.isBlank()) return null;
+    try {
+        return ZoneId.of(timeZone).getId();
+    } catch (DateTimeException ex) {
+        throw new IllegalArgumentException("Invalid time zone: " + timeZone);
+    }
+}
+
 
     public void changePassword(String email, String currentPwd, String newPwd) {
         var user = userRepository.findByEmail(email).orElseThrow(
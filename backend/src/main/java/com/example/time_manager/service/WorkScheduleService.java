@@ -7,6 +7,7 @@ import com.example.time_manager.model.WorkDay;
 import com.example.time_manager.model.WorkPeriod;
 import com.example.time_manager.model.WorkSchedule;
 import com.example.time_manager.repository.WorkScheduleRepository;
+import com.example.time_manager.service.kpi.KpiRollupService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,9 +22,11 @@ import java.util.Optional;
 public class WorkScheduleService {
 
     private final WorkScheduleRepository repo;
+    private final KpiRollupService kpiRollups;
 
-    public WorkScheduleService(WorkScheduleRepository repo) {
+    public WorkScheduleService(WorkScheduleRepository repo, KpiRollupService kpiRollups) {
         this.repo = repo;
+        this.kpiRollups = kpiRollups;
     }
 
     @Transactional(readOnly = true)
@@ -52,6 +55,8 @@ public class WorkScheduleService {
         entity.setEndTime(parseTime(input.endTime()));
 
         WorkSchedule saved = repo.save(entity);
+        // schedules are not dated: every period of the user is planned differently now
+        kpiRollups.markDirty(userId);
         return toResponse(saved);
     }
 
@@ -75,6 +80,7 @@ public class WorkScheduleService {
                 ws.setEndTime(parseTime(e.endTime()));
                 result.add(toResponse(repo.save(ws)));
             }
+            kpiRollups.markDirty(userId);
         } else {
             for (WorkScheduleRequest e : batch.entries()) {
                 result.add(upsertForUser(userId, e));
@@ -91,6 +97,7 @@ public class WorkScheduleService {
                     + ", day=" + day + ", period=" + period);
         }
         repo.delete(existing.get());
+        kpiRollups.markDirty(userId);
     }
 
 
@@ -0,0 +1,252 @@
+package com.example.time_manager.service.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.time_manager.config.AnalyticsDataSourceConfig;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Per-user, per-day timesheet of a period for payroll: planned, worked and
+ * overtime minutes and absence units. Planned minutes and absences come from
+ * the kpi_user_daily rollup; worked minutes from daily_attendance, which sums
+ * IN/OUT sessions so breaks are not paid. Overtime is the time worked beyond
+ * the plan, never negative: short days and absences count zero.
+ *
+ * Rows are streamed from a forward-only cursor (fetch size {@link #FETCH_SIZE})
+ * and written to the output one at a time, so memory stays flat whatever the
+ * number of users. The export runs in a read-only transaction on the
+ * analytics pool.
+ */
+@Service
+public class TimesheetExportService {
+
+    static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format parse(String value) {
+            for (Format f : values()) {
+                if (f.name().equalsIgnoreCase(value)) return f;
+            }
+            throw new IllegalArgumentException("Unknown export format: " + value + " (expected csv or ndjson)");
+        }
+    }
+
+    static final String[] COLUMNS = {
+            "user_id", "email", "last_name", "first_name", "day",
+            "planned_minutes", "worked_minutes", "overtime_minutes", "absence_units"
+    };
+
+    private static final String SQL =
+            "SELECT d.user_id, u.email, u.last_name, u.first_name, d.day, " +
+            "       d.planned_minutes, COALESCE(a.worked_seconds, 0) DIV 60 AS worked_minutes, d.absence_units " +
+            "FROM kpi_user_daily d JOIN users u ON u.id = d.user_id " +
+            "LEFT JOIN daily_attendance a ON a.user_id = d.user_id AND a.work_date = d.day " +
+            "WHERE d.day BETWEEN ? AND ? " +
+            "ORDER BY d.user_id, d.day";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+    private final int maxDays;
+
+    public TimesheetExportService(JdbcTemplate jdbc,
+                                  @Qualifier(AnalyticsDataSourceConfig.ANALYTICS_TX) PlatformTransactionManager txManager,
+                                  @Value("${export.timesheet.max-days:366}") int maxDays) {
+        this.jdbc = jdbc;
+        this.readOnly = new TransactionTemplate(txManager);
+        this.readOnly.setReadOnly(true);
+        this.maxDays = maxDays;
+    }
+
+    /** Rejects a period the export would not accept, before anything is written. */
+    public void checkPeriod(LocalDate start, LocalDate end) {
+        if (start == null || end == null) throw new IllegalArgumentException("startDate and endDate are required");
+        if (end.isBefore(start)) throw new IllegalArgumentException("endDate must not be before startDate");
+        if (ChronoUnit.DAYS.between(start, end) + 1 > maxDays) {
+            throw new IllegalArgumentException("Period too long: at most " + maxDays + " days");
+        }
+    }
+
+    /** Writes the timesheet of start..end to out; the caller owns and closes the stream. */
+    public void export(LocalDate start, LocalDate end, Format format, OutputStream out) throws IOException {
+        checkPeriod(start, end);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_CHARS);
+        RowWriter rows = format == Format.CSV ? new CsvRows(writer) : new NdjsonRows(writer);
+        rows.header();
+        try {
+            readOnly.executeWithoutResult(s -> jdbc.query(
+                    con -> {
+                        PreparedStatement ps = con.prepareStatement(SQL,
+                                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                        ps.setFetchSize(FETCH_SIZE);
+                        ps.setDate(1, Date.valueOf(start));
+                        ps.setDate(2, Date.valueOf(end));
+                        return ps;
+                    },
+                    rs -> {
+                        try {
+                            rows.row(rs);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.end();
+        writer.flush();
+    }
+
+    private static int overtime(int planned, int worked) {
+        return Math.max(worked - planned, 0);
+    }
+
+    /* ======================= FORMATS ======================= */
+
+    private interface RowWriter {
+        void header() throws IOException;
+        void row(ResultSet rs) throws IOException, SQLException;
+        void end() throws IOException;
+    }
+
+    private static final class CsvRows implements RowWriter {
+        private final Writer w;
+
+        CsvRows(Writer w) {
+            this.w = w;
+        }
+
+        @Override
+        public void header() throws IOException {
+            w.write(String.join(",", COLUMNS));
+            w.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            int planned = rs.getInt("planned_minutes");
+            int worked = rs.getInt("worked_minutes");
+            w.write(rs.getString("user_id"));
+            w.write(',');
+            text(rs.getString("email"));
+            w.write(',');
+            text(rs.getString("last_name"));
+            w.write(',');
+            text(rs.getString("first_name"));
+            w.write(',');
+            w.write(rs.getDate("day").toString());
+            w.write(',');
+            w.write(Integer.toString(planned));
+            w.write(',');
+            w.write(Integer.toString(worked));
+            w.write(',');
+            w.write(Integer.toString(overtime(planned, worked)));
+            w.write(',');
+            BigDecimal absence = rs.getBigDecimal("absence_units");
+            w.write(absence == null ? "0" : absence.toPlainString());
+            w.write("\r\n");
+        }
+
+        @Override
+        public void end() {
+        }
+
+        /**
+         * RFC 4180 quoting, only when the value needs it. A value a
+         * spreadsheet would read as a formula gets a leading quote first.
+         */
+        private void text(String v) throws IOException {
+            if (v == null) return;
+            if (!v.isEmpty() && "=+-@".indexOf(v.charAt(0)) >= 0) v = "'" + v;
+            boolean quote = false;
+            for (int i = 0; i < v.length() && !quote; i++) {
+                char c = v.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                w.write(v);
+                return;
+            }
+            w.write('"');
+            w.write(v.replace("\"", "\"\""));
+            w.write('"');
+        }
+    }
+
+    private static final class NdjsonRows implements RowWriter {
+        private final JsonGenerator g;
+        private boolean any;
+
+        NdjsonRows(Writer w) throws IOException {
+            this.g = JSON.createGenerator(w);
+            // the writer is flushed and closed by the caller
+            this.g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.g.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void header() {
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            int planned = rs.getInt("planned_minutes");
+            int worked = rs.getInt("worked_minutes");
+            BigDecimal absence = rs.getBigDecimal("absence_units");
+            any = true;
+            g.writeStartObject();
+            g.writeStringField("userId", rs.getString("user_id"));
+            g.writeStringField("email", rs.getString("email"));
+            g.writeStringField("lastName", rs.getString("last_name"));
+            g.writeStringField("firstName", rs.getString("first_name"));
+            g.writeStringField("day", rs.getDate("day").toString());
+            g.writeNumberField("plannedMinutes", planned);
+            g.writeNumberField("workedMinutes", worked);
+            g.writeNumberField("overtimeMinutes", overtime(planned, worked));
+            g.writeNumberField("absenceUnits", absence == null ? BigDecimal.ZERO : absence);
+            g.writeEndObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            // the separator only goes between lines
+            if (any) g.writeRaw('\n');
+            g.flush();
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.example.time_manager.service.kpi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.time_manager.config.AnalyticsDataSourceConfig;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.service.ClockArchiveService;
+
+/**
+ * Columnar snapshot of the clocks table, for analytics scans over years of
+ * punches.
+ *
+ * Punches are stored per month of their instant (UTC) in three column files:
+ * user index (int), epoch second (long) and kind (byte, 1 for IN). Scans map
+ * them read-only and walk primitive buffers, with no JDBC row mapping and no
+ * object per punch.
+ *
+ * The snapshot covers every punch before {@link #coveredUntil()}. A poll
+ * appends the punches recorded since the last one, and the punch path
+ * queues this node's punches after commit for the next flush (every second),
+ * so a back-dated punch lands in its month right away. Scans read the
+ * covered part from the files and the rest from SQL; both the poll and the
+ * SQL part of a scan stream rows through a forward-only cursor. A punch
+ * back-dated into the covered range on another node only shows up after the
+ * weekly rebuild.
+ *
+ * Scans read the month files under the read side of {@code mapped}; a
+ * rebuild first publishes an empty view, then deletes the files under the
+ * write side, so no scan maps a file while it is deleted or re-created.
+ */
+@Component
+public class ClockSnapshot implements DisposableBean {
+
+    static final int VERSION = 1;
+    static final String META = "meta.properties";
+    static final String USERS = "users";
+    static final int BUFFER_ROWS = 4096;
+    static final int FETCH_SIZE = 1000;
+    /** How long the key of a covered punch is kept after its append, for a late second copy. */
+    static final long TAIL_MS = 10 * 60_000L;
+    /** A full build only remembers the punches of its last day. */
+    static final long TAIL_SECONDS = 86_400L;
+
+    /** Receives the punches of a scan, in no particular order. */
+    @FunctionalInterface
+    public interface Visitor {
+        void punch(int user, long epochSecond, boolean in);
+    }
+
+    private record Row(String userId, long seq, boolean in, long epochSecond) {}
+    private record Tail(long epochSecond, long appendedAt) {}
+
+    /** What scans read: the coverage and the row count of each month, published after each flush. */
+    private record View(long coveredUntil, Map<YearMonth, Long> rows) {}
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+    private final ClockArchiveService archive;
+    private final Path dir;
+    private final boolean enabled;
+    private final long lagSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // held for reading while a scan maps month files, for writing while a rebuild deletes them
+    private final ReentrantReadWriteLock mapped = new ReentrantReadWriteLock();
+    private final Queue<Row> pending = new ConcurrentLinkedQueue<>();
+    private final Map<YearMonth, Segment> segments = new TreeMap<>();
+    // (user index, seq) of punches both the poll and the punch path may append
+    private final Map<Long, Tail> tail = new HashMap<>();
+    private long coveredUntil;
+
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private final List<String> users = new ArrayList<>();
+    private int usersPersisted;
+
+    private volatile View view = new View(0L, Map.of());
+
+    public ClockSnapshot(JdbcTemplate jdbc,
+                         @Qualifier(AnalyticsDataSourceConfig.ANALYTICS_TX) PlatformTransactionManager txManager,
+                         ClockArchiveService archive,
+                         @Value("${clocks.snapshot.enabled:true}") boolean enabled,
+                         @Value("${clocks.snapshot.dir:data/clock-snapshot}") String dir,
+                         @Value("${clocks.snapshot.lag-seconds:60}") long lagSeconds) {
+        this.jdbc = jdbc;
+        this.readOnly = new TransactionTemplate(txManager);
+        this.readOnly.setReadOnly(true);
+        this.archive = archive;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.lagSeconds = lagSeconds;
+        if (enabled) open();
+    }
+
+    /** Epoch second before which every punch is in the files (0 before the first build). */
+    public long coveredUntil() {
+        return view.coveredUntil();
+    }
+
+    /** Stable index of a user in the snapshot, assigned on first use. */
+    public int userIndex(String userId) {
+        synchronized (userIndex) {
+            Integer idx = userIndex.get(userId);
+            if (idx != null) return idx;
+            users.add(userId);
+            userIndex.put(userId, users.size() - 1);
+            return users.size() - 1;
+        }
+    }
+
+    /* ======================= PUNCH PATH ======================= */
+
+    /** A punch of this node, appended once its transaction commits. */
+    public void onPunch(String userId, long seq, ClockKind kind, Instant at) {
+        if (!enabled) return;
+        Row row = new Row(userId, seq, kind == ClockKind.IN, at.getEpochSecond());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(row);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(row);
+            }
+        });
+    }
+
+    private void enqueue(Row row) {
+        // the punch thread never touches the files
+        pending.add(row);
+    }
+
+    /** Writes the queued punches; skipped while a poll runs, which drains the queue itself. */
+    @Scheduled(fixedDelayString = "${clocks.snapshot.flush-ms:1000}")
+    public void flush() {
+        if (!enabled || pending.isEmpty() || !lock.tryLock()) return;
+        try {
+            drain();
+            persist();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* ======================= POLL & REBUILD ======================= */
+
+    /** Appends the punches recorded since the last poll; the first poll builds the whole history. */
+    @Scheduled(fixedDelayString = "${clocks.snapshot.poll-ms:300000}")
+    public int sync() {
+        if (!enabled) return 0;
+        lock.lock();
+        try {
+            drain();
+            long from = coveredUntil;
+            long to = Instant.now().getEpochSecond() - lagSeconds;
+            if (to <= from) {
+                persist();
+                return 0;
+            }
+
+            long tailFrom = from == 0L ? to - TAIL_SECONDS : from;
+            int[] read = { 0 };
+            String range = "WHERE `at` >= ? AND `at` < ?";
+            Timestamp a = Timestamp.from(Instant.ofEpochSecond(from));
+            Timestamp b = Timestamp.from(Instant.ofEpochSecond(to));
+            String sql = "SELECT user_id, seq, kind, `at` FROM clocks " + range;
+            Object[] args = { a, b };
+            if (archive.reachesArchive(Instant.ofEpochSecond(from))) {
+                sql += " UNION ALL SELECT user_id, seq, kind, `at` FROM clocks_archive " + range;
+                args = new Object[] { a, b, a, b };
+            }
+            String query = sql;
+            Object[] queryArgs = args;
+            readOnly.executeWithoutResult(s -> {
+                stream(query, queryArgs, rs -> {
+                    long at = rs.getTimestamp("at").toInstant().getEpochSecond();
+                    append(new Row(rs.getString("user_id"), rs.getLong("seq"),
+                            "IN".equals(rs.getString("kind")), at), at >= tailFrom);
+                    read[0]++;
+                });
+            });
+            coveredUntil = to;
+
+            // a key is needed until the poll covered its punch and a late after-commit had time to come
+            long expired = System.currentTimeMillis() - TAIL_MS;
+            tail.values().removeIf(t -> t.epochSecond() < to && t.appendedAt() < expired);
+            drain();
+            persist();
+            return read[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Rebuilds every month from SQL, picking up punches back-dated on other nodes. */
+    @Scheduled(cron = "${clocks.snapshot.rebuild-cron:0 0 4 * * SUN}")
+    public int rebuild() {
+        if (!enabled) return 0;
+        lock.lock();
+        try {
+            drain();
+            tail.clear();
+            coveredUntil = 0L;
+            // scans starting from here read SQL only; the ones already mapping files finish first
+            view = new View(0L, Map.of());
+            mapped.writeLock().lock();
+            try {
+                for (Segment s : segments.values()) s.delete();
+                segments.clear();
+            } finally {
+                mapped.writeLock().unlock();
+            }
+            persist();
+            return sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (!enabled) return;
+        lock.lock();
+        try {
+            drain();
+            persist();
+            for (Segment s : segments.values()) s.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* ======================= SCAN ======================= */
+
+    /**
+     * Visits every punch in [from, to) of the given users (all when null):
+     * the covered part from the mapped files, the rest from SQL.
+     */
+    public void scan(Instant from, Instant to, BitSet userFilter, Visitor visitor) {
+        long start = from.getEpochSecond();
+        long end = to.getEpochSecond();
+        long covered;
+
+        mapped.readLock().lock();
+        try {
+            // read under the lock: a view published before a rebuild may name deleted files
+            View v = view;
+            covered = Math.min(end, v.coveredUntil());
+            if (start < covered) {
+                for (Map.Entry<YearMonth, Long> e : v.rows().entrySet()) {
+                    YearMonth m = e.getKey();
+                    long monthStart = m.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+                    long monthEnd = m.plusMonths(1).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+                    if (monthEnd <= start || monthStart >= covered) continue;
+                    scanSegment(m, e.getValue(), start, covered, userFilter, visitor);
+                }
+            }
+        } finally {
+            mapped.readLock().unlock();
+        }
+        if (covered < end) {
+            scanSql(Math.max(start, covered), end, userFilter, visitor);
+        }
+    }
+
+    private void scanSegment(YearMonth month, long rows, long start, long end, BitSet userFilter, Visitor visitor) {
+        if (rows == 0) return;
+        try (FileChannel u = FileChannel.open(file(month, "user"), StandardOpenOption.READ);
+             FileChannel a = FileChannel.open(file(month, "at"), StandardOpenOption.READ);
+             FileChannel k = FileChannel.open(file(month, "kind"), StandardOpenOption.READ)) {
+            // mappings stay valid once the channels are closed
+            IntBuffer userCol = u.map(FileChannel.MapMode.READ_ONLY, 0, rows * Integer.BYTES).asIntBuffer();
+            LongBuffer atCol = a.map(FileChannel.MapMode.READ_ONLY, 0, rows * Long.BYTES).asLongBuffer();
+            ByteBuffer kindCol = k.map(FileChannel.MapMode.READ_ONLY, 0, rows);
+            int n = (int) rows;
+            for (int i = 0; i < n; i++) {
+                long t = atCol.get(i);
+                if (t < start || t >= end) continue;
+                int user = userCol.get(i);
+                if (userFilter != null && !userFilter.get(user)) continue;
+                visitor.punch(user, t, kindCol.get(i) == 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read clock snapshot " + month, e);
+        }
+    }
+
+    private void scanSql(long start, long end, BitSet userFilter, Visitor visitor) {
+        Instant from = Instant.ofEpochSecond(start);
+        String range = "WHERE `at` >= ? AND `at` < ?";
+        String sql = "SELECT user_id, kind, `at` FROM clocks " + range;
+        Timestamp a = Timestamp.from(from);
+        Timestamp b = Timestamp.from(Instant.ofEpochSecond(end));
+        Object[] args = { a, b };
+        if (archive.reachesArchive(from)) {
+            sql += " UNION ALL SELECT user_id, kind, `at` FROM clocks_archive " + range;
+            args = new Object[] { a, b, a, b };
+        }
+        stream(sql, args, rs -> {
+            int user = userIndex(rs.getString("user_id"));
+            if (userFilter != null && !userFilter.get(user)) return;
+            visitor.punch(user, rs.getTimestamp("at").toInstant().getEpochSecond(),
+                    "IN".equals(rs.getString("kind")));
+        });
+    }
+
+    /** Reads through a forward-only cursor, so a build over the whole history never holds it in memory. */
+    private void stream(String sql, Object[] args, RowCallbackHandler handler) {
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.length; i++) ps.setObject(i + 1, args[i]);
+            return ps;
+        }, handler);
+    }
+
+    /* ======================= WRITES (lock held) ======================= */
+
+    private void drain() {
+        for (Row row; (row = pending.poll()) != null; ) {
+            append(row, true);
+        }
+    }
+
+    private void append(Row row, boolean remember) {
+        int user = userIndex(row.userId());
+        if (remember) {
+            long key = ((long) user << 40) | row.seq();
+            if (tail.putIfAbsent(key, new Tail(row.epochSecond(), System.currentTimeMillis())) != null) return;
+        }
+        YearMonth month = YearMonth.from(Instant.ofEpochSecond(row.epochSecond()).atOffset(ZoneOffset.UTC));
+        segments.computeIfAbsent(month, m -> new Segment(m, 0L)).add(user, row.epochSecond(), row.in());
+    }
+
+    /** Flushes the columns, then records users, coverage and row counts, and publishes them to scans. */
+    private void persist() {
+        try {
+            Map<YearMonth, Long> rows = new TreeMap<>();
+            for (Segment s : segments.values()) {
+                s.flush();
+                rows.put(s.month, s.rows);
+            }
+
+            List<String> newUsers;
+            synchronized (userIndex) {
+                newUsers = List.copyOf(users.subList(usersPersisted, users.size()));
+            }
+            if (!newUsers.isEmpty()) {
+                Files.write(dir.resolve(USERS), newUsers, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                usersPersisted += newUsers.size();
+            }
+
+            Properties meta = new Properties();
+            meta.setProperty("version", String.valueOf(VERSION));
+            meta.setProperty("coveredUntil", String.valueOf(coveredUntil));
+            rows.forEach((m, n) -> meta.setProperty("rows." + m, String.valueOf(n)));
+            Path tmp = dir.resolve(META + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                meta.store(out, null);
+            }
+            Files.move(tmp, dir.resolve(META), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            view = new View(coveredUntil, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write clock snapshot", e);
+        }
+    }
+
+    /** Loads the last persisted state; rows written after it are cut off, a foreign format is dropped. */
+    private void open() {
+        try {
+            Files.createDirectories(dir);
+            Properties meta = new Properties();
+            Path metaFile = dir.resolve(META);
+            if (Files.exists(metaFile)) {
+                try (InputStream in = Files.newInputStream(metaFile)) {
+                    meta.load(in);
+                }
+            }
+            if (!String.valueOf(VERSION).equals(meta.getProperty("version"))) {
+                try (var files = Files.list(dir)) {
+                    for (Iterator<Path> it = files.iterator(); it.hasNext(); ) Files.delete(it.next());
+                }
+                meta.clear();
+            }
+
+            if (Files.exists(dir.resolve(USERS))) {
+                for (String id : Files.readAllLines(dir.resolve(USERS), StandardCharsets.UTF_8)) {
+                    if (!id.isEmpty()) userIndex(id);
+                }
+            }
+            usersPersisted = users.size();
+
+            coveredUntil = Long.parseLong(meta.getProperty("coveredUntil", "0"));
+            for (String key : meta.stringPropertyNames()) {
+                if (!key.startsWith("rows.")) continue;
+                YearMonth m = YearMonth.parse(key.substring(5));
+                segments.put(m, new Segment(m, Long.parseLong(meta.getProperty(key))));
+            }
+            Map<YearMonth, Long> rows = new TreeMap<>();
+            segments.forEach((m, seg) -> rows.put(m, seg.rows));
+            view = new View(coveredUntil, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open clock snapshot in " + dir, e);
+        }
+    }
+
+    private Path file(YearMonth month, String column) {
+        return dir.resolve(month + "." + column);
+    }
+
+    /** The three column files of one month, appended through buffers. */
+    private final class Segment {
+        final YearMonth month;
+        final FileChannel user;
+        final FileChannel at;
+        final FileChannel kind;
+        long rows;
+
+        final ByteBuffer userBuf = ByteBuffer.allocate(BUFFER_ROWS * Integer.BYTES);
+        final ByteBuffer atBuf = ByteBuffer.allocate(BUFFER_ROWS * Long.BYTES);
+        final ByteBuffer kindBuf = ByteBuffer.allocate(BUFFER_ROWS);
+
+        Segment(YearMonth month, long rows) {
+            this.month = month;
+            this.rows = rows;
+            try {
+                user = open(file(month, "user"));
+                at = open(file(month, "at"));
+                kind = open(file(month, "kind"));
+                // rows past the recorded count were never published
+                user.truncate(rows * Integer.BYTES);
+                at.truncate(rows * Long.BYTES);
+                kind.truncate(rows);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open clock snapshot " + month, e);
+            }
+        }
+
+        void add(int u, long epochSecond, boolean in) {
+            userBuf.putInt(u);
+            atBuf.putLong(epochSecond);
+            kindBuf.put((byte) (in ? 1 : 0));
+            if (!kindBuf.hasRemaining()) flush();
+        }
+
+        void flush() {
+            int n = kindBuf.position();
+            if (n == 0) return;
+            try {
+                write(user, userBuf, rows * Integer.BYTES);
+                write(at, atBuf, rows * Long.BYTES);
+                write(kind, kindBuf, rows);
+                user.force(false);
+                at.force(false);
+                kind.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot append to clock snapshot " + month, e);
+            }
+            rows += n;
+        }
+
+        void close() {
+            try {
+                user.close();
+                at.close();
+                kind.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close clock snapshot " + month, e);
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file(month, "user"));
+                Files.deleteIfExists(file(month, "at"));
+                Files.deleteIfExists(file(month, "kind"));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete clock snapshot " + month, e);
+            }
+        }
+
+        private static FileChannel open(Path p) throws IOException {
+            return FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private static void write(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) position += ch.write(buf, position);
+            buf.clear();
+        }
+    }
+}
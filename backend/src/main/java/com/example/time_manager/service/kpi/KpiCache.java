@@ -0,0 +1,269 @@
+package com.example.time_manager.service.kpi;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.TeamKpiSummary;
+import com.example.time_manager.model.kpi.UserKpiSummary;
+import com.example.time_manager.repository.TeamMemberRepository;
+
+/**
+ * Bounded cache of KPI results, keyed by (scope, id, start, end).
+ *
+ * Only closed periods are cached: a period still running (ending yesterday
+ * or later, with one day of slack for users west of the server) changes with
+ * every punch and is always recomputed. Entries are dropped least recently
+ * used first once the cache is full, and after a time-to-live that bounds
+ * what no write path evicts (headcount, roles, names).
+ *
+ * Clock, absence, schedule, ledger and calendar writes evict the entries
+ * whose period overlaps the days they touch, for the user, the teams they belonged to when
+ * the entry was computed and the global scope; evictions run after commit.
+ * Entries are indexed by the users they depend on, so a user's eviction
+ * looks at that user's entries only, and a write to the running period
+ * returns before taking the lock.
+ */
+@Component
+public class KpiCache {
+
+    private enum Scope { GLOBAL, TEAM, USER }
+
+    private record Key(Scope scope, String id, LocalDate start, LocalDate end) {}
+
+    /** users: whose writes invalidate the entry, null for the global scope. */
+    private record Entry(Object value, Set<String> users, long expiresAt) {}
+
+    private final TeamMemberRepository teamMemberRepo;
+    private final int maxEntries;
+    private final long ttlMs;
+
+    // guarded by this; access order makes the eldest entry the least recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() <= maxEntries) return false;
+            unindex(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+    // guarded by this: keys of the entries each user's writes invalidate, and the global ones
+    private final Map<String, Set<Key>> byUser = new HashMap<>();
+    private final Set<Key> globals = new HashSet<>();
+    // bumped by evictions that may reach a closed period, so a result computed
+    // before one of them is not stored after it
+    private long generation;
+
+    public KpiCache(TeamMemberRepository teamMemberRepo,
+                    @Value("${kpi.cache.max-entries:2000}") int maxEntries,
+                    @Value("${kpi.cache.ttl-seconds:900}") long ttlSeconds) {
+        this.teamMemberRepo = teamMemberRepo;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlSeconds * 1000;
+    }
+
+    /* ======================= READ ======================= */
+
+    public GlobalKpiSummary global(LocalDate start, LocalDate end, Supplier<GlobalKpiSummary> loader) {
+        return get(new Key(Scope.GLOBAL, "", start, end), () -> null, loader);
+    }
+
+    public TeamKpiSummary team(Integer teamId, LocalDate start, LocalDate end, Supplier<TeamKpiSummary> loader) {
+        return get(new Key(Scope.TEAM, String.valueOf(teamId), start, end),
+                () -> new HashSet<>(teamMemberRepo.findUserIdsByTeamId(teamId.longValue())),
+                loader);
+    }
+
+    public UserKpiSummary user(UUID userId, LocalDate start, LocalDate end, Supplier<UserKpiSummary> loader) {
+        String id = userId.toString();
+        return get(new Key(Scope.USER, id, start, end), () -> Set.of(id), loader);
+    }
+
+    /**
+     * Batched variant of {@link #team}: cached teams are served as is and the
+     * others are computed by a single call to the loader, which receives the
+     * missing ids only.
+     */
+    public Map<Integer, TeamKpiSummary> teams(Collection<Integer> teamIds, LocalDate start, LocalDate end,
+                                              Function<List<Integer>, Map<Integer, TeamKpiSummary>> loader) {
+        if (maxEntries <= 0 || !isClosed(end)) return loader.apply(List.copyOf(teamIds));
+
+        Map<Integer, TeamKpiSummary> out = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long seen;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (Integer id : teamIds) {
+                Key key = new Key(Scope.TEAM, String.valueOf(id), start, end);
+                Entry e = entries.get(key);
+                if (e != null && e.expiresAt() > now) {
+                    out.put(id, (TeamKpiSummary) e.value());
+                } else {
+                    if (e != null) remove(key);
+                    missing.add(id);
+                }
+            }
+            seen = generation;
+        }
+        if (missing.isEmpty()) return out;
+
+        Map<Integer, Set<String>> affected = new HashMap<>();
+        for (Integer id : missing) affected.put(id, new HashSet<>());
+        for (Object[] row : teamMemberRepo.findTeamAndUserIdsByTeamIds(
+                missing.stream().map(Integer::longValue).toList())) {
+            affected.get(((Number) row[0]).intValue()).add((String) row[1]);
+        }
+        Map<Integer, TeamKpiSummary> loaded = loader.apply(missing);
+        synchronized (this) {
+            if (generation == seen) {
+                long expiresAt = System.currentTimeMillis() + ttlMs;
+                loaded.forEach((id, value) -> put(
+                        new Key(Scope.TEAM, String.valueOf(id), start, end),
+                        new Entry(value, affected.get(id), expiresAt)));
+            }
+        }
+        out.putAll(loaded);
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<Set<String>> users, Supplier<T> loader) {
+        if (maxEntries <= 0 || !isClosed(key.end())) return loader.get();
+
+        long seen;
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.expiresAt() > System.currentTimeMillis()) return (T) e.value();
+            if (e != null) remove(key);
+            seen = generation;
+        }
+
+        Set<String> affected = users.get();
+        T value = loader.get();
+        synchronized (this) {
+            if (generation == seen) {
+                put(key, new Entry(value, affected, System.currentTimeMillis() + ttlMs));
+            }
+        }
+        return value;
+    }
+
+    static boolean isClosed(LocalDate end) {
+        return end.isBefore(LocalDate.now().minusDays(1));
+    }
+
+    /* ======================= INDEX (lock held) ======================= */
+
+    private void put(Key key, Entry e) {
+        Entry old = entries.put(key, e);
+        if (old != null) unindex(key, old);
+        if (e.users() == null) {
+            globals.add(key);
+        } else {
+            for (String u : e.users()) byUser.computeIfAbsent(u, x -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) unindex(key, old);
+    }
+
+    private void unindex(Key key, Entry e) {
+        if (e.users() == null) {
+            globals.remove(key);
+            return;
+        }
+        for (String u : e.users()) {
+            Set<Key> keys = byUser.get(u);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) byUser.remove(u);
+        }
+    }
+
+    /* ======================= EVICTION ======================= */
+
+    /** Attendance, absence or schedule change of one user over [from, to]. */
+    public void evictUser(String userId, LocalDate from, LocalDate to) {
+        afterCommit(from, () -> evictOf(userId, true, key -> overlaps(key, from, to)));
+    }
+
+    /** Change that applies to every period, such as a weekly schedule. */
+    public void evictUser(String userId) {
+        evictUser(userId, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /** Leave ledger or account change: only the user's own balances depend on it. */
+    public void evictLeave(String userId, LocalDate from, LocalDate to) {
+        if (userId == null) return;
+        afterCommit(from, () -> evictOf(userId, false,
+                key -> key.scope() == Scope.USER && key.id().equals(userId) && overlaps(key, from, to)));
+    }
+
+    /** Calendar change (holiday): every scope whose period overlaps [from, to]. */
+    public void evictPeriod(LocalDate from, LocalDate to) {
+        afterCommit(from, () -> evictWhere(key -> overlaps(key, from, to)));
+    }
+
+    /** Membership or name change. */
+    public void evictTeam(Long teamId) {
+        String id = String.valueOf(teamId);
+        afterCommit(LocalDate.MIN, () -> evictWhere(key -> key.scope() == Scope.TEAM && key.id().equals(id)));
+    }
+
+    private void afterCommit(LocalDate from, Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(from, eviction);
+                }
+            });
+        } else {
+            evict(from, eviction);
+        }
+    }
+
+    private void evict(LocalDate from, Runnable eviction) {
+        // writes to the running period cannot touch a cached (closed) one: no lock on the punch path
+        if (!isClosed(from)) return;
+        synchronized (this) {
+            generation++;
+            eviction.run();
+        }
+    }
+
+    /** Entries depending on userId, and the global ones when asked, without scanning the cache. */
+    private void evictOf(String userId, boolean global, Predicate<Key> stale) {
+        List<Key> candidates = new ArrayList<>(byUser.getOrDefault(userId, Set.of()));
+        if (global) candidates.addAll(globals);
+        for (Key key : candidates) {
+            if (stale.test(key)) remove(key);
+        }
+    }
+
+    private void evictWhere(Predicate<Key> stale) {
+        for (Key key : List.copyOf(entries.keySet())) {
+            if (stale.test(key)) remove(key);
+        }
+    }
+
+    private static boolean overlaps(Key key, LocalDate from, LocalDate to) {
+        return !key.start().isAfter(to) && !key.end().isBefore(from);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.time_manager.service.kpi;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.KpiJob;
+import com.example.time_manager.model.kpi.KpiJobStatus;
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.TeamKpiSummary;
+import com.example.time_manager.model.kpi.UserKpiSummary;
+import com.example.time_manager.service.KpiService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * KPI summaries over long periods, computed in the background.
+ *
+ * A request inserts a kpi_jobs row and returns its id at once; the poller
+ * claims pending rows (PENDING -> RUNNING) onto the bounded kpiJobExecutor,
+ * which runs the usual {@link KpiService} sections and stores the summary as
+ * JSON. No servlet thread waits and no transaction spans the computation.
+ *
+ * While a job is pending or running its active_key is set, and the unique
+ * index on it makes an equal request join that job instead of starting one.
+ *
+ * The node running a job touches its heartbeat_at every heartbeat-ms; a
+ * RUNNING job whose heartbeat is older than stale-seconds lost its node and
+ * is run again, up to {@link #MAX_ATTEMPTS} times.
+ */
+@Service
+public class KpiJobService {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final String SELECT =
+            "SELECT id, scope, target_id, period_start, period_end, status, result, error, " +
+            "       created_at, started_at, finished_at " +
+            "FROM kpi_jobs WHERE id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final KpiService kpiService;
+    private final ObjectMapper mapper;
+    private final TaskExecutor executor;
+    private final Semaphore inFlight;
+    private final Duration retention;
+    private final Duration stale;
+    // jobs claimed by this node, until their worker returns
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public KpiJobService(JdbcTemplate jdbc,
+                         KpiService kpiService,
+                         ObjectMapper mapper,
+                         @Qualifier("kpiJobExecutor") TaskExecutor executor,
+                         @Value("${kpi.jobs.workers:2}") int workers,
+                         @Value("${kpi.jobs.retention-hours:24}") long retentionHours,
+                         @Value("${kpi.jobs.heartbeat-ms:30000}") long heartbeatMs,
+                         @Value("${kpi.jobs.stale-seconds:120}") long staleSeconds) {
+        this.jdbc = jdbc;
+        this.kpiService = kpiService;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.inFlight = new Semaphore(workers);
+        this.retention = Duration.ofHours(retentionHours);
+        this.stale = Duration.ofSeconds(staleSeconds);
+        // a live job must get a few heartbeats in before it looks stale
+        if (stale.toMillis() <= 2 * heartbeatMs) {
+            throw new IllegalArgumentException("kpi.jobs.stale-seconds must be more than twice kpi.jobs.heartbeat-ms");
+        }
+    }
+
+    /* ======================= SUBMIT ======================= */
+
+    public KpiJob start(KpiScope scope, String id, LocalDate start, LocalDate end, String requestedBy) {
+        if (scope == null) throw new IllegalArgumentException("scope is required");
+        if (start == null || end == null) throw new IllegalArgumentException("startDate and endDate are required");
+        if (end.isBefore(start)) throw new IllegalArgumentException("endDate must not be before startDate");
+
+        String target = target(scope, id);
+        String key = scope + "|" + (target == null ? "" : target) + "|" + start + "|" + end;
+
+        // the equal job may finish between the insert and the lookup: submit again then
+        for (int attempt = 0; attempt < 3; attempt++) {
+            String jobId = UUID.randomUUID().toString();
+            int inserted = jdbc.update(
+                    "INSERT IGNORE INTO kpi_jobs (id, scope, target_id, period_start, period_end, status, active_key, requested_by) " +
+                    "VALUES (?, ?, ?, ?, ?, 'PENDING', ?, ?)",
+                    jobId, scope.name(), target, start, end, key, requestedBy);
+            if (inserted == 1) return find(jobId);
+
+            List<String> running = jdbc.queryForList(
+                    "SELECT id FROM kpi_jobs WHERE active_key = ?", String.class, key);
+            if (!running.isEmpty()) return find(running.get(0));
+        }
+        throw new IllegalStateException("Could not submit KPI job " + key);
+    }
+
+    /** The job, with its summary once DONE; null when unknown or purged. */
+    public KpiJob find(String jobId) {
+        List<KpiJob> rows = jdbc.query(SELECT, (rs, i) -> toJob(rs), jobId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /* ======================= POLLING ======================= */
+
+    @Scheduled(fixedDelayString = "${kpi.jobs.poll-ms:1000}")
+    public void poll() {
+        int free = inFlight.availablePermits();
+        if (free == 0) return;
+
+        List<String> ids = jdbc.queryForList(
+                "SELECT id FROM kpi_jobs WHERE status = 'PENDING' ORDER BY created_at LIMIT ?", String.class, free);
+        for (String id : ids) {
+            if (!inFlight.tryAcquire()) return;
+
+            Timestamp now = Timestamp.from(Instant.now());
+            int claimed = jdbc.update(
+                    "UPDATE kpi_jobs SET status = 'RUNNING', started_at = ?, heartbeat_at = ?, attempts = attempts + 1 " +
+                    "WHERE id = ? AND status = 'PENDING'",
+                    now, now, id);
+            if (claimed == 0) {
+                inFlight.release();
+                continue;
+            }
+
+            running.add(id);
+            try {
+                executor.execute(() -> {
+                    try {
+                        run(id);
+                    } finally {
+                        running.remove(id);
+                        inFlight.release();
+                    }
+                });
+            } catch (TaskRejectedException ex) {
+                running.remove(id);
+                inFlight.release();
+                jdbc.update("UPDATE kpi_jobs SET status = 'PENDING', attempts = attempts - 1 WHERE id = ?", id);
+                return;
+            }
+        }
+    }
+
+    /** Tells the other nodes that the jobs running here are alive. */
+    @Scheduled(fixedDelayString = "${kpi.jobs.heartbeat-ms:30000}")
+    public void heartbeat() {
+        List<Object> args = new ArrayList<>(running);
+        if (args.isEmpty()) return;
+        String in = String.join(",", Collections.nCopies(args.size(), "?"));
+        args.add(0, Timestamp.from(Instant.now()));
+        jdbc.update("UPDATE kpi_jobs SET heartbeat_at = ? WHERE status = 'RUNNING' AND id IN (" + in + ")",
+                args.toArray());
+    }
+
+    @Scheduled(fixedDelayString = "${kpi.jobs.maintenance-ms:60000}")
+    public void maintenance() {
+        Instant now = Instant.now();
+        Timestamp silentSince = Timestamp.from(now.minus(stale));
+        // the node running these stopped beating: run them again, or give up
+        jdbc.update("UPDATE kpi_jobs SET status = 'PENDING' " +
+                "WHERE status = 'RUNNING' AND heartbeat_at < ? AND attempts < ?", silentSince, MAX_ATTEMPTS);
+        jdbc.update("UPDATE kpi_jobs SET status = 'FAILED', error = 'Interrupted', active_key = NULL, finished_at = ? " +
+                "WHERE status = 'RUNNING' AND heartbeat_at < ?", Timestamp.from(now), silentSince);
+        jdbc.update("DELETE FROM kpi_jobs WHERE status IN ('DONE', 'FAILED') AND finished_at < ?",
+                Timestamp.from(now.minus(retention)));
+    }
+
+    /* ======================= PROCESSING ======================= */
+
+    void run(String id) {
+        KpiJob job = find(id);
+        if (job == null || job.getStatus() != KpiJobStatus.RUNNING) return;
+        try {
+            Object summary = switch (job.getScope()) {
+                case GLOBAL -> kpiService.getGlobal(job.getPeriodStart(), job.getPeriodEnd());
+                case TEAM -> kpiService.getTeam(Integer.valueOf(job.getTargetId()), job.getPeriodStart(), job.getPeriodEnd());
+                case USER -> kpiService.getUser(UUID.fromString(job.getTargetId()), job.getPeriodStart(), job.getPeriodEnd());
+            };
+            jdbc.update("UPDATE kpi_jobs SET status = 'DONE', result = ?, active_key = NULL, finished_at = ? " +
+                    "WHERE id = ? AND status = 'RUNNING'",
+                    mapper.writeValueAsString(summary), Timestamp.from(Instant.now()), id);
+        } catch (JsonProcessingException | RuntimeException ex) {
+            jdbc.update("UPDATE kpi_jobs SET status = 'FAILED', error = ?, active_key = NULL, finished_at = ? " +
+                    "WHERE id = ? AND status = 'RUNNING'",
+                    truncate(String.valueOf(ex)), Timestamp.from(Instant.now()), id);
+        }
+    }
+
+    private KpiJob toJob(ResultSet rs) throws SQLException {
+        KpiJob job = new KpiJob();
+        job.setId(rs.getString("id"));
+        job.setScope(KpiScope.valueOf(rs.getString("scope")));
+        job.setTargetId(rs.getString("target_id"));
+        job.setPeriodStart(rs.getDate("period_start").toLocalDate());
+        job.setPeriodEnd(rs.getDate("period_end").toLocalDate());
+        job.setStatus(KpiJobStatus.valueOf(rs.getString("status")));
+        job.setError(rs.getString("error"));
+        job.setCreatedAt(instant(rs.getTimestamp("created_at")));
+        job.setStartedAt(instant(rs.getTimestamp("started_at")));
+        job.setFinishedAt(instant(rs.getTimestamp("finished_at")));
+
+        String result = rs.getString("result");
+        if (result != null) {
+            try {
+                switch (job.getScope()) {
+                    case GLOBAL -> job.setGlobal(mapper.readValue(result, GlobalKpiSummary.class));
+                    case TEAM -> job.setTeam(mapper.readValue(result, TeamKpiSummary.class));
+                    case USER -> job.setUser(mapper.readValue(result, UserKpiSummary.class));
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unreadable result of KPI job " + job.getId(), e);
+            }
+        }
+        return job;
+    }
+
+    private static String target(KpiScope scope, String id) {
+        if (scope == KpiScope.GLOBAL) return null;
+        if (id == null || id.isBlank()) throw new IllegalArgumentException("id is required for scope " + scope);
+        // canonical form, so that equal requests share one active_key
+        return scope == KpiScope.TEAM
+                ? Integer.valueOf(id.trim()).toString()
+                : UUID.fromString(id.trim()).toString();
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+
+    private static String truncate(String s) {
+        return s.length() <= 500 ? s : s.substring(0, 500);
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.time_manager.service.kpi;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Daily KPI rollups: kpi_user_daily (one row per user and day) and
+ * kpi_team_daily (the same figures summed over each team's members).
+ *
+ * Write paths mark the user days they touch in kpi_dirty_days within the
+ * caller's transaction, so a mark commits or rolls back with the change it
+ * records; membership changes mark the team in kpi_dirty_teams. A
+ * scheduled run recomputes only what is marked, chunk by chunk, and evicts
+ * the matching cached KPIs once its chunk is committed. Days come from the
+ * calendar table, whose holidays are never planned. Each new day is
+ * marked for every user when it starts, so planned days without activity
+ * have a row, and marked again once closed to settle its report counts.
+ */
+@Service
+public class KpiRollupService {
+
+    static final int CHUNK = 500;
+
+    private static final String TEAM_COLUMNS =
+            "(team_id, day, planned_days, planned_minutes, present_days, worked_days, worked_minutes, absence_units, reports_authored) ";
+
+    private static final String TEAM_SUMS =
+            "SUM(k.planned), SUM(k.planned_minutes), SUM(k.present), SUM(k.worked_day), " +
+            "SUM(k.worked_minutes), SUM(k.absence_units), SUM(k.reports_authored) ";
+
+    private record DirtyDay(String userId, LocalDate day, int version) {}
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final KpiCache kpiCache;
+
+    // last day marked for every user by this node; duplicate marks are harmless
+    private volatile LocalDate sweptThrough;
+
+    public KpiRollupService(JdbcTemplate jdbc, PlatformTransactionManager txManager, KpiCache kpiCache) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.kpiCache = kpiCache;
+    }
+
+    /* ======================= MARKING ======================= */
+
+    /** Attendance, absence or report change of one user over [from, to]. */
+    public void markDirty(String userId, LocalDate from, LocalDate to) {
+        kpiCache.evictUser(userId, from, to);
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            rows.add(new Object[] { userId, Date.valueOf(d) });
+        }
+        jdbc.batchUpdate(
+                "INSERT INTO kpi_dirty_days (user_id, day) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE version = version + 1",
+                rows);
+    }
+
+    /** Schedule change: every rolled-up day of the user is planned differently. */
+    public void markDirty(String userId) {
+        kpiCache.evictUser(userId);
+        jdbc.update(
+                "INSERT INTO kpi_dirty_days (user_id, day) " +
+                "SELECT user_id, day FROM kpi_user_daily WHERE user_id = ? " +
+                "ON DUPLICATE KEY UPDATE version = kpi_dirty_days.version + 1",
+                userId);
+    }
+
+    /** Calendar change or new days: every user is recomputed over [from, to]. */
+    public void markAllDirty(LocalDate from, LocalDate to) {
+        kpiCache.evictPeriod(from, to);
+        jdbc.update(
+                "INSERT INTO kpi_dirty_days (user_id, day) " +
+                "SELECT u.id, c.day FROM users u JOIN calendar c ON c.day BETWEEN ? AND ? " +
+                "ON DUPLICATE KEY UPDATE version = kpi_dirty_days.version + 1",
+                from, to);
+    }
+
+    /** Membership change: the team's rows are rebuilt over its new members. */
+    public void markTeamDirty(Long teamId) {
+        kpiCache.evictTeam(teamId);
+        jdbc.update(
+                "INSERT INTO kpi_dirty_teams (team_id) VALUES (?) " +
+                "ON DUPLICATE KEY UPDATE version = version + 1",
+                teamId);
+    }
+
+    /* ======================= ROLLUP JOB ======================= */
+
+    @Scheduled(fixedDelayString = "${kpi.rollup.poll-ms:60000}")
+    public int refresh() {
+        sweepNewDays();
+        int refreshed = 0;
+        while (true) {
+            Integer n = tx.execute(s -> refreshChunk());
+            if (n == null || n == 0) break;
+            refreshed += n;
+        }
+        tx.executeWithoutResult(s -> refreshTeams());
+        return refreshed;
+    }
+
+    /**
+     * Marks every user for each calendar day not swept yet, up to tomorrow for
+     * zones ahead of the server's. The day that just closed is marked again so the
+     * reports written during it are settled; an empty rollup is backfilled
+     * from the first recorded activity.
+     */
+    void sweepNewDays() {
+        LocalDate today = LocalDate.now();
+        LocalDate last = today.plusDays(1);
+        if (last.equals(sweptThrough)) return;
+
+        LocalDate from = today.minusDays(1);
+        if (sweptThrough == null) {
+            Date rolled = jdbc.queryForObject("SELECT MAX(day) FROM kpi_user_daily", Date.class);
+            if (rolled == null) from = firstActivityDay();
+            else if (rolled.toLocalDate().isBefore(from)) from = rolled.toLocalDate();
+        }
+
+        // the calendar is filled at startup; until then the sweep is retried
+        Integer covered = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM calendar WHERE day BETWEEN ? AND ?",
+                Integer.class, Date.valueOf(from), Date.valueOf(last));
+        if (covered == null || covered < ChronoUnit.DAYS.between(from, last) + 1) return;
+
+        markAllDirty(from, last);
+        sweptThrough = last;
+    }
+
+    private LocalDate firstActivityDay() {
+        Date first = jdbc.queryForObject(
+                "SELECT LEAST(" +
+                "  COALESCE((SELECT MIN(work_date) FROM daily_attendance), CURDATE()), " +
+                "  COALESCE((SELECT MIN(absence_date) FROM absence_days), CURDATE()), " +
+                "  COALESCE((SELECT DATE(MIN(created_at)) FROM reports), CURDATE()))",
+                Date.class);
+        return first == null ? LocalDate.now() : first.toLocalDate();
+    }
+
+    private int refreshChunk() {
+        List<DirtyDay> dirty = jdbc.query(
+                "SELECT user_id, day, version FROM kpi_dirty_days ORDER BY day, user_id LIMIT " + CHUNK,
+                (rs, i) -> new DirtyDay(rs.getString("user_id"), rs.getDate("day").toLocalDate(), rs.getInt("version")));
+        if (dirty.isEmpty()) return 0;
+
+        jdbc.batchUpdate(
+                "DELETE FROM kpi_user_daily WHERE user_id = ? AND day = ?",
+                dirty, CHUNK,
+                (ps, d) -> {
+                    ps.setString(1, d.userId());
+                    ps.setDate(2, Date.valueOf(d.day()));
+                });
+        // users deleted since the mark select nothing and keep no row; holidays are never planned
+        jdbc.batchUpdate(
+                "INSERT INTO kpi_user_daily " +
+                "  (user_id, day, planned, planned_minutes, present, worked_day, worked_minutes, absence_units, reports_authored) " +
+                "SELECT u.id, c.day, " +
+                "  NOT c.is_holiday AND EXISTS (SELECT 1 FROM work_schedules ws " +
+                "                               WHERE ws.user_id = u.id AND ws.day_of_week = c.day_of_week), " +
+                "  CASE WHEN c.is_holiday THEN 0 ELSE COALESCE( " +
+                "    (SELECT SUM(TIMESTAMPDIFF(MINUTE, ws.start_time, ws.end_time)) " +
+                "     FROM work_schedules ws WHERE ws.user_id = u.id AND ws.day_of_week = c.day_of_week), 0) END, " +
+                "  COALESCE(da.first_in IS NOT NULL, 0), " +
+                "  COALESCE(da.punch_count > 0, 0), " +
+                "  COALESCE(TIMESTAMPDIFF(MINUTE, da.first_in, da.last_out), 0), " +
+                "  COALESCE((SELECT SUM(CASE ad.period WHEN 'FULL_DAY' THEN 1 WHEN 'AM' THEN 0.5 WHEN 'PM' THEN 0.5 END) " +
+                "            FROM absence_days ad JOIN absence a ON a.id = ad.absence_id " +
+                "            WHERE a.user_id = u.id AND ad.absence_date = c.day), 0), " +
+                "  (SELECT COUNT(*) FROM reports r " +
+                "   WHERE r.author_id = u.id AND r.created_at >= c.day AND r.created_at < c.day + INTERVAL 1 DAY) " +
+                "FROM users u " +
+                "JOIN calendar c ON c.day = ? " +
+                "LEFT JOIN daily_attendance da ON da.user_id = u.id AND da.work_date = c.day " +
+                "WHERE u.id = ?",
+                dirty, CHUNK,
+                (ps, d) -> {
+                    ps.setDate(1, Date.valueOf(d.day()));
+                    ps.setString(2, d.userId());
+                });
+
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (DirtyDay d : dirty) days.add(d.day());
+        rebuildTeamDays(days);
+
+        // a mark bumped while this chunk was computed survives for the next run
+        jdbc.batchUpdate(
+                "DELETE FROM kpi_dirty_days WHERE user_id = ? AND day = ? AND version = ?",
+                dirty, CHUNK,
+                (ps, d) -> {
+                    ps.setString(1, d.userId());
+                    ps.setDate(2, Date.valueOf(d.day()));
+                    ps.setInt(3, d.version());
+                });
+
+        evictRefreshed(dirty);
+        return dirty.size();
+    }
+
+    private void rebuildTeamDays(TreeSet<LocalDate> days) {
+        String in = placeholders(days.size());
+        Object[] args = days.stream().map(Date::valueOf).toArray();
+        jdbc.update("DELETE FROM kpi_team_daily WHERE day IN (" + in + ")", args);
+        jdbc.update(
+                "INSERT INTO kpi_team_daily " + TEAM_COLUMNS +
+                "SELECT tm.team_id, k.day, " + TEAM_SUMS +
+                "FROM kpi_user_daily k JOIN team_members tm ON tm.user_id = k.user_id " +
+                "WHERE k.day IN (" + in + ") GROUP BY tm.team_id, k.day",
+                args);
+    }
+
+    private void refreshTeams() {
+        Map<Long, Integer> dirty = new HashMap<>();
+        jdbc.query("SELECT team_id, version FROM kpi_dirty_teams",
+                rs -> {
+                    dirty.put(rs.getLong("team_id"), rs.getInt("version"));
+                });
+        dirty.forEach((teamId, version) -> {
+            jdbc.update("DELETE FROM kpi_team_daily WHERE team_id = ?", teamId);
+            jdbc.update(
+                    "INSERT INTO kpi_team_daily " + TEAM_COLUMNS +
+                    "SELECT tm.team_id, k.day, " + TEAM_SUMS +
+                    "FROM kpi_user_daily k JOIN team_members tm ON tm.user_id = k.user_id " +
+                    "WHERE tm.team_id = ? GROUP BY tm.team_id, k.day",
+                    teamId);
+            jdbc.update("DELETE FROM kpi_dirty_teams WHERE team_id = ? AND version = ?", teamId, version);
+            kpiCache.evictTeam(teamId);
+        });
+    }
+
+    /** Team and global KPIs read the rollups, so their cached periods are stale now. */
+    private void evictRefreshed(List<DirtyDay> dirty) {
+        Map<String, LocalDate[]> spans = new HashMap<>();
+        for (DirtyDay d : dirty) {
+            spans.merge(d.userId(), new LocalDate[] { d.day(), d.day() }, (a, b) -> new LocalDate[] {
+                    a[0].isBefore(b[0]) ? a[0] : b[0],
+                    a[1].isAfter(b[1]) ? a[1] : b[1] });
+        }
+        spans.forEach((userId, span) -> kpiCache.evictUser(userId, span[0], span[1]));
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
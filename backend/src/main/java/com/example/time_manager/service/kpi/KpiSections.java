@@ -0,0 +1,145 @@
+package com.example.time_manager.service.kpi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.time_manager.config.AnalyticsDataSourceConfig;
+
+/**
+ * Runs the independent statements of a KPI computation concurrently, each on
+ * a virtual thread and in its own read-only transaction on the analytics pool.
+ *
+ * Two limits apply: a request never runs more than kpi.sections.per-request
+ * sections at once, and all requests together never hold more than
+ * kpi.sections.max-connections connections; kept at or below the analytics
+ * pool size, a burst of dashboards queues here rather than timing out on the
+ * pool. With per-request at 1 the sections run
+ * one after another on the caller's thread.
+ */
+@Component
+public class KpiSections implements DisposableBean {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final TransactionTemplate readOnly;
+    private final Semaphore connections;
+    private final int perRequest;
+
+    public KpiSections(@Qualifier(AnalyticsDataSourceConfig.ANALYTICS_TX) PlatformTransactionManager txManager,
+                       @Value("${kpi.sections.max-connections:6}") int maxConnections,
+                       @Value("${kpi.sections.per-request:4}") int perRequest) {
+        if (maxConnections < 1 || perRequest < 1) {
+            throw new IllegalArgumentException("kpi.sections limits must be at least 1");
+        }
+        this.readOnly = new TransactionTemplate(txManager);
+        this.readOnly.setReadOnly(true);
+        this.connections = new Semaphore(maxConnections, true);
+        this.perRequest = Math.min(perRequest, maxConnections);
+    }
+
+    public Batch batch() {
+        return new Batch();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /** The sections of one computation; results are readable once {@link #join()} returned. */
+    public final class Batch {
+
+        private final List<Section<?>> sections = new ArrayList<>();
+
+        private Batch() {}
+
+        public <T> Supplier<T> add(Supplier<T> query) {
+            Section<T> s = new Section<>(query);
+            sections.add(s);
+            return s;
+        }
+
+        /** A section whose rows are folded by the caller-supplied handler. */
+        public void run(Runnable query) {
+            sections.add(new Section<Void>(() -> {
+                query.run();
+                return null;
+            }));
+        }
+
+        /** Runs every section and rethrows the first failure. */
+        public void join() {
+            try {
+                if (perRequest == 1 || sections.size() == 1) {
+                    for (Section<?> s : sections) compute(s);
+                    return;
+                }
+                Semaphore slots = new Semaphore(perRequest);
+                List<Future<?>> running = new ArrayList<>(sections.size());
+                try {
+                    for (Section<?> s : sections) {
+                        slots.acquire();
+                        running.add(executor.submit(() -> {
+                            try {
+                                compute(s);
+                            } finally {
+                                slots.release();
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> f : running) f.get();
+                } finally {
+                    // a failed section stops the ones still queued or running
+                    for (Future<?> f : running) f.cancel(true);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while computing KPIs", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                if (e.getCause() instanceof Error err) throw err;
+                throw new IllegalStateException("KPI section failed", e.getCause());
+            }
+        }
+    }
+
+    private <T> void compute(Section<T> s) throws InterruptedException {
+        connections.acquire();
+        try {
+            s.value = readOnly.execute(st -> s.query.get());
+            s.done = true;
+        } finally {
+            connections.release();
+        }
+    }
+
+    private static final class Section<T> implements Supplier<T> {
+        private final Supplier<T> query;
+        // published to the caller by Future.get()
+        private T value;
+        private boolean done;
+
+        private Section(Supplier<T> query) {
+            this.query = query;
+        }
+
+        @Override
+        public T get() {
+            if (!done) throw new IllegalStateException("KPI section read before join()");
+            return value;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.time_manager.service.kpi;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+import com.example.time_manager.model.kpi.KpiGranularity;
+
+/**
+ * KPI counters of a period split into day, week (ISO, Monday first) or month
+ * buckets, folded in a single pass.
+ *
+ * The caller streams one row per day of rollup figures and one call per
+ * arrival on a planned day; each lands in its bucket by date arithmetic, so
+ * the cost of a series does not depend on its number of points. Arrivals are
+ * judged by a {@link PunctualityPass} per bucket, as in the punctuality KPI.
+ */
+public final class KpiSeriesPass {
+
+    public static final int MAX_POINTS = 1000;
+
+    private final KpiGranularity granularity;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final int size;
+
+    private final long[] plannedDays;
+    private final long[] presentDays;
+    private final long[] workedDays;
+    private final long[] workedMinutes;
+    private final PunctualityPass[] punctuality;
+    private final BigDecimal[] absenceUnits;
+
+    public KpiSeriesPass(KpiGranularity granularity, LocalDate start, LocalDate end) {
+        if (granularity == null) throw new IllegalArgumentException("granularity is required");
+        if (end.isBefore(start)) throw new IllegalArgumentException("endDate must not be before startDate");
+        this.granularity = granularity;
+        this.start = start;
+        this.end = end;
+
+        long points = offset(end) + 1;
+        if (points > MAX_POINTS) {
+            throw new IllegalArgumentException("Too many points: " + points + " (max " + MAX_POINTS + ")");
+        }
+        this.size = (int) points;
+        this.plannedDays = new long[size];
+        this.presentDays = new long[size];
+        this.workedDays = new long[size];
+        this.workedMinutes = new long[size];
+        this.punctuality = new PunctualityPass[size];
+        Arrays.setAll(punctuality, i -> new PunctualityPass());
+        this.absenceUnits = new BigDecimal[size];
+        Arrays.fill(absenceUnits, BigDecimal.ZERO);
+    }
+
+    /* ======================= INPUT ======================= */
+
+    /** Rollup figures of one day (a user, a team or everyone). */
+    public void day(LocalDate day, long planned, long present, long worked, long minutes, BigDecimal absence) {
+        if (outside(day)) return;
+        int i = index(day);
+        plannedDays[i] += planned;
+        presentDays[i] += present;
+        workedDays[i] += worked;
+        workedMinutes[i] += minutes;
+        if (absence != null) absenceUnits[i] = absenceUnits[i].add(absence);
+    }
+
+    /** The first IN of a planned day and its planned start, both local. */
+    public void arrival(LocalDate day, LocalTime expected, LocalTime actual) {
+        if (outside(day)) return;
+        punctuality[index(day)].arrival(expected, actual);
+    }
+
+    /* ======================= RESULTS ======================= */
+
+    public int size() { return size; }
+
+    public LocalDate bucketStart(int i) {
+        if (i == 0) return start;
+        return switch (granularity) {
+            case DAY -> start.plusDays(i);
+            case WEEK -> start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(i);
+            case MONTH -> YearMonth.from(start).plusMonths(i).atDay(1);
+        };
+    }
+
+    public LocalDate bucketEnd(int i) {
+        LocalDate last = switch (granularity) {
+            case DAY -> bucketStart(i);
+            case WEEK -> bucketStart(i).with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            case MONTH -> YearMonth.from(bucketStart(i)).atEndOfMonth();
+        };
+        return last.isAfter(end) ? end : last;
+    }
+
+    public long plannedDays(int i) { return plannedDays[i]; }
+    public long presentDays(int i) { return presentDays[i]; }
+    public long workedDays(int i) { return workedDays[i]; }
+    public long workedMinutes(int i) { return workedMinutes[i]; }
+    public long lateDays(int i) { return punctuality[i].lateDays(); }
+    public BigDecimal absenceUnits(int i) { return absenceUnits[i]; }
+
+    /** Average delay of the bucket's late arrivals in minutes, null when nobody was late. */
+    public BigDecimal avgDelayMinutes(int i) {
+        return punctuality[i].avgDelayMinutes();
+    }
+
+    private boolean outside(LocalDate day) {
+        return day.isBefore(start) || day.isAfter(end);
+    }
+
+    private int index(LocalDate day) {
+        return (int) offset(day);
+    }
+
+    private long offset(LocalDate day) {
+        return switch (granularity) {
+            case DAY -> ChronoUnit.DAYS.between(start, day);
+            case WEEK -> ChronoUnit.WEEKS.between(
+                    start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                    day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            case MONTH -> ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(day));
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.time_manager.service.kpi;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.time_manager.model.User;
+import com.example.time_manager.model.WorkDay;
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.PunchHeatCell;
+
+/**
+ * IN and OUT punches of a user, a team or everyone per local weekday and
+ * hour, read from the {@link ClockSnapshot}.
+ *
+ * Each punch is placed in its user's time zone with primitive arithmetic on
+ * the epoch second: the zone offsets of the period are resolved once per
+ * zone, so a scan over years of punches allocates nothing per punch.
+ */
+@Component
+public class PunchHeatmap {
+
+    private static final int DAY = 86_400;
+
+    /** Offsets of one zone over the scanned window: offsets[i] applies from since[i]. */
+    private record Offsets(long[] since, int[] offsets) {
+
+        static Offsets of(ZoneId zone, long from, long to) {
+            ZoneRules rules = zone.getRules();
+            List<Long> since = new ArrayList<>();
+            List<Integer> offsets = new ArrayList<>();
+            since.add(Long.MIN_VALUE);
+            offsets.add(rules.getOffset(Instant.ofEpochSecond(from)).getTotalSeconds());
+            ZoneOffsetTransition t = rules.nextTransition(Instant.ofEpochSecond(from));
+            while (t != null && t.toEpochSecond() < to) {
+                since.add(t.toEpochSecond());
+                offsets.add(t.getOffsetAfter().getTotalSeconds());
+                t = rules.nextTransition(t.getInstant());
+            }
+            return new Offsets(since.stream().mapToLong(Long::longValue).toArray(),
+                    offsets.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        int at(long epochSecond) {
+            int i = Arrays.binarySearch(since, epochSecond);
+            return offsets[i >= 0 ? i : -i - 2];
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ClockSnapshot snapshot;
+
+    public PunchHeatmap(JdbcTemplate jdbc, ClockSnapshot snapshot) {
+        this.jdbc = jdbc;
+        this.snapshot = snapshot;
+    }
+
+    /** 168 cells, MON 0h to SUN 23h, of the punches made on local days start..end. */
+    public List<PunchHeatCell> compute(KpiScope scope, String id, LocalDate start, LocalDate end) {
+        if (scope == null) throw new IllegalArgumentException("scope is required");
+        if (scope != KpiScope.GLOBAL && (id == null || id.isBlank())) {
+            throw new IllegalArgumentException("id is required for scope " + scope);
+        }
+        if (end.isBefore(start)) throw new IllegalArgumentException("endDate must not be before startDate");
+
+        String sql;
+        Object[] args;
+        switch (scope) {
+            case USER -> {
+                sql = "SELECT id, time_zone FROM users WHERE id = ?";
+                args = new Object[] { id };
+            }
+            case TEAM -> {
+                sql = "SELECT u.id, u.time_zone FROM users u JOIN team_members tm ON tm.user_id = u.id WHERE tm.team_id = ?";
+                args = new Object[] { Integer.valueOf(id) };
+            }
+            default -> {
+                sql = "SELECT id, time_zone FROM users";
+                args = new Object[0];
+            }
+        }
+
+        // local days start..end lie within one day of the same UTC days
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        long from = (startDay - 1) * DAY;
+        long to = (endDay + 2) * DAY;
+
+        Map<String, Offsets> byZone = new HashMap<>();
+        Map<Integer, Offsets> byUser = new HashMap<>();
+        BitSet users = new BitSet();
+        jdbc.query(sql, rs -> {
+            String zone = rs.getString("time_zone");
+            int idx = snapshot.userIndex(rs.getString("id"));
+            users.set(idx);
+            byUser.put(idx, byZone.computeIfAbsent(zone == null ? "" : zone,
+                    z -> Offsets.of(User.zoneOf(zone), from, to)));
+        }, args);
+
+        long[] ins = new long[7 * 24];
+        long[] outs = new long[7 * 24];
+        if (!users.isEmpty()) {
+            Offsets[] offsets = new Offsets[users.length()];
+            byUser.forEach((idx, o) -> offsets[idx] = o);
+
+            snapshot.scan(Instant.ofEpochSecond(from), Instant.ofEpochSecond(to),
+                    scope == KpiScope.GLOBAL ? null : users,
+                    (user, epochSecond, in) -> {
+                        if (user >= offsets.length || offsets[user] == null) return;   // no longer a user
+                        long local = epochSecond + offsets[user].at(epochSecond);
+                        long day = Math.floorDiv(local, DAY);
+                        if (day < startDay || day > endDay) return;
+                        // 1970-01-01 was a Thursday
+                        int cell = (int) Math.floorMod(day + 3, 7) * 24 + (int) (Math.floorMod(local, DAY) / 3600);
+                        if (in) ins[cell]++;
+                        else outs[cell]++;
+                    });
+        }
+
+        List<PunchHeatCell> out = new ArrayList<>(ins.length);
+        WorkDay[] days = WorkDay.values();
+        for (int i = 0; i < ins.length; i++) {
+            out.add(new PunchHeatCell(days[i / 24].name(), i % 24, (int) ins[i], (int) outs[i]));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.time_manager.service.kpi;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.time_manager.model.User;
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.PunctualityStats;
+
+/**
+ * Punctuality of a user, a team or everyone over a period, in two set-based
+ * statements run as {@link KpiSections}.
+ *
+ * The planned start of each user and weekday is grouped once and joined to
+ * the first IN of each day (daily_attendance) through the calendar, so each
+ * arrival meets its planned start in the join instead of in per-day
+ * subqueries. The second statement counts the planned user-days, the
+ * denominator of the late rate. Holidays are neither planned nor late.
+ * {@link #arrivals} is the same join for callers that fold arrivals their
+ * own way, such as the KPI series.
+ */
+@Component
+public class PunctualityEngine {
+
+    /** Receives one first IN of a planned day and its planned start, both local. */
+    @FunctionalInterface
+    public interface Arrival {
+        void arrival(LocalDate day, LocalTime expected, LocalTime actual);
+    }
+
+    private final JdbcTemplate jdbc;
+    private final KpiSections sections;
+
+    public PunctualityEngine(JdbcTemplate jdbc, KpiSections sections) {
+        this.jdbc = jdbc;
+        this.sections = sections;
+    }
+
+    public PunctualityStats compute(KpiScope scope, String id, LocalDate start, LocalDate end) {
+        if (scope == null) throw new IllegalArgumentException("scope is required");
+        if (scope != KpiScope.GLOBAL && (id == null || id.isBlank())) {
+            throw new IllegalArgumentException("id is required for scope " + scope);
+        }
+        if (end.isBefore(start)) throw new IllegalArgumentException("endDate must not be before startDate");
+
+        // work_schedules rows of the scope's users
+        String who;
+        Object[] args;
+        switch (scope) {
+            case USER -> {
+                who = "x.user_id = ?";
+                args = new Object[] { id, start, end };
+            }
+            case TEAM -> {
+                who = "x.user_id IN (SELECT user_id FROM team_members WHERE team_id = ?)";
+                args = new Object[] { Integer.valueOf(id), start, end };
+            }
+            default -> {
+                who = "TRUE";
+                args = new Object[] { start, end };
+            }
+        }
+
+        PunctualityPass pass = new PunctualityPass();
+        KpiSections.Batch batch = sections.batch();
+        Supplier<Long> planned = batch.add(() -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM calendar c " +
+                "JOIN (SELECT DISTINCT x.user_id, x.day_of_week FROM work_schedules x WHERE " + who + ") p " +
+                "  ON p.day_of_week = c.day_of_week " +
+                "WHERE c.day BETWEEN ? AND ? AND c.is_holiday = 0",
+                Long.class, args));
+        batch.run(() -> arrivals(who, args, (day, expected, actual) -> pass.arrival(expected, actual)));
+        batch.join();
+
+        return pass.stats(planned.get() == null ? 0L : planned.get());
+    }
+
+    /**
+     * Streams the first IN of each non-holiday day in start..end with the
+     * earliest planned start of that weekday, for the users of who.
+     *
+     * @param who  condition on work_schedules x
+     * @param args the parameters of who, then start and end
+     */
+    public void arrivals(String who, Object[] args, Arrival visitor) {
+        Map<String, ZoneId> zones = new HashMap<>();
+        jdbc.query(
+                "SELECT a.work_date, a.first_in, p.start_time, u.time_zone FROM daily_attendance a " +
+                "JOIN calendar c ON c.day = a.work_date AND c.is_holiday = 0 " +
+                "JOIN (SELECT x.user_id, x.day_of_week, MIN(x.start_time) AS start_time " +
+                "      FROM work_schedules x WHERE " + who + " GROUP BY x.user_id, x.day_of_week) p " +
+                "  ON p.user_id = a.user_id AND p.day_of_week = c.day_of_week " +
+                "JOIN users u ON u.id = a.user_id " +
+                "WHERE a.first_in IS NOT NULL AND a.work_date BETWEEN ? AND ?",
+                rs -> {
+                    ZoneId zone = zones.computeIfAbsent(rs.getString("time_zone"), User::zoneOf);
+                    visitor.arrival(rs.getDate("work_date").toLocalDate(),
+                            rs.getTime("start_time").toLocalTime(),
+                            rs.getTimestamp("first_in").toInstant().atZone(zone).toLocalTime());
+                },
+                args);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.time_manager.service.kpi;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.time_manager.model.kpi.LatenessBucket;
+import com.example.time_manager.model.kpi.PunctualityStats;
+
+/**
+ * Late count, average delay and lateness distribution of a set of arrivals,
+ * folded one arrival at a time.
+ *
+ * Each call compares a first IN with the planned start of that day, both as
+ * local wall-clock times; the caller decides which days are planned.
+ */
+public final class PunctualityPass {
+
+    /** Inclusive upper bounds of the distribution buckets, in minutes; the last bucket is open. */
+    static final int[] BUCKET_MAX = { 5, 15, 30, 60 };
+
+    private long lateDays;
+    private long lateMinutes;
+    private final long[] buckets = new long[BUCKET_MAX.length + 1];
+
+    /** One first IN on a planned day. */
+    public void arrival(LocalTime expected, LocalTime actual) {
+        if (!actual.isAfter(expected)) return;
+        long delay = Duration.between(expected, actual).toMinutes();
+        lateDays++;
+        lateMinutes += delay;
+        int i = 0;
+        while (i < BUCKET_MAX.length && delay > BUCKET_MAX[i]) i++;
+        buckets[i]++;
+    }
+
+    public long lateDays() { return lateDays; }
+
+    /** Average delay of late arrivals in minutes, null when never late. */
+    public BigDecimal avgDelayMinutes() {
+        if (lateDays == 0) return null;
+        return BigDecimal.valueOf(lateMinutes).divide(BigDecimal.valueOf(lateDays), 2, RoundingMode.HALF_UP);
+    }
+
+    public List<LatenessBucket> distribution() {
+        List<LatenessBucket> out = new ArrayList<>(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            out.add(new LatenessBucket(
+                    i == 0 ? 0 : BUCKET_MAX[i - 1] + 1,
+                    i < BUCKET_MAX.length ? BUCKET_MAX[i] : null,
+                    (int) buckets[i]));
+        }
+        return out;
+    }
+
+    /** @param plannedDays the denominator of the late rate; null rate when nothing was planned */
+    public PunctualityStats stats(long plannedDays) {
+        BigDecimal lateRate = plannedDays <= 0 ? null
+                : BigDecimal.valueOf(lateDays * 100).divide(BigDecimal.valueOf(plannedDays), 2, RoundingMode.HALF_UP);
+        PunctualityStats s = new PunctualityStats(lateRate, avgDelayMinutes());
+        s.setLateCount((int) lateDays);
+        s.setPlannedDays((int) plannedDays);
+        s.setDistribution(distribution());
+        return s;
+    }
+}
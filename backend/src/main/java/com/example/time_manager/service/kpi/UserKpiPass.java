@@ -0,0 +1,137 @@
+package com.example.time_manager.service.kpi;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.example.time_manager.model.WorkDay;
+import com.example.time_manager.model.kpi.AbsenceBreakdown;
+import com.example.time_manager.model.kpi.PunctualityStats;
+
+/**
+ * One user's KPI figures for a period, computed in a single pass.
+ *
+ * The caller feeds the weekly schedule and the period's holidays first, then
+ * streams the period's daily_attendance and absence_days rows; every counter
+ * is folded as the rows arrive, so no per-day query and no date generator is
+ * needed. A holiday is never planned, whatever the schedule.
+ */
+public final class UserKpiPass {
+
+    private static final BigDecimal HALF_DAY = new BigDecimal("0.5");
+
+    private final LocalDate start;
+    private final LocalDate end;
+    private final ZoneId zone;
+
+    private final Map<DayOfWeek, LocalTime> planStart = new EnumMap<>(DayOfWeek.class);
+    private final Map<DayOfWeek, Long> planMinutes = new EnumMap<>(DayOfWeek.class);
+    private final Set<LocalDate> holidays = new HashSet<>();
+
+    private long presentDays;
+    private long workedMinutes;
+    private long workedDays;
+    private final PunctualityPass punctuality = new PunctualityPass();
+
+    private BigDecimal absenceDays = BigDecimal.ZERO;
+    private final Map<String, BigDecimal> absenceByType = new TreeMap<>();
+
+    /** @param zone the user's zone, used to read first-in times as local wall-clock times */
+    public UserKpiPass(LocalDate start, LocalDate end, ZoneId zone) {
+        this.start = start;
+        this.end = end;
+        this.zone = zone;
+    }
+
+    /* ======================= INPUT ======================= */
+
+    /** One work_schedules row (day_of_week is MON..SUN). */
+    public void schedule(String dayOfWeek, LocalTime from, LocalTime to) {
+        DayOfWeek dow = dayOf(dayOfWeek);
+        planStart.merge(dow, from, (a, b) -> a.isBefore(b) ? a : b);
+        planMinutes.merge(dow, Duration.between(from, to).toMinutes(), Long::sum);
+    }
+
+    /** One calendar day flagged as a holiday. */
+    public void holiday(LocalDate day) {
+        holidays.add(day);
+    }
+
+    /** One daily_attendance row; must be called after the schedule and holidays are known. */
+    public void attendance(LocalDate day, Instant firstIn, Instant lastOut, int punchCount) {
+        if (punchCount > 0) workedDays++;
+        if (firstIn == null) return;
+        presentDays++;
+        if (lastOut != null) workedMinutes += Duration.between(firstIn, lastOut).toMinutes();
+
+        LocalTime expected = holidays.contains(day) ? null : planStart.get(day.getDayOfWeek());
+        if (expected == null) return;
+        punctuality.arrival(expected, firstIn.atZone(zone).toLocalTime());
+    }
+
+    /** One absence_days row (period is FULL_DAY, AM or PM). */
+    public void absence(String type, String period) {
+        BigDecimal days = switch (period == null ? "" : period) {
+            case "FULL_DAY" -> BigDecimal.ONE;
+            case "AM", "PM" -> HALF_DAY;
+            default -> null;
+        };
+        if (days == null) return;
+        absenceDays = absenceDays.add(days);
+        absenceByType.merge(type, days, BigDecimal::add);
+    }
+
+    /* ======================= RESULTS ======================= */
+
+    /** Days of the period with at least one scheduled slot. */
+    public long plannedDays() {
+        long n = 0;
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            if (planStart.containsKey(d.getDayOfWeek()) && !holidays.contains(d)) n++;
+        }
+        return n;
+    }
+
+    public long plannedMinutes() {
+        long n = 0;
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            if (!holidays.contains(d)) n += planMinutes.getOrDefault(d.getDayOfWeek(), 0L);
+        }
+        return n;
+    }
+
+    public long presentDays() { return presentDays; }
+    public long workedMinutes() { return workedMinutes; }
+    public long workedDays() { return workedDays; }
+    public long lateDays() { return punctuality.lateDays(); }
+
+    /** Average delay of late arrivals in minutes, null when never late. */
+    public BigDecimal avgDelayMinutes() { return punctuality.avgDelayMinutes(); }
+
+    /** Late rate over the planned days, average delay and lateness distribution. */
+    public PunctualityStats punctuality() { return punctuality.stats(plannedDays()); }
+
+    public BigDecimal absenceDays() { return absenceDays; }
+
+    public List<AbsenceBreakdown> absenceByType() {
+        List<AbsenceBreakdown> out = new ArrayList<>(absenceByType.size());
+        absenceByType.forEach((type, days) -> out.add(new AbsenceBreakdown(type, days)));
+        return out;
+    }
+
+    private static DayOfWeek dayOf(String code) {
+        // WorkDay is declared MON..SUN, in DayOfWeek order
+        return DayOfWeek.of(WorkDay.valueOf(code).ordinal() + 1);
+    }
+}
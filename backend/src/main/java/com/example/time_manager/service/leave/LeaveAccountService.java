@@ -6,6 +6,7 @@ import com.example.time_manager.model.leave.LeaveType;
 import com.example.time_manager.repository.UserRepository;
 import com.example.time_manager.repository.leave.LeaveAccountRepository;
 import com.example.time_manager.repository.leave.LeaveLedgerRepository;
+import com.example.time_manager.service.kpi.KpiCache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,15 +21,18 @@ public class LeaveAccountService {
   private final UserRepository userRepo;
   private final LeaveTypeService leaveTypeService;
   private final LeaveLedgerRepository ledgerRepo;
+  private final KpiCache kpiCache;
 
   public LeaveAccountService(LeaveAccountRepository repo,
                              UserRepository userRepo,
                              LeaveTypeService leaveTypeService,
-                             LeaveLedgerRepository ledgerRepo) {
+                             LeaveLedgerRepository ledgerRepo,
+                             KpiCache kpiCache) {
     this.repo = repo;
     this.userRepo = userRepo;
     this.leaveTypeService = leaveTypeService;
     this.ledgerRepo = ledgerRepo;
+    this.kpiCache = kpiCache;
   }
 
   public LeaveAccount create(String userId, String leaveTypeCode, BigDecimal opening, BigDecimal accrual,
@@ -47,6 +51,8 @@ public class LeaveAccountService {
     acc.setAccrualPerMonth(accrual != null ? accrual : BigDecimal.ZERO);
     acc.setMaxCarryover(maxCarry);
     acc.setCarryoverExpireOn(expireOn);
+    // an opening balance counts in every period
+    kpiCache.evictLeave(userId, LocalDate.MIN, LocalDate.MAX);
     return repo.save(acc);
   }
 
@@ -58,11 +64,14 @@ public class LeaveAccountService {
     if (accrual != null) acc.setAccrualPerMonth(accrual);
     if (maxCarry != null) acc.setMaxCarryover(maxCarry);
     acc.setCarryoverExpireOn(expireOn);
+    evict(acc);
     return repo.save(acc);
   }
 
   public boolean delete(Long id) {
-    if (!repo.existsById(id)) return false;
+    var acc = repo.findById(id);
+    if (acc.isEmpty()) return false;
+    evict(acc.get());
     repo.deleteById(id);
     return true;
   }
@@ -90,4 +99,9 @@ public class LeaveAccountService {
   return repo.findByUser_Id(user.getId());
 }
 
+  private void evict(LeaveAccount acc) {
+    if (acc.getUser() == null) return;
+    kpiCache.evictLeave(acc.getUser().getId(), LocalDate.MIN, LocalDate.MAX);
+  }
+
 }
@@ -8,6 +8,7 @@ import com.example.time_manager.model.leave.LeaveLedgerKind;
 import com.example.time_manager.repository.AbsenceRepository;
 import com.example.time_manager.repository.leave.LeaveAccountRepository;
 import com.example.time_manager.repository.leave.LeaveLedgerRepository;
+import com.example.time_manager.service.kpi.KpiCache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,13 +22,16 @@ public class LeaveLedgerService {
   private final LeaveLedgerRepository repo;
   private final LeaveAccountRepository accountRepo;
   private final AbsenceRepository absenceRepo;
+  private final KpiCache kpiCache;
 
   public LeaveLedgerService(LeaveLedgerRepository repo,
                             LeaveAccountRepository accountRepo,
-                            AbsenceRepository absenceRepo) {
+                            AbsenceRepository absenceRepo,
+                            KpiCache kpiCache) {
     this.repo = repo;
     this.accountRepo = accountRepo;
     this.absenceRepo = absenceRepo;
+    this.kpiCache = kpiCache;
   }
 
   public List<LeaveLedger> listByUserEmail(String email) {
@@ -59,23 +63,28 @@ public class LeaveLedgerService {
       ll.setReferenceAbsence(abs);
     }
     ll.setNote(note);
+    kpiCache.evictLeave(userIdOf(acc), ll.getEntryDate(), ll.getEntryDate());
     return repo.save(ll);
   }
 
   public LeaveLedger update(Long id, LocalDate date, BigDecimal amount, String note) {
     LeaveLedger ll = repo.findById(id)
       .orElseThrow(() -> new IllegalArgumentException("LeaveLedger not found: " + id));
+    evict(ll);
     if (date != null) ll.setEntryDate(date);
     if (amount != null) {
       if (amount.compareTo(BigDecimal.ZERO) < 0) throw new IllegalArgumentException("amount must be >= 0");
       ll.setAmount(amount);
     }
     if (note != null) ll.setNote(note);
+    evict(ll);
     return repo.save(ll);
   }
 
   public boolean delete(Long id) {
-    if (!repo.existsById(id)) return false;
+    var ll = repo.findById(id);
+    if (ll.isEmpty()) return false;
+    evict(ll.get());
     repo.deleteById(id);
     return true;
   }
@@ -87,4 +96,13 @@ public class LeaveLedgerService {
   public List<LeaveLedger> listByAccountBetween(Long accountId, LocalDate from, LocalDate to) {
     return repo.findByAccount_IdAndEntryDateBetweenOrderByEntryDateAsc(accountId, from, to);
   }
+
+  private void evict(LeaveLedger ll) {
+    if (ll.getEntryDate() == null) return;
+    kpiCache.evictLeave(userIdOf(ll.getAccount()), ll.getEntryDate(), ll.getEntryDate());
+  }
+
+  private static String userIdOf(LeaveAccount acc) {
+    return acc != null && acc.getUser() != null ? acc.getUser().getId() : null;
+  }
 }
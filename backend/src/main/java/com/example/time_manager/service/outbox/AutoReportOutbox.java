@@ -0,0 +1,91 @@
+package com.example.time_manager.service.outbox;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.absence.Absence;
+import com.example.time_manager.model.absence.AbsenceStatus;
+import com.example.time_manager.model.outbox.AutoReportEvent;
+import com.example.time_manager.model.outbox.AutoReportEventType;
+import com.example.time_manager.repository.outbox.AutoReportEventRepository;
+
+/**
+ * Records automatic-report triggers in the caller's transaction.
+ * The rules themselves are evaluated by {@link AutoReportWorker}, so the
+ * request only pays for one small insert.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class AutoReportOutbox {
+
+  private static final int INSERT_CHUNK = 500;
+
+  private final AutoReportEventRepository repo;
+  private final JdbcTemplate jdbc;
+
+  public AutoReportOutbox(AutoReportEventRepository repo, JdbcTemplate jdbc) {
+    this.repo = repo;
+    this.jdbc = jdbc;
+  }
+
+  public void clockCreated(String userId, ClockKind kind, Instant at, LocalDate workDate) {
+    AutoReportEvent e = new AutoReportEvent();
+    e.setType(AutoReportEventType.CLOCK_CREATED);
+    e.setUserId(userId);
+    e.setClockKind(kind);
+    e.setClockAt(at);
+    e.setClockWorkDate(workDate);
+    repo.save(e);
+  }
+
+  /** Bulk variant for terminal ingestion: one JDBC batch for the whole punch batch. */
+  public void clockCreated(Collection<ClockTrigger> triggers) {
+    if (triggers == null || triggers.isEmpty()) return;
+    Timestamp now = Timestamp.from(Instant.now());
+    jdbc.batchUpdate(
+        "INSERT INTO auto_report_outbox (type, user_id, clock_kind, clock_at, clock_work_date, status, attempts, created_at) " +
+        "VALUES ('" + AutoReportEventType.CLOCK_CREATED.name() + "', ?, ?, ?, ?, 'PENDING', 0, ?)",
+        triggers, INSERT_CHUNK,
+        (ps, t) -> {
+          ps.setString(1, t.userId());
+          ps.setString(2, t.kind().name());
+          ps.setTimestamp(3, Timestamp.from(t.at()));
+          ps.setDate(4, Date.valueOf(t.workDate()));
+          ps.setTimestamp(5, now);
+        });
+  }
+
+  public void absenceRequested(Absence absence) {
+    if (absence == null) return;
+    AutoReportEvent e = new AutoReportEvent();
+    e.setType(AutoReportEventType.ABSENCE_REQUESTED);
+    e.setUserId(absence.getUserId());
+    e.setAbsenceId(absence.getId());
+    repo.save(e);
+  }
+
+  public void absenceStatusChanged(String changerEmail, Absence absence, AbsenceStatus previous) {
+    if (absence == null) return;
+    if (previous != null && previous == absence.getStatus()) return;
+    AutoReportEvent e = new AutoReportEvent();
+    e.setType(AutoReportEventType.ABSENCE_STATUS_CHANGED);
+    e.setUserId(absence.getUserId());
+    e.setAbsenceId(absence.getId());
+    e.setActorEmail(changerEmail);
+    e.setPreviousStatus(previous);
+    e.setNewStatus(absence.getStatus());
+    repo.save(e);
+  }
+
+  public record ClockTrigger(String userId, ClockKind kind, Instant at, LocalDate workDate) {}
+}
@@ -0,0 +1,143 @@
+package com.example.time_manager.service.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.time_manager.model.outbox.AutoReportEvent;
+import com.example.time_manager.model.outbox.OutboxStatus;
+import com.example.time_manager.repository.AbsenceRepository;
+import com.example.time_manager.repository.DailyAttendanceRepository;
+import com.example.time_manager.repository.outbox.AutoReportEventRepository;
+import com.example.time_manager.service.AutoReportService;
+
+/**
+ * Drains the auto-report outbox on a bounded pool.
+ *
+ * Each event is claimed atomically (PENDING -> PROCESSING) so several nodes can
+ * poll the same table, then evaluated in its own transaction. Re-running an
+ * event is harmless: every report carries a unique rule_key.
+ */
+@Component
+public class AutoReportWorker {
+
+  static final int MAX_ATTEMPTS = 5;
+  private static final Duration STALE_CLAIM = Duration.ofMinutes(5);
+  private static final Duration DONE_RETENTION = Duration.ofDays(7);
+
+  private final AutoReportEventRepository repo;
+  private final AutoReportService autoReportService;
+  private final DailyAttendanceRepository attendanceRepo;
+  private final AbsenceRepository absenceRepo;
+  private final TaskExecutor executor;
+  private final TransactionTemplate tx;
+  private final Semaphore inFlight;
+
+  public AutoReportWorker(AutoReportEventRepository repo,
+                          AutoReportService autoReportService,
+                          DailyAttendanceRepository attendanceRepo,
+                          AbsenceRepository absenceRepo,
+                          @Qualifier("autoReportExecutor") TaskExecutor executor,
+                          PlatformTransactionManager txManager,
+                          @Value("${auto-report.outbox.max-in-flight:64}") int maxInFlight) {
+    this.repo = repo;
+    this.autoReportService = autoReportService;
+    this.attendanceRepo = attendanceRepo;
+    this.absenceRepo = absenceRepo;
+    this.executor = executor;
+    this.tx = new TransactionTemplate(txManager);
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /* ======================= POLLING ======================= */
+
+  @Scheduled(fixedDelayString = "${auto-report.outbox.poll-ms:500}")
+  public void poll() {
+    int free = inFlight.availablePermits();
+    if (free == 0) return;
+
+    List<Long> ids = repo.findIdsByStatus(OutboxStatus.PENDING, PageRequest.of(0, free));
+    for (Long id : ids) {
+      if (!inFlight.tryAcquire()) return;
+
+      Integer claimed = tx.execute(s -> repo.claim(id, Instant.now()));
+      if (claimed == null || claimed == 0) {
+        inFlight.release();
+        continue;
+      }
+
+      try {
+        executor.execute(() -> {
+          try {
+            process(id);
+          } finally {
+            inFlight.release();
+          }
+        });
+      } catch (TaskRejectedException ex) {
+        inFlight.release();
+        tx.executeWithoutResult(s -> repo.findById(id).ifPresent(e -> e.setStatus(OutboxStatus.PENDING)));
+        return;
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${auto-report.outbox.maintenance-ms:60000}")
+  public void maintenance() {
+    Instant now = Instant.now();
+    tx.executeWithoutResult(s -> {
+      repo.releaseStale(now.minus(STALE_CLAIM));
+      repo.purgeDone(now.minus(DONE_RETENTION));
+    });
+  }
+
+  /* ======================= PROCESSING ======================= */
+
+  void process(Long id) {
+    try {
+      tx.executeWithoutResult(s -> {
+        AutoReportEvent e = repo.findById(id).orElse(null);
+        if (e == null || e.getStatus() != OutboxStatus.PROCESSING) return;
+        dispatch(e);
+        e.setStatus(OutboxStatus.DONE);
+        e.setProcessedAt(Instant.now());
+      });
+    } catch (RuntimeException ex) {
+      tx.executeWithoutResult(s -> repo.findById(id).ifPresent(e -> {
+        e.setAttempts(e.getAttempts() + 1);
+        e.setLastError(truncate(String.valueOf(ex)));
+        e.setStatus(e.getAttempts() >= MAX_ATTEMPTS ? OutboxStatus.FAILED : OutboxStatus.PENDING);
+      }));
+    }
+  }
+
+  private void dispatch(AutoReportEvent e) {
+    switch (e.getType()) {
+      case CLOCK_CREATED -> {
+        attendanceRepo.findByUserIdAndWorkDate(e.getUserId(), e.getClockWorkDate()).ifPresent(attendance ->
+            autoReportService.onClockCreated(e.getUserId(), e.getClockKind(), e.getClockAt(), attendance));
+      }
+      case ABSENCE_REQUESTED -> absenceRepo.findById(e.getAbsenceId())
+          .ifPresent(autoReportService::onAbsenceRequested);
+      case ABSENCE_STATUS_CHANGED -> absenceRepo.findById(e.getAbsenceId())
+          // a newer decision supersedes this one and has its own event
+          .filter(a -> a.getStatus() == e.getNewStatus())
+          .ifPresent(a -> autoReportService.onAbsenceStatusChanged(e.getActorEmail(), a, e.getPreviousStatus()));
+    }
+  }
+
+  private static String truncate(String s) {
+    return s.length() <= 500 ? s : s.substring(0, 500);
+  }
+}
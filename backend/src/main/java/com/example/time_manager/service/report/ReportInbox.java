@@ -0,0 +1,91 @@
+package com.example.time_manager.service.report;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read state of received reports and the unread counter of each recipient.
+ *
+ * A report is read once its read_at is set; only its target can set it.
+ * report_inbox keeps the number of unread reports per user, bumped by
+ * {@link #delivered} in the transaction that saves a report and lowered by
+ * exactly the rows a read or a delete changed, so the badge reads one row.
+ * Counters are seeded by db/02-data.sql, or for a database that predates
+ * them by db/migrations/002-report-inbox.sql.
+ */
+@Component
+public class ReportInbox {
+
+    private final JdbcTemplate jdbc;
+
+    public ReportInbox(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /* ======================= COUNTER ======================= */
+
+    /** A new report for targetId was saved. */
+    public void delivered(String targetId) {
+        jdbc.update(
+                "INSERT INTO report_inbox (user_id, unread) VALUES (?, 1) " +
+                "ON DUPLICATE KEY UPDATE unread = unread + 1",
+                targetId);
+    }
+
+    /** Several new reports at once: target id -> number of reports, in one batch. */
+    public void delivered(Map<String, Integer> countsByTarget) {
+        List<Object[]> rows = new ArrayList<>(countsByTarget.size());
+        countsByTarget.forEach((targetId, n) -> rows.add(new Object[] { targetId, n, n }));
+        jdbc.batchUpdate(
+                "INSERT INTO report_inbox (user_id, unread) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE unread = unread + ?",
+                rows);
+    }
+
+    /** An unread report of targetId was deleted. */
+    public void removed(String targetId) {
+        decrement(targetId, 1);
+    }
+
+    public int unread(String userId) {
+        List<Integer> rows = jdbc.queryForList(
+                "SELECT unread FROM report_inbox WHERE user_id = ?", Integer.class, userId);
+        return rows.isEmpty() ? 0 : rows.get(0);
+    }
+
+    /* ======================= READ STATE ======================= */
+
+    /** Marks one report of userId read; false when it is not theirs or already read. */
+    public boolean markRead(String userId, Long reportId) {
+        // updated_at is kept: reading is not an edit
+        int changed = jdbc.update(
+                "UPDATE reports SET read_at = ?, updated_at = updated_at " +
+                "WHERE id = ? AND target_user_id = ? AND read_at IS NULL",
+                Timestamp.from(Instant.now()), reportId, userId);
+        if (changed == 0) return false;
+        decrement(userId, 1);
+        return true;
+    }
+
+    /** Marks every received report of userId read; returns how many were unread. */
+    public int markAllRead(String userId) {
+        int changed = jdbc.update(
+                "UPDATE reports SET read_at = ?, updated_at = updated_at " +
+                "WHERE target_user_id = ? AND read_at IS NULL",
+                Timestamp.from(Instant.now()), userId);
+        if (changed > 0) decrement(userId, changed);
+        return changed;
+    }
+
+    private void decrement(String userId, int n) {
+        jdbc.update(
+                "UPDATE report_inbox SET unread = GREATEST(unread - ?, 0) WHERE user_id = ?",
+                n, userId);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.time_manager.service.report;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.time_manager.dto.common.PageInfo;
+import com.example.time_manager.dto.report.ReportHit;
+import com.example.time_manager.dto.report.ReportHitEdge;
+import com.example.time_manager.dto.report.ReportResponse;
+import com.example.time_manager.dto.report.ReportRow;
+import com.example.time_manager.dto.report.ReportSearchConnection;
+
+/**
+ * Full-text search over report titles and bodies, on the MariaDB FULLTEXT
+ * index ft_reports_title_body (db/01-init.sql; databases created before it
+ * get it from db/migrations/001-reports-fulltext-index.sql).
+ *
+ * The query is cut into words, each required as a prefix in boolean mode
+ * (a hit has them all), and hits come most relevant first. Ranked hits have no stable key to seek
+ * from, so the cursor is the hit's rank; pages stop at {@link #MAX_HITS}.
+ * Highlights are built from the title and body of the page's hits only.
+ */
+@Component
+public class ReportSearch {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_HITS = 1000;
+    static final int MAX_TERMS = 10;
+    static final int MAX_HIGHLIGHTS = 3;
+    private static final int SNIPPET_RADIUS = 60;
+    // innodb_ft_min_token_size: shorter words are not indexed
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private static final String MATCH = "MATCH (r.title, r.body) AGAINST (? IN BOOLEAN MODE)";
+
+    private static final String SELECT =
+            "SELECT r.id, a.id AS author_id, a.email AS author_email, " +
+            "       t.id AS target_id, t.email AS target_email, s.id AS subject_id, s.email AS subject_email, " +
+            "       r.type, r.severity, r.title, r.body, r.created_at, r.updated_at, r.read_at, " +
+            "       " + MATCH + " AS score " +
+            "FROM reports r " +
+            "JOIN users a ON a.id = r.author_id " +
+            "JOIN users t ON t.id = r.target_user_id " +
+            "LEFT JOIN users s ON s.id = r.subject_user_id " +
+            "WHERE " + MATCH;
+
+    private final JdbcTemplate jdbc;
+
+    public ReportSearch(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * @param visibleTo when set, only reports this user authored or received
+     */
+    public ReportSearchConnection search(String query, String type, String severity,
+                                         LocalDate from, LocalDate to, String visibleTo,
+                                         Integer first, String after) {
+        int size = first != null ? first : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("first must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("query needs a word of at least " + MIN_TERM_LENGTH + " characters");
+        }
+        int offset = after == null || after.isBlank() ? 0 : decodeCursor(after);
+        int limit = Math.min(size, MAX_HITS - offset);
+        ReportSearchConnection conn = new ReportSearchConnection();
+        if (limit <= 0) return conn;
+
+        String against = String.join(" ", terms.stream().map(t -> "+" + t + "*").toList());
+        StringBuilder sql = new StringBuilder(SELECT);
+        List<Object> args = new ArrayList<>(List.of(against, against));
+        if (type != null && !type.isBlank()) {
+            sql.append(" AND r.type = ?");
+            args.add(type);
+        }
+        if (severity != null && !severity.isBlank()) {
+            sql.append(" AND r.severity = ?");
+            args.add(severity);
+        }
+        if (from != null) {
+            sql.append(" AND r.created_at >= ?");
+            args.add(Timestamp.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        }
+        if (to != null) {
+            sql.append(" AND r.created_at < ?");
+            args.add(Timestamp.from(to.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        }
+        if (visibleTo != null) {
+            sql.append(" AND (r.author_id = ? OR r.target_user_id = ?)");
+            args.add(visibleTo);
+            args.add(visibleTo);
+        }
+        sql.append(" ORDER BY score DESC, r.id DESC LIMIT ? OFFSET ?");
+        args.add(limit + 1);
+        args.add(offset);
+
+        List<ReportHit> hits = jdbc.query(sql.toString(), (rs, i) -> toHit(rs, terms), args.toArray());
+
+        boolean hasNext = hits.size() > limit && offset + limit < MAX_HITS;
+        List<ReportHit> page = hits.size() > limit ? hits.subList(0, limit) : hits;
+        for (int i = 0; i < page.size(); i++) {
+            conn.edges.add(new ReportHitEdge(encodeCursor(offset + i + 1), page.get(i)));
+        }
+        conn.pageInfo = new PageInfo(hasNext, conn.edges.isEmpty() ? null : conn.edges.get(conn.edges.size() - 1).cursor);
+        return conn;
+    }
+
+    private static ReportHit toHit(ResultSet rs, List<String> terms) throws SQLException {
+        ReportResponse dto = new ReportResponse();
+        dto.setId(rs.getLong("id"));
+        dto.setAuthorId(rs.getString("author_id"));
+        dto.setAuthorEmail(rs.getString("author_email"));
+        dto.setTargetUserId(rs.getString("target_id"));
+        dto.setTargetEmail(rs.getString("target_email"));
+        dto.setSubjectUserId(rs.getString("subject_id"));
+        dto.setSubjectEmail(rs.getString("subject_email"));
+        dto.setType(rs.getString("type"));
+        dto.setSeverity(rs.getString("severity"));
+        dto.setTitle(rs.getString("title"));
+        dto.setCreatedAt(instant(rs.getTimestamp("created_at")));
+        dto.setUpdatedAt(instant(rs.getTimestamp("updated_at")));
+        dto.setReadAt(instant(rs.getTimestamp("read_at")));
+        // as in the listings, the body itself is only returned by report(id)
+        String body = rs.getString("body");
+        dto.setPreview(ReportRow.preview(body));
+        return new ReportHit(dto, rs.getDouble("score"), highlights(dto.getTitle(), body, terms));
+    }
+
+    /* ======================= TERMS & HIGHLIGHTS ======================= */
+
+    /** Lower-cased distinct words of the query; boolean-mode operators never get through. */
+    static List<String> terms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query == null) return List.of();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() < MIN_TERM_LENGTH) continue;
+            terms.add(word.toLowerCase(Locale.ROOT));
+            if (terms.size() == MAX_TERMS) break;
+        }
+        return List.copyOf(terms);
+    }
+
+    /**
+     * The title when it matches, then up to {@link #MAX_HIGHLIGHTS} body
+     * fragments around matches. Text is HTML-escaped and each word starting
+     * with a term is wrapped in {@code <mark>}.
+     */
+    static List<String> highlights(String title, String body, List<String> terms) {
+        List<String> out = new ArrayList<>();
+        if (title != null && nextMatch(title, terms, 0) >= 0) {
+            out.add(mark(title, terms, 0, title.length()));
+        }
+        if (body == null) return out;
+
+        int from = 0;
+        while (out.size() < MAX_HIGHLIGHTS) {
+            int at = nextMatch(body, terms, from);
+            if (at < 0) break;
+            int start = Math.max(from, at - SNIPPET_RADIUS);
+            int end = Math.min(body.length(), at + SNIPPET_RADIUS);
+            // never cut a word in two at the end of the fragment
+            while (end < body.length() && Character.isLetterOrDigit(body.charAt(end))) end++;
+            String fragment = mark(body, terms, start, end).strip();
+            out.add((start > 0 ? "…" : "") + fragment + (end < body.length() ? "…" : ""));
+            from = end;
+        }
+        return out;
+    }
+
+    /** Start of the first word at or after from that begins with a term; -1 if none. */
+    private static int nextMatch(String text, List<String> terms, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (wordStart(text, i) && termAt(text, i, terms) > 0) return i;
+        }
+        return -1;
+    }
+
+    private static String mark(String text, List<String> terms, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start + 32);
+        int i = start;
+        while (i < end) {
+            if (wordStart(text, i) && termAt(text, i, terms) > 0) {
+                int j = i;
+                while (j < text.length() && Character.isLetterOrDigit(text.charAt(j))) j++;
+                sb.append("<mark>");
+                escape(text, i, j, sb);
+                sb.append("</mark>");
+                i = j;
+            } else {
+                escape(text, i, i + 1, sb);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean wordStart(String text, int i) {
+        return Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+    }
+
+    private static int termAt(String text, int i, List<String> terms) {
+        for (String t : terms) {
+            if (text.regionMatches(true, i, t, 0, t.length())) return t.length();
+        }
+        return 0;
+    }
+
+    private static void escape(String text, int from, int to, StringBuilder sb) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    /* ======================= CURSOR ======================= */
+
+    private static String encodeCursor(int rank) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("hit|" + rank).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("hit|")) throw new IllegalArgumentException();
+            int rank = Integer.parseInt(raw.substring(4));
+            if (rank < 0 || rank > MAX_HITS) throw new IllegalArgumentException();
+            return rank;
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.time_manager.service.report;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.time_manager.model.Report;
+
+/**
+ * Writes automatic reports, at most once per rule_key.
+ *
+ * All the reports of one event go in a single batched INSERT IGNORE: the
+ * unique rule_key drops the ones already there, without a lookup before and
+ * without a race between two nodes. Keys this node wrote or saw are kept in
+ * a bounded most-recently-used set once their transaction commits, so a
+ * trigger that repeats (every punch of a late day) does not reach the
+ * database at all.
+ */
+@Component
+public class ReportWriter {
+
+    private static final String INSERT =
+            "INSERT IGNORE INTO reports " +
+            "(author_id, target_user_id, subject_user_id, type, severity, rule_key, title, body, created_at, write_token) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final ReportInbox inbox;
+    private final RecentKeys recent;
+
+    public ReportWriter(JdbcTemplate jdbc,
+                        ReportInbox inbox,
+                        @Value("${auto-report.recent-keys:10000}") int recentKeys) {
+        this.jdbc = jdbc;
+        this.inbox = inbox;
+        this.recent = new RecentKeys(recentKeys);
+    }
+
+    /**
+     * Inserts the reports whose rule_key is new and counts them in their
+     * targets' inboxes; every report must carry a rule_key.
+     *
+     * @return the number of reports inserted
+     */
+    public int write(List<Report> reports) {
+        List<Report> fresh = new ArrayList<>(reports.size());
+        for (Report r : reports) {
+            if (r.getRuleKey() == null) throw new IllegalArgumentException("Automatic report without rule_key");
+            if (!recent.contains(r.getRuleKey())) fresh.add(r);
+        }
+        if (fresh.isEmpty()) return 0;
+
+        Timestamp now = Timestamp.from(Instant.now());
+        // tags the rows of this batch, to tell them from duplicates already there
+        String token = UUID.randomUUID().toString();
+        int[] counts = jdbc.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Report r = fresh.get(i);
+                ps.setString(1, r.getAuthor().getId());
+                ps.setString(2, r.getTarget().getId());
+                if (r.getSubject() != null) ps.setString(3, r.getSubject().getId());
+                else ps.setNull(3, Types.CHAR);
+                ps.setString(4, r.getType());
+                ps.setString(5, r.getSeverity());
+                ps.setString(6, r.getRuleKey());
+                ps.setString(7, r.getTitle());
+                ps.setString(8, r.getBody());
+                ps.setTimestamp(9, now);
+                ps.setString(10, token);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return fresh.size();
+            }
+        });
+
+        Map<String, Integer> delivered = new HashMap<>();
+        int inserted = 0;
+        for (Report r : landed(fresh, counts, token)) {
+            delivered.merge(r.getTarget().getId(), 1, Integer::sum);
+            inserted++;
+        }
+        if (!delivered.isEmpty()) inbox.delivered(delivered);
+
+        remember(fresh.stream().map(Report::getRuleKey).toList());
+        return inserted;
+    }
+
+    /**
+     * The reports of the batch that were inserted. Per-row counts say it,
+     * except with bulk statements (the Connector/J default), which answer
+     * SUCCESS_NO_INFO for every row: then the rows this write created are
+     * read back by their write token; older duplicates carry another one.
+     */
+    private List<Report> landed(List<Report> fresh, int[] counts, String token) {
+        if (Arrays.stream(counts).noneMatch(c -> c == Statement.SUCCESS_NO_INFO)) {
+            List<Report> out = new ArrayList<>(fresh.size());
+            for (int i = 0; i < counts.length; i++) {
+                // 0: the key was already there
+                if (counts[i] > 0) out.add(fresh.get(i));
+            }
+            return out;
+        }
+
+        Map<String, Report> byKey = new HashMap<>();
+        List<Object> args = new ArrayList<>(fresh.size() + 1);
+        args.add(token);
+        for (Report r : fresh) {
+            byKey.put(r.getRuleKey(), r);
+            args.add(r.getRuleKey());
+        }
+        List<Report> out = new ArrayList<>(fresh.size());
+        jdbc.query(
+                "SELECT rule_key FROM reports WHERE write_token = ? AND rule_key IN (" +
+                String.join(",", Collections.nCopies(fresh.size(), "?")) + ")",
+                rs -> {
+                    Report r = byKey.get(rs.getString("rule_key"));
+                    if (r != null) out.add(r);
+                },
+                args.toArray());
+        return out;
+    }
+
+    /** A report was deleted: its rule may fire again. */
+    public void forget(String ruleKey) {
+        if (ruleKey != null) recent.remove(ruleKey);
+    }
+
+    // a rolled back insert must not be skipped when the event is retried
+    private void remember(List<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recent.addAll(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recent.addAll(keys);
+            }
+        });
+    }
+
+    /** Most-recently-used rule keys, evicting the eldest past capacity. */
+    private static final class RecentKeys {
+        private final LinkedHashMap<String, Boolean> keys;
+
+        RecentKeys(int capacity) {
+            this.keys = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized boolean contains(String key) {
+            return keys.get(key) != null;
+        }
+
+        synchronized void addAll(List<String> added) {
+            for (String k : added) keys.put(k, Boolean.TRUE);
+        }
+
+        synchronized void remove(String key) {
+            keys.remove(key);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.time_manager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AnalyticsRoutingTest {
+
+    HikariDataSource write = pool("write");
+    HikariDataSource analytics = pool("analytics");
+
+    EntityManagerFactory emf = emf();
+    RoutingTransactionManager primaryTx = new RoutingTransactionManager(emf, false);
+    RoutingTransactionManager analyticsTx = new RoutingTransactionManager(emf, true);
+
+    @AfterEach
+    void close() {
+        write.close();
+        analytics.close();
+        AnalyticsRoutingDataSource.route(false);
+    }
+
+    @Test
+    void routing_shouldUseWritePool_unlessAnalyticsRouteIsSet() throws Exception {
+        AnalyticsRoutingDataSource routing = new AnalyticsRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                AnalyticsRoutingDataSource.WRITE, write,
+                AnalyticsRoutingDataSource.ANALYTICS, analytics));
+        routing.setDefaultTargetDataSource(write);
+        routing.afterPropertiesSet();
+
+        assertThat(url(routing)).contains("mem:write");
+
+        AnalyticsRoutingDataSource.route(true);
+        assertThat(url(routing)).contains("mem:analytics");
+        assertThat(analytics.getHikariPoolMXBean().getTotalConnections()).isPositive();
+    }
+
+    @Test
+    void analyticsTx_shouldRouteReadOnlyTransactionsOnly() {
+        assertThat(inTx(analyticsTx, true)).isTrue();
+        assertThat(inTx(analyticsTx, false)).isFalse();
+        assertThat(inTx(primaryTx, true)).isFalse();
+        assertThat(AnalyticsRoutingDataSource.isAnalytics()).isFalse();
+    }
+
+    @Test
+    void nestedWrite_shouldUseWritePool_andRestoreAnalyticsRoute() {
+        TransactionTemplate read = new TransactionTemplate(analyticsTx);
+        read.setReadOnly(true);
+        TransactionTemplate writeNew = new TransactionTemplate(primaryTx);
+        writeNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        read.executeWithoutResult(outer -> {
+            assertThat(AnalyticsRoutingDataSource.isAnalytics()).isTrue();
+            writeNew.executeWithoutResult(inner -> assertThat(AnalyticsRoutingDataSource.isAnalytics()).isFalse());
+            assertThat(AnalyticsRoutingDataSource.isAnalytics()).isTrue();
+        });
+        assertThat(AnalyticsRoutingDataSource.isAnalytics()).isFalse();
+    }
+
+    private static boolean inTx(RoutingTransactionManager tx, boolean readOnly) {
+        TransactionTemplate t = new TransactionTemplate(tx);
+        t.setReadOnly(readOnly);
+        return Boolean.TRUE.equals(t.execute(s -> AnalyticsRoutingDataSource.isAnalytics()));
+    }
+
+    private static String url(AnalyticsRoutingDataSource routing) throws Exception {
+        try (Connection c = routing.getConnection()) {
+            return c.getMetaData().getURL();
+        }
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        ds.setPoolName(name);
+        ds.setMaximumPoolSize(2);
+        return ds;
+    }
+
+    /** Resource-local EntityManagers that hold no connection: only the route is observed. */
+    private static EntityManagerFactory emf() {
+        EntityManagerFactory emf = mock(EntityManagerFactory.class);
+        when(emf.createEntityManager()).thenAnswer(inv -> {
+            EntityManager em = mock(EntityManager.class);
+            when(em.getTransaction()).thenReturn(mock(EntityTransaction.class));
+            return em;
+        });
+        return emf;
+    }
+}
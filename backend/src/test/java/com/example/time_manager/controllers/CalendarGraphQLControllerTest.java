@@ -0,0 +1,46 @@
+package com.example.time_manager.controllers;
+
+import com.example.time_manager.dto.calendar.Holiday;
+import com.example.time_manager.graphql.controller.CalendarGraphQLController;
+import com.example.time_manager.service.CalendarService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CalendarGraphQLControllerTest {
+
+    CalendarService calendarService = mock(CalendarService.class);
+    CalendarGraphQLController controller = new CalendarGraphQLController(calendarService);
+
+    @Test
+    void testHolidays_shouldParseDatesAndDelegate() {
+        List<Holiday> expected = List.of(new Holiday(LocalDate.of(2025, 5, 1), "Labour Day"));
+        when(calendarService.holidays(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31))).thenReturn(expected);
+
+        assertThat(controller.holidays("2025-01-01", "2025-12-31")).isSameAs(expected);
+    }
+
+    @Test
+    void testSetAndClearHoliday_shouldDelegate() {
+        LocalDate day = LocalDate.of(2025, 5, 1);
+        Holiday h = new Holiday(day, "Labour Day");
+        when(calendarService.setHoliday(day, "Labour Day")).thenReturn(h);
+        when(calendarService.clearHoliday(day)).thenReturn(true);
+
+        assertThat(controller.setHoliday("2025-05-01", "Labour Day")).isSameAs(h);
+        assertThat(controller.clearHoliday("2025-05-01")).isTrue();
+    }
+
+    @Test
+    void testSetHoliday_invalidDate_shouldThrow() {
+        assertThatThrownBy(() -> controller.setHoliday("01/05/2025", "x"))
+                .isInstanceOf(DateTimeParseException.class);
+        verifyNoInteractions(calendarService);
+    }
+}
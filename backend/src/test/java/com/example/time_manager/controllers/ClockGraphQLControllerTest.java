@@ -1,9 +1,13 @@
 package com.example.time_manager.controllers;
 
+import com.example.time_manager.dto.clock.ClockBatchPunch;
+import com.example.time_manager.dto.clock.ClockBatchResult;
+import com.example.time_manager.dto.clock.ClockConnection;
 import com.example.time_manager.dto.clock.ClockCreateRequest;
 import com.example.time_manager.dto.clock.ClockResponse;
 import com.example.time_manager.graphql.controller.ClockGraphQLController;
 import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.service.ClockIngestService;
 import com.example.time_manager.service.ClockService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.*;
@@ -23,12 +27,15 @@ class ClockGraphQLControllerTest {
     @Mock
     private ClockService clockService;
 
+    @Mock
+    private ClockIngestService clockIngestService;
+
     private ClockGraphQLController controller;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
-        controller = new ClockGraphQLController(clockService);
+        controller = new ClockGraphQLController(clockService, clockIngestService);
     }
 
     @Test
@@ -121,6 +128,40 @@ class ClockGraphQLControllerTest {
         verify(clockService).createForUser("U1", input);
     }
 
+    @Test
+    void testMyClockHistory_DelegatesWithCurrentUser() {
+        Authentication auth = new TestingAuthenticationToken("john@example.com", "pass");
+        ClockConnection expected = new ClockConnection();
+        when(clockService.historyForEmail("john@example.com", 20, "abc")).thenReturn(expected);
+
+        assertSame(expected, controller.myClockHistory(20, "abc", auth));
+    }
+
+    @Test
+    void testClockHistoryForUser_Delegates() {
+        ClockConnection expected = new ClockConnection();
+        when(clockService.historyForUser("U1", null, null)).thenReturn(expected);
+
+        assertSame(expected, controller.clockHistoryForUser("U1", null, null));
+    }
+
+    @Test
+    void testIngestClockBatch_DelegatesToIngestService() {
+        List<ClockBatchPunch> input = List.of(
+                new ClockBatchPunch("U1", ClockKind.IN, Instant.parse("2024-05-01T08:00:00Z")),
+                new ClockBatchPunch("U2", ClockKind.IN, null)
+        );
+
+        ClockBatchResult expected = new ClockBatchResult();
+        expected.accepted = 2;
+        when(clockIngestService.ingest(input)).thenReturn(expected);
+
+        ClockBatchResult result = controller.ingestClockBatch(input);
+
+        assertEquals(2, result.accepted);
+        verify(clockIngestService).ingest(input);
+    }
+
     @Test
     void testHandleIllegalState_ReturnsMessage() {
         String result = controller.handleIllegalState(new IllegalStateException("Clock overlap"));
@@ -0,0 +1,53 @@
+package com.example.time_manager.controllers;
+
+import com.example.time_manager.controller.ExportController;
+import com.example.time_manager.service.export.TimesheetExportService;
+import com.example.time_manager.service.export.TimesheetExportService.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ExportControllerTest {
+
+    TimesheetExportService exportService = mock(TimesheetExportService.class);
+    ExportController controller = new ExportController(exportService);
+
+    @Test
+    void timesheet_shouldSetDownloadHeadersAndStream() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.timesheet("2025-01-01", "2025-01-31", "ndjson", response);
+
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertThat(response.getHeader("Content-Disposition"))
+                .isEqualTo("attachment; filename=\"timesheet_2025-01-01_2025-01-31.ndjson\"");
+        verify(exportService).export(eq(LocalDate.of(2025, 1, 1)), eq(LocalDate.of(2025, 1, 31)),
+                eq(Format.NDJSON), any());
+    }
+
+    @Test
+    void timesheet_invalidInput_shouldFailBeforeWriting() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThatThrownBy(() -> controller.timesheet("01/01/2025", "2025-01-31", "csv", response))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> controller.timesheet("2025-01-01", "2025-01-31", "xlsx", response))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(exportService, never()).export(any(), any(), any(), any());
+        assertThat(response.isCommitted()).isFalse();
+    }
+
+    @Test
+    void badRequest_shouldReturn400WithMessage() {
+        var res = controller.badRequest(new IllegalArgumentException("Period too long"));
+
+        assertThat(res.getStatusCode().value()).isEqualTo(400);
+        assertThat(res.getBody()).isEqualTo("Period too long");
+    }
+}
@@ -3,15 +3,24 @@ package com.example.time_manager.controllers;
 import com.example.time_manager.graphql.controller.KpiGraphQLController;
 import com.example.time_manager.model.User;
 import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.KpiGranularity;
+import com.example.time_manager.model.kpi.KpiJob;
+import com.example.time_manager.model.kpi.KpiPoint;
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.PunctualityStats;
 import com.example.time_manager.model.kpi.TeamKpiSummary;
 import com.example.time_manager.model.kpi.UserKpiSummary;
 import com.example.time_manager.repository.UserRepository;
+import com.example.time_manager.model.Team;
 import com.example.time_manager.service.KpiService;
+import com.example.time_manager.service.TeamService;
+import com.example.time_manager.service.kpi.KpiJobService;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,7 +32,9 @@ class KpiGraphQLControllerTest {
 
     KpiService kpiService = mock(KpiService.class);
     UserRepository userRepository = mock(UserRepository.class);
-    KpiGraphQLController controller = new KpiGraphQLController(kpiService, userRepository);
+    TeamService teamService = mock(TeamService.class);
+    KpiJobService kpiJobService = mock(KpiJobService.class);
+    KpiGraphQLController controller = new KpiGraphQLController(kpiService, userRepository, teamService, kpiJobService);
 
     @Test
     void testGlobalKpi_shouldCallServiceWithParsedDates() {
@@ -55,6 +66,66 @@ class KpiGraphQLControllerTest {
         verifyNoMoreInteractions(kpiService);
     }
 
+    @Test
+    void testTeamKpis_shouldCallServiceOnceForAllTeams() {
+        List<TeamKpiSummary> expected = List.of(new TeamKpiSummary(), new TeamKpiSummary());
+        LocalDate start = LocalDate.of(2025, 2, 1);
+        LocalDate end = LocalDate.of(2025, 2, 28);
+
+        when(kpiService.getTeams(List.of(7, 9), start, end)).thenReturn(expected);
+
+        List<TeamKpiSummary> result = controller.teamKpis(List.of(7, 9), "2025-02-01", "2025-02-28");
+
+        assertThat(result).isSameAs(expected);
+        verify(kpiService).getTeams(List.of(7, 9), start, end);
+        verifyNoMoreInteractions(kpiService);
+    }
+
+    @Test
+    void testMyManagedTeamsKpi_shouldUseManagedTeams() {
+        Team a = mock(Team.class);
+        Team b = mock(Team.class);
+        when(a.getId()).thenReturn(3L);
+        when(b.getId()).thenReturn(5L);
+        when(teamService.findManagedByCurrentUser()).thenReturn(List.of(a, b));
+        LocalDate start = LocalDate.of(2025, 2, 1);
+        LocalDate end = LocalDate.of(2025, 2, 28);
+        List<TeamKpiSummary> expected = List.of(new TeamKpiSummary(), new TeamKpiSummary());
+        when(kpiService.getTeams(List.of(3, 5), start, end)).thenReturn(expected);
+
+        List<TeamKpiSummary> result = controller.myManagedTeamsKpi("2025-02-01", "2025-02-28");
+
+        assertThat(result).isSameAs(expected);
+        verify(kpiService).getTeams(List.of(3, 5), start, end);
+    }
+
+    @Test
+    void testKpiSeries_shouldCallServiceWithParsedDates() {
+        List<KpiPoint> expected = List.of(new KpiPoint());
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        LocalDate end = LocalDate.of(2025, 12, 31);
+
+        when(kpiService.getSeries(KpiScope.TEAM, "7", start, end, KpiGranularity.WEEK)).thenReturn(expected);
+
+        List<KpiPoint> result = controller.kpiSeries(KpiScope.TEAM, "7", "2025-01-01", "2025-12-31", KpiGranularity.WEEK);
+
+        assertThat(result).isSameAs(expected);
+        verify(kpiService).getSeries(KpiScope.TEAM, "7", start, end, KpiGranularity.WEEK);
+        verifyNoMoreInteractions(kpiService);
+    }
+
+    @Test
+    void testPunctuality_shouldCallServiceWithParsedDates() {
+        PunctualityStats expected = new PunctualityStats(null, null);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        LocalDate end = LocalDate.of(2025, 3, 31);
+
+        when(kpiService.getPunctuality(KpiScope.USER, "u1", start, end)).thenReturn(expected);
+
+        assertThat(controller.punctuality(KpiScope.USER, "u1", "2025-01-01", "2025-03-31")).isSameAs(expected);
+        verify(kpiService).getPunctuality(KpiScope.USER, "u1", start, end);
+    }
+
     @Test
     void testUserKpi_shouldCallServiceWithParsedDates() {
         UUID userId = UUID.randomUUID();
@@ -147,7 +218,7 @@ class KpiGraphQLControllerTest {
 
     @Test
     void testConstructorStoresDependencies() {
-        assertThat(new KpiGraphQLController(kpiService, userRepository)).isNotNull();
+        assertThat(new KpiGraphQLController(kpiService, userRepository, teamService)).isNotNull();
     }
 
     @Test
@@ -169,4 +240,29 @@ class KpiGraphQLControllerTest {
         verify(userRepository).findByEmail("john.doe@epitech.eu");
         verifyNoInteractions(kpiService);
     }
+
+    @Test
+    void testStartKpiJob_shouldSubmitWithRequesterId() {
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getName()).thenReturn("boss@test.com");
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("11111111-1111-1111-1111-111111111111");
+        when(userRepository.findByEmail("boss@test.com")).thenReturn(Optional.of(user));
+        KpiJob expected = new KpiJob();
+        when(kpiJobService.start(KpiScope.TEAM, "7", LocalDate.of(2023, 1, 1), LocalDate.of(2024, 12, 31),
+                "11111111-1111-1111-1111-111111111111")).thenReturn(expected);
+
+        KpiJob result = controller.startKpiJob(KpiScope.TEAM, "7", "2023-01-01", "2024-12-31", authentication);
+
+        assertThat(result).isSameAs(expected);
+        verifyNoInteractions(kpiService);
+    }
+
+    @Test
+    void testKpiJob_shouldDelegateToJobService() {
+        KpiJob expected = new KpiJob();
+        when(kpiJobService.find("job-1")).thenReturn(expected);
+
+        assertThat(controller.kpiJob("job-1")).isSameAs(expected);
+    }
 }
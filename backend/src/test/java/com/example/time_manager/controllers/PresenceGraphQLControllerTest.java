@@ -0,0 +1,36 @@
+package com.example.time_manager.controllers;
+
+import com.example.time_manager.dto.clock.PresenceEntry;
+import com.example.time_manager.graphql.controller.PresenceGraphQLController;
+import com.example.time_manager.service.PresenceService;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PresenceGraphQLControllerTest {
+
+    PresenceService presenceService = mock(PresenceService.class);
+    PresenceGraphQLController controller = new PresenceGraphQLController(presenceService);
+
+    @Test
+    void testTeamPresence_shouldDelegateToService() {
+        List<PresenceEntry> expected = List.of(new PresenceEntry());
+        when(presenceService.teamPresence(3L)).thenReturn(expected);
+
+        assertThat(controller.teamPresence(3L)).isSameAs(expected);
+        verify(presenceService).teamPresence(3L);
+        verifyNoMoreInteractions(presenceService);
+    }
+
+    @Test
+    void testTeamPresenceChanged_shouldReturnServiceStream() {
+        Flux<PresenceEntry> expected = Flux.empty();
+        when(presenceService.teamPresenceChanges(3L)).thenReturn(expected);
+
+        assertThat(controller.teamPresenceChanged(3L)).isSameAs(expected);
+    }
+}
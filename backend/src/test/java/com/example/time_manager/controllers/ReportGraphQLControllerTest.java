@@ -1,7 +1,9 @@
 package com.example.time_manager.controllers;
 
+import com.example.time_manager.dto.report.ReportConnection;
 import com.example.time_manager.dto.report.ReportCreateRequest;
 import com.example.time_manager.dto.report.ReportResponse;
+import com.example.time_manager.dto.report.ReportSearchConnection;
 import com.example.time_manager.dto.report.ReportUpdateRequest;
 import com.example.time_manager.graphql.controller.ReportGraphQLController;
 import com.example.time_manager.service.ReportService;
@@ -10,6 +12,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.core.Authentication;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -118,6 +121,34 @@ class ReportGraphQLControllerTest {
         verify(reportService).getVisibleTo("john@example.com", 5L);
     }
 
+    @Test
+    void testReportInbox_DelegatesPaging() {
+        ReportConnection page = new ReportConnection();
+        when(reportService.inboxForEmail("john@example.com", 20, "abc")).thenReturn(page);
+
+        assertSame(page, controller.reportInbox(20, "abc", auth));
+    }
+
+    @Test
+    void testSearchReports_ParsesDates() {
+        ReportSearchConnection hits = new ReportSearchConnection();
+        when(reportService.searchVisibleTo("john@example.com", "late", "LATE", null,
+                LocalDate.of(2025, 1, 1), null, 20, null)).thenReturn(hits);
+
+        assertSame(hits, controller.searchReports("late", "LATE", null, "2025-01-01", null, 20, null, auth));
+    }
+
+    @Test
+    void testUnreadCountAndMarkRead() {
+        when(reportService.unreadCountForEmail("john@example.com")).thenReturn(3);
+        when(reportService.markReadForEmail("john@example.com", 5L)).thenReturn(true);
+        when(reportService.markAllReadForEmail("john@example.com")).thenReturn(2);
+
+        assertEquals(3, controller.unreadReportCount(auth));
+        assertTrue(controller.markReportRead(5L, auth));
+        assertEquals(2, controller.markAllReportsRead(auth));
+    }
+
     @Test
     void testCreateReport_ServiceThrowsException_Propagates() {
         ReportCreateRequest req = new ReportCreateRequest();
@@ -177,7 +177,7 @@ class UserGraphQLControllerTest {
     void testUpdateUser() {
         UpdateUserInput input = new UpdateUserInput(
                 "42", "John", "Doe", "john@test.com",
-                null, null, null, null, null);
+                null, null, null, null, null, null);
 
         User u = new User();
         u.setId("42");
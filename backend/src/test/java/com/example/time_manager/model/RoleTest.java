@@ -0,0 +1,45 @@
+package com.example.time_manager.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RoleTest {
+
+    @Test
+    void maskOf_shouldReadEveryStoredShape() {
+        int employeeManager = Role.EMPLOYEE.bit() | Role.MANAGER.bit();
+
+        assertThat(Role.maskOf("[\"employee\",\"manager\"]")).isEqualTo(employeeManager);
+        assertThat(Role.maskOf("[\"employee manager\"]")).isEqualTo(employeeManager);
+        assertThat(Role.maskOf("manager,employee")).isEqualTo(employeeManager);
+        assertThat(Role.maskOf(" [ ADMIN ]; ")).isEqualTo(Role.ADMIN.bit());
+        assertThat(Role.maskOf("ROLE_ADMIN")).isEqualTo(Role.ADMIN.bit());
+    }
+
+    @Test
+    void maskOf_shouldIgnoreUnknownNames() {
+        assertThat(Role.maskOf(null)).isZero();
+        assertThat(Role.maskOf("[]")).isZero();
+        assertThat(Role.maskOf("[null, \"superadmin\"]")).isZero();
+        assertThat(Role.maskOf("[invalid-json")).isZero();
+    }
+
+    @Test
+    void from_and_of_shouldRoundTrip() {
+        assertThat(Role.from("manager")).isEqualTo(Role.MANAGER);
+        assertThat(Role.from("USER")).isNull();
+        assertThat(Role.of(Role.ADMIN.bit() | Role.EMPLOYEE.bit())).containsExactly(Role.EMPLOYEE, Role.ADMIN);
+        assertThat(Role.of(0)).isEmpty();
+    }
+
+    @Test
+    void bits_areStoredValuesAndNeverMove() {
+        assertThat(Role.EMPLOYEE.bit()).isEqualTo(1);
+        assertThat(Role.MANAGER.bit()).isEqualTo(2);
+        assertThat(Role.ADMIN.bit()).isEqualTo(4);
+        assertThat(Role.TERMINAL.bit()).isEqualTo(8);
+        assertThat(Role.maskOf("[\"terminal\"]")).isEqualTo(Role.TERMINAL.bit());
+        assertThat(Role.from("ROLE_TERMINAL")).isEqualTo(Role.TERMINAL);
+    }
+}
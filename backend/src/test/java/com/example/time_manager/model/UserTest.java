@@ -41,4 +41,45 @@ class UserTest {
 
         assertThat(user.getAzureOid()).isEqualTo("new-oid");
     }
+
+    @Test
+    void setRole_shouldDeriveRoleMask() {
+        User user = new User();
+
+        user.setRole("[\"employee\",\"manager\"]");
+
+        assertThat(user.getRoleMask()).isEqualTo(Role.EMPLOYEE.bit() | Role.MANAGER.bit());
+        assertThat(user.hasRole(Role.MANAGER)).isTrue();
+        assertThat(user.hasRole(Role.ADMIN)).isFalse();
+    }
+
+    @Test
+    void setRole_shouldClearRemovedRoles() {
+        User user = new User();
+        user.setRole("[\"admin\"]");
+
+        user.setRole(null);
+
+        assertThat(user.getRoleMask()).isZero();
+        assertThat(user.hasRole(Role.ADMIN)).isFalse();
+    }
+
+    @Test
+    void hasRole_shouldMatchWholeRoleNamesWhateverTheFormatting() {
+        User user = new User();
+
+        user.setRole(" [ ADMIN ]; ");
+        assertThat(user.hasRole(Role.ADMIN)).isTrue();
+
+        user.setRole("manager,employee");
+        assertThat(user.hasRole(Role.MANAGER)).isTrue();
+        assertThat(user.hasRole(Role.EMPLOYEE)).isTrue();
+
+        user.setRole("   ");
+        assertThat(user.hasRole(Role.ADMIN)).isFalse();
+
+        user.setRole("[\"SUPER_ADMIN\", \"TEAM_MANAGER_LEAD\"]");
+        assertThat(user.hasRole(Role.ADMIN)).isFalse();
+        assertThat(user.hasRole(Role.MANAGER)).isFalse();
+    }
 }
@@ -94,6 +94,22 @@ class AppUserDetailsServiceTest {
                 .containsExactlyInAnyOrder("EMPLOYEE", "ADMIN");
     }
 
+    @Test
+    void loadUserByUsername_terminalAccount_shouldGetTerminalAuthority() {
+        UserRepository repo = mock(UserRepository.class);
+        AppUserDetailsService service = new AppUserDetailsService(repo);
+
+        User u = new User();
+        u.setEmail("badge-hall@test.com");
+        u.setPassword("hashed");
+        u.setRole("[\"terminal\"]");
+        when(repo.findByEmail("badge-hall@test.com")).thenReturn(Optional.of(u));
+
+        assertThat(service.loadUserByUsername("badge-hall@test.com").getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("TERMINAL");
+    }
+
     @Test
     void mapAuthorities_shouldReturnRoles_whenInvalidJson_plainString() {
         UserRepository repo = mock(UserRepository.class);
@@ -7,12 +7,17 @@ import com.example.time_manager.model.absence.*;
 import com.example.time_manager.repository.*;
 import com.example.time_manager.service.AutoReportService;
 import com.example.time_manager.service.WorkScheduleService;
+import com.example.time_manager.service.report.ReportWriter;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.example.time_manager.model.absence.AbsenceType.RTT;
 import static org.assertj.core.api.Assertions.*;
@@ -22,11 +27,11 @@ class AutoReportServiceTest {
 
     UserRepository userRepo = mock(UserRepository.class);
     TeamMemberRepository teamRepo = mock(TeamMemberRepository.class);
-    ReportRepository reportRepo = mock(ReportRepository.class);
+    ReportWriter reportWriter = mock(ReportWriter.class);
     WorkScheduleService workScheduleService = mock(WorkScheduleService.class);
 
     AutoReportService service =
-            new AutoReportService(userRepo, teamRepo, reportRepo, workScheduleService);
+            new AutoReportService(userRepo, teamRepo, reportWriter, workScheduleService);
 
     @Test
     void onAbsenceRequested_shouldCreateReportForManager() {
@@ -38,11 +43,10 @@ class AutoReportServiceTest {
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo).save(any(Report.class));
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -54,18 +58,17 @@ class AutoReportServiceTest {
 
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of());
-        when(userRepo.findAll()).thenReturn(List.of(admin));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
     void onAbsenceRequested_shouldReturn_whenNull() {
         service.onAbsenceRequested(null);
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -78,11 +81,10 @@ class AutoReportServiceTest {
 
         when(userRepo.findByEmail("manager@test.com")).thenReturn(Optional.of(manager));
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         service.onAbsenceStatusChanged("manager@test.com", a, AbsenceStatus.PENDING);
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -92,7 +94,7 @@ class AutoReportServiceTest {
 
         service.onAbsenceStatusChanged("x@test.com", a, AbsenceStatus.APPROVED);
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -109,14 +111,13 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(cr));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(cr));
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -132,7 +133,6 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(
@@ -144,20 +144,20 @@ class AutoReportServiceTest {
                 employee.getId(),
                 ClockKind.OUT,
                 out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out))
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out))
         );
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
 
-        reset(reportRepo);
+        reset(reportWriter);
         service.onClockCreated(
                 employee.getId(),
                 ClockKind.OUT,
                 out,
-                List.of(clock(ClockKind.OUT, Instant.parse("2025-01-06T21:00:00Z"))) // last.at != out
+                day(clock(ClockKind.OUT, Instant.parse("2025-01-06T21:00:00Z"))) // last.at != out
         );
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -176,7 +176,6 @@ class AutoReportServiceTest {
         when(userRepo.findByEmail("system@time-manager.local"))
                 .thenReturn(Optional.empty());
 
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         when(workScheduleService.listForUser("U1"))
                 .thenReturn(List.of(
@@ -184,7 +183,7 @@ class AutoReportServiceTest {
                 ));
 
         assertThatThrownBy(() ->
-                service.onClockCreated("U1", ClockKind.IN, in, List.of(cr)))
+                service.onClockCreated("U1", ClockKind.IN, in, day(cr)))
                 .isInstanceOf(EntityNotFoundException.class)
                 .hasMessageContaining("SYSTEM user missing");
     }
@@ -196,11 +195,11 @@ class AutoReportServiceTest {
 
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of());
-        when(userRepo.findAll()).thenReturn(List.of());
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of());
 
         service.onAbsenceRequested(a);
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -214,34 +213,35 @@ class AutoReportServiceTest {
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo).save(argThat(r -> r.getBody().contains("Reason : Medical")));
+        verify(reportWriter).write(argThat(reports -> reports.size() == 1 && reports.get(0).getBody().contains("Reason : Medical")));
     }
 
     @Test
-    void onAbsenceRequested_shouldSkip_whenRuleKeyExists() {
+    void onAbsenceRequested_shouldWriteAllManagersInOneCall() {
         User employee = makeUser("U1", "emp@test.com", "[\"EMPLOYEE\"]");
-        User manager = makeUser("M1", "manager@test.com", "[\"MANAGER\"]");
+        User m1 = makeUser("M1", "m1@test.com", "[\"MANAGER\"]");
+        User m2 = makeUser("M2", "m2@test.com", "[\"MANAGER\"]");
 
         Absence a = makeAbsence(employee.getId());
 
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
-        when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(true);
+        when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(m1, m2));
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter).write(argThat(reports -> reports.size() == 2
+                && reports.stream().map(Report::getRuleKey).collect(Collectors.toSet()).equals(Set.of(
+                        "ABSENCE_REQUEST:" + a.getId() + ":M1", "ABSENCE_REQUEST:" + a.getId() + ":M2"))));
     }
 
     @Test
     void onAbsenceStatusChanged_shouldReturn_whenAbsenceNull() {
         service.onAbsenceStatusChanged("x@test.com", null, null);
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -254,21 +254,20 @@ class AutoReportServiceTest {
 
         when(userRepo.findByEmail(manager.getEmail())).thenReturn(Optional.of(manager));
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         service.onAbsenceStatusChanged(manager.getEmail(), a, AbsenceStatus.PENDING);
 
-        verify(reportRepo).save(argThat(r -> r.getSeverity().equals("WARN")));
+        verify(reportWriter).write(argThat(reports -> reports.size() == 1 && reports.get(0).getSeverity().equals("WARN")));
     }
 
     @Test
     void onClockCreated_shouldReturn_whenInvalidParams() {
-        service.onClockCreated(null, ClockKind.IN, Instant.now(), List.of());
-        service.onClockCreated("U", null, Instant.now(), List.of());
-        service.onClockCreated("U", ClockKind.IN, null, List.of());
-        service.onClockCreated("U", ClockKind.IN, Instant.now(), null);
+        service.onClockCreated(null, ClockKind.IN, Instant.now(), day());
+        service.onClockCreated("U", null, Instant.now(), day());
+        service.onClockCreated("U", ClockKind.IN, null, day());
+        service.onClockCreated("U", ClockKind.IN, Instant.now(), (DailyAttendance) null);
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -277,10 +276,10 @@ class AutoReportServiceTest {
                 "U",
                 ClockKind.IN,
                 Instant.now(),
-                List.of(clock(ClockKind.OUT, Instant.now()))
+                day(clock(ClockKind.OUT, Instant.now()))
         );
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -292,10 +291,10 @@ class AutoReportServiceTest {
                 "U",
                 ClockKind.IN,
                 t2,
-                List.of(clock(ClockKind.IN, t1), clock(ClockKind.IN, t2))
+                day(clock(ClockKind.IN, t1), clock(ClockKind.IN, t2))
         );
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -307,16 +306,15 @@ class AutoReportServiceTest {
         Instant in = Instant.parse("2025-01-06T12:10:00Z");
 
         when(userRepo.findById("M1")).thenReturn(Optional.of(manager));
-        when(userRepo.findAll()).thenReturn(List.of(admin));
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         when(workScheduleService.listForUser("M1"))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
-        service.onClockCreated("M1", ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated("M1", ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -328,9 +326,9 @@ class AutoReportServiceTest {
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.PM, "13:00:00", "17:00:00")));
 
         service.onClockCreated("U", ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -343,9 +341,8 @@ class AutoReportServiceTest {
         Instant out = Instant.parse("2025-01-06T23:00:00Z");
 
         when(userRepo.findById("M1")).thenReturn(Optional.of(manager));
-        when(userRepo.findAll()).thenReturn(List.of(admin));
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         when(workScheduleService.listForUser("M1"))
                 .thenReturn(List.of(
@@ -354,9 +351,9 @@ class AutoReportServiceTest {
                 ));
 
         service.onClockCreated("M1", ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -376,7 +373,7 @@ class AutoReportServiceTest {
 
         Instant in = Instant.parse("2025-01-07T12:10:00Z");
 
-        service.onClockCreated("U", ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated("U", ClockKind.IN, in, day(clock(ClockKind.IN, in)));
     }
 
     @Test
@@ -390,15 +387,13 @@ class AutoReportServiceTest {
         when(userRepo.findByEmail(manager.getEmail())).thenReturn(Optional.of(manager));
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
 
-        when(reportRepo.existsByRuleKey(any())).thenReturn(true);
-
         service.onAbsenceStatusChanged(
                 manager.getEmail(),
                 a,
                 AbsenceStatus.REJECTED
         );
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter).write(argThat(reports -> reports.size() == 1));
     }
 
     @Test
@@ -412,11 +407,9 @@ class AutoReportServiceTest {
         when(userRepo.findByEmail(manager.getEmail())).thenReturn(Optional.of(manager));
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
 
-        when(reportRepo.existsByRuleKey(any())).thenReturn(true);
-
         service.onAbsenceStatusChanged(manager.getEmail(), a, null);
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter).write(argThat(reports -> reports.size() == 1));
     }
 
     @Test
@@ -433,10 +426,10 @@ class AutoReportServiceTest {
                 employee.getId(),
                 ClockKind.OUT,
                 out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out))
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out))
         );
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -448,40 +441,40 @@ class AutoReportServiceTest {
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-06T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-06T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-06T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-06T17:00:00Z"))));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-07T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-07T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-07T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-07T17:00:00Z"))));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-08T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-08T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-08T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-08T17:00:00Z"))));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-09T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-09T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-09T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-09T17:00:00Z"))));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-10T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-10T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-10T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-10T17:00:00Z"))));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-11T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-11T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-11T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-11T17:00:00Z"))));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT,
                 Instant.parse("2025-01-12T17:00:00Z"),
-                List.of(clock(ClockKind.IN, Instant.parse("2025-01-12T09:00:00Z")),
+                day(clock(ClockKind.IN, Instant.parse("2025-01-12T09:00:00Z")),
                         clock(ClockKind.OUT, Instant.parse("2025-01-12T17:00:00Z"))));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -493,12 +486,11 @@ class AutoReportServiceTest {
 
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(null);
-        when(userRepo.findAll()).thenReturn(List.of(admin));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -511,12 +503,11 @@ class AutoReportServiceTest {
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(null);
-        when(userRepo.findAll()).thenReturn(List.of(admin));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -530,12 +521,11 @@ class AutoReportServiceTest {
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(otherEmployee));
-        when(userRepo.findAll()).thenReturn(List.of(admin));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
 
         service.onAbsenceRequested(a);
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -550,15 +540,14 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(employee));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(userRepo.findAll()).thenReturn(List.of(admin));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
+        when(userRepo.findWithRole(Role.ADMIN)).thenReturn(List.of(admin));
 
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -571,9 +560,9 @@ class AutoReportServiceTest {
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, null, "12:00:00")));
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -586,9 +575,9 @@ class AutoReportServiceTest {
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -602,9 +591,9 @@ class AutoReportServiceTest {
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
     @Test
     void onClockCreated_shouldReturn_whenOutClocksEmpty() {
@@ -612,9 +601,9 @@ class AutoReportServiceTest {
 
         Instant out = Instant.parse("2025-01-06T17:00:00Z");
 
-        service.onClockCreated(employee.getId(), ClockKind.OUT, out, List.of());
+        service.onClockCreated(employee.getId(), ClockKind.OUT, out, day());
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -630,16 +619,15 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         // Only AM schedule, no PM - so pmEnd will be null
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -656,13 +644,13 @@ class AutoReportServiceTest {
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.PM, null, null)));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
-    void onClockCreated_shouldSkip_whenLateReportRuleKeyExists() {
+    void onClockCreated_lateReport_shouldCarryRuleKeyAndSystemAuthor() {
         User employee = makeUser("U1", "emp@test.com", "[\"EMPLOYEE\"]");
         User manager = makeUser("M1", "manager@test.com", "[\"MANAGER\"]");
         User system = makeUser("SYS", "system@time-manager.local", "[\"ADMIN\"]");
@@ -673,18 +661,20 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(true);
 
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter).write(argThat(reports -> reports.size() == 1
+                && reports.get(0).getRuleKey().startsWith("LATE_ARRIVAL:")
+                && reports.get(0).getRuleKey().endsWith(":U1->M1")
+                && reports.get(0).getAuthor() == system));
     }
 
     @Test
-    void onClockCreated_shouldSkip_whenOverworkReportRuleKeyExists() {
+    void onClockCreated_overworkReport_shouldCarryRuleKeyAndSystemAuthor() {
         User employee = makeUser("U1", "emp@test.com", "[\"EMPLOYEE\"]");
         User manager = makeUser("M1", "manager@test.com", "[\"MANAGER\"]");
         User system = makeUser("SYS", "system@time-manager.local", "[\"ADMIN\"]");
@@ -696,15 +686,17 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(true);
 
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "17:00:00")));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter).write(argThat(reports -> reports.size() == 1
+                && reports.get(0).getRuleKey().startsWith("OVERWORK:")
+                && reports.get(0).getRuleKey().endsWith(":U1->M1")
+                && reports.get(0).getAuthor() == system));
     }
 
     @Test
@@ -716,9 +708,9 @@ class AutoReportServiceTest {
         when(userRepo.findById(employee.getId())).thenReturn(Optional.of(employee));
         when(workScheduleService.listForUser(employee.getId())).thenReturn(List.of());
 
-        service.onClockCreated(employee.getId(), ClockKind.IN, in, List.of(clock(ClockKind.IN, in)));
+        service.onClockCreated(employee.getId(), ClockKind.IN, in, day(clock(ClockKind.IN, in)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -735,15 +727,14 @@ class AutoReportServiceTest {
         when(teamRepo.findTeamIdsByUserId(employee.getId())).thenReturn(List.of(1L));
         when(teamRepo.findUsersByTeamId(1L)).thenReturn(List.of(manager));
         when(userRepo.findByEmail("system@time-manager.local")).thenReturn(Optional.of(system));
-        when(reportRepo.existsByRuleKey(any())).thenReturn(false);
 
         when(workScheduleService.listForUser(employee.getId()))
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "12:00:00")));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in1), clock(ClockKind.IN, in2), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in1), clock(ClockKind.IN, in2), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo).save(any());
+        verify(reportWriter).write(anyList());
     }
 
     @Test
@@ -760,9 +751,9 @@ class AutoReportServiceTest {
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.PM, "13:00:00", "17:00:00")));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out2,
-                List.of(clock(ClockKind.OUT, out1), clock(ClockKind.IN, in), clock(ClockKind.OUT, out2)));
+                day(clock(ClockKind.OUT, out1), clock(ClockKind.IN, in), clock(ClockKind.OUT, out2)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -778,9 +769,9 @@ class AutoReportServiceTest {
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", null)));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -796,9 +787,9 @@ class AutoReportServiceTest {
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "12:00:00", "09:00:00")));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -814,9 +805,9 @@ class AutoReportServiceTest {
                 .thenReturn(List.of(ws(WorkDay.MON, WorkPeriod.AM, "09:00:00", "09:00:00")));
 
         service.onClockCreated(employee.getId(), ClockKind.OUT, out,
-                List.of(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
+                day(clock(ClockKind.IN, in), clock(ClockKind.OUT, out)));
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -848,41 +839,21 @@ class AutoReportServiceTest {
     @Test
     void workedMinutes_shouldCountDuration_whenInThenOutAndOutAfterIn() throws Exception {
 
-        var method = AutoReportService.class
-                .getDeclaredMethod("workedMinutes", List.class);
-        method.setAccessible(true);
-
-        Instant in = Instant.parse("2025-01-06T09:00:00Z");
-        Instant out = Instant.parse("2025-01-06T10:30:00Z");
-
-        List<ClockResponse> clocks = List.of(
-                clock(ClockKind.IN, in),
-                clock(ClockKind.OUT, out)
-        );
-
-        int minutes = (int) method.invoke(service, clocks);
+        DailyAttendance attendance = new DailyAttendance();
+        attendance.apply(ClockKind.IN, Instant.parse("2025-01-06T09:00:00Z"));
+        attendance.apply(ClockKind.OUT, Instant.parse("2025-01-06T10:30:00Z"));
 
-        assertThat(minutes).isEqualTo(90);
+        assertThat(attendance.getWorkedMinutes()).isEqualTo(90);
     }
 
     @Test
     void workedMinutes_shouldIgnoreOutBeforeIn_whenCurrentInExists() throws Exception {
 
-        var method = AutoReportService.class
-                .getDeclaredMethod("workedMinutes", List.class);
-        method.setAccessible(true);
-
-        Instant in = Instant.parse("2025-01-06T10:00:00Z");
-        Instant outBefore = Instant.parse("2025-01-06T09:00:00Z");
-
-        List<ClockResponse> clocks = List.of(
-                clock(ClockKind.IN, in),
-                clock(ClockKind.OUT, outBefore)
-        );
-
-        int minutes = (int) method.invoke(service, clocks);
+        DailyAttendance attendance = new DailyAttendance();
+        attendance.apply(ClockKind.IN, Instant.parse("2025-01-06T10:00:00Z"));
+        attendance.apply(ClockKind.OUT, Instant.parse("2025-01-06T09:00:00Z"));
 
-        assertThat(minutes).isEqualTo(0);
+        assertThat(attendance.getWorkedMinutes()).isEqualTo(0);
     }
 
     @Test
@@ -900,13 +871,13 @@ class AutoReportServiceTest {
                 employee.getId(),
                 ClockKind.OUT,
                 out,
-                List.of(
+                day(
                         clock(ClockKind.IN, in),
                         clock(ClockKind.OUT, differentOut)
                 )
         );
 
-        verify(reportRepo, never()).save(any());
+        verify(reportWriter, never()).write(any());
     }
 
     @Test
@@ -918,7 +889,7 @@ class AutoReportServiceTest {
                 Instant.class,
                 LocalDate.class,
                 ZoneId.class,
-                List.class
+                DailyAttendance.class
         );
         method.setAccessible(true);
 
@@ -927,16 +898,11 @@ class AutoReportServiceTest {
         LocalDate day = LocalDate.of(2025, 1, 6);
         ZoneId zone = ZoneId.of("UTC");
 
-        method.invoke(service, userId, at, day, zone, List.of());
+        method.invoke(service, userId, at, day, zone, new DailyAttendance());
 
-        method.invoke(
-                service,
-                userId,
-                at,
-                day,
-                zone,
-                List.of(clock(ClockKind.OUT, at))
-        );
+        DailyAttendance attendance = new DailyAttendance();
+        attendance.apply(ClockKind.OUT, at);
+        method.invoke(service, userId, at, day, zone, attendance);
     }
 
     @Test
@@ -953,10 +919,10 @@ class AutoReportServiceTest {
                 employee.getId(),
                 ClockKind.IN,
                 in,
-                List.of(clock(ClockKind.IN, in))
+                day(clock(ClockKind.IN, in))
         );
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
     }
 
     @Test
@@ -972,10 +938,19 @@ class AutoReportServiceTest {
                 employee.getId(),
                 null,
                 at,
-                List.of(clock(ClockKind.OUT, at))
+                day(clock(ClockKind.OUT, at))
         );
 
-        verifyNoInteractions(reportRepo);
+        verifyNoInteractions(reportWriter);
+    }
+
+    /** The day's attendance row, folded from its punches as the punch path does. */
+    private static DailyAttendance day(ClockResponse... clocks) {
+        DailyAttendance attendance = new DailyAttendance();
+        Arrays.stream(clocks)
+                .sorted(Comparator.comparing(c -> c.at))
+                .forEach(c -> attendance.apply(c.kind, c.at));
+        return attendance;
     }
 
     private static User makeUser(String id, String email, String role) {
@@ -0,0 +1,113 @@
+package com.example.time_manager.services;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.example.time_manager.dto.calendar.Holiday;
+import com.example.time_manager.service.CalendarService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+
+class CalendarServiceTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
+
+    CalendarService service = new CalendarService(jdbc, kpiRollups, 2024, 0);
+
+    static final LocalDate MAY_1 = LocalDate.of(2024, 5, 1);
+
+    @Test
+    void ensureCoverage_shouldSkipFullCalendar() {
+        int days = (int) (LocalDate.of(LocalDate.now().getYear(), 12, 31).toEpochDay()
+                - LocalDate.of(2024, 1, 1).toEpochDay() + 1);
+        when(jdbc.queryForObject(contains("FROM calendar"), eq(Integer.class), any(), any())).thenReturn(days);
+
+        service.ensureCoverage();
+
+        verify(jdbc, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ensureCoverage_shouldInsertEveryDateWithItsAttributes() throws Exception {
+        when(jdbc.queryForObject(contains("FROM calendar"), eq(Integer.class), any(), any())).thenReturn(10);
+
+        service.ensureCoverage();
+
+        ArgumentCaptor<Collection<LocalDate>> days = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<LocalDate>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbc).batchUpdate(contains("INSERT IGNORE INTO calendar"), days.capture(), eq(1000), setter.capture());
+        assertThat(days.getValue()).first().isEqualTo(LocalDate.of(2024, 1, 1));
+        assertThat(days.getValue()).last().isEqualTo(LocalDate.of(LocalDate.now().getYear(), 12, 31));
+
+        // 2024-12-30 is a Monday of ISO week 1 of 2025
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, LocalDate.of(2024, 12, 30));
+        verify(ps).setDate(1, Date.valueOf("2024-12-30"));
+        verify(ps).setString(2, "MON");
+        verify(ps).setInt(3, 2025);
+        verify(ps).setInt(4, 1);
+        verify(ps).setDate(5, Date.valueOf("2024-12-01"));
+        verify(ps).setBoolean(6, false);
+    }
+
+    @Test
+    void setHoliday_shouldFlagDay_andReplanItForEveryone() {
+        when(jdbc.update(contains("is_holiday = 1"), eq("Labour Day"), eq(MAY_1))).thenReturn(1);
+
+        Holiday h = service.setHoliday(MAY_1, "Labour Day");
+
+        assertThat(h.day).isEqualTo(MAY_1);
+        assertThat(h.name).isEqualTo("Labour Day");
+        verify(kpiRollups).markAllDirty(MAY_1, MAY_1);
+    }
+
+    @Test
+    void setHoliday_outsideCalendar_shouldThrow() {
+        assertThatThrownBy(() -> service.setHoliday(LocalDate.of(1990, 1, 1), "Old"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("outside the calendar");
+        verifyNoInteractions(kpiRollups);
+    }
+
+    @Test
+    void clearHoliday_shouldOnlyReplanActualHolidays() {
+        when(jdbc.update(contains("is_holiday = 0"), eq(MAY_1))).thenReturn(1);
+
+        assertThat(service.clearHoliday(MAY_1)).isTrue();
+        assertThat(service.clearHoliday(MAY_1.plusDays(1))).isFalse();
+
+        verify(kpiRollups).markAllDirty(MAY_1, MAY_1);
+        verify(kpiRollups, never()).markAllDirty(MAY_1.plusDays(1), MAY_1.plusDays(1));
+    }
+
+    @Test
+    void holidays_shouldRejectReversedRange() {
+        assertThatThrownBy(() -> service.holidays(MAY_1, MAY_1.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbc);
+    }
+}
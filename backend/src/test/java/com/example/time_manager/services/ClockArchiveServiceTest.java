@@ -0,0 +1,86 @@
+package com.example.time_manager.services;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.time_manager.service.ClockArchiveService;
+
+class ClockArchiveServiceTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+
+    ClockArchiveService service = new ClockArchiveService(jdbc, txManager, 2);
+
+    @Test
+    void hotHorizon_shouldBeStartOfPreviousMonth_forTwoHotMonths() {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate expected = YearMonth.now(zone).minusMonths(1).atDay(1);
+
+        assertThat(service.hotHorizon()).isEqualTo(expected.atStartOfDay(zone).toInstant());
+        assertThat(service.reachesArchive(service.hotHorizon())).isFalse();
+        assertThat(service.reachesArchive(service.hotHorizon().minusSeconds(1))).isTrue();
+    }
+
+    @Test
+    void constructor_shouldRejectEmptyHotWindow() {
+        assertThatThrownBy(() -> new ClockArchiveService(jdbc, txManager, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void archiveClosedMonths_shouldCopyThenDeleteChunks_untilNothingLeft() {
+        when(jdbc.queryForList(contains("FROM clocks WHERE `at` < ?"), eq(Long.class), any(Timestamp.class)))
+                .thenReturn(List.of(1L, 2L, 3L))
+                .thenReturn(List.of());
+
+        int moved = service.archiveClosedMonths();
+
+        assertThat(moved).isEqualTo(3);
+        verify(jdbc).update(contains("INSERT INTO clocks_archive"), eq(1L), eq(2L), eq(3L));
+        verify(jdbc).update(contains("DELETE FROM clocks WHERE id IN (?,?,?)"), eq(1L), eq(2L), eq(3L));
+        verify(jdbc, times(2)).queryForList(contains("FROM clocks WHERE"), eq(Long.class), any(Timestamp.class));
+    }
+
+    @Test
+    void listBetween_shouldSkipArchive_whenRangeIsHot() {
+        Instant from = service.hotHorizon().plusSeconds(60);
+
+        assertThat(service.listBetween("U1", from, from.plusSeconds(3600))).isEmpty();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void reachesArchive_shouldKeepOneDayOfSlack_forZonesAheadOfServer() {
+        LocalDate horizon = service.hotHorizon().atZone(ZoneId.systemDefault()).toLocalDate();
+
+        assertThat(service.reachesArchive(horizon.minusDays(1))).isTrue();
+        assertThat(service.reachesArchive(horizon.plusDays(1))).isTrue();
+        assertThat(service.reachesArchive(horizon.plusDays(2))).isFalse();
+    }
+
+    @Test
+    void listOnDay_shouldSkipArchive_whenDayIsHot() {
+        assertThat(service.listOnDay("U1", LocalDate.now().plusDays(1))).isEmpty();
+        verifyNoInteractions(jdbc);
+    }
+}
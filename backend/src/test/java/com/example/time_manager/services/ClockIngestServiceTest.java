@@ -0,0 +1,225 @@
+package com.example.time_manager.services;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.example.time_manager.dto.clock.ClockBatchPunch;
+import com.example.time_manager.dto.clock.ClockBatchResult;
+import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.service.ClockArchiveService;
+import com.example.time_manager.service.ClockIngestService;
+import com.example.time_manager.service.DailyAttendanceService;
+import com.example.time_manager.service.PresenceService;
+import com.example.time_manager.service.PunchLocks;
+import com.example.time_manager.service.kpi.ClockSnapshot;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
+import com.example.time_manager.service.outbox.AutoReportOutbox.ClockTrigger;
+
+class ClockIngestServiceTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    ClockArchiveService archive = mock(ClockArchiveService.class);
+    PunchLocks punchLocks = mock(PunchLocks.class);
+    DailyAttendanceService attendanceService = mock(DailyAttendanceService.class);
+    PresenceService presenceService = mock(PresenceService.class);
+    AutoReportOutbox autoReportOutbox = mock(AutoReportOutbox.class);
+    ClockSnapshot clockSnapshot = mock(ClockSnapshot.class);
+
+    ClockIngestService service = new ClockIngestService(jdbc, archive, punchLocks, attendanceService, presenceService, autoReportOutbox, clockSnapshot);
+
+    @Test
+    void ingest_shouldRejectEmptyBatch() {
+        assertThatThrownBy(() -> service.ingest(List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.ingest(null))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void ingest_shouldRejectOversizedBatch() {
+        List<ClockBatchPunch> punches = new ArrayList<>();
+        for (int i = 0; i < 5001; i++) punches.add(new ClockBatchPunch("U1", ClockKind.IN, null));
+
+        assertThatThrownBy(() -> service.ingest(punches))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too large");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingest_shouldValidateAlternationInMemory_andBatchInsertAccepted() throws Exception {
+        // U2 works from New York, U1 has no zone and falls back to the server's
+        ResultSet users = mock(ResultSet.class);
+        when(users.getString("id")).thenReturn("U1", "U2");
+        when(users.getString("time_zone")).thenReturn(null, "America/New_York");
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            h.processRow(users);
+            h.processRow(users);
+            return null;
+        }).when(jdbc).query(contains("FROM users"), any(RowCallbackHandler.class), any(Object[].class));
+
+        // U1 last punch in DB is IN, U2 has no history
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("user_id")).thenReturn("U1");
+        when(rs.getString("kind")).thenReturn("IN");
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("ROW_NUMBER"), any(RowCallbackHandler.class), any(Object[].class));
+
+        List<ClockBatchPunch> punches = List.of(
+                new ClockBatchPunch("U1", ClockKind.IN, Instant.parse("2025-01-06T08:00:00Z")),   // IN after IN -> rejected
+                new ClockBatchPunch("U2", ClockKind.IN, Instant.parse("2025-01-06T08:01:00Z")),
+                new ClockBatchPunch("U1", ClockKind.OUT, Instant.parse("2025-01-06T12:00:00Z")),
+                new ClockBatchPunch("GHOST", ClockKind.IN, Instant.parse("2025-01-06T08:02:00Z")),
+                new ClockBatchPunch("U2", ClockKind.OUT, Instant.parse("2025-01-07T02:00:00Z")),
+                new ClockBatchPunch(null, ClockKind.IN, null)
+        );
+
+        ClockBatchResult res = service.ingest(punches);
+
+        assertThat(res.accepted).isEqualTo(3);
+        assertThat(res.rejected).extracting(r -> r.index).containsExactly(0, 3, 5);
+        assertThat(res.rejected.get(0).reason).contains("twice in a row");
+        assertThat(res.rejected.get(1).reason).contains("User not found");
+
+        ArgumentCaptor<Collection<Object>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbc).batchUpdate(contains("INSERT INTO clocks"), rows.capture(), eq(500),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(rows.getValue()).hasSize(3);
+
+        // every known user of the batch is serialised with concurrent single punches
+        ArgumentCaptor<Collection<String>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(punchLocks).lockUntilCompletion(locked.capture());
+        assertThat(locked.getValue()).containsExactlyInAnyOrder("U1", "U2");
+        verify(archive).maxSeqs(any());
+
+        LocalDate u1Day = Instant.parse("2025-01-06T12:00:00Z").atZone(ZoneId.systemDefault()).toLocalDate();
+        ArgumentCaptor<List<ClockResponse>> u1 = ArgumentCaptor.forClass(List.class);
+        verify(attendanceService).onPunches(eq("U1"), eq(u1Day), u1.capture());
+        assertThat(u1.getValue()).extracting(c -> c.at).containsExactly(Instant.parse("2025-01-06T12:00:00Z"));
+        // 02:00 UTC is still the evening of the 6th in New York: one day, folded once
+        ArgumentCaptor<List<ClockResponse>> u2 = ArgumentCaptor.forClass(List.class);
+        verify(attendanceService).onPunches(eq("U2"), eq(LocalDate.of(2025, 1, 6)), u2.capture());
+        assertThat(u2.getValue()).extracting(c -> c.kind).containsExactly(ClockKind.IN, ClockKind.OUT);
+        assertThat(u2.getValue()).extracting(c -> c.at)
+                .containsExactly(Instant.parse("2025-01-06T08:01:00Z"), Instant.parse("2025-01-07T02:00:00Z"));
+        verify(attendanceService, never()).onPunch(any(), any(), any(), any());
+        verify(clockSnapshot).onPunch(eq("U2"), anyLong(), eq(ClockKind.OUT), eq(Instant.parse("2025-01-07T02:00:00Z")));
+
+        ArgumentCaptor<Collection<ClockTrigger>> triggers = ArgumentCaptor.forClass(Collection.class);
+        verify(autoReportOutbox).clockCreated(triggers.capture());
+        assertThat(triggers.getValue()).extracting(ClockTrigger::userId).containsExactlyInAnyOrder("U1", "U2", "U2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingest_backdatedPunches_shouldAlternateWithTheStoredHistoryAroundThem() throws Exception {
+        ResultSet users = mock(ResultSet.class);
+        when(users.getString("id")).thenReturn("U1");
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(users);
+            return null;
+        }).when(jdbc).query(contains("FROM users"), any(RowCallbackHandler.class), any(Object[].class));
+
+        // before the batch: OUT the evening before; since: 13:00 IN, 17:00 OUT punched on another terminal
+        ResultSet before = mock(ResultSet.class);
+        when(before.getString("user_id")).thenReturn("U1");
+        when(before.getString("kind")).thenReturn("OUT");
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(before);
+            return null;
+        }).when(jdbc).query(contains("ROW_NUMBER"), any(RowCallbackHandler.class), any(Object[].class));
+        ResultSet since = mock(ResultSet.class);
+        when(since.getString("user_id")).thenReturn("U1", "U1");
+        when(since.getString("kind")).thenReturn("IN", "OUT");
+        when(since.getTimestamp("at")).thenReturn(
+                Timestamp.from(Instant.parse("2025-01-06T13:00:00Z")),
+                Timestamp.from(Instant.parse("2025-01-06T17:00:00Z")));
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            h.processRow(since);
+            h.processRow(since);
+            return null;
+        }).when(jdbc).query(contains("`at` >= ?"), any(RowCallbackHandler.class), any(Object[].class));
+
+        ClockBatchResult res = service.ingest(List.of(
+                new ClockBatchPunch("U1", ClockKind.IN, Instant.parse("2025-01-06T08:00:00Z")),
+                new ClockBatchPunch("U1", ClockKind.OUT, Instant.parse("2025-01-06T12:00:00Z")),
+                new ClockBatchPunch("U1", ClockKind.IN, Instant.parse("2025-01-06T12:30:00Z")),   // before the stored IN
+                new ClockBatchPunch("U1", ClockKind.OUT, Instant.parse("2025-01-06T18:00:00Z"))   // after the stored OUT
+        ));
+
+        assertThat(res.accepted).isEqualTo(2);
+        assertThat(res.rejected).extracting(r -> r.index).containsExactly(2, 3);
+        assertThat(res.rejected.get(0).reason).contains("before a stored IN");
+        assertThat(res.rejected.get(1).reason).contains("twice in a row");
+
+        // the history is read from the earliest batch punch, not from the newest stored one
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).query(contains("ROW_NUMBER"), any(RowCallbackHandler.class), args.capture());
+        assertThat(args.getValue()).containsExactly("U1", Timestamp.from(Instant.parse("2025-01-06T08:00:00Z")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingest_shouldReportConflict_whenAnotherNodeTookASeq() throws Exception {
+        ResultSet users = mock(ResultSet.class);
+        when(users.getString("id")).thenReturn("U1");
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(users);
+            return null;
+        }).when(jdbc).query(contains("FROM users"), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbc.batchUpdate(contains("INSERT INTO clocks"), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("uq_clocks_user_seq"));
+
+        assertThatThrownBy(() -> service.ingest(List.of(new ClockBatchPunch("U1", ClockKind.IN, null))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Concurrent punch");
+        verifyNoInteractions(attendanceService, autoReportOutbox);
+    }
+
+    @Test
+    void ingest_shouldSkipInsert_whenEverythingIsRejected() {
+        ClockBatchResult res = service.ingest(List.of(new ClockBatchPunch("GHOST", ClockKind.IN, null)));
+
+        assertThat(res.accepted).isZero();
+        assertThat(res.rejected).hasSize(1);
+        verify(jdbc, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verifyNoInteractions(attendanceService, autoReportOutbox);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.time_manager.services;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,14 +9,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.example.time_manager.dto.clock.ClockConnection;
 import com.example.time_manager.dto.clock.ClockCreateRequest;
 import com.example.time_manager.dto.clock.ClockResponse;
 import com.example.time_manager.model.Clock;
@@ -23,18 +26,31 @@ import com.example.time_manager.model.ClockKind;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.ClockRepository;
 import com.example.time_manager.repository.UserRepository;
-import com.example.time_manager.service.AutoReportService;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
+import com.example.time_manager.service.ClockArchiveService;
 import com.example.time_manager.service.ClockService;
+import com.example.time_manager.service.DailyAttendanceService;
+import com.example.time_manager.service.PresenceService;
+import com.example.time_manager.service.PunchLocks;
+import com.example.time_manager.service.kpi.ClockSnapshot;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 class ClockServiceTest {
 
     ClockRepository clockRepo = mock(ClockRepository.class);
     UserRepository userRepo = mock(UserRepository.class);
-    AutoReportService autoReportService = mock(AutoReportService.class);
+    ClockArchiveService archive = mock(ClockArchiveService.class);
+    PunchLocks punchLocks = mock(PunchLocks.class);
+    DailyAttendanceService attendanceService = mock(DailyAttendanceService.class);
+    PresenceService presenceService = mock(PresenceService.class);
+    AutoReportOutbox autoReportOutbox = mock(AutoReportOutbox.class);
+    ClockSnapshot clockSnapshot = mock(ClockSnapshot.class);
 
-    ClockService service = new ClockService(clockRepo, userRepo, autoReportService);
+    ClockService service = new ClockService(clockRepo, userRepo, archive, punchLocks, attendanceService, presenceService, autoReportOutbox, clockSnapshot);
 
     @Test
     void createForMe_shouldPunchSuccessfully() {
@@ -51,10 +67,6 @@ class ClockServiceTest {
         saved.setAt(Instant.parse("2025-01-01T10:00:00Z"));
         when(clockRepo.save(any(Clock.class))).thenReturn(saved);
 
-        // appelé après save() pour reconstruire dayClocks
-        when(clockRepo.findByUser_IdAndAtBetweenOrderByAtAsc(eq("U1"), any(), any()))
-                .thenReturn(List.of(saved));
-
         ClockCreateRequest req = new ClockCreateRequest(ClockKind.IN, saved.getAt());
         ClockResponse res = service.createForMe("me@test.com", req);
 
@@ -62,7 +74,10 @@ class ClockServiceTest {
         assertThat(res.kind).isEqualTo(ClockKind.IN);
 
         verify(clockRepo).save(any(Clock.class));
-        verify(autoReportService).onClockCreated(eq("U1"), eq(ClockKind.IN), eq(saved.getAt()), anyList());
+        verify(attendanceService).onPunch("U1", ClockKind.IN, saved.getAt(), saved.getWorkDate());
+        verify(presenceService).onPunch("U1", ClockKind.IN, saved.getAt());
+        verify(clockSnapshot).onPunch("U1", saved.getSeq(), ClockKind.IN, saved.getAt());
+        verify(autoReportOutbox).clockCreated(eq("U1"), eq(ClockKind.IN), eq(saved.getAt()), any());
     }
 
     @Test
@@ -80,9 +95,6 @@ class ClockServiceTest {
         saved.setAt(Instant.parse("2025-01-01T11:00:00Z"));
         when(clockRepo.save(any(Clock.class))).thenReturn(saved);
 
-        when(clockRepo.findByUser_IdAndAtBetweenOrderByAtAsc(eq("U99"), any(), any()))
-                .thenReturn(List.of(saved));
-
         ClockCreateRequest req = new ClockCreateRequest(ClockKind.OUT, null);
         ClockResponse res = service.createForUser("U99", req);
 
@@ -90,7 +102,7 @@ class ClockServiceTest {
         assertThat(res.userId).isEqualTo("U99");
         assertThat(res.kind).isEqualTo(ClockKind.OUT);
 
-        verify(autoReportService).onClockCreated(eq("U99"), eq(ClockKind.OUT), eq(saved.getAt()), anyList());
+        verify(autoReportOutbox).clockCreated(eq("U99"), eq(ClockKind.OUT), eq(saved.getAt()), any());
     }
 
     @Test
@@ -130,7 +142,7 @@ class ClockServiceTest {
                 .hasMessageContaining("Cannot punch IN twice in a row");
 
         verify(clockRepo, never()).save(any());
-        verify(autoReportService, never()).onClockCreated(anyString(), any(), any(), anyList());
+        verify(autoReportOutbox, never()).clockCreated(anyString(), any(), any(), any());
     }
 
     @Test
@@ -150,15 +162,64 @@ class ClockServiceTest {
         saved.setAt(Instant.parse("2025-01-01T09:00:00Z"));
         when(clockRepo.save(any())).thenReturn(saved);
 
-        when(clockRepo.findByUser_IdAndAtBetweenOrderByAtAsc(eq("U1"), any(), any()))
-                .thenReturn(List.of(saved));
-
         ClockCreateRequest req = new ClockCreateRequest(ClockKind.IN, null);
         ClockResponse res = service.createForMe("me@test.com", req);
 
         assertThat(res.id).isEqualTo(10L);
         assertThat(res.kind).isEqualTo(ClockKind.IN);
-        verify(autoReportService).onClockCreated(eq("U1"), eq(ClockKind.IN), eq(saved.getAt()), anyList());
+        verify(autoReportOutbox).clockCreated(eq("U1"), eq(ClockKind.IN), eq(saved.getAt()), any());
+    }
+
+    @Test
+    void punch_shouldBucketWorkDateInUserTimeZone() {
+        User user = new User();
+        user.setId("U1");
+        user.setTimeZone("Pacific/Auckland");
+        when(userRepo.findById("U1")).thenReturn(Optional.of(user));
+        when(clockRepo.findTopByUser_IdOrderByAtDescIdDesc("U1")).thenReturn(Optional.empty());
+        when(clockRepo.save(any(Clock.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // 20:00 UTC on Jan 1st is already Jan 2nd in Auckland
+        Instant at = Instant.parse("2025-01-01T20:00:00Z");
+        service.createForUser("U1", new ClockCreateRequest(ClockKind.IN, at));
+
+        LocalDate day = LocalDate.of(2025, 1, 2);
+        verify(clockRepo).save(argThat(c -> day.equals(c.getWorkDate())));
+        verify(attendanceService).onPunch("U1", ClockKind.IN, at, day);
+        verify(autoReportOutbox).clockCreated("U1", ClockKind.IN, at, day);
+    }
+
+    @Test
+    void punch_shouldLockUserAndNumberAfterHighestSeq_acrossHotAndArchive() {
+        User user = new User();
+        user.setId("U1");
+        when(userRepo.findById("U1")).thenReturn(Optional.of(user));
+        when(clockRepo.findTopByUser_IdOrderByAtDescIdDesc("U1")).thenReturn(Optional.empty());
+        when(clockRepo.findMaxSeq("U1")).thenReturn(7L);
+        when(archive.maxSeq("U1")).thenReturn(9L);
+        when(clockRepo.save(any(Clock.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.createForUser("U1", new ClockCreateRequest(ClockKind.IN, Instant.parse("2025-01-06T08:00:00Z")));
+
+        InOrder order = inOrder(punchLocks, clockRepo);
+        order.verify(punchLocks).lockUntilCompletion("U1");
+        order.verify(clockRepo).findTopByUser_IdOrderByAtDescIdDesc("U1");
+        order.verify(clockRepo).save(argThat(c -> c.getSeq() == 10L));
+    }
+
+    @Test
+    void punch_shouldReportConflict_whenAnotherNodeTookTheSeq() {
+        User user = new User();
+        user.setId("U1");
+        when(userRepo.findById("U1")).thenReturn(Optional.of(user));
+        when(clockRepo.findTopByUser_IdOrderByAtDescIdDesc("U1")).thenReturn(Optional.empty());
+        when(clockRepo.save(any(Clock.class))).thenThrow(new DataIntegrityViolationException("uq_clocks_user_seq"));
+
+        assertThatThrownBy(() -> service.createForUser("U1", new ClockCreateRequest(ClockKind.IN, null)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Concurrent punch");
+        verify(attendanceService, never()).onPunch(any(), any(), any(), any());
+        verify(autoReportOutbox, never()).clockCreated(anyString(), any(), any(), any());
     }
 
     @Test
@@ -173,7 +234,7 @@ class ClockServiceTest {
         c.setKind(ClockKind.IN);
         c.setAt(Instant.now());
 
-        when(clockRepo.findByUser_IdOrderByAtDesc("U2")).thenReturn(List.of(c));
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U2"), any())).thenReturn(List.of(c));
 
         var res = service.listForEmail("me@test.com", null, null);
 
@@ -215,13 +276,13 @@ class ClockServiceTest {
         c.setUser(u);
         c.setId(7L);
 
-        when(clockRepo.findByUser_IdOrderByAtDesc("U3")).thenReturn(List.of(c));
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U3"), any())).thenReturn(List.of(c));
 
         var res = service.listForUser("U3", null, null);
 
         assertThat(res).hasSize(1);
         assertThat(res.get(0).id).isEqualTo(7L);
-        verify(clockRepo).findByUser_IdOrderByAtDesc("U3");
+        verify(clockRepo).findByUser_IdOrderByAtDescIdDesc(eq("U3"), eq(PageRequest.of(0, 500)));
     }
 
     @Test
@@ -232,13 +293,13 @@ class ClockServiceTest {
         c.setUser(u);
         c.setId(99L);
 
-        when(clockRepo.findByUser_IdOrderByAtDesc("U3")).thenReturn(List.of(c));
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U3"), any())).thenReturn(List.of(c));
 
         var res = service.listForUser("U3", Instant.now(), null);
 
         assertThat(res).hasSize(1);
         assertThat(res.get(0).id).isEqualTo(99L);
-        verify(clockRepo).findByUser_IdOrderByAtDesc("U3");
+        verify(clockRepo).findByUser_IdOrderByAtDescIdDesc(eq("U3"), eq(PageRequest.of(0, 500)));
     }
 
     @Test
@@ -249,13 +310,101 @@ class ClockServiceTest {
         c.setUser(u);
         c.setId(77L);
 
-        when(clockRepo.findByUser_IdOrderByAtDesc("U3")).thenReturn(List.of(c));
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U3"), any())).thenReturn(List.of(c));
 
         var res = service.listForUser("U3", null, Instant.now());
 
         assertThat(res).hasSize(1);
         assertThat(res.get(0).id).isEqualTo(77L);
-        verify(clockRepo).findByUser_IdOrderByAtDesc("U3");
+        verify(clockRepo).findByUser_IdOrderByAtDescIdDesc(eq("U3"), eq(PageRequest.of(0, 500)));
+    }
+
+    private static Clock clockAt(long id, String at) {
+        User u = new User();
+        u.setId("U3");
+        Clock c = new Clock();
+        c.setId(id);
+        c.setUser(u);
+        c.setKind(ClockKind.IN);
+        c.setAt(Instant.parse(at));
+        return c;
+    }
+
+    @Test
+    void historyForUser_shouldFetchOneExtraRow_andExposeEndCursor() {
+        when(archive.hotHorizon()).thenReturn(Instant.parse("2025-01-01T00:00:00Z"));
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U3"), eq(PageRequest.of(0, 3))))
+                .thenReturn(List.of(
+                        clockAt(9L, "2025-01-06T17:00:00Z"),
+                        clockAt(8L, "2025-01-06T12:00:00Z"),
+                        clockAt(7L, "2025-01-06T09:00:00Z")));
+
+        ClockConnection page = service.historyForUser("U3", 2, null);
+
+        assertThat(page.edges).extracting(e -> e.node.id).containsExactly(9L, 8L);
+        assertThat(page.pageInfo.hasNextPage).isTrue();
+        assertThat(page.pageInfo.endCursor).isEqualTo(page.edges.get(1).cursor);
+    }
+
+    @Test
+    void historyForUser_shouldContinueAfterCursor() {
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U3"), any()))
+                .thenReturn(List.of(clockAt(8L, "2025-01-06T12:00:00Z")));
+        String cursor = service.historyForUser("U3", 1, null).pageInfo.endCursor;
+
+        when(clockRepo.findPageBefore(eq("U3"), eq(Instant.parse("2025-01-06T12:00:00Z")), eq(8L), any()))
+                .thenReturn(List.of(clockAt(7L, "2025-01-06T09:00:00Z")));
+
+        ClockConnection page = service.historyForUser("U3", 1, cursor);
+
+        assertThat(page.edges).extracting(e -> e.node.id).containsExactly(7L);
+        assertThat(page.pageInfo.hasNextPage).isFalse();
+    }
+
+    @Test
+    void historyForUser_shouldFillPageFromArchive_whenHotRowsRunOut() {
+        when(clockRepo.findByUser_IdOrderByAtDescIdDesc(eq("U3"), any()))
+                .thenReturn(List.of(clockAt(9L, "2025-03-03T09:00:00Z")));
+
+        ClockResponse archived = new ClockResponse();
+        archived.id = 4L;
+        archived.userId = "U3";
+        archived.kind = ClockKind.OUT;
+        archived.at = Instant.parse("2024-11-29T17:00:00Z");
+        when(archive.pageBefore("U3", null, null, 3)).thenReturn(List.of(archived));
+
+        ClockConnection page = service.historyForUser("U3", 2, null);
+
+        assertThat(page.edges).extracting(e -> e.node.id).containsExactly(9L, 4L);
+        assertThat(page.pageInfo.hasNextPage).isFalse();
+    }
+
+    @Test
+    void listForUser_shouldMergeArchivedRows_whenRangeReachesArchive() {
+        Instant from = Instant.parse("2024-11-01T00:00:00Z");
+        Instant to = Instant.parse("2025-03-31T00:00:00Z");
+        when(clockRepo.findByUser_IdAndAtBetweenOrderByAtAsc("U3", from, to))
+                .thenReturn(List.of(clockAt(9L, "2025-03-03T09:00:00Z")));
+
+        ClockResponse archived = new ClockResponse();
+        archived.id = 4L;
+        archived.at = Instant.parse("2024-11-29T17:00:00Z");
+        when(archive.listBetween("U3", from, to)).thenReturn(List.of(archived));
+
+        var res = service.listForUser("U3", from, to);
+
+        assertThat(res).extracting(r -> r.id).containsExactly(4L, 9L);
+    }
+
+    @Test
+    void historyForUser_shouldRejectBadPageSizeOrCursor() {
+        assertThatThrownBy(() -> service.historyForUser("U3", 0, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.historyForUser("U3", 201, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.historyForUser("U3", 10, "not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
     }
 
     @Test
@@ -0,0 +1,212 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.service.ClockArchiveService;
+import com.example.time_manager.service.kpi.ClockSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ClockSnapshotTest {
+
+    private static final Instant JAN_15 = Instant.parse("2024-01-15T08:00:00Z");
+    private static final Instant JAN_16 = Instant.parse("2024-01-16T08:30:00Z");
+    private static final Instant FEB_01 = Instant.parse("2024-02-01T17:00:00Z");
+    private static final Instant MAR_01 = Instant.parse("2024-03-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ClockArchiveService archive = mock(ClockArchiveService.class);
+
+    private ClockSnapshot open() {
+        return new ClockSnapshot(jdbc, mock(PlatformTransactionManager.class), archive, true, dir.toString(), 60);
+    }
+
+    @Test
+    void sync_thenScan_shouldReadTheColumnFiles() throws Exception {
+        clocks(row("U1", 1, "IN", JAN_15), row("U2", 1, "IN", JAN_16), row("U1", 2, "OUT", FEB_01));
+        ClockSnapshot snapshot = open();
+
+        assertEquals(3, snapshot.sync());
+        assertTrue(snapshot.coveredUntil() > MAR_01.getEpochSecond());
+
+        assertEquals(List.of("0@" + JAN_15.getEpochSecond() + ":IN", "1@" + JAN_16.getEpochSecond() + ":IN",
+                        "0@" + FEB_01.getEpochSecond() + ":OUT"),
+                scan(snapshot, JAN_15, MAR_01, null));
+
+        BitSet u2 = new BitSet();
+        u2.set(snapshot.userIndex("U2"));
+        assertEquals(List.of("1@" + JAN_16.getEpochSecond() + ":IN"), scan(snapshot, JAN_15, MAR_01, u2));
+        assertEquals(List.of("0@" + FEB_01.getEpochSecond() + ":OUT"), scan(snapshot, FEB_01, MAR_01, null));
+
+        // the poll only, the scans stayed in the files
+        verify(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void reopen_shouldKeepUsersCoverageAndRows() throws Exception {
+        clocks(row("U1", 1, "IN", JAN_15), row("U2", 1, "IN", JAN_16));
+        ClockSnapshot first = open();
+        first.sync();
+        first.destroy();
+
+        ClockSnapshot second = open();
+
+        assertEquals(first.coveredUntil(), second.coveredUntil());
+        assertEquals(1, second.userIndex("U2"));
+        assertEquals(2, second.userIndex("U3"));
+        assertEquals(2, scan(second, JAN_15, MAR_01, null).size());
+    }
+
+    @Test
+    void punchPathAndPoll_shouldAppendEachPunchOnce() throws Exception {
+        Instant recent = Instant.now().minus(2, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+        clocks(row("U1", 7, "IN", recent));
+        ClockSnapshot snapshot = open();
+
+        // outside a transaction: queued right away
+        snapshot.onPunch("U1", 7, ClockKind.IN, recent);
+        snapshot.flush();
+        snapshot.sync();
+        snapshot.onPunch("U1", 7, ClockKind.IN, recent);   // late second copy
+        snapshot.flush();
+
+        Instant from = recent.minus(1, ChronoUnit.HOURS);
+        Instant to = Instant.ofEpochSecond(snapshot.coveredUntil());
+        assertEquals(List.of("0@" + recent.getEpochSecond() + ":IN"), scan(snapshot, from, to, null));
+    }
+
+    @Test
+    void scan_beyondCoverage_shouldReadSql() throws Exception {
+        ClockSnapshot snapshot = open();
+        clocks(row("U9", 1, "OUT", FEB_01));
+
+        assertEquals(List.of("0@" + FEB_01.getEpochSecond() + ":OUT"), scan(snapshot, JAN_15, MAR_01, null));
+
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbc).query(creator.capture(), any(RowCallbackHandler.class));
+        Connection con = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(con.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(ps);
+
+        creator.getValue().createPreparedStatement(con);
+
+        verify(con).prepareStatement(argThat((String sql) -> sql.contains("FROM clocks") && !sql.contains("clocks_archive")),
+                anyInt(), anyInt());
+        verify(ps).setFetchSize(1000);
+        verify(ps).setObject(1, Timestamp.from(JAN_15));
+        verify(ps).setObject(2, Timestamp.from(MAR_01));
+    }
+
+    @Test
+    void sync_overTheArchive_shouldStreamBothTables() throws Exception {
+        when(archive.reachesArchive(any())).thenReturn(true);
+        clocks(row("U1", 1, "IN", JAN_15));
+        ClockSnapshot snapshot = open();
+
+        assertEquals(1, snapshot.sync());
+
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbc).query(creator.capture(), any(RowCallbackHandler.class));
+        Connection con = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(con.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(ps);
+
+        creator.getValue().createPreparedStatement(con);
+
+        verify(con).prepareStatement(contains("UNION ALL SELECT user_id, seq, kind, `at` FROM clocks_archive"),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        verify(ps).setFetchSize(1000);
+        verify(ps, times(4)).setObject(anyInt(), any(Timestamp.class));
+    }
+
+    @Test
+    void rebuild_duringScan_shouldWaitBeforeDeletingTheFiles() throws Exception {
+        clocks(row("U1", 1, "IN", JAN_15), row("U2", 1, "IN", JAN_16), row("U1", 2, "OUT", FEB_01));
+        ClockSnapshot snapshot = open();
+        snapshot.sync();
+
+        Thread[] rebuild = new Thread[1];
+        List<String> seen = new ArrayList<>();
+        snapshot.scan(JAN_15, MAR_01, null, (user, at, in) -> {
+            if (rebuild[0] == null) {
+                rebuild[0] = new Thread(snapshot::rebuild);
+                rebuild[0].start();
+                // the rebuild has published its empty view and now waits for this scan
+                while (snapshot.coveredUntil() != 0L) Thread.onSpinWait();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertTrue(rebuild[0].isAlive());
+                assertTrue(Files.exists(dir.resolve("2024-01.at")));
+            }
+            seen.add(user + "@" + at);
+        });
+        rebuild[0].join(5000);
+
+        assertEquals(3, seen.size());
+        assertFalse(rebuild[0].isAlive());
+        assertEquals(3, scan(snapshot, JAN_15, MAR_01, null).size());
+    }
+
+    @Test
+    void disabled_shouldNotTouchTheDisk() {
+        ClockSnapshot snapshot = new ClockSnapshot(jdbc, mock(PlatformTransactionManager.class), archive,
+                false, dir.resolve("off").toString(), 60);
+
+        snapshot.onPunch("U1", 1, ClockKind.IN, JAN_15);
+        snapshot.flush();
+
+        assertEquals(0, snapshot.sync());
+        assertFalse(dir.resolve("off").toFile().exists());
+        verifyNoInteractions(jdbc);
+    }
+
+    private static List<String> scan(ClockSnapshot snapshot, Instant from, Instant to, BitSet users) {
+        List<String> out = new ArrayList<>();
+        snapshot.scan(from, to, users, (user, at, in) -> out.add(user + "@" + at + ":" + (in ? "IN" : "OUT")));
+        return out;
+    }
+
+    private void clocks(ResultSet... rows) {
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            for (ResultSet rs : rows) h.processRow(rs);
+            return null;
+        }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static ResultSet row(String userId, long seq, String kind, Instant at) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("user_id")).thenReturn(userId);
+        when(rs.getLong("seq")).thenReturn(seq);
+        when(rs.getString("kind")).thenReturn(kind);
+        when(rs.getTimestamp("at")).thenReturn(Timestamp.from(at));
+        return rs;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.time_manager.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.time_manager.dto.clock.ClockResponse;
+import com.example.time_manager.model.Clock;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.DailyAttendance;
+import com.example.time_manager.repository.ClockRepository;
+import com.example.time_manager.repository.DailyAttendanceRepository;
+import com.example.time_manager.service.ClockArchiveService;
+import com.example.time_manager.service.DailyAttendanceService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+
+class DailyAttendanceServiceTest {
+
+    DailyAttendanceRepository repo = mock(DailyAttendanceRepository.class);
+    ClockRepository clockRepo = mock(ClockRepository.class);
+    ClockArchiveService archive = mock(ClockArchiveService.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
+
+    DailyAttendanceService service = new DailyAttendanceService(repo, clockRepo, archive, kpiRollups);
+
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 6);
+
+    private static Instant at(String localTime) {
+        return DAY.atTime(LocalTime.parse(localTime))
+                .atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static ClockResponse punch(ClockKind kind, Instant at) {
+        ClockResponse c = new ClockResponse();
+        c.kind = kind;
+        c.at = at;
+        return c;
+    }
+
+    private static Clock clock(ClockKind kind, Instant at) {
+        Clock c = new Clock();
+        c.setKind(kind);
+        c.setAt(at);
+        return c;
+    }
+
+    @Test
+    void onPunch_shouldCreateRowAndFoldSessionsIncrementally() {
+        when(repo.findForUpdate(eq("U1"), any())).thenReturn(Optional.empty());
+        when(repo.save(any(DailyAttendance.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        DailyAttendance row = service.onPunch("U1", ClockKind.IN, at("09:00"), DAY);
+        when(repo.findForUpdate(eq("U1"), any())).thenReturn(Optional.of(row));
+
+        service.onPunch("U1", ClockKind.OUT, at("12:00"), DAY);
+        service.onPunch("U1", ClockKind.IN, at("13:00"), DAY);
+        service.onPunch("U1", ClockKind.OUT, at("17:30"), DAY);
+
+        assertThat(row.getWorkDate()).isEqualTo(LocalDate.of(2025, 1, 6));
+        assertThat(row.getFirstIn()).isEqualTo(at("09:00"));
+        assertThat(row.getLastOut()).isEqualTo(at("17:30"));
+        assertThat(row.getWorkedMinutes()).isEqualTo(7 * 60 + 30);
+        assertThat(row.getPunchCount()).isEqualTo(4);
+        assertThat(row.getOpenIn()).isNull();
+        verify(clockRepo, never()).findByUser_IdAndWorkDateOrderByAtAscIdAsc(any(), any());
+    }
+
+    @Test
+    void onPunch_shouldReplayDay_whenPunchIsBackdated() {
+        DailyAttendance row = new DailyAttendance();
+        row.setUserId("U1");
+        row.setWorkDate(LocalDate.of(2025, 1, 6));
+        row.apply(ClockKind.IN, at("13:00"));
+        row.apply(ClockKind.OUT, at("17:00"));
+
+        when(repo.findForUpdate(eq("U1"), any())).thenReturn(Optional.of(row));
+        when(repo.save(any(DailyAttendance.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(clockRepo.findByUser_IdAndWorkDateOrderByAtAscIdAsc("U1", DAY)).thenReturn(List.of(
+                clock(ClockKind.IN, at("08:00")),
+                clock(ClockKind.OUT, at("12:00")),
+                clock(ClockKind.IN, at("13:00")),
+                clock(ClockKind.OUT, at("17:00"))
+        ));
+
+        service.onPunch("U1", ClockKind.IN, at("08:00"), DAY);
+
+        assertThat(row.getFirstIn()).isEqualTo(at("08:00"));
+        assertThat(row.getWorkedMinutes()).isEqualTo(8 * 60);
+        assertThat(row.getPunchCount()).isEqualTo(4);
+    }
+
+    @Test
+    void onPunches_backdatedBatch_shouldReplayOnceWithoutCountingTwice() {
+        // stored: 13:00-17:00; an offline terminal uploads 08:00-12:00 afterwards
+        DailyAttendance row = new DailyAttendance();
+        row.setUserId("U1");
+        row.setWorkDate(DAY);
+        row.apply(ClockKind.IN, at("13:00"));
+        row.apply(ClockKind.OUT, at("17:00"));
+
+        when(repo.findForUpdate("U1", DAY)).thenReturn(Optional.of(row));
+        when(repo.save(any(DailyAttendance.class))).thenAnswer(inv -> inv.getArgument(0));
+        // the batch rows are already inserted when the day is folded
+        when(clockRepo.findByUser_IdAndWorkDateOrderByAtAscIdAsc("U1", DAY)).thenReturn(List.of(
+                clock(ClockKind.IN, at("08:00")),
+                clock(ClockKind.OUT, at("12:00")),
+                clock(ClockKind.IN, at("13:00")),
+                clock(ClockKind.OUT, at("17:00"))
+        ));
+
+        service.onPunches("U1", DAY, List.of(
+                punch(ClockKind.IN, at("08:00")),
+                punch(ClockKind.OUT, at("12:00"))));
+
+        assertThat(row.getPunchCount()).isEqualTo(4);
+        assertThat(row.getWorkedMinutes()).isEqualTo(8 * 60);
+        assertThat(row.getLastPunchAt()).isEqualTo(at("17:00"));
+        verify(clockRepo, times(1)).findByUser_IdAndWorkDateOrderByAtAscIdAsc("U1", DAY);
+    }
+
+    @Test
+    void onPunches_inOrderBatch_shouldFoldEachPunch() {
+        when(repo.findForUpdate("U1", DAY)).thenReturn(Optional.empty());
+        when(repo.save(any(DailyAttendance.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        DailyAttendance row = service.onPunches("U1", DAY, List.of(
+                punch(ClockKind.IN, at("09:00")),
+                punch(ClockKind.OUT, at("12:00"))));
+
+        assertThat(row.getPunchCount()).isEqualTo(2);
+        assertThat(row.getWorkedMinutes()).isEqualTo(3 * 60);
+        verify(clockRepo, never()).findByUser_IdAndWorkDateOrderByAtAscIdAsc(any(), any());
+    }
+
+    @Test
+    void recompute_shouldDeleteRow_whenDayHasNoClocksLeft() {
+        DailyAttendance row = new DailyAttendance();
+        row.setId(5L);
+        row.setUserId("U1");
+        row.setWorkDate(LocalDate.of(2025, 1, 6));
+        row.apply(ClockKind.IN, at("09:00"));
+
+        when(repo.findForUpdate("U1", LocalDate.of(2025, 1, 6))).thenReturn(Optional.of(row));
+        when(clockRepo.findByUser_IdAndWorkDateOrderByAtAscIdAsc("U1", DAY)).thenReturn(List.of());
+
+        service.recompute("U1", LocalDate.of(2025, 1, 6));
+
+        verify(repo).delete(row);
+        verify(repo, never()).save(any());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.dto.kpi.PoolStats;
+import com.example.time_manager.service.DataSourcePoolService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourcePoolServiceTest {
+
+    HikariDataSource write = pool("pool_write");
+    HikariDataSource analytics = pool("pool_analytics");
+
+    DataSourcePoolService service = new DataSourcePoolService(write, analytics);
+
+    @AfterEach
+    void close() {
+        write.close();
+        analytics.close();
+    }
+
+    @Test
+    void stats_shouldReportEachPool_evenBeforeFirstConnection() throws Exception {
+        try (Connection c = analytics.getConnection()) {
+            List<PoolStats> stats = service.stats();
+
+            assertThat(stats).extracting(PoolStats::name).containsExactly("write", "analytics");
+            assertThat(stats.get(0).total()).isZero();
+            assertThat(stats.get(0).maxSize()).isEqualTo(3);
+            assertThat(stats.get(1).active()).isEqualTo(1);
+            assertThat(stats.get(1).total()).isPositive();
+        }
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        ds.setMaximumPoolSize(3);
+        return ds;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.time_manager.services;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.TeamKpiSummary;
+import com.example.time_manager.model.kpi.UserKpiSummary;
+import com.example.time_manager.repository.TeamMemberRepository;
+import com.example.time_manager.service.kpi.KpiCache;
+
+class KpiCacheTest {
+
+    static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    static final LocalDate JAN_31 = LocalDate.of(2024, 1, 31);
+    static final LocalDate FEB_1 = LocalDate.of(2024, 2, 1);
+    static final LocalDate FEB_29 = LocalDate.of(2024, 2, 29);
+
+    TeamMemberRepository teamMemberRepo = mock(TeamMemberRepository.class);
+    KpiCache cache = new KpiCache(teamMemberRepo, 100, 3600);
+
+    AtomicInteger loads = new AtomicInteger();
+
+    private UserKpiSummary user(UUID id, LocalDate start, LocalDate end) {
+        return cache.user(id, start, end, () -> {
+            loads.incrementAndGet();
+            return new UserKpiSummary();
+        });
+    }
+
+    private TeamKpiSummary team(int id, LocalDate start, LocalDate end) {
+        return cache.team(id, start, end, () -> {
+            loads.incrementAndGet();
+            return new TeamKpiSummary();
+        });
+    }
+
+    private GlobalKpiSummary global(LocalDate start, LocalDate end) {
+        return cache.global(start, end, () -> {
+            loads.incrementAndGet();
+            return new GlobalKpiSummary();
+        });
+    }
+
+    @Test
+    void closedPeriod_shouldBeComputedOnce() {
+        UserKpiSummary first = user(ALICE, JAN_1, JAN_31);
+        UserKpiSummary second = user(ALICE, JAN_1, JAN_31);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void runningPeriod_shouldAlwaysBeRecomputed() {
+        LocalDate today = LocalDate.now();
+        user(ALICE, today.withDayOfMonth(1), today);
+        user(ALICE, today.withDayOfMonth(1), today);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictUser_shouldDropOverlappingUserAndGlobalEntries_only() {
+        user(ALICE, JAN_1, JAN_31);
+        user(ALICE, FEB_1, FEB_29);
+        user(BOB, JAN_1, JAN_31);
+        global(JAN_1, JAN_31);
+        loads.set(0);
+
+        cache.evictUser(ALICE.toString(), LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 15));
+
+        user(ALICE, JAN_1, JAN_31);   // evicted
+        global(JAN_1, JAN_31);        // evicted
+        user(ALICE, FEB_1, FEB_29);   // other period
+        user(BOB, JAN_1, JAN_31);     // other user
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictUser_shouldDropTeamsTheUserBelongedTo() {
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of(ALICE.toString()));
+        when(teamMemberRepo.findUserIdsByTeamId(2L)).thenReturn(List.of(BOB.toString()));
+        team(1, JAN_1, JAN_31);
+        team(2, JAN_1, JAN_31);
+        loads.set(0);
+
+        cache.evictUser(ALICE.toString(), JAN_1, JAN_1);
+
+        team(1, JAN_1, JAN_31);
+        team(2, JAN_1, JAN_31);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void evictLeave_shouldKeepTeamAndGlobalEntries() {
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of(ALICE.toString()));
+        user(ALICE, JAN_1, JAN_31);
+        team(1, JAN_1, JAN_31);
+        global(JAN_1, JAN_31);
+        loads.set(0);
+
+        cache.evictLeave(ALICE.toString(), JAN_1, JAN_1);
+
+        user(ALICE, JAN_1, JAN_31);
+        team(1, JAN_1, JAN_31);
+        global(JAN_1, JAN_31);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void evictTeam_shouldDropEveryPeriodOfThatTeam() {
+        team(1, JAN_1, JAN_31);
+        team(1, FEB_1, FEB_29);
+        loads.set(0);
+
+        cache.evictTeam(1L);
+
+        team(1, JAN_1, JAN_31);
+        team(1, FEB_1, FEB_29);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void teams_shouldLoadOnlyMissingTeams_inOneCall() {
+        when(teamMemberRepo.findTeamAndUserIdsByTeamIds(List.of(2L)))
+                .thenReturn(List.<Object[]>of(new Object[] { 2L, BOB.toString() }));
+        team(1, JAN_1, JAN_31);
+        loads.set(0);
+
+        List<List<Integer>> calls = new java.util.ArrayList<>();
+        Map<Integer, TeamKpiSummary> res = cache.teams(List.of(1, 2), JAN_1, JAN_31, missing -> {
+            calls.add(missing);
+            return Map.of(2, new TeamKpiSummary());
+        });
+
+        assertThat(res).containsOnlyKeys(1, 2);
+        assertThat(calls).containsExactly(List.of(2));
+
+        // stored per team, with its members, like single-team entries
+        team(2, JAN_1, JAN_31);
+        assertThat(loads).hasValue(0);
+        cache.evictUser(BOB.toString(), JAN_1, JAN_1);
+        team(2, JAN_1, JAN_31);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void resultComputedBeforeAnEviction_shouldNotBeStored() {
+        cache.user(ALICE, JAN_1, JAN_31, () -> {
+            // a back-dated punch commits while the figures are being computed
+            cache.evictUser(ALICE.toString(), JAN_1, JAN_1);
+            return new UserKpiSummary();
+        });
+
+        user(ALICE, JAN_1, JAN_31);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void runningPeriodWrite_shouldNotTouchClosedEntries() {
+        cache.user(ALICE, JAN_1, JAN_31, () -> {
+            // a punch of today commits while January is being computed
+            cache.evictUser(ALICE.toString(), LocalDate.now(), LocalDate.now());
+            return new UserKpiSummary();
+        });
+        global(JAN_1, JAN_31);
+        cache.evictUser(ALICE.toString(), LocalDate.now().minusDays(1), LocalDate.now());
+
+        user(ALICE, JAN_1, JAN_31);
+        global(JAN_1, JAN_31);
+        assertThat(loads).hasValue(1);   // only the global entry's own first load
+    }
+
+    @Test
+    void fullCache_shouldDropLeastRecentlyUsedEntry() {
+        KpiCache small = new KpiCache(teamMemberRepo, 2, 3600);
+        small.user(ALICE, JAN_1, JAN_31, UserKpiSummary::new);
+        small.user(BOB, JAN_1, JAN_31, UserKpiSummary::new);
+        small.user(ALICE, JAN_1, JAN_31, UserKpiSummary::new);       // touch Alice
+        small.user(ALICE, FEB_1, FEB_29, UserKpiSummary::new);       // evicts Bob
+
+        small.user(ALICE, JAN_1, JAN_31, () -> { loads.incrementAndGet(); return new UserKpiSummary(); });
+        small.user(BOB, JAN_1, JAN_31, () -> { loads.incrementAndGet(); return new UserKpiSummary(); });
+        assertThat(loads).hasValue(1);
+    }
+}
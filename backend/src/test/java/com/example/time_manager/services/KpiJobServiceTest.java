@@ -0,0 +1,208 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.model.kpi.GlobalKpiSummary;
+import com.example.time_manager.model.kpi.KpiJob;
+import com.example.time_manager.model.kpi.KpiJobStatus;
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.PunctualityStats;
+import com.example.time_manager.model.kpi.UserKpiSummary;
+import com.example.time_manager.service.KpiService;
+import com.example.time_manager.service.kpi.KpiJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class KpiJobServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 12, 31);
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final KpiService kpiService = mock(KpiService.class);
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    // runs each job on the polling thread
+    private final KpiJobService service = new KpiJobService(jdbc, kpiService, mapper, Runnable::run, 2, 24, 30_000, 120);
+
+    @Test
+    void start_shouldInsertPendingJobWithCanonicalKey() throws Exception {
+        when(jdbc.update(contains("INSERT IGNORE"), any(Object[].class))).thenReturn(1);
+        job("TEAM", "7", "PENDING", null);
+
+        KpiJob job = service.start(KpiScope.TEAM, " 007", START, END, "U1");
+
+        assertThat(job.getStatus()).isEqualTo(KpiJobStatus.PENDING);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).update(contains("INSERT IGNORE"), args.capture());
+        assertThat(args.getValue()).containsSubsequence("TEAM", "7", START, END, "TEAM|7|2023-01-01|2024-12-31", "U1");
+    }
+
+    @Test
+    void start_duplicate_shouldJoinActiveJob() throws Exception {
+        when(jdbc.update(contains("INSERT IGNORE"), any(Object[].class))).thenReturn(0);
+        when(jdbc.queryForList(contains("active_key = ?"), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("job-1"));
+        job("GLOBAL", null, "RUNNING", null);
+
+        KpiJob job = service.start(KpiScope.GLOBAL, null, START, END, "U1");
+
+        assertThat(job.getId()).isEqualTo("job-1");
+        assertThat(job.getStatus()).isEqualTo(KpiJobStatus.RUNNING);
+        verify(jdbc, times(1)).update(contains("INSERT IGNORE"), any(Object[].class));
+    }
+
+    @Test
+    void start_invalidInput_shouldFailBeforeWriting() {
+        assertThatThrownBy(() -> service.start(KpiScope.USER, "not-a-uuid", START, END, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.start(KpiScope.TEAM, null, START, END, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.start(KpiScope.GLOBAL, null, END, START, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void poll_shouldClaimComputeAndStoreResult() throws Exception {
+        pending("job-1");
+        when(jdbc.update(contains("SET status = 'RUNNING'"), any(Object[].class))).thenReturn(1);
+        job("GLOBAL", null, "RUNNING", null);
+        GlobalKpiSummary summary = new GlobalKpiSummary();
+        summary.setHeadcount(12);
+        when(kpiService.getGlobal(START, END)).thenReturn(summary);
+
+        service.poll();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).update(contains("SET status = 'DONE'"), args.capture());
+        assertThat((String) args.getValue()[0]).contains("\"headcount\":12");
+        assertThat(args.getValue()[2]).isEqualTo("job-1");
+    }
+
+    @Test
+    void poll_alreadyClaimed_shouldNotRun() {
+        pending("job-1");
+        when(jdbc.update(contains("SET status = 'RUNNING'"), any(Object[].class))).thenReturn(0);
+
+        service.poll();
+
+        verifyNoInteractions(kpiService);
+    }
+
+    @Test
+    void poll_failingComputation_shouldMarkJobFailed() throws Exception {
+        pending("job-1");
+        when(jdbc.update(contains("SET status = 'RUNNING'"), any(Object[].class))).thenReturn(1);
+        UUID userId = UUID.randomUUID();
+        job("USER", userId.toString(), "RUNNING", null);
+        when(kpiService.getUser(userId, START, END)).thenThrow(new IllegalStateException("boom"));
+
+        service.poll();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).update(contains("SET status = 'FAILED'"), args.capture());
+        assertThat((String) args.getValue()[0]).contains("boom");
+        verify(jdbc, never()).update(contains("SET status = 'DONE'"), any(Object[].class));
+    }
+
+    @Test
+    void heartbeat_shouldTouchOnlyJobsRunningOnThisNode() throws Exception {
+        List<Runnable> workers = new ArrayList<>();
+        KpiJobService queued = new KpiJobService(jdbc, kpiService, mapper, workers::add, 2, 24, 30_000, 120);
+        pending("job-1");
+        when(jdbc.update(contains("SET status = 'RUNNING'"), any(Object[].class))).thenReturn(1);
+        job("GLOBAL", null, "RUNNING", null);
+
+        queued.heartbeat();
+        verify(jdbc, never()).update(contains("SET heartbeat_at"), any(Object[].class));
+
+        queued.poll();
+        queued.heartbeat();
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).update(contains("SET heartbeat_at = ? WHERE status = 'RUNNING' AND id IN (?)"), args.capture());
+        assertThat(args.getValue()).hasSize(2).endsWith("job-1");
+
+        workers.forEach(Runnable::run);
+        queued.heartbeat();
+        verify(jdbc, times(1)).update(contains("SET heartbeat_at"), any(Object[].class));
+    }
+
+    @Test
+    void maintenance_shouldRequeueJobsSilentLongerThanTheThreshold() {
+        KpiJobService patient = new KpiJobService(jdbc, kpiService, mapper, Runnable::run, 2, 24, 30_000, 300);
+
+        patient.maintenance();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).update(contains("SET status = 'PENDING' WHERE status = 'RUNNING' AND heartbeat_at < ?"), args.capture());
+        Instant silentSince = ((Timestamp) args.getValue()[0]).toInstant();
+        assertThat(Duration.between(silentSince, Instant.now())).isBetween(Duration.ofSeconds(300), Duration.ofSeconds(310));
+        verify(jdbc).update(contains("SET status = 'FAILED', error = 'Interrupted'"), any(), eq(args.getValue()[0]));
+    }
+
+    @Test
+    void staleThreshold_shouldOutlastAFewHeartbeats() {
+        assertThatThrownBy(() -> new KpiJobService(jdbc, kpiService, mapper, Runnable::run, 2, 24, 30_000, 60))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void find_done_shouldReadStoredSummary() throws Exception {
+        UserKpiSummary summary = new UserKpiSummary();
+        summary.setFullName("Ann Doe");
+        summary.setPunctuality(new PunctualityStats(new BigDecimal("0.25"), BigDecimal.TEN));
+        summary.setPeriodStart(START);
+        job("USER", UUID.randomUUID().toString(), "DONE", mapper.writeValueAsString(summary));
+
+        KpiJob job = service.find("job-1");
+
+        assertThat(job.getStatus()).isEqualTo(KpiJobStatus.DONE);
+        assertThat(job.getGlobal()).isNull();
+        assertThat(job.getUser().getFullName()).isEqualTo("Ann Doe");
+        assertThat(job.getUser().getPunctuality().getLateRate()).isEqualByComparingTo("0.25");
+        assertThat(job.getUser().getPeriodStart()).isEqualTo(START);
+    }
+
+    @Test
+    void find_unknown_shouldReturnNull() {
+        when(jdbc.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+
+        assertThat(service.find("nope")).isNull();
+    }
+
+    private void pending(String... ids) {
+        when(jdbc.queryForList(contains("status = 'PENDING'"), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of(ids));
+    }
+
+    private void job(String scope, String targetId, String status, String result) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("id")).thenReturn("job-1");
+        when(rs.getString("scope")).thenReturn(scope);
+        when(rs.getString("target_id")).thenReturn(targetId);
+        when(rs.getString("status")).thenReturn(status);
+        when(rs.getString("result")).thenReturn(result);
+        when(rs.getDate("period_start")).thenReturn(Date.valueOf(START));
+        when(rs.getDate("period_end")).thenReturn(Date.valueOf(END));
+        doAnswer(inv -> {
+            RowMapper<?> m = inv.getArgument(1);
+            return List.of(m.mapRow(rs, 0));
+        }).when(jdbc).query(contains("FROM kpi_jobs WHERE id = ?"), any(RowMapper.class), any(Object[].class));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.time_manager.services;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.time_manager.service.kpi.KpiCache;
+import com.example.time_manager.service.kpi.KpiRollupService;
+
+class KpiRollupServiceTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    KpiCache kpiCache = mock(KpiCache.class);
+
+    KpiRollupService service = new KpiRollupService(jdbc, mock(PlatformTransactionManager.class), kpiCache);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void markDirty_shouldMarkEveryDayOfTheRange_andEvictCache() {
+        LocalDate from = LocalDate.of(2025, 3, 3);
+        LocalDate to = LocalDate.of(2025, 3, 5);
+
+        service.markDirty("U1", from, to);
+
+        verify(kpiCache).evictUser("U1", from, to);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(contains("INSERT INTO kpi_dirty_days"), rows.capture());
+        assertThat(rows.getValue()).extracting(r -> r[1])
+                .containsExactly(Date.valueOf(from), Date.valueOf(from.plusDays(1)), Date.valueOf(to));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_shouldRebuildMarkedDays_andKeepMarksBumpedMeanwhile() throws Exception {
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        when(jdbc.queryForObject(contains("MAX(day)"), eq(Date.class)))
+                .thenReturn(Date.valueOf(LocalDate.now()));
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("user_id")).thenReturn("U1");
+        when(rs.getDate("day")).thenReturn(Date.valueOf(day));
+        when(rs.getInt("version")).thenReturn(2);
+        // one chunk, then nothing left
+        doAnswer(inv -> List.of(((RowMapper<Object>) inv.getArgument(1)).mapRow(rs, 0)))
+                .doAnswer(inv -> List.of())
+                .when(jdbc).query(contains("FROM kpi_dirty_days"), any(RowMapper.class));
+
+        int refreshed = service.refresh();
+
+        assertThat(refreshed).isEqualTo(1);
+        verify(jdbc).batchUpdate(contains("INSERT INTO kpi_user_daily"), anyList(), eq(500),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbc).update(contains("INSERT INTO kpi_team_daily"), eq(Date.valueOf(day)));
+
+        ArgumentCaptor<Collection<Object>> cleared = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbc).batchUpdate(contains("DELETE FROM kpi_dirty_days WHERE user_id = ? AND day = ? AND version = ?"),
+                cleared.capture(), eq(500), any(ParameterizedPreparedStatementSetter.class));
+        assertThat(cleared.getValue()).hasSize(1);
+        verify(kpiCache).evictUser("U1", day, day);
+    }
+
+    @Test
+    void refresh_shouldMarkNewCalendarDaysForEveryUser() {
+        LocalDate today = LocalDate.now();
+        when(jdbc.queryForObject(contains("MAX(day)"), eq(Date.class)))
+                .thenReturn(Date.valueOf(today));
+        when(jdbc.queryForObject(contains("FROM calendar"), eq(Integer.class), any(), any()))
+                .thenReturn(3);
+
+        service.refresh();
+        service.refresh();   // same day: nothing to sweep
+
+        verify(kpiCache).evictPeriod(today.minusDays(1), today.plusDays(1));
+        verify(jdbc).update(contains("JOIN calendar c ON c.day BETWEEN ? AND ?"),
+                eq(today.minusDays(1)), eq(today.plusDays(1)));
+    }
+
+    @Test
+    void refresh_shouldRetrySweep_untilCalendarCoversTheDays() {
+        when(jdbc.queryForObject(contains("MAX(day)"), eq(Date.class)))
+                .thenReturn(Date.valueOf(LocalDate.now()));
+        when(jdbc.queryForObject(contains("FROM calendar"), eq(Integer.class), any(), any()))
+                .thenReturn(0, 3);
+
+        service.refresh();
+        verify(jdbc, never()).update(contains("JOIN calendar"), any(), any());
+
+        service.refresh();
+        verify(jdbc).update(contains("JOIN calendar"), any(), any());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.time_manager.services;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.time_manager.service.kpi.KpiSections;
+
+class KpiSectionsTest {
+
+    KpiSections sections = new KpiSections(mock(PlatformTransactionManager.class), 6, 2);
+
+    @AfterEach
+    void shutdown() {
+        sections.destroy();
+    }
+
+    @Test
+    void join_shouldRunSectionsConcurrently() {
+        // each section waits for the other: only completes if both run at once
+        CountDownLatch both = new CountDownLatch(2);
+        KpiSections.Batch batch = sections.batch();
+        Supplier<String> a = batch.add(() -> meet(both, "a"));
+        Supplier<String> b = batch.add(() -> meet(both, "b"));
+
+        batch.join();
+
+        assertThat(a.get()).isEqualTo("a");
+        assertThat(b.get()).isEqualTo("b");
+    }
+
+    @Test
+    void join_shouldNotExceedPerRequestCap() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        KpiSections.Batch batch = sections.batch();
+        for (int i = 0; i < 6; i++) {
+            batch.run(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(20);
+                running.decrementAndGet();
+            });
+        }
+
+        batch.join();
+
+        assertThat(peak.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void join_shouldRethrowSectionFailure() {
+        KpiSections.Batch batch = sections.batch();
+        batch.add(() -> "ok");
+        batch.add(() -> { throw new IllegalArgumentException("boom"); });
+
+        assertThatThrownBy(batch::join)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("boom");
+    }
+
+    @Test
+    void get_beforeJoin_shouldFail() {
+        Supplier<String> a = sections.batch().add(() -> "a");
+
+        assertThatThrownBy(a::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void constructor_shouldRejectEmptyBudget() {
+        assertThatThrownBy(() -> new KpiSections(mock(PlatformTransactionManager.class), 0, 4))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String meet(CountDownLatch latch, String value) {
+        latch.countDown();
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("sections ran one by one");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
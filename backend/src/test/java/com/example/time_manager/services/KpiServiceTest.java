@@ -1,15 +1,24 @@
 package com.example.time_manager.services;
 
 import com.example.time_manager.model.kpi.*;
+import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.service.KpiService;
+import com.example.time_manager.service.kpi.KpiCache;
+import com.example.time_manager.service.kpi.KpiSections;
+import com.example.time_manager.service.kpi.PunchHeatmap;
+import com.example.time_manager.service.kpi.PunctualityEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,12 +28,20 @@ import static org.mockito.Mockito.*;
 class KpiServiceTest {
 
     private JdbcTemplate jdbc;
+    private PunctualityEngine punctuality;
+    private PunchHeatmap heatmap;
     private KpiService service;
 
     @BeforeEach
     void setup() {
         jdbc = mock(JdbcTemplate.class);
-        service = new KpiService(jdbc);
+        punctuality = mock(PunctualityEngine.class);
+        heatmap = mock(PunchHeatmap.class);
+        // caching disabled: every call computes; sections run one after another
+        service = new KpiService(jdbc,
+                new KpiCache(mock(TeamMemberRepository.class), 0, 0),
+                new KpiSections(mock(PlatformTransactionManager.class), 1, 1),
+                punctuality, heatmap);
     }
 
     @Test
@@ -47,41 +64,49 @@ class KpiServiceTest {
         assertEquals(new BigDecimal("33.33"), ratio.invoke(service, 1, 3));
     }
 
-    @Test
-    void testGetGlobal() {
-
-        LocalDate start = LocalDate.of(2024, 1, 1);
-        LocalDate end   = LocalDate.of(2024, 1, 31);
-
+    private void stubGlobalHeader(Number approvalDelay) {
         when(jdbc.queryForObject(contains("SELECT COUNT(*) FROM users"), eq(Integer.class)))
                 .thenReturn(10);
 
-        when(jdbc.queryForObject(contains("manager"), eq(Integer.class)))
+        when(jdbc.queryForObject(contains("role = 'MANAGER'"), eq(Integer.class)))
                 .thenReturn(2);
 
-        when(jdbc.queryForObject(contains("admin"), eq(Integer.class)))
+        when(jdbc.queryForObject(contains("role = 'ADMIN'"), eq(Integer.class)))
                 .thenReturn(1);
 
-        when(jdbc.queryForObject(contains("DISTINCT CONCAT"), eq(Number.class), any(), any()))
-                .thenReturn(50);
+        when(jdbc.queryForObject(contains("approved_at"), eq(Number.class), any(), any()))
+                .thenReturn(approvalDelay);
+    }
 
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any()))
-                .thenReturn(100);
+    private static Map<String, Object> rollup(Number planned, Number present, Number workedDays,
+                                              Number workedMinutes, Number absence, Number reports) {
+        Map<String, Object> r = new HashMap<>();
+        r.put("planned_days", planned);
+        r.put("present_days", present);
+        r.put("worked_days", workedDays);
+        r.put("worked_minutes", workedMinutes);
+        r.put("absence_days", absence);
+        r.put("reports", reports);
+        return r;
+    }
 
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any()))
-                .thenReturn(3000);
+    private void stubTeamHeader() {
+        when(jdbc.queryForMap(contains("FROM teams"), any()))
+                .thenReturn(Map.of("name", "DevTeam"));
 
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any()))
-                .thenReturn(50);
+        when(jdbc.queryForObject(contains("team_members"), eq(Integer.class), any()))
+                .thenReturn(5);
+    }
 
-        when(jdbc.queryForObject(contains("absence_days"), eq(Number.class), any(), any()))
-                .thenReturn(20);
+    @Test
+    void testGetGlobal() {
 
-        when(jdbc.queryForObject(contains("approved_at"), eq(Number.class), any(), any()))
-                .thenReturn(12);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        when(jdbc.queryForObject(contains("FROM reports"), eq(Integer.class), any(), any()))
-                .thenReturn(8);
+        stubGlobalHeader(12);
+        when(jdbc.queryForMap(contains("FROM kpi_user_daily"), any(), any()))
+                .thenReturn(rollup(100, 50, 50, 3000, 20, 8));
 
         GlobalKpiSummary k = service.getGlobal(start, end);
 
@@ -104,34 +129,33 @@ class KpiServiceTest {
     }
 
     @Test
-    void testGetTeam() {
+    void testGetGlobal_emptyRollup_shouldLeaveRatesNull() {
 
         LocalDate start = LocalDate.of(2024, 1, 1);
         LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        when(jdbc.queryForMap(contains("FROM teams"), any()))
-                .thenReturn(Map.of("name", "DevTeam"));
-
-        when(jdbc.queryForObject(contains("team_members"), eq(Integer.class), any()))
-                .thenReturn(5);
+        stubGlobalHeader(12);
+        // SUM over no row yields NULL in every column
+        when(jdbc.queryForMap(contains("FROM kpi_user_daily"), any(), any()))
+                .thenReturn(rollup(null, null, null, null, null, null));
 
-        when(jdbc.queryForObject(contains("DISTINCT CONCAT"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(20);
+        GlobalKpiSummary k = service.getGlobal(start, end);
 
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
+        assertNull(k.getPresenceRate());
+        assertNull(k.getAbsenceRate());
+        assertEquals(BigDecimal.ZERO, k.getTotalAbsenceDays());
+        assertEquals(0, k.getTotalReports());
+    }
 
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
+    @Test
+    void testGetTeam() {
 
-        when(jdbc.queryForObject(contains("absence_days"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM reports"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(3);
+        stubTeamHeader();
+        when(jdbc.queryForMap(contains("FROM kpi_team_daily"), any(), any(), any()))
+                .thenReturn(rollup(20, 10, 10, 600, 5, 3));
 
         TeamKpiSummary k = service.getTeam(7, start, end);
 
@@ -144,64 +168,51 @@ class KpiServiceTest {
     }
 
     @Test
-    void testGetUser() {
+    void testGetTeams_shouldComputeAllTeamsWithGroupedStatements() {
 
-        UUID uid = UUID.randomUUID();
         LocalDate start = LocalDate.of(2024, 1, 1);
         LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        when(jdbc.queryForMap(contains("FROM users WHERE id"), any()))
-                .thenReturn(Map.of("full_name", "Alice Smith"));
-
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(20);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(
-                contains("SUM(CASE period"),
-                eq(Number.class),
-                any(), any(), any()
-        )).thenReturn(5);
-
-        when(jdbc.query(
-                contains("GROUP BY a.type"),
-                any(RowMapper.class),
-                any(), any(), any()
-        )).thenReturn(List.of(
-                new AbsenceBreakdown("SICK", new BigDecimal("3"))
-        ));
-
-        when(jdbc.query(
-                contains("leave_accounts"),
-                any(RowMapper.class),
-                any(), any(), any()
-        )).thenReturn(List.of(new LeaveBalance("CP",
-                BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ONE,
-                BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.TEN)));
-
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
+        when(jdbc.queryForList(contains("FROM teams"), any(Object[].class)))
+                .thenReturn(List.of(
+                        new HashMap<>(Map.of("id", 7, "name", "DevTeam")),
+                        new HashMap<>(Map.of("id", 9, "name", "Ops"))));
+        when(jdbc.queryForList(contains("FROM team_members"), any(Object[].class)))
+                .thenReturn(List.of(new HashMap<>(Map.of("team_id", 7L, "headcount", 5L))));
+        Map<String, Object> devSums = rollup(20, 10, 10, 600, 5, 3);
+        devSums.put("team_id", 7);
+        when(jdbc.queryForList(contains("FROM kpi_team_daily"), any(Object[].class)))
+                .thenReturn(List.of(devSums));
+
+        // duplicates are dropped, order is kept
+        List<TeamKpiSummary> ks = service.getTeams(List.of(9, 7, 9), start, end);
+
+        assertEquals(2, ks.size());
+        TeamKpiSummary ops = ks.get(0);
+        TeamKpiSummary dev = ks.get(1);
+        assertEquals("Ops", ops.getTeamName());
+        assertEquals(0, ops.getHeadcount());
+        assertNull(ops.getPresenceRate());
+        assertEquals(0, ops.getReportsAuthored());
+
+        assertEquals("DevTeam", dev.getTeamName());
+        assertEquals(5, dev.getHeadcount());
+        assertEquals(new BigDecimal("50.00"), dev.getPresenceRate());
+        assertEquals(new BigDecimal("1.00"), dev.getAvgHoursPerDay());
+        assertEquals(new BigDecimal("25.00"), dev.getAbsenceRate());
+        assertEquals(3, dev.getReportsAuthored());
+
+        verify(jdbc, times(3)).queryForList(anyString(), any(Object[].class));
+        verify(jdbc).queryForList(contains("GROUP BY team_id"), eq(9), eq(7), eq(start), eq(end));
+    }
 
-        UserKpiSummary k = service.getUser(uid, start, end);
+    @Test
+    void testGetTeams_unknownTeam_shouldThrow() {
+        when(jdbc.queryForList(contains("FROM teams"), any(Object[].class)))
+                .thenReturn(List.of(new HashMap<>(Map.of("id", 7, "name", "DevTeam"))));
 
-        assertEquals("Alice Smith", k.getFullName());
-        assertEquals(new BigDecimal("50.00"), k.getPresenceRate());
-        assertEquals(new BigDecimal("1.00"), k.getAvgHoursPerDay());
-        assertEquals(new BigDecimal("5"), k.getAbsenceDays());
-        assertEquals(1, k.getAbsenceByType().size());
-        assertEquals(2, k.getReportsAuthored());
-        assertEquals(1, k.getReportsReceived());
+        assertThrows(jakarta.persistence.EntityNotFoundException.class,
+                () -> service.getTeams(List.of(7, 8), LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
     }
 
     @Test
@@ -225,154 +236,216 @@ class KpiServiceTest {
     }
 
     @Test
-    void testLeaveBalanceAndAbsenceBreakdownViaGetUser() {
+    void testGetGlobal_dayCountNull_usesDivisorOne() {
 
-        UUID uid = UUID.randomUUID();
         LocalDate start = LocalDate.of(2024, 1, 1);
         LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        when(jdbc.queryForMap(contains("FROM users WHERE id"), any()))
-                .thenReturn(Map.of("full_name", "Alice Smith"));
-
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(20);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
+        stubGlobalHeader(12);
+        when(jdbc.queryForMap(contains("FROM kpi_user_daily"), any(), any()))
+                .thenReturn(rollup(100, 50, null, 3000, 20, 8));
 
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.query(
-                contains("GROUP BY a.type"),
-                any(RowMapper.class),
-                any(), any(), any()
-        )).thenReturn(List.of(
-                new AbsenceBreakdown("SICK", new BigDecimal("3")),
-                new AbsenceBreakdown("VAC", new BigDecimal("1.5"))
-        ));
-
-        when(jdbc.query(
-                contains("leave_accounts"),
-                any(RowMapper.class),
-                any(), any(), any()
-        )).thenReturn(List.of(
-                new LeaveBalance("CP",
-                        BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ONE,
-                        BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal("10")),
-                new LeaveBalance("RTT",
-                        new BigDecimal("5"), new BigDecimal("3"), new BigDecimal("1"),
-                        new BigDecimal("1"), new BigDecimal("0"), new BigDecimal("7"))
-        ));
+        GlobalKpiSummary k = service.getGlobal(start, end);
 
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(2);
+        assertNull(k.getAvgHoursPerDay());
+    }
 
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
+    @Test
+    void testGetTeam_dayCountNull_usesDivisorOne() {
 
-        UserKpiSummary k = service.getUser(uid, start, end);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        assertEquals("Alice Smith", k.getFullName());
+        stubTeamHeader();
+        when(jdbc.queryForMap(contains("FROM kpi_team_daily"), any(), any(), any()))
+                .thenReturn(rollup(20, 10, null, 600, 5, 3));
 
-        assertEquals(2, k.getAbsenceByType().size());
-        assertEquals("VAC", k.getAbsenceByType().get(1).getType());
-        assertEquals(new BigDecimal("1.5"), k.getAbsenceByType().get(1).getDays());
+        TeamKpiSummary k = service.getTeam(7, start, end);
 
-        assertEquals(2, k.getLeaveBalances().size());
-        assertEquals("RTT", k.getLeaveBalances().get(1).getLeaveType());
-        assertEquals(new BigDecimal("7"), k.getLeaveBalances().get(1).getCurrentBalance());
+        assertNull(k.getAvgHoursPerDay());
     }
 
     @Test
-    void testAbsenceBreakdownRowMapperExecution() throws Exception {
-        UUID uid = UUID.randomUUID();
-        LocalDate start = LocalDate.of(2024,1,1);
-        LocalDate end = LocalDate.of(2024,1,31);
+    void testGetGlobal_approvalDelayNull_shouldSetNull() {
 
-        when(jdbc.queryForMap(anyString(), any()))
-                .thenReturn(Map.of("full_name", "Test User"));
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end   = LocalDate.of(2024, 1, 31);
 
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
+        stubGlobalHeader(null);
+        when(jdbc.queryForMap(contains("FROM kpi_user_daily"), any(), any()))
+                .thenReturn(rollup(100, 50, 50, 3000, 20, 8));
 
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
+        GlobalKpiSummary k = service.getGlobal(start, end);
 
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
+        assertNull(k.getApprovalDelayHours());
+    }
 
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
+    // -------------------- User (single pass) --------------------
+
+    private static final LocalDate MON = LocalDate.of(2024, 1, 1);
+    private static final LocalDate SUN = LocalDate.of(2024, 1, 7);
+
+    private static ResultSet row(Object... kv) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < kv.length; i += 2) {
+            String col = (String) kv[i];
+            Object v = kv[i + 1];
+            if (v instanceof java.sql.Time t) when(rs.getTime(col)).thenReturn(t);
+            else if (v instanceof java.sql.Date d) when(rs.getDate(col)).thenReturn(d);
+            else if (v instanceof Timestamp ts) when(rs.getTimestamp(col)).thenReturn(ts);
+            else if (v instanceof Integer n) when(rs.getInt(col)).thenReturn(n);
+            else if (v instanceof Long n) when(rs.getLong(col)).thenReturn(n);
+            else if (v instanceof BigDecimal n) when(rs.getBigDecimal(col)).thenReturn(n);
+            else when(rs.getString(col)).thenReturn((String) v);
+        }
+        return rs;
+    }
 
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(2);
+    private void stream(String sqlFragment, ResultSet... rows) {
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            for (ResultSet rs : rows) h.processRow(rs);
+            return null;
+        }).when(jdbc).query(contains(sqlFragment), any(RowCallbackHandler.class), any(Object[].class));
+    }
 
-        when(jdbc.query(
-                contains("GROUP BY a.type"),
-                any(RowMapper.class),
-                any(), any(), any()
-        )).thenAnswer(invocation -> {
-            RowMapper<AbsenceBreakdown> mapper = invocation.getArgument(1);
-            ResultSet rs = mock(ResultSet.class);
-            when(rs.getString("type")).thenReturn("SICK");
-            when(rs.getBigDecimal("days")).thenReturn(new BigDecimal("2.5"));
+    private void stubHeader(String timeZone) {
+        Map<String, Object> header = new HashMap<>();
+        header.put("full_name", "Alice Smith");
+        header.put("time_zone", timeZone);
+        header.put("authored", 2L);
+        header.put("received", 1L);
+        when(jdbc.queryForMap(contains("FROM users u WHERE u.id"), any(Object[].class))).thenReturn(header);
+    }
 
-            return List.of(mapper.mapRow(rs, 0));
-        });
+    /** Mon-Fri, 09:00-12:00 and 13:00-17:00: 7 planned hours a day. */
+    private void stubWeekSchedule() throws Exception {
+        List<ResultSet> slots = new ArrayList<>();
+        for (String d : List.of("MON", "TUE", "WED", "THU", "FRI")) {
+            slots.add(row("day_of_week", d, "start_time", java.sql.Time.valueOf("13:00:00"), "end_time", java.sql.Time.valueOf("17:00:00")));
+            slots.add(row("day_of_week", d, "start_time", java.sql.Time.valueOf("09:00:00"), "end_time", java.sql.Time.valueOf("12:00:00")));
+        }
+        stream("FROM work_schedules", slots.toArray(ResultSet[]::new));
+    }
 
-        when(jdbc.query(contains("leave_accounts"), any(RowMapper.class), any(), any(), any()))
-                .thenReturn(List.of());
+    private static ResultSet day(LocalDate d, String in, String out, int punches) throws Exception {
+        return row("work_date", java.sql.Date.valueOf(d),
+                "first_in", in == null ? null : Timestamp.valueOf(d + " " + in + ":00"),
+                "last_out", out == null ? null : Timestamp.valueOf(d + " " + out + ":00"),
+                "punch_count", punches);
+    }
 
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
+    @Test
+    void testGetPunctuality_shouldDelegateToEngine() {
+        PunctualityStats expected = new PunctualityStats(BigDecimal.TEN, BigDecimal.ONE);
+        when(punctuality.compute(KpiScope.TEAM, "7", MON, SUN)).thenReturn(expected);
 
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
+        assertSame(expected, service.getPunctuality(KpiScope.TEAM, "7", MON, SUN));
+        verifyNoInteractions(jdbc);
+    }
 
-        UserKpiSummary k = service.getUser(uid, start, end);
+    @Test
+    void testGetPunchHeatmap_shouldDelegateToHeatmap() {
+        List<PunchHeatCell> expected = List.of(new PunchHeatCell("MON", 9, 3, 0));
+        when(heatmap.compute(KpiScope.USER, "U1", MON, SUN)).thenReturn(expected);
 
-        assertEquals("SICK", k.getAbsenceByType().get(0).getType());
-        assertEquals(new BigDecimal("2.5"), k.getAbsenceByType().get(0).getDays());
+        assertSame(expected, service.getPunchHeatmap(KpiScope.USER, "U1", MON, SUN));
+        verifyNoInteractions(jdbc);
     }
 
     @Test
-    void testLeaveBalanceRowMapperExecution() {
-
+    void testGetUser_shouldComputeEverythingInOnePass() throws Exception {
         UUID uid = UUID.randomUUID();
-        LocalDate start = LocalDate.now();
-        LocalDate end = LocalDate.now();
+        stubHeader(null);
+        stubWeekSchedule();
+        stream("FROM daily_attendance",
+                day(MON, "09:00", "17:00", 4),
+                day(MON.plusDays(1), "09:30", "17:30", 2),   // 30 min late
+                day(MON.plusDays(2), "09:10", null, 1));     // 10 min late, still in
+        stream("FROM absence_days",
+                row("type", "SICK", "period", "FULL_DAY"),
+                row("type", "VACATION", "period", "AM"),
+                row("type", "SICK", "period", "PM"));
+        when(jdbc.query(contains("leave_accounts"), any(RowMapper.class), any(), any(), any()))
+                .thenReturn(List.of(new LeaveBalance("CP",
+                        BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ONE,
+                        BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.TEN)));
 
-        when(jdbc.queryForMap(anyString(), any()))
-                .thenReturn(Map.of("full_name", "Tester"));
+        UserKpiSummary k = service.getUser(uid, MON, SUN);
 
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
+        assertEquals("Alice Smith", k.getFullName());
+        assertEquals(new BigDecimal("60.00"), k.getPresenceRate());      // 3 / 5 planned days
+        assertEquals(new BigDecimal("5.33"), k.getAvgHoursPerDay());     // 960 min / 3 days
+        assertEquals(new BigDecimal("-19.00"), k.getOvertimeHours());    // 960 - 5 * 420 min
+        assertEquals(new BigDecimal("40.00"), k.getPunctuality().getLateRate());
+        assertEquals(new BigDecimal("20.00"), k.getPunctuality().getAvgDelayMinutes());
+        assertEquals(2, k.getPunctuality().getLateCount());
+        assertEquals(List.of(0, 1, 1, 0, 0),
+                k.getPunctuality().getDistribution().stream().map(LatenessBucket::getCount).toList());
+        assertEquals(0, new BigDecimal("2").compareTo(k.getAbsenceDays()));
+        assertEquals(2, k.getAbsenceByType().size());
+        assertEquals("SICK", k.getAbsenceByType().get(0).getType());
+        assertEquals(0, new BigDecimal("1.5").compareTo(k.getAbsenceByType().get(0).getDays()));
+        assertEquals(1, k.getLeaveBalances().size());
+        assertEquals(2, k.getReportsAuthored());
+        assertEquals(1, k.getReportsReceived());
 
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
+        // header + 4 streamed reads + balances, whatever the length of the period
+        verify(jdbc).queryForMap(anyString(), any(Object[].class));
+        verify(jdbc, times(4)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        verify(jdbc, never()).queryForObject(anyString(), eq(Number.class), any(Object[].class));
+    }
 
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
+    @Test
+    void testGetUser_holiday_shouldNeitherBePlannedNorLate() throws Exception {
+        stubHeader(null);
+        stubWeekSchedule();
+        stream("FROM calendar", row("day", java.sql.Date.valueOf(MON.plusDays(2))));
+        stream("FROM daily_attendance",
+                day(MON, "09:00", "17:00", 4),
+                day(MON.plusDays(2), "09:10", "12:00", 2));   // came in on the holiday, 10 min after usual
+
+        UserKpiSummary k = service.getUser(UUID.randomUUID(), MON, SUN);
+
+        assertEquals(new BigDecimal("50.00"), k.getPresenceRate());      // 2 / 4 planned days
+        assertEquals(new BigDecimal("0.00"), k.getPunctuality().getLateRate());
+        assertNull(k.getPunctuality().getAvgDelayMinutes());
+    }
 
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
+    @Test
+    void testGetUser_shouldReadArrivalInUserTimeZone() throws Exception {
+        stubHeader("America/New_York");
+        stubWeekSchedule();
+        // 14:30 UTC is 09:30 in New York: 30 minutes late against a 09:00 start
+        ResultSet rs = row("work_date", java.sql.Date.valueOf(MON),
+                "first_in", Timestamp.from(java.time.Instant.parse("2024-01-01T14:30:00Z")),
+                "punch_count", 1);
+        stream("FROM daily_attendance", rs);
+
+        UserKpiSummary k = service.getUser(UUID.randomUUID(), MON, MON);
+
+        assertEquals(new BigDecimal("100.00"), k.getPunctuality().getLateRate());
+        assertEquals(new BigDecimal("30.00"), k.getPunctuality().getAvgDelayMinutes());
+    }
 
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(2);
+    @Test
+    void testGetUser_withoutScheduleNorActivity_shouldLeaveRatesNull() {
+        stubHeader(null);
 
-        when(jdbc.query(
-                contains("GROUP BY a.type"),
-                any(RowMapper.class),
-                any(), any(), any()
-        )).thenReturn(List.of());
+        UserKpiSummary k = service.getUser(UUID.randomUUID(), MON, SUN);
 
+        assertNull(k.getPresenceRate());
+        assertNull(k.getAvgHoursPerDay());
+        assertNull(k.getPunctuality().getLateRate());
+        assertNull(k.getPunctuality().getAvgDelayMinutes());
+        assertEquals(new BigDecimal("0.00"), k.getOvertimeHours());
+        assertEquals(BigDecimal.ZERO, k.getAbsenceDays());
+        assertTrue(k.getAbsenceByType().isEmpty());
+    }
+
+    @Test
+    void testLeaveBalanceRowMapperExecution() {
+        stubHeader(null);
         when(jdbc.query(
                 contains("leave_accounts"),
                 any(RowMapper.class),
@@ -388,307 +461,83 @@ class KpiServiceTest {
             when(rs.getBigDecimal("adjustments")).thenReturn(new BigDecimal("1"));
             when(rs.getBigDecimal("expired")).thenReturn(BigDecimal.ZERO);
 
-            LeaveBalance lb = mapper.mapRow(rs, 0);
-            return List.of(lb);
+            return List.of(mapper.mapRow(rs, 0));
         });
 
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        UserKpiSummary summary = service.getUser(uid, start, end);
+        UserKpiSummary summary = service.getUser(UUID.randomUUID(), MON, SUN);
 
         LeaveBalance lb = summary.getLeaveBalances().get(0);
-
         assertEquals("CP", lb.getLeaveType());
         assertEquals(new BigDecimal("12"), lb.getCurrentBalance());
     }
 
-    @Test
-    void testDivisionByDayCountNullInGetUser() {
-        UUID uid = UUID.randomUUID();
-        LocalDate start = LocalDate.of(2024,1,1);
-        LocalDate end = LocalDate.of(2024,1,31);
-
-        when(jdbc.queryForMap(anyString(), any()))
-                .thenReturn(Map.of("full_name","Test"));
-
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(null);
-
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(3);
-
-        when(jdbc.query(anyString(), any(RowMapper.class), any(), any(), any()))
-                .thenReturn(List.of());
-
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        UserKpiSummary summary = service.getUser(uid, start, end);
-
-        assertNull(summary.getAvgHoursPerDay());
-    }
-
-    @Test
-    void testDayCountNotNullInGetUser_overtimeBranch() {
-        UUID uid = UUID.randomUUID();
-        LocalDate start = LocalDate.of(2024,1,1);
-        LocalDate end = LocalDate.of(2024,1,31);
-
-        when(jdbc.queryForMap(anyString(), any()))
-                .thenReturn(Map.of("full_name","Test"));
-
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(3);
-
-        when(jdbc.queryForObject(
-                contains("SUM(TIMESTAMPDIFF(MINUTE, ws.start_time, ws.end_time))"),
-                eq(Number.class),
-                any(), any(), any()
-        )).thenReturn(300);
-
-        when(jdbc.query(anyString(), any(RowMapper.class), any(), any(), any()))
-                .thenReturn(List.of());
-
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        UserKpiSummary k = service.getUser(uid, start, end);
+    // -------------------- Series --------------------
 
-        assertEquals(new BigDecimal("5.00"), k.getOvertimeHours());
+    private static ResultSet rollupDay(LocalDate d, long planned, long present, long minutes, String absence) throws Exception {
+        return row("day", java.sql.Date.valueOf(d),
+                "planned_days", planned, "present_days", present, "worked_days", present,
+                "worked_minutes", minutes, "absence_units", new BigDecimal(absence));
     }
 
     @Test
-    void testGetGlobal_dayCountNull_usesDivisorOne() {
-
-        LocalDate start = LocalDate.of(2024, 1, 1);
-        LocalDate end   = LocalDate.of(2024, 1, 31);
-
-        when(jdbc.queryForObject(contains("SELECT COUNT(*) FROM users"), eq(Integer.class)))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("manager"), eq(Integer.class)))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("admin"), eq(Integer.class)))
-                .thenReturn(1);
-
-        when(jdbc.queryForObject(contains("DISTINCT CONCAT"), eq(Number.class), any(), any()))
-                .thenReturn(50);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any()))
-                .thenReturn(100);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any()))
-                .thenReturn(3000);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any()))
-                .thenReturn(null);
-
-        when(jdbc.queryForObject(contains("absence_days"), eq(Number.class), any(), any()))
-                .thenReturn(20);
-
-        when(jdbc.queryForObject(contains("approved_at"), eq(Number.class), any(), any()))
-                .thenReturn(12);
-
-        when(jdbc.queryForObject(contains("FROM reports"), eq(Integer.class), any(), any()))
-                .thenReturn(8);
-
-        GlobalKpiSummary k = service.getGlobal(start, end);
-
-        assertNull(k.getAvgHoursPerDay());
-    }
-
-    @Test
-    void testGetTeam_dayCountNull_usesDivisorOne() {
-
-        LocalDate start = LocalDate.of(2024, 1, 1);
-        LocalDate end   = LocalDate.of(2024, 1, 31);
-
-        when(jdbc.queryForMap(contains("FROM teams"), any()))
-                .thenReturn(Map.of("name", "DevTeam"));
-
-        when(jdbc.queryForObject(contains("team_members"), eq(Integer.class), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("DISTINCT CONCAT"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(20);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(null);
-
-        when(jdbc.queryForObject(contains("absence_days"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM reports"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(3);
-
-        TeamKpiSummary k = service.getTeam(7, start, end);
-
-        assertNull(k.getAvgHoursPerDay());
+    void testGetSeries_shouldFoldTheRangeIntoWeeks() throws Exception {
+        LocalDate nextTue = MON.plusDays(8);
+        stream("FROM kpi_user_daily",
+                rollupDay(MON, 10, 8, 3360, "1.5"),
+                rollupDay(nextTue, 10, 5, 2100, "0"));
+        doAnswer(inv -> {
+            PunctualityEngine.Arrival a = inv.getArgument(2);
+            a.arrival(MON, LocalTime.of(9, 0), LocalTime.of(9, 30));
+            a.arrival(nextTue, LocalTime.of(9, 0), LocalTime.of(8, 55));
+            return null;
+        }).when(punctuality).arrivals(anyString(), any(Object[].class), any());
+
+        List<KpiPoint> points = service.getSeries(KpiScope.GLOBAL, null, MON, SUN.plusDays(7), KpiGranularity.WEEK);
+
+        assertEquals(2, points.size());
+        KpiPoint w1 = points.get(0);
+        assertEquals(MON, w1.getBucketStart());
+        assertEquals(SUN, w1.getBucketEnd());
+        assertEquals(new BigDecimal("80.00"), w1.getPresenceRate());
+        assertEquals(new BigDecimal("7.00"), w1.getAvgHoursPerDay());
+        assertEquals(0, new BigDecimal("1.5").compareTo(w1.getAbsenceUnits()));
+        assertEquals(new BigDecimal("10.00"), w1.getLateRate());
+        assertEquals(new BigDecimal("30.00"), w1.getAvgDelayMinutes());
+
+        KpiPoint w2 = points.get(1);
+        assertEquals(MON.plusDays(7), w2.getBucketStart());
+        assertEquals(new BigDecimal("50.00"), w2.getPresenceRate());
+        assertEquals(new BigDecimal("0.00"), w2.getLateRate());
+        assertNull(w2.getAvgDelayMinutes());
+
+        // one pipeline whatever the number of points, lateness judged by the punctuality KPI
+        verify(jdbc, times(1)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        verify(punctuality).arrivals(eq("TRUE"), aryEq(new Object[] { MON, SUN.plusDays(7) }), any());
     }
 
     @Test
-    void testGetGlobal_approvalDelayNull_shouldSetNull() {
-
-        LocalDate start = LocalDate.of(2024, 1, 1);
-        LocalDate end   = LocalDate.of(2024, 1, 31);
-
-        when(jdbc.queryForObject(contains("SELECT COUNT(*) FROM users"), eq(Integer.class)))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("manager"), eq(Integer.class)))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("admin"), eq(Integer.class)))
-                .thenReturn(1);
-
-        when(jdbc.queryForObject(contains("DISTINCT CONCAT"), eq(Number.class), any(), any()))
-                .thenReturn(50);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any()))
-                .thenReturn(100);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any()))
-                .thenReturn(3000);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any()))
-                .thenReturn(50);
-
-        when(jdbc.queryForObject(contains("absence_days"), eq(Number.class), any(), any()))
-                .thenReturn(20);
-
-        when(jdbc.queryForObject(contains("approved_at"), eq(Number.class), any(), any()))
-                .thenReturn(null);
-
-        when(jdbc.queryForObject(contains("FROM reports"), eq(Integer.class), any(), any()))
-                .thenReturn(8);
-
-        GlobalKpiSummary k = service.getGlobal(start, end);
-
-        assertNull(k.getApprovalDelayHours());
-    }
-    @Test
-    void testGetUser_avgDelayMinNull_shouldSetNullAvgDelay() {
-        UUID uid = UUID.randomUUID();
-        LocalDate start = LocalDate.of(2024, 1, 1);
-        LocalDate end = LocalDate.of(2024, 1, 31);
-
-        when(jdbc.queryForMap(contains("FROM users WHERE id"), any()))
-                .thenReturn(Map.of("full_name", "Alice Smith"));
-
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("TIME(first_in) > plan_start"), eq(Number.class), any(), any(), any(), any()))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("AVG(TIMESTAMPDIFF(MINUTE, plan_start"), eq(Number.class), any(), any(), any(), any()))
-                .thenReturn(null);
-
-        when(jdbc.query(anyString(), any(RowMapper.class), any(), any(), any()))
-                .thenReturn(Collections.emptyList());
-
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        UserKpiSummary k = service.getUser(uid, start, end);
-
-        assertNull(k.getPunctuality().getAvgDelayMinutes());
+    void testGetSeries_monthBuckets_shouldBeClippedToThePeriod() {
+        List<KpiPoint> points = service.getSeries(KpiScope.TEAM, "7",
+                LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10), KpiGranularity.MONTH);
+
+        assertEquals(3, points.size());
+        assertEquals(LocalDate.of(2024, 1, 15), points.get(0).getBucketStart());
+        assertEquals(LocalDate.of(2024, 1, 31), points.get(0).getBucketEnd());
+        assertEquals(LocalDate.of(2024, 2, 1), points.get(1).getBucketStart());
+        assertEquals(LocalDate.of(2024, 2, 29), points.get(1).getBucketEnd());
+        assertEquals(LocalDate.of(2024, 3, 10), points.get(2).getBucketEnd());
+        assertNull(points.get(0).getPresenceRate());
+        verify(jdbc).query(contains("FROM kpi_team_daily"), any(RowCallbackHandler.class), eq(7), any(), any());
+        verify(punctuality).arrivals(contains("team_members WHERE team_id = ?"),
+                aryEq(new Object[] { 7, LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10) }), any());
     }
 
     @Test
-    void testGetUser_avgDelayMinNotNull_shouldSetAvgDelay() {
-        UUID uid = UUID.randomUUID();
-        LocalDate start = LocalDate.of(2024, 1, 1);
-        LocalDate end = LocalDate.of(2024, 1, 31);
-
-        when(jdbc.queryForMap(contains("FROM users WHERE id"), any()))
-                .thenReturn(Map.of("full_name", "Alice Smith"));
-
-        when(jdbc.queryForObject(contains("DISTINCT DATE"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("WITH RECURSIVE d"), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(TIMESTAMPDIFF"), eq(Number.class), any(), any(), any()))
-                .thenReturn(600);
-
-        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM ("), eq(Number.class), any(), any(), any()))
-                .thenReturn(10);
-
-        when(jdbc.queryForObject(contains("SUM(CASE period"), eq(Number.class), any(), any(), any()))
-                .thenReturn(5);
-
-        when(jdbc.queryForObject(contains("TIME(first_in) > plan_start"), eq(Number.class), any(), any(), any(), any()))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("AVG(TIMESTAMPDIFF(MINUTE, plan_start"), eq(Number.class), any(), any(), any(), any()))
-                .thenReturn(15);
-
-        when(jdbc.query(anyString(), any(RowMapper.class), any(), any(), any()))
-                .thenReturn(Collections.emptyList());
-
-        when(jdbc.queryForObject(contains("author_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(2);
-
-        when(jdbc.queryForObject(contains("target_user_id"), eq(Integer.class), any(), any(), any()))
-                .thenReturn(1);
-
-        UserKpiSummary k = service.getUser(uid, start, end);
-
-        assertEquals(new BigDecimal("15"), k.getPunctuality().getAvgDelayMinutes());
+    void testGetSeries_shouldRejectMissingIdAndTooManyPoints() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getSeries(KpiScope.USER, null, MON, SUN, KpiGranularity.DAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getSeries(KpiScope.GLOBAL, null, MON, MON.plusYears(5), KpiGranularity.DAY));
+        verifyNoInteractions(jdbc, punctuality);
     }
 }
@@ -0,0 +1,141 @@
+package com.example.time_manager.services;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.time_manager.dto.clock.PresenceEntry;
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.repository.TeamMemberRepository;
+import com.example.time_manager.service.PresenceService;
+
+import reactor.core.Disposable;
+
+class PresenceServiceTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    TeamMemberRepository teamMemberRepo = mock(TeamMemberRepository.class);
+
+    PresenceService service = new PresenceService(jdbc, teamMemberRepo);
+
+    @AfterEach
+    void clear() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rebuild_shouldLoadLastPunchPerUser() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("user_id")).thenReturn("U1");
+        when(rs.getString("kind")).thenReturn("IN");
+        when(rs.getTimestamp("at")).thenReturn(Timestamp.from(Instant.parse("2025-01-06T08:00:00Z")));
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("ROW_NUMBER"), any(RowCallbackHandler.class));
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of("U2", "U1"));
+
+        service.rebuild();
+        List<PresenceEntry> board = service.teamPresence(1L);
+
+        assertThat(board).extracting(e -> e.userId).containsExactly("U1", "U2");
+        assertThat(board.get(0).state).isEqualTo(ClockKind.IN);
+        assertThat(board.get(0).secondsSinceLastPunch).isPositive();
+        assertThat(board.get(1).state).isNull();
+    }
+
+    @Test
+    void teamPresence_shouldCacheMembership_untilEvicted() {
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of("U1"));
+
+        service.teamPresence(1L);
+        service.teamPresence(1L);
+        service.evictTeam(1L);
+        service.teamPresence(1L);
+
+        verify(teamMemberRepo, times(2)).findUserIdsByTeamId(1L);
+    }
+
+    @Test
+    void evictTeam_inTransaction_shouldWaitForCommit() {
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of("U1"), List.of("U1", "U2"));
+        service.teamPresence(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.evictTeam(1L);
+        // a read before commit keeps the cached members instead of caching uncommitted ones
+        assertThat(service.teamPresence(1L)).hasSize(1);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(service.teamPresence(1L)).hasSize(2);
+    }
+
+    @Test
+    void onPunch_shouldIgnoreOlderPunch() {
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of("U1"));
+
+        service.onPunch("U1", ClockKind.OUT, Instant.parse("2025-01-06T17:00:00Z"));
+        service.onPunch("U1", ClockKind.IN, Instant.parse("2025-01-06T08:00:00Z"));
+
+        assertThat(service.teamPresence(1L).get(0).state).isEqualTo(ClockKind.OUT);
+    }
+
+    @Test
+    void onPunch_shouldApplyOnlyAfterCommit_whenInTransaction() {
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenReturn(List.of("U1"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.onPunch("U1", ClockKind.IN, Instant.now());
+        assertThat(service.teamPresence(1L).get(0).state).isNull();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(service.teamPresence(1L).get(0).state).isEqualTo(ClockKind.IN);
+    }
+
+    @Test
+    void teamPresenceChanges_shouldOnlyPushTeamMembers_offThePunchThread() throws Exception {
+        Thread punchThread = Thread.currentThread();
+        List<Thread> lookups = new CopyOnWriteArrayList<>();
+        when(teamMemberRepo.findUserIdsByTeamId(1L)).thenAnswer(inv -> {
+            lookups.add(Thread.currentThread());
+            return List.of("U1");
+        });
+
+        List<PresenceEntry> received = new CopyOnWriteArrayList<>();
+        CountDownLatch pushed = new CountDownLatch(1);
+        Disposable sub = service.teamPresenceChanges(1L).subscribe(e -> {
+            received.add(e);
+            pushed.countDown();
+        });
+
+        service.onPunch("U2", ClockKind.IN, Instant.now());
+        service.onPunch("U1", ClockKind.IN, Instant.now());
+        assertThat(pushed.await(5, TimeUnit.SECONDS)).isTrue();
+        sub.dispose();
+
+        assertThat(received).extracting(e -> e.userId).containsExactly("U1");
+        assertThat(lookups).isNotEmpty().doesNotContain(punchThread);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.PunchHeatCell;
+import com.example.time_manager.service.kpi.ClockSnapshot;
+import com.example.time_manager.service.kpi.PunchHeatmap;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PunchHeatmapTest {
+
+    // Paris moves to summer time on 2024-03-31 at 01:00 UTC; New York already did on 2024-03-10
+    private static final LocalDate SAT = LocalDate.of(2024, 3, 30);
+    private static final LocalDate MON = LocalDate.of(2024, 4, 1);
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ClockSnapshot snapshot = mock(ClockSnapshot.class);
+    private final PunchHeatmap heatmap = new PunchHeatmap(jdbc, snapshot);
+
+    @Test
+    void compute_shouldBucketEachPunchInItsUsersZoneAcrossDst() throws Exception {
+        users(user("P", "Europe/Paris"), user("N", "America/New_York"));
+        when(snapshot.userIndex("P")).thenReturn(0);
+        when(snapshot.userIndex("N")).thenReturn(1);
+        punches(
+                new Object[] { 0, "2024-03-29T23:30:00Z", false },   // SAT 00h in Paris (+1)
+                new Object[] { 0, "2024-03-30T08:00:00Z", true },    // SAT 09h in Paris (+1)
+                new Object[] { 0, "2024-04-01T08:00:00Z", true },    // MON 10h in Paris (+2)
+                new Object[] { 1, "2024-03-31T13:00:00Z", true },    // SUN 09h in New York (-4)
+                new Object[] { 1, "2024-03-30T03:00:00Z", false },   // FRI 23h in New York: before the period
+                new Object[] { 7, "2024-03-31T09:00:00Z", true });   // not a user of the scope
+
+        List<PunchHeatCell> cells = heatmap.compute(KpiScope.TEAM, "1", SAT, MON);
+
+        assertThat(cells).hasSize(7 * 24);
+        assertThat(cells.get(0).getDayOfWeek()).isEqualTo("MON");
+        assertThat(cells.get(0).getHour()).isZero();
+        assertThat(nonEmpty(cells)).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "SAT 0", "0/1",
+                "SAT 9", "1/0",
+                "SUN 9", "1/0",
+                "MON 10", "1/0"));
+
+        // one UTC day of margin on each side of the local days
+        verify(snapshot).scan(eq(Instant.parse("2024-03-29T00:00:00Z")), eq(Instant.parse("2024-04-03T00:00:00Z")),
+                argThat(users -> users.get(0) && users.get(1) && users.cardinality() == 2), any());
+    }
+
+    @Test
+    void compute_withoutUsers_shouldNotScan() {
+        List<PunchHeatCell> cells = heatmap.compute(KpiScope.TEAM, "1", SAT, MON);
+
+        assertThat(cells).hasSize(7 * 24).allMatch(c -> c.getIns() == 0 && c.getOuts() == 0);
+        verify(snapshot, never()).scan(any(), any(), any(), any());
+    }
+
+    @Test
+    void compute_invalidInput_shouldFail() {
+        assertThatThrownBy(() -> heatmap.compute(null, null, SAT, MON)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> heatmap.compute(KpiScope.USER, " ", SAT, MON)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> heatmap.compute(KpiScope.GLOBAL, null, MON, SAT)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbc, snapshot);
+    }
+
+    private static Map<String, String> nonEmpty(List<PunchHeatCell> cells) {
+        return cells.stream()
+                .filter(c -> c.getIns() > 0 || c.getOuts() > 0)
+                .collect(Collectors.toMap(
+                        c -> c.getDayOfWeek() + " " + c.getHour(), c -> c.getIns() + "/" + c.getOuts()));
+    }
+
+    private void users(ResultSet... rows) {
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            for (ResultSet rs : rows) h.processRow(rs);
+            return null;
+        }).when(jdbc).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    private void punches(Object[]... punches) {
+        doAnswer(inv -> {
+            ClockSnapshot.Visitor v = inv.getArgument(3);
+            for (Object[] p : punches) {
+                v.punch((Integer) p[0], Instant.parse((String) p[1]).getEpochSecond(), (Boolean) p[2]);
+            }
+            return null;
+        }).when(snapshot).scan(any(), any(), any(), any());
+    }
+
+    private static ResultSet user(String id, String zone) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("id")).thenReturn(id);
+        when(rs.getString("time_zone")).thenReturn(zone);
+        return rs;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.time_manager.services;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.time_manager.service.PunchLocks;
+
+class PunchLocksTest {
+
+    PunchLocks locks = new PunchLocks(1024, 50);
+
+    @AfterEach
+    void clear() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /** Tries the lock from another thread, inside its own synchronization scope. */
+    private boolean lockFromOtherThread(String userId) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                locks.lockUntilCompletion(userId);
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                return true;
+            } catch (IllegalStateException ex) {
+                return false;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lock_shouldBlockSameUser_untilTransactionCompletes() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        locks.lockUntilCompletion("U1");
+
+        assertThat(lockFromOtherThread("U1")).isFalse();
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertThat(lockFromOtherThread("U1")).isTrue();
+    }
+
+    @Test
+    void lock_shouldNotBlockOtherUsers() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        locks.lockUntilCompletion(List.of("U1", "U2"));
+
+        String other = "U3";
+        for (int i = 4; sameStripe(other, "U1") || sameStripe(other, "U2"); i++) other = "U" + i;
+        assertThat(lockFromOtherThread(other)).isTrue();
+    }
+
+    @Test
+    void lock_shouldRequireTransaction() {
+        assertThatThrownBy(() -> locks.lockUntilCompletion("U1"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void constructor_shouldRejectNonPowerOfTwoStripes() {
+        assertThatThrownBy(() -> new PunchLocks(1000, 50))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static boolean sameStripe(String a, String b) {
+        int ha = a.hashCode(), hb = b.hashCode();
+        return ((ha ^ (ha >>> 16)) & 1023) == ((hb ^ (hb >>> 16)) & 1023);
+    }
+}
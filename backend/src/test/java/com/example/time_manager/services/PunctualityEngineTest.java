@@ -0,0 +1,104 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.model.kpi.KpiScope;
+import com.example.time_manager.model.kpi.LatenessBucket;
+import com.example.time_manager.model.kpi.PunctualityStats;
+import com.example.time_manager.service.kpi.KpiSections;
+import com.example.time_manager.service.kpi.PunctualityEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PunctualityEngineTest {
+
+    private static final LocalDate MON = LocalDate.of(2024, 1, 1);
+    private static final LocalDate SUN = LocalDate.of(2024, 1, 7);
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final PunctualityEngine engine = new PunctualityEngine(jdbc,
+            new KpiSections(mock(PlatformTransactionManager.class), 1, 1));
+
+    @Test
+    void compute_shouldFoldArrivalsAgainstPlannedStart() throws Exception {
+        when(jdbc.queryForObject(contains("FROM calendar c"), eq(Long.class), any(Object[].class))).thenReturn(10L);
+        arrivals(
+                arrival("09:00", MON, "08:55"),                  // early
+                arrival("09:00", MON.plusDays(1), "09:00"),      // on time
+                arrival("09:00", MON.plusDays(2), "09:04"),
+                arrival("08:30", MON.plusDays(3), "09:20"),      // 50 min
+                arrival("09:00", MON.plusDays(4), "11:00"));     // 120 min
+
+        PunctualityStats s = engine.compute(KpiScope.TEAM, "7", MON, SUN);
+
+        assertEquals(3, s.getLateCount());
+        assertEquals(10, s.getPlannedDays());
+        assertEquals(new BigDecimal("30.00"), s.getLateRate());
+        assertEquals(new BigDecimal("58.00"), s.getAvgDelayMinutes());
+        assertEquals(List.of(1, 0, 0, 1, 1), s.getDistribution().stream().map(LatenessBucket::getCount).toList());
+        assertEquals(61, s.getDistribution().get(4).getMinMinutes());
+        assertNull(s.getDistribution().get(4).getMaxMinutes());
+
+        verify(jdbc).query(contains("team_members WHERE team_id = ?"), any(RowCallbackHandler.class),
+                eq(7), eq(MON), eq(SUN));
+    }
+
+    @Test
+    void compute_nothingPlanned_shouldHaveNoRate() {
+        PunctualityStats s = engine.compute(KpiScope.GLOBAL, null, MON, SUN);
+
+        assertNull(s.getLateRate());
+        assertNull(s.getAvgDelayMinutes());
+        assertEquals(0, s.getLateCount());
+        verify(jdbc).query(contains("WHERE TRUE"), any(RowCallbackHandler.class), eq(MON), eq(SUN));
+    }
+
+    @Test
+    void arrivals_shouldHandEachDayWithItsPlannedStart() throws Exception {
+        arrivals(arrival("09:00", MON, "09:30"), arrival("08:30", MON.plusDays(1), "08:10"));
+        List<String> seen = new ArrayList<>();
+
+        engine.arrivals("x.user_id = ?", new Object[] { "U1", MON, SUN },
+                (day, expected, actual) -> seen.add(day + " " + expected + " " + actual));
+
+        assertEquals(List.of(MON + " 09:00 09:30", MON.plusDays(1) + " 08:30 08:10"), seen);
+        verify(jdbc).query(contains("WHERE x.user_id = ?"), any(RowCallbackHandler.class), eq("U1"), eq(MON), eq(SUN));
+    }
+
+    @Test
+    void compute_shouldRejectMissingId() {
+        assertThrows(IllegalArgumentException.class, () -> engine.compute(KpiScope.USER, " ", MON, SUN));
+        assertThrows(IllegalArgumentException.class, () -> engine.compute(null, "u1", MON, SUN));
+        assertThrows(IllegalArgumentException.class, () -> engine.compute(KpiScope.USER, "u1", SUN, MON));
+        verifyNoInteractions(jdbc);
+    }
+
+    private void arrivals(ResultSet... rows) {
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            for (ResultSet rs : rows) h.processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("FROM daily_attendance a"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    /** time_zone left null: first IN read in the system zone, like Timestamp.valueOf */
+    private static ResultSet arrival(String planned, LocalDate day, String firstIn) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getDate("work_date")).thenReturn(java.sql.Date.valueOf(day));
+        when(rs.getTime("start_time")).thenReturn(Time.valueOf(planned + ":00"));
+        when(rs.getTimestamp("first_in")).thenReturn(Timestamp.valueOf(day + " " + firstIn + ":00"));
+        return rs;
+    }
+}
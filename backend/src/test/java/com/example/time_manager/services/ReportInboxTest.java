@@ -0,0 +1,55 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.service.report.ReportInbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReportInboxTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    ReportInbox inbox = new ReportInbox(jdbc);
+
+    @Test
+    void markRead_shouldDecrementOnlyWhenTheReportWasUnread() {
+        when(jdbc.update(contains("SET read_at"), any(), eq(9L), eq("U1"))).thenReturn(1);
+        when(jdbc.update(contains("SET read_at"), any(), eq(10L), eq("U1"))).thenReturn(0);
+
+        assertThat(inbox.markRead("U1", 9L)).isTrue();
+        assertThat(inbox.markRead("U1", 10L)).isFalse();
+
+        verify(jdbc, times(1)).update(contains("unread = GREATEST(unread - ?, 0)"), eq(1), eq("U1"));
+    }
+
+    @Test
+    void markAllRead_shouldDecrementByChangedRows() {
+        when(jdbc.update(contains("SET read_at"), any(), eq("U1"))).thenReturn(4);
+
+        assertThat(inbox.markAllRead("U1")).isEqualTo(4);
+
+        verify(jdbc).update(contains("unread = GREATEST(unread - ?, 0)"), eq(4), eq("U1"));
+    }
+
+    @Test
+    void markAllRead_nothingUnread_shouldNotTouchCounter() {
+        when(jdbc.update(contains("SET read_at"), any(), eq("U1"))).thenReturn(0);
+
+        assertThat(inbox.markAllRead("U1")).isZero();
+
+        verify(jdbc, never()).update(contains("report_inbox"), any(Object[].class));
+    }
+
+    @Test
+    void unread_shouldDefaultToZeroForUnknownUser() {
+        when(jdbc.queryForList(contains("FROM report_inbox"), eq(Integer.class), eq("U1"))).thenReturn(List.of(3));
+        when(jdbc.queryForList(contains("FROM report_inbox"), eq(Integer.class), eq("U2"))).thenReturn(List.of());
+
+        assertThat(inbox.unread("U1")).isEqualTo(3);
+        assertThat(inbox.unread("U2")).isZero();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.dto.report.ReportHit;
+import com.example.time_manager.dto.report.ReportSearchConnection;
+import com.example.time_manager.service.report.ReportSearch;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReportSearchTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    ReportSearch search = new ReportSearch(jdbc);
+
+    @Test
+    void search_shouldMatchPrefixesAndApplyFilters() throws Exception {
+        rows();
+
+        search.search("Late, late ARRIVAL +x -", "LATE", "WARN",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), "M1", 10, null);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertThat(sql.getValue())
+                .contains("MATCH (r.title, r.body) AGAINST (? IN BOOLEAN MODE)")
+                .contains("r.type = ?", "r.severity = ?", "r.created_at >= ?", "r.created_at < ?")
+                .contains("(r.author_id = ? OR r.target_user_id = ?)")
+                .endsWith("ORDER BY score DESC, r.id DESC LIMIT ? OFFSET ?");
+        Object[] a = args.getValue();
+        // operators and short words never reach AGAINST
+        assertThat(a[0]).isEqualTo("+late* +arrival*");
+        assertThat(a[1]).isEqualTo("+late* +arrival*");
+        assertThat(a).containsSequence("LATE", "WARN");
+        assertThat(a).containsSequence("M1", "M1", 11, 0);
+    }
+
+    @Test
+    void search_admin_shouldNotFilterVisibility() throws Exception {
+        rows();
+
+        search.search("overwork", null, null, null, null, null, null, null);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertThat(sql.getValue()).doesNotContain("r.author_id = ?").doesNotContain("r.type = ?");
+        assertThat(args.getValue()).containsExactly("+overwork*", "+overwork*", 21, 0);
+    }
+
+    @Test
+    void search_shouldPageByRank() throws Exception {
+        rows(row(3L, "Late one", null), row(2L, "Late two", null), row(1L, "Late three", null));
+
+        ReportSearchConnection first = search.search("late", null, null, null, null, null, 2, null);
+
+        assertThat(first.edges).hasSize(2);
+        assertThat(first.pageInfo.hasNextPage).isTrue();
+        assertThat(first.edges.get(0).node.report.getId()).isEqualTo(3L);
+        assertThat(first.edges.get(0).node.report.getBody()).isNull();
+
+        search.search("late", null, null, null, null, null, 2, first.pageInfo.endCursor);
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc, times(2)).query(anyString(), any(RowMapper.class), args.capture());
+        assertThat(args.getAllValues().get(1)).endsWith(3, 2);
+    }
+
+    @Test
+    void search_shouldHighlightEscapedTitleAndBodyFragments() throws Exception {
+        String body = "x".repeat(200) + " then <b>late</b> again, " + "y".repeat(200) + " LATEST entry";
+        rows(row(1L, "Late & early", body));
+
+        ReportHit hit = search.search("late", null, null, null, null, null, 5, null).edges.get(0).node;
+
+        assertThat(hit.score).isEqualTo(1.5);
+        assertThat(hit.highlights).hasSize(3);
+        assertThat(hit.highlights.get(0)).isEqualTo("<mark>Late</mark> &amp; early");
+        assertThat(hit.highlights.get(1))
+                .startsWith("…")
+                .contains("&lt;b&gt;<mark>late</mark>&lt;/b&gt;")
+                .endsWith("…");
+        assertThat(hit.highlights.get(2)).contains("<mark>LATEST</mark> entry").doesNotEndWith("…");
+    }
+
+    @Test
+    void search_invalidInput_shouldFail() throws Exception {
+        assertThatThrownBy(() -> search.search("a b", null, null, null, null, null, 20, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> search.search("late", null, null, null, null, null, 101, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> search.search("late", null, null,
+                LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1), null, 20, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> search.search("late", null, null, null, null, null, 20, "garbage"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        verifyNoInteractions(jdbc);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rows(ResultSet... rs) {
+        when(jdbc.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(inv -> {
+            RowMapper<ReportHit> mapper = inv.getArgument(1);
+            List<ReportHit> hits = new ArrayList<>();
+            for (int i = 0; i < rs.length; i++) hits.add(mapper.mapRow(rs[i], i));
+            return hits;
+        });
+    }
+
+    private static ResultSet row(Long id, String title, String body) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("title")).thenReturn(title);
+        when(rs.getString("body")).thenReturn(body);
+        when(rs.getString("type")).thenReturn("LATE");
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.from(Instant.parse("2025-01-10T08:00:00Z")));
+        when(rs.getDouble("score")).thenReturn(1.5);
+        return rs;
+    }
+}
@@ -2,14 +2,20 @@ package com.example.time_manager.services;
 
 import com.example.time_manager.dto.report.ReportCreateRequest;
 import com.example.time_manager.dto.report.ReportResponse;
+import com.example.time_manager.dto.report.ReportRow;
 import com.example.time_manager.dto.report.ReportUpdateRequest;
 import com.example.time_manager.model.Report;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.ReportRepository;
 import com.example.time_manager.repository.UserRepository;
 import com.example.time_manager.service.ReportService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+import com.example.time_manager.service.report.ReportInbox;
+import com.example.time_manager.service.report.ReportSearch;
+import com.example.time_manager.service.report.ReportWriter;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.time.Instant;
@@ -23,7 +29,11 @@ class ReportServiceTest {
 
     ReportRepository reportRepo = mock(ReportRepository.class);
     UserRepository userRepo = mock(UserRepository.class);
-    ReportService service = new ReportService(reportRepo, userRepo);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
+    ReportInbox inbox = mock(ReportInbox.class);
+    ReportWriter reportWriter = mock(ReportWriter.class);
+    ReportSearch reportSearch = mock(ReportSearch.class);
+    ReportService service = new ReportService(reportRepo, userRepo, kpiRollups, inbox, reportWriter, reportSearch);
 
     @Test
     void createForAuthorEmail_shouldCreateSuccessfully() {
@@ -57,6 +67,7 @@ class ReportServiceTest {
         assertThat(res.getId()).isEqualTo(1L);
         assertThat(res.getAuthorEmail()).isEqualTo("author@test.com");
         assertThat(res.getTargetUserId()).isEqualTo("T1");
+        verify(inbox).delivered("T1");
     }
 
     @Test
@@ -89,8 +100,7 @@ class ReportServiceTest {
         User admin = makeUser("ADM", "admin@test.com", "[\"ADMIN\"]");
         when(userRepo.findByEmail("admin@test.com")).thenReturn(Optional.of(admin));
 
-        Report r = makeReport(1L);
-        when(reportRepo.findAllByOrderByCreatedAtDesc()).thenReturn(List.of(r));
+        when(reportRepo.findAllRows()).thenReturn(List.of(makeRow(1L, Instant.now())));
 
         var res = service.listAllForAdmin("admin@test.com");
 
@@ -113,12 +123,29 @@ class ReportServiceTest {
         User u = makeUser("U1", "me@test.com", "[\"EMPLOYEE\"]");
         when(userRepo.findByEmail("me@test.com")).thenReturn(Optional.of(u));
 
-        Report r = makeReport(2L);
-        when(reportRepo.findByAuthor_IdOrderByCreatedAtDesc("U1")).thenReturn(List.of(r));
+        when(reportRepo.findRowsByAuthor("U1")).thenReturn(List.of(makeRow(2L, Instant.now())));
 
         var res = service.listAuthoredByEmail("me@test.com");
         assertThat(res).hasSize(1);
         assertThat(res.get(0).getId()).isEqualTo(2L);
+        assertThat(res.get(0).getAuthorEmail()).isEqualTo("author@test.com");
+        assertThat(res.get(0).getTargetEmail()).isEqualTo("target@test.com");
+        assertThat(res.get(0).getSubjectEmail()).isEqualTo("subject@test.com");
+        assertThat(res.get(0).getBody()).isNull();
+        assertThat(res.get(0).getPreview()).isEqualTo("Body");
+        verify(reportRepo, never()).findById(any());
+    }
+
+    @Test
+    void reportRow_preview_shouldClipLongBodies() {
+        String start = "x".repeat(ReportRow.PREVIEW_LENGTH);
+        // the list query reads one character past the preview to know there is more
+        ReportRow clipped = new ReportRow(1L, null, null, null, null, null, null, "MANUAL", "INFO", "T",
+                start + "y", Instant.now(), null, null);
+
+        assertThat(clipped.preview()).isEqualTo(start + "…");
+        assertThat(ReportRow.preview(start)).isEqualTo(start);
+        assertThat(ReportRow.preview(null)).isNull();
     }
 
     @Test
@@ -126,8 +153,7 @@ class ReportServiceTest {
         User u = makeUser("U2", "me@test.com", "[\"EMPLOYEE\"]");
         when(userRepo.findByEmail("me@test.com")).thenReturn(Optional.of(u));
 
-        Report r = makeReport(3L);
-        when(reportRepo.findByTarget_IdOrderByCreatedAtDesc("U2")).thenReturn(List.of(r));
+        when(reportRepo.findRowsByTarget("U2", PageRequest.of(0, 500))).thenReturn(List.of(makeRow(3L, Instant.now())));
 
         var res = service.listReceivedByEmail("me@test.com");
         assertThat(res).hasSize(1);
@@ -240,6 +266,7 @@ class ReportServiceTest {
         service.deleteVisibleTo("admin@test.com", 14L);
 
         verify(reportRepo).deleteById(14L);
+        verify(inbox).removed("TARG");
     }
 
     @Test
@@ -405,15 +432,13 @@ class ReportServiceTest {
     }
 
     @Test
-    void hasRole_shouldMatchAdminWithPrefix() {
-        User admin = makeUser("A1", "a@test.com", "[\"SUPER_ADMIN\"]");
-
-        when(userRepo.findByEmail("a@test.com")).thenReturn(Optional.of(admin));
-        when(reportRepo.findAllByOrderByCreatedAtDesc()).thenReturn(List.of());
+    void hasRole_shouldNotTreatPrefixedNamesAsAdmin() {
+        User notAdmin = makeUser("A1", "a@test.com", "[\"SUPER_ADMIN\"]");
 
-        var res = service.listAllForAdmin("a@test.com");
+        when(userRepo.findByEmail("a@test.com")).thenReturn(Optional.of(notAdmin));
 
-        assertThat(res).isEmpty();
+        assertThatThrownBy(() -> service.listAllForAdmin("a@test.com"))
+                .isInstanceOf(AccessDeniedException.class);
     }
 
     @Test
@@ -503,27 +528,74 @@ class ReportServiceTest {
     }
 
     @Test
-    void hasRole_shouldCoverAllContainsBranches_viaReflection() throws Exception {
-        ReportService svc = new ReportService(reportRepo, userRepo);
+    void searchVisibleTo_shouldScopeNonAdminsToTheirReports() {
+        when(userRepo.findByEmail("m@test.com")).thenReturn(Optional.of(makeUser("M1", "m@test.com", "[\"MANAGER\"]")));
+        when(userRepo.findByEmail("a@test.com")).thenReturn(Optional.of(makeUser("A1", "a@test.com", "[\"ADMIN\"]")));
 
-        var m = ReportService.class
-                .getDeclaredMethod("hasRole", User.class, String.class);
-        m.setAccessible(true);
+        service.searchVisibleTo("m@test.com", "late", null, null, null, null, 20, null);
+        service.searchVisibleTo("a@test.com", "late", null, null, null, null, 20, null);
 
-        User manager = makeUser("M1", "m@test.com", "[\"TEAM_MANAGER_LEAD\"]");
-        User notManager = makeUser("X1", "x@test.com", "[\"EMPLOYEE\"]");
+        verify(reportSearch).search("late", null, null, null, null, "M1", 20, null);
+        verify(reportSearch).search("late", null, null, null, null, null, 20, null);
+    }
+
+    @Test
+    void inboxForEmail_shouldPageWithCursorAndUnreadCount() {
+        User me = makeUser("TARG", "target@test.com", "[\"MANAGER\"]");
+        when(userRepo.findByEmail("target@test.com")).thenReturn(Optional.of(me));
+        ReportRow newest = makeRow(3L, Instant.parse("2025-03-02T08:00:00Z"));
+        ReportRow older = makeRow(2L, Instant.parse("2025-03-01T08:00:00Z"));
+        ReportRow oldest = makeRow(1L, Instant.parse("2025-03-01T08:00:00Z"));
+        when(reportRepo.findRowsByTarget("TARG", PageRequest.of(0, 3)))
+                .thenReturn(List.of(newest, older, oldest));
+        when(inbox.unread("TARG")).thenReturn(7);
 
-        User employee = makeUser("E1", "e@test.com", "[\"JUNIOR_EMPLOYEE\"]");
-        User notEmployee = makeUser("Y1", "y@test.com", "[\"MANAGER\"]");
+        var page = service.inboxForEmail("target@test.com", 2, null);
 
-        User admin = makeUser("A1", "a@test.com", "[\"SUPER_ADMIN\"]");
+        assertThat(page.edges).extracting(e -> e.node.getId()).containsExactly(3L, 2L);
+        assertThat(page.pageInfo.hasNextPage).isTrue();
+        assertThat(page.pageInfo.endCursor).isEqualTo(page.edges.get(1).cursor);
+        assertThat(page.unreadCount).isEqualTo(7);
 
-        assertThat((boolean) m.invoke(svc, manager, "MANAGER")).isTrue();
-        assertThat((boolean) m.invoke(svc, employee, "EMPLOYEE")).isTrue();
-        assertThat((boolean) m.invoke(svc, admin, "ADMIN")).isTrue();
+        when(reportRepo.findInboxRowsBefore("TARG", Instant.parse("2025-03-01T08:00:00Z"), 2L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(oldest));
 
-        assertThat((boolean) m.invoke(svc, notManager, "MANAGER")).isFalse();
-        assertThat((boolean) m.invoke(svc, notEmployee, "EMPLOYEE")).isFalse();
+        var next = service.inboxForEmail("target@test.com", 2, page.pageInfo.endCursor);
+
+        assertThat(next.edges).extracting(e -> e.node.getId()).containsExactly(1L);
+        assertThat(next.pageInfo.hasNextPage).isFalse();
+    }
+
+    @Test
+    void inboxForEmail_shouldRejectBadPageSizeAndCursor() {
+        when(userRepo.findByEmail("target@test.com"))
+                .thenReturn(Optional.of(makeUser("TARG", "target@test.com", "[\"EMPLOYEE\"]")));
+
+        assertThatThrownBy(() -> service.inboxForEmail("target@test.com", 0, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.inboxForEmail("target@test.com", 10, "not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void markReadForEmail_shouldRejectReportOfSomeoneElse() {
+        User me = makeUser("U1", "me@test.com", "[\"EMPLOYEE\"]");
+        when(userRepo.findByEmail("me@test.com")).thenReturn(Optional.of(me));
+        when(inbox.markRead("U1", 9L)).thenReturn(false);
+        when(reportRepo.findById(9L)).thenReturn(Optional.of(makeReport(9L)));
+
+        assertThatThrownBy(() -> service.markReadForEmail("me@test.com", 9L))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void markReadForEmail_unreadOwnReport_shouldNotReload() {
+        User me = makeUser("TARG", "target@test.com", "[\"EMPLOYEE\"]");
+        when(userRepo.findByEmail("target@test.com")).thenReturn(Optional.of(me));
+        when(inbox.markRead("TARG", 9L)).thenReturn(true);
+
+        assertThat(service.markReadForEmail("target@test.com", 9L)).isTrue();
+        verify(reportRepo, never()).findById(any());
     }
 
     private static User makeUser(String id, String email, String role) {
@@ -547,5 +619,9 @@ class ReportServiceTest {
         r.setCreatedAt(Instant.now());
         return r;
     }
+
+    private static ReportRow makeRow(Long id, Instant createdAt) {
+        return new ReportRow(id, "AUTH", "author@test.com", "TARG", "target@test.com",
+                "SUBJ", "subject@test.com", "MANUAL", "INFO", "Title", "Body", createdAt, null, null);
+    }
 }
-        
\ No newline at end of file
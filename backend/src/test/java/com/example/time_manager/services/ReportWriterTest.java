@@ -0,0 +1,130 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.model.Report;
+import com.example.time_manager.model.User;
+import com.example.time_manager.service.report.ReportInbox;
+import com.example.time_manager.service.report.ReportWriter;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReportWriterTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    ReportInbox inbox = mock(ReportInbox.class);
+    ReportWriter writer = new ReportWriter(jdbc, inbox, 2);
+
+    @Test
+    void write_shouldInsertInOneBatchAndCountOnlyNewRows() throws Exception {
+        when(jdbc.batchUpdate(contains("INSERT IGNORE INTO reports"), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[] { 1, 0 });
+
+        int inserted = writer.write(List.of(report("K1", "M1"), report("K2", "M2")));
+
+        assertThat(inserted).isEqualTo(1);
+        verify(inbox).delivered(Map.of("M1", 1));
+
+        ArgumentCaptor<BatchPreparedStatementSetter> setter = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbc).batchUpdate(anyString(), setter.capture());
+        assertThat(setter.getValue().getBatchSize()).isEqualTo(2);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, 1);
+        verify(ps).setString(2, "M2");
+        verify(ps).setNull(3, Types.CHAR);
+        verify(ps).setString(6, "K2");
+    }
+
+    @Test
+    void write_bulkCounts_shouldCountOnlyRowsThisWriteCreated() throws Exception {
+        // bulk statements answer SUCCESS_NO_INFO (-2) for every row, duplicates included
+        when(jdbc.batchUpdate(contains("INSERT IGNORE INTO reports"), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO });
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("rule_key")).thenReturn("K2");
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("SELECT rule_key FROM reports WHERE write_token = ?"),
+                any(RowCallbackHandler.class), any(Object[].class));
+
+        int inserted = writer.write(List.of(report("K1", "M1"), report("K2", "M2")));
+
+        assertThat(inserted).isEqualTo(1);
+        verify(inbox).delivered(Map.of("M2", 1));
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).query(anyString(), any(RowCallbackHandler.class), args.capture());
+        assertThat(args.getValue()).hasSize(3).endsWith("K1", "K2");
+
+        // the token selected on is the one every row of the batch was written with
+        ArgumentCaptor<BatchPreparedStatementSetter> setter = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbc).batchUpdate(anyString(), setter.capture());
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, 0);
+        setter.getValue().setValues(ps, 1);
+        verify(ps, times(2)).setString(10, (String) args.getValue()[0]);
+    }
+
+    @Test
+    void write_repeatedKeys_shouldSkipTheDatabase() {
+        when(jdbc.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[] { 0 });
+
+        writer.write(List.of(report("K1", "M1")));
+        int again = writer.write(List.of(report("K1", "M1")));
+
+        assertThat(again).isZero();
+        verify(jdbc, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        verifyNoInteractions(inbox);
+    }
+
+    @Test
+    void write_recentKeys_shouldBeBoundedAndForgettable() {
+        when(jdbc.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[] { 1 });
+
+        writer.write(List.of(report("K1", "M1")));
+        writer.write(List.of(report("K2", "M1")));
+        writer.write(List.of(report("K3", "M1")));
+        // capacity 2: K1 was evicted
+        writer.write(List.of(report("K1", "M1")));
+        writer.forget("K3");
+        writer.write(List.of(report("K3", "M1")));
+
+        verify(jdbc, times(5)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void write_withoutRuleKey_shouldFail() {
+        assertThatThrownBy(() -> writer.write(List.of(report(null, "M1"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbc);
+    }
+
+    private static Report report(String ruleKey, String targetId) {
+        User author = new User();
+        author.setId("SYS");
+        User target = new User();
+        target.setId(targetId);
+
+        Report r = new Report();
+        r.setAuthor(author);
+        r.setTarget(target);
+        r.setType("OVERWORK");
+        r.setSeverity("WARN");
+        r.setRuleKey(ruleKey);
+        r.setTitle("Title");
+        r.setBody("Body");
+        return r;
+    }
+}
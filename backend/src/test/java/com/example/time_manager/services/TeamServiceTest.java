@@ -7,7 +7,10 @@ import com.example.time_manager.model.User;
 import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.repository.TeamRepository;
 import com.example.time_manager.repository.UserRepository;
+import com.example.time_manager.service.PresenceService;
 import com.example.time_manager.service.TeamService;
+import com.example.time_manager.service.kpi.KpiCache;
+import com.example.time_manager.service.kpi.KpiRollupService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.*;
 import org.springframework.security.access.AccessDeniedException;
@@ -24,7 +27,10 @@ class TeamServiceTest {
     TeamRepository teamRepo = mock(TeamRepository.class);
     TeamMemberRepository memberRepo = mock(TeamMemberRepository.class);
     UserRepository userRepo = mock(UserRepository.class);
-    TeamService service = new TeamService(teamRepo, memberRepo, userRepo);
+    PresenceService presenceService = mock(PresenceService.class);
+    KpiCache kpiCache = mock(KpiCache.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
+    TeamService service = new TeamService(teamRepo, memberRepo, userRepo, presenceService, kpiCache, kpiRollups);
 
     @AfterEach
     void clear() {
@@ -213,6 +219,7 @@ class TeamServiceTest {
 
         service.addMember(1L, "U1");
         verify(memberRepo).save(any(TeamMember.class));
+        verify(presenceService).evictTeam(1L);
     }
 
     @Test
@@ -248,6 +255,7 @@ class TeamServiceTest {
         when(memberRepo.existsByTeam_IdAndUser_Id(1L, "U1")).thenReturn(true);
         service.removeMember(1L, "U1");
         verify(memberRepo).deleteByTeam_IdAndUser_Id(1L, "U1");
+        verify(presenceService).evictTeam(1L);
     }
 
     @Test
@@ -283,15 +291,6 @@ class TeamServiceTest {
                 .isInstanceOf(AccessDeniedException.class);
     }
 
-    @Test
-    void hasGlobalRole_shouldHandlePlainString() throws Exception {
-        User u = new User();
-        u.setRole("manager,employee");
-        var m = TeamService.class.getDeclaredMethod("hasGlobalRole", User.class, String.class);
-        m.setAccessible(true);
-        assertThat((boolean) m.invoke(service, u, "manager")).isTrue();
-    }
-
     @Test
     void isCurrentUserMemberOfTeam_shouldDelegateToRepo() {
         setAuth("U1");
@@ -357,16 +356,6 @@ class TeamServiceTest {
         verify(memberRepo).deleteByTeam_IdAndUser_Id(1L, "U2");
     }
 
-    @Test
-    void hasGlobalRole_shouldReturnFalse_whenRoleIsNull() throws Exception {
-        User u = new User();
-        u.setRole(null);
-        var m = TeamService.class.getDeclaredMethod("hasGlobalRole", User.class, String.class);
-        m.setAccessible(true);
-        boolean result = (boolean) m.invoke(service, u, "manager");
-        assertThat(result).isFalse();
-    }
-
     @Test
     void update_shouldSkipNullFields() {
         setAuth("A", "ROLE_ADMIN");
@@ -0,0 +1,154 @@
+package com.example.time_manager.services;
+
+import com.example.time_manager.service.export.TimesheetExportService;
+import com.example.time_manager.service.export.TimesheetExportService.Format;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TimesheetExportServiceTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2025, 1, 1);
+    private static final LocalDate JAN_31 = LocalDate.of(2025, 1, 31);
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final TimesheetExportService service =
+            new TimesheetExportService(jdbc, mock(PlatformTransactionManager.class), 366);
+
+    @Test
+    void export_csv_shouldWriteHeaderAndOneLinePerUserDay() throws Exception {
+        rows(row("U1", "a@x.com", "Doe, Jr", "Ann", JAN_1, 420, 450, "0.0"),
+                row("U1", "a@x.com", "Doe, Jr", "Ann", JAN_1.plusDays(1), 420, 0, "1.0"));
+
+        String csv = export(Format.CSV);
+
+        assertThat(csv.split("\r\n")).containsExactly(
+                "user_id,email,last_name,first_name,day,planned_minutes,worked_minutes,overtime_minutes,absence_units",
+                "U1,a@x.com,\"Doe, Jr\",Ann,2025-01-01,420,450,30,0.0",
+                "U1,a@x.com,\"Doe, Jr\",Ann,2025-01-02,420,0,0,1.0");
+    }
+
+    @Test
+    void export_csv_shouldDefuseFormulasInTextCells() throws Exception {
+        rows(row("U1", "@x.com", "=HYPERLINK(\"http://evil\",\"a\")", "-Ann", JAN_1, 420, 450, "0.0"),
+                row("U2", "b@x.com", "+1", "Bob-Lee", JAN_1, 0, 0, "0.0"));
+
+        String csv = export(Format.CSV);
+
+        assertThat(csv.split("\r\n")).containsSequence(
+                "U1,'@x.com,\"'=HYPERLINK(\"\"http://evil\"\",\"\"a\"\")\",'-Ann,2025-01-01,420,450,30,0.0",
+                "U2,b@x.com,'+1,Bob-Lee,2025-01-01,0,0,0,0.0");
+    }
+
+    @Test
+    void export_ndjson_shouldKeepTextAsIs() throws Exception {
+        rows(row("U1", "a@x.com", "=1+1", "Ann", JAN_1, 0, 0, "0.0"));
+
+        assertThat(export(Format.NDJSON)).contains("\"lastName\":\"=1+1\"");
+    }
+
+    @Test
+    void export_ndjson_shouldWriteOneObjectPerLine() throws Exception {
+        rows(row("U1", "a@x.com", "Doe", "Ann \"A\"", JAN_1, 420, 450, "0.5"),
+                row("U2", "b@x.com", "Roe", "Bob", JAN_1, 0, 60, "0.0"));
+
+        String ndjson = export(Format.NDJSON);
+
+        assertThat(ndjson).endsWith("}\n");
+        assertThat(ndjson.split("\n")).containsExactly(
+                "{\"userId\":\"U1\",\"email\":\"a@x.com\",\"lastName\":\"Doe\",\"firstName\":\"Ann \\\"A\\\"\"," +
+                        "\"day\":\"2025-01-01\",\"plannedMinutes\":420,\"workedMinutes\":450,\"overtimeMinutes\":30,\"absenceUnits\":0.5}",
+                "{\"userId\":\"U2\",\"email\":\"b@x.com\",\"lastName\":\"Roe\",\"firstName\":\"Bob\"," +
+                        "\"day\":\"2025-01-01\",\"plannedMinutes\":0,\"workedMinutes\":60,\"overtimeMinutes\":60,\"absenceUnits\":0.0}");
+    }
+
+    @Test
+    void export_ndjson_withoutRows_shouldBeEmpty() throws Exception {
+        rows();
+
+        assertThat(export(Format.NDJSON)).isEmpty();
+    }
+
+    @Test
+    void export_shouldStreamWithForwardOnlyCursor() throws Exception {
+        rows();
+        export(Format.CSV);
+
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbc).query(creator.capture(), any(RowCallbackHandler.class));
+        Connection con = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(con.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(ps);
+
+        creator.getValue().createPreparedStatement(con);
+
+        // worked time is the break-aware attendance total, not first IN to last OUT
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(con).prepareStatement(sql.capture(), anyInt(), anyInt());
+        assertThat(sql.getValue())
+                .contains("COALESCE(a.worked_seconds, 0) DIV 60 AS worked_minutes")
+                .contains("LEFT JOIN daily_attendance a ON a.user_id = d.user_id AND a.work_date = d.day");
+        verify(ps).setFetchSize(1000);
+        verify(ps).setDate(1, Date.valueOf(JAN_1));
+        verify(ps).setDate(2, Date.valueOf(JAN_31));
+    }
+
+    @Test
+    void checkPeriod_shouldRejectReversedOrTooLongPeriods() {
+        assertThatThrownBy(() -> service.checkPeriod(JAN_31, JAN_1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.checkPeriod(JAN_1, JAN_1.plusDays(366))).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> service.checkPeriod(JAN_1, JAN_1.plusDays(365))).doesNotThrowAnyException();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void format_parse_shouldBeCaseInsensitive() {
+        assertThat(Format.parse("NdJson")).isEqualTo(Format.NDJSON);
+        assertThatThrownBy(() -> Format.parse("xlsx")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String export(Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(JAN_1, JAN_31, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void rows(ResultSet... rows) {
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            for (ResultSet rs : rows) h.processRow(rs);
+            return null;
+        }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static ResultSet row(String userId, String email, String lastName, String firstName, LocalDate day,
+                                 int planned, int worked, String absence) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("user_id")).thenReturn(userId);
+        when(rs.getString("email")).thenReturn(email);
+        when(rs.getString("last_name")).thenReturn(lastName);
+        when(rs.getString("first_name")).thenReturn(firstName);
+        when(rs.getDate("day")).thenReturn(Date.valueOf(day));
+        when(rs.getInt("planned_minutes")).thenReturn(planned);
+        when(rs.getInt("worked_minutes")).thenReturn(worked);
+        when(rs.getBigDecimal("absence_units")).thenReturn(new BigDecimal(absence));
+        return rs;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.time_manager.services;
 
 import com.example.time_manager.dto.auth.UpdateUserInput;
+import com.example.time_manager.model.Role;
 import com.example.time_manager.model.User;
 import com.example.time_manager.repository.UserRepository;
 import com.example.time_manager.service.UserService;
@@ -8,6 +9,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
 import java.util.Optional;
@@ -402,6 +404,29 @@ class UserServiceTest {
         verify(userRepository).save(u);
     }
 
+    @Test
+    void updateUser_shouldNormaliseTimeZone_andRejectUnknownOnes() {
+        UserRepository userRepository = mock(UserRepository.class);
+        UserService userService = new UserService(userRepository, mock(PasswordEncoder.class));
+
+        User u = new User();
+        u.setId("id");
+        when(userRepository.findById("id")).thenReturn(Optional.of(u));
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        UpdateUserInput input = mock(UpdateUserInput.class);
+        when(input.timeZone()).thenReturn("America/New_York");
+        assertThat(userService.updateUser("id", input).getTimeZone()).isEqualTo("America/New_York");
+
+        when(input.timeZone()).thenReturn("");
+        assertThat(userService.updateUser("id", input).getTimeZone()).isNull();
+
+        when(input.timeZone()).thenReturn("Mars/Olympus");
+        assertThatThrownBy(() -> userService.updateUser("id", input))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid time zone");
+    }
+
     @Test
     void updateUser_shouldNotEncodePassword_whenPasswordIsNullOrBlank() {
         UserRepository userRepository = mock(UserRepository.class);
@@ -541,4 +566,21 @@ class UserServiceTest {
         assertThat(result).isFalse();
         verify(encoder, never()).matches(anyString(), anyString());
     }
+
+    @Test
+    void backfillRoles_shouldDeriveMaskOfRowsWrittenWithoutIt() {
+        UserRepository userRepository = mock(UserRepository.class);
+        UserService userService = new UserService(userRepository, mock(PasswordEncoder.class));
+
+        User seeded = new User(); seeded.setId("a");
+        User none = new User(); none.setId("b");
+        // as loaded from a row whose role_mask was never written
+        ReflectionTestUtils.setField(seeded, "role", "[\"manager\"]");
+        ReflectionTestUtils.setField(none, "role", "[]");
+        when(userRepository.findByRoleMask(0)).thenReturn(List.of(seeded, none));
+
+        assertThat(userService.backfillRoles()).isEqualTo(1);
+        assertThat(seeded.hasRole(Role.MANAGER)).isTrue();
+        assertThat(none.getRoleMask()).isZero();
+    }
 }
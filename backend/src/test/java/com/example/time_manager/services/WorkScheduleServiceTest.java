@@ -8,6 +8,7 @@ import com.example.time_manager.model.WorkPeriod;
 import com.example.time_manager.model.WorkSchedule;
 import com.example.time_manager.repository.WorkScheduleRepository;
 import com.example.time_manager.service.WorkScheduleService;
+import com.example.time_manager.service.kpi.KpiRollupService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 
@@ -21,7 +22,8 @@ import static org.mockito.Mockito.*;
 class WorkScheduleServiceTest {
 
     WorkScheduleRepository repo = mock(WorkScheduleRepository.class);
-    WorkScheduleService service = new WorkScheduleService(repo);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
+    WorkScheduleService service = new WorkScheduleService(repo, kpiRollups);
 
     @Test
     void listForUser_shouldReturnMappedResponses() {
@@ -5,7 +5,8 @@ import com.example.time_manager.model.User;
 import com.example.time_manager.model.absence.*;
 import com.example.time_manager.repository.*;
 import com.example.time_manager.service.AbsenceService;
-import com.example.time_manager.service.AutoReportService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
 import com.example.time_manager.service.leave.LeaveAccountingBridge;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
@@ -25,7 +26,8 @@ class AbsenceServiceCreateTest {
     UserRepository userRepo = mock(UserRepository.class);
     TeamMemberRepository teamMemberRepo = mock(TeamMemberRepository.class);
     LeaveAccountingBridge bridge = mock(LeaveAccountingBridge.class);
-    AutoReportService autoReportService = mock(AutoReportService.class);
+    AutoReportOutbox autoReportOutbox = mock(AutoReportOutbox.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
 
     AbsenceService service =
             new AbsenceService(
@@ -34,7 +36,8 @@ class AbsenceServiceCreateTest {
                     userRepo,
                     teamMemberRepo,
                     bridge,
-                    autoReportService
+                    autoReportOutbox,
+                    kpiRollups
             );
 
     @Test
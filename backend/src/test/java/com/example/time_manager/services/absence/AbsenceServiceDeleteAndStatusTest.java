@@ -10,7 +10,8 @@ import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import com.example.time_manager.service.AutoReportService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
 
 import java.util.*;
 
@@ -24,7 +25,8 @@ class AbsenceServiceDeleteAndStatusTest {
     UserRepository userRepo = mock(UserRepository.class);
     TeamMemberRepository teamMemberRepo = mock(TeamMemberRepository.class);
     LeaveAccountingBridge bridge = mock(LeaveAccountingBridge.class);
-    AutoReportService autoReportService = mock(AutoReportService.class);
+    AutoReportOutbox autoReportOutbox = mock(AutoReportOutbox.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
 
     AbsenceService service =
             new AbsenceService(
@@ -33,7 +35,8 @@ class AbsenceServiceDeleteAndStatusTest {
                     userRepo,
                     teamMemberRepo,
                     bridge,
-                    autoReportService
+                    autoReportOutbox,
+                    kpiRollups
             );
 
     @Test
@@ -4,7 +4,8 @@ import com.example.time_manager.model.User;
 import com.example.time_manager.model.absence.*;
 import com.example.time_manager.repository.*;
 import com.example.time_manager.service.AbsenceService;
-import com.example.time_manager.service.AutoReportService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
 import com.example.time_manager.service.leave.LeaveAccountingBridge;
 import org.junit.jupiter.api.*;
 import org.springframework.security.authentication.TestingAuthenticationToken;
@@ -28,7 +29,8 @@ class AbsenceServiceHelpersTest {
     UserRepository userRepo = mock(UserRepository.class);
     TeamMemberRepository teamMemberRepo = mock(TeamMemberRepository.class);
     LeaveAccountingBridge bridge = mock(LeaveAccountingBridge.class);
-    AutoReportService autoReportService = mock(AutoReportService.class);
+    AutoReportOutbox autoReportOutbox = mock(AutoReportOutbox.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
 
     AbsenceService service =
             new AbsenceService(
@@ -37,41 +39,10 @@ class AbsenceServiceHelpersTest {
                     userRepo,
                     teamMemberRepo,
                     bridge,
-                    autoReportService
+                    autoReportOutbox,
+                    kpiRollups
             );
 
-    @Test
-    void hasRole_shouldReturnTrue_forMatchingRole() throws Exception {
-        User u = new User();
-        u.setRole("[\"ADMIN\"]");
-
-        Method m = AbsenceService.class.getDeclaredMethod("hasRole", User.class, String.class);
-        m.setAccessible(true);
-        boolean result = (boolean) m.invoke(service, u, "ADMIN");
-        assertThat(result).isTrue();
-    }
-
-    @Test
-    void hasRole_shouldReturnFalse_forMissingRole() throws Exception {
-        User u = new User();
-        u.setRole("[\"EMPLOYEE\"]");
-
-        Method m = AbsenceService.class.getDeclaredMethod("hasRole", User.class, String.class);
-        m.setAccessible(true);
-        boolean result = (boolean) m.invoke(service, u, "ADMIN");
-        assertThat(result).isFalse();
-    }
-
-    @Test
-    void hasRole_shouldHandleNullOrBlank() throws Exception {
-        User u = new User();
-        u.setRole(null);
-        Method m = AbsenceService.class.getDeclaredMethod("hasRole", User.class, String.class);
-        m.setAccessible(true);
-        boolean result = (boolean) m.invoke(service, u, "ADMIN");
-        assertThat(result).isFalse();
-    }
-
     @Test
     void validateDates_shouldThrow_whenNull() throws Exception {
         Method m = AbsenceService.class.getDeclaredMethod("validateDates", LocalDate.class, LocalDate.class);
@@ -257,18 +228,6 @@ class AbsenceServiceHelpersTest {
                 .hasRootCauseMessage("Unauthenticated");
     }
 
-    @Test
-    void hasRole_shouldReturnFalse_whenRoleBlank() throws Exception {
-        User u = new User();
-        u.setRole("   ");
-
-        Method m = AbsenceService.class.getDeclaredMethod("hasRole", User.class, String.class);
-        m.setAccessible(true);
-
-        boolean result = (boolean) m.invoke(service, u, "ADMIN");
-        assertThat(result).isFalse();
-    }
-
     @Test
     void validateDates_shouldThrow_whenEndNull() throws Exception {
         Method m = AbsenceService.class.getDeclaredMethod("validateDates", LocalDate.class, LocalDate.class);
@@ -318,19 +277,6 @@ class AbsenceServiceHelpersTest {
         assertThat(result).isFalse();
     }
 
-    @Test
-    void hasRole_shouldMatchEvenWithDirtyFormatting() throws Exception {
-        User u = new User();
-        u.setRole(" [ ADMIN ]; ");
-
-        Method m = AbsenceService.class.getDeclaredMethod("hasRole", User.class, String.class);
-        m.setAccessible(true);
-
-        boolean result = (boolean) m.invoke(service, u, "ADMIN");
-
-        assertThat(result).isTrue();
-    }
-
     @Test
     void toDto_shouldSetCreatedAtAndUpdatedAt_whenTimestampsNotNull() throws Exception {
         Absence a = new Absence();
@@ -10,7 +10,8 @@ import com.example.time_manager.repository.AbsenceRepository;
 import com.example.time_manager.repository.TeamMemberRepository;
 import com.example.time_manager.repository.UserRepository;
 import com.example.time_manager.service.AbsenceService;
-import com.example.time_manager.service.AutoReportService;
+import com.example.time_manager.service.kpi.KpiRollupService;
+import com.example.time_manager.service.outbox.AutoReportOutbox;
 import com.example.time_manager.service.leave.LeaveAccountingBridge;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.*;
@@ -32,7 +33,8 @@ class AbsenceServiceReadTest {
     UserRepository userRepo = mock(UserRepository.class);
     TeamMemberRepository teamMemberRepo = mock(TeamMemberRepository.class);
     LeaveAccountingBridge bridge = mock(LeaveAccountingBridge.class);
-    AutoReportService autoReportService = mock(AutoReportService.class);
+    AutoReportOutbox autoReportOutbox = mock(AutoReportOutbox.class);
+    KpiRollupService kpiRollups = mock(KpiRollupService.class);
 
     AbsenceService service =
             new AbsenceService(
@@ -41,7 +43,8 @@ class AbsenceServiceReadTest {
                     userRepo,
                     teamMemberRepo,
                     bridge,
-                    autoReportService
+                    autoReportOutbox,
+                    kpiRollups
             );
 
     @BeforeEach
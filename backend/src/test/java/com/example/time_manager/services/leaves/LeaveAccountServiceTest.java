@@ -6,6 +6,7 @@ import com.example.time_manager.model.leave.LeaveType;
 import com.example.time_manager.repository.UserRepository;
 import com.example.time_manager.repository.leave.LeaveAccountRepository;
 import com.example.time_manager.repository.leave.LeaveLedgerRepository;
+import com.example.time_manager.service.kpi.KpiCache;
 import com.example.time_manager.service.leave.LeaveAccountService;
 import com.example.time_manager.service.leave.LeaveTypeService;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +26,7 @@ class LeaveAccountServiceTest {
     private UserRepository userRepo;
     private LeaveTypeService leaveTypeService;
     private LeaveLedgerRepository ledgerRepo;
+    private KpiCache kpiCache;
     private LeaveAccountService service;
 
     private final String userId = "u1";
@@ -37,7 +39,8 @@ class LeaveAccountServiceTest {
         userRepo = mock(UserRepository.class);
         leaveTypeService = mock(LeaveTypeService.class);
         ledgerRepo = mock(LeaveLedgerRepository.class);
-        service = new LeaveAccountService(repo, userRepo, leaveTypeService, ledgerRepo);
+        kpiCache = mock(KpiCache.class);
+        service = new LeaveAccountService(repo, userRepo, leaveTypeService, ledgerRepo, kpiCache);
     }
 
     @Test
@@ -141,15 +144,20 @@ class LeaveAccountServiceTest {
 
     @Test
     void testDelete_Existing() {
-        when(repo.existsById(accountId)).thenReturn(true);
+        User user = new User();
+        user.setId("U1");
+        LeaveAccount acc = new LeaveAccount();
+        acc.setUser(user);
+        when(repo.findById(accountId)).thenReturn(Optional.of(acc));
         boolean result = service.delete(accountId);
         assertTrue(result);
         verify(repo).deleteById(accountId);
+        verify(kpiCache).evictLeave("U1", LocalDate.MIN, LocalDate.MAX);
     }
 
     @Test
     void testDelete_NotExisting() {
-        when(repo.existsById(accountId)).thenReturn(false);
+        when(repo.findById(accountId)).thenReturn(Optional.empty());
         boolean result = service.delete(accountId);
         assertFalse(result);
         verify(repo, never()).deleteById(any());
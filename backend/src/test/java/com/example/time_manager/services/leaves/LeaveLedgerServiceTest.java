@@ -1,5 +1,6 @@
 package com.example.time_manager.services.leaves;
 
+import com.example.time_manager.model.User;
 import com.example.time_manager.model.absence.Absence;
 import com.example.time_manager.model.leave.LeaveAccount;
 import com.example.time_manager.model.leave.LeaveLedger;
@@ -7,6 +8,7 @@ import com.example.time_manager.model.leave.LeaveLedgerKind;
 import com.example.time_manager.repository.AbsenceRepository;
 import com.example.time_manager.repository.leave.LeaveAccountRepository;
 import com.example.time_manager.repository.leave.LeaveLedgerRepository;
+import com.example.time_manager.service.kpi.KpiCache;
 import com.example.time_manager.service.leave.LeaveLedgerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,6 +26,7 @@ class LeaveLedgerServiceTest {
     private LeaveLedgerRepository repo;
     private LeaveAccountRepository accountRepo;
     private AbsenceRepository absenceRepo;
+    private KpiCache kpiCache;
     private LeaveLedgerService service;
 
     private final Long accountId = 1L;
@@ -35,7 +38,8 @@ class LeaveLedgerServiceTest {
         repo = mock(LeaveLedgerRepository.class);
         accountRepo = mock(LeaveAccountRepository.class);
         absenceRepo = mock(AbsenceRepository.class);
-        service = new LeaveLedgerService(repo, accountRepo, absenceRepo);
+        kpiCache = mock(KpiCache.class);
+        service = new LeaveLedgerService(repo, accountRepo, absenceRepo, kpiCache);
     }
 
     @Test
@@ -142,15 +146,23 @@ class LeaveLedgerServiceTest {
 
     @Test
     void testDelete_Existing() {
-        when(repo.existsById(ledgerId)).thenReturn(true);
+        User user = new User();
+        user.setId("U1");
+        LeaveAccount acc = new LeaveAccount();
+        acc.setUser(user);
+        LeaveLedger ll = new LeaveLedger();
+        ll.setAccount(acc);
+        ll.setEntryDate(LocalDate.of(2025, 3, 10));
+        when(repo.findById(ledgerId)).thenReturn(Optional.of(ll));
         boolean result = service.delete(ledgerId);
         assertTrue(result);
         verify(repo).deleteById(ledgerId);
+        verify(kpiCache).evictLeave("U1", LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 10));
     }
 
     @Test
     void testDelete_NotExisting() {
-        when(repo.existsById(ledgerId)).thenReturn(false);
+        when(repo.findById(ledgerId)).thenReturn(Optional.empty());
         boolean result = service.delete(ledgerId);
         assertFalse(result);
         verify(repo, never()).deleteById(any());
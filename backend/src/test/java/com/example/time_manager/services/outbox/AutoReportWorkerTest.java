@@ -0,0 +1,131 @@
+package com.example.time_manager.services.outbox;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.time_manager.model.ClockKind;
+import com.example.time_manager.model.DailyAttendance;
+import com.example.time_manager.model.absence.Absence;
+import com.example.time_manager.model.absence.AbsenceStatus;
+import com.example.time_manager.model.outbox.AutoReportEvent;
+import com.example.time_manager.model.outbox.AutoReportEventType;
+import com.example.time_manager.model.outbox.OutboxStatus;
+import com.example.time_manager.repository.AbsenceRepository;
+import com.example.time_manager.repository.DailyAttendanceRepository;
+import com.example.time_manager.repository.outbox.AutoReportEventRepository;
+import com.example.time_manager.service.AutoReportService;
+import com.example.time_manager.service.outbox.AutoReportWorker;
+
+class AutoReportWorkerTest {
+
+    AutoReportEventRepository repo = mock(AutoReportEventRepository.class);
+    AutoReportService autoReportService = mock(AutoReportService.class);
+    DailyAttendanceRepository attendanceRepo = mock(DailyAttendanceRepository.class);
+    AbsenceRepository absenceRepo = mock(AbsenceRepository.class);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+
+    AutoReportWorker worker = new AutoReportWorker(
+            repo, autoReportService, attendanceRepo, absenceRepo,
+            new SyncTaskExecutor(), txManager, 8);
+
+    private AutoReportEvent clockEvent(long id) {
+        AutoReportEvent e = new AutoReportEvent();
+        e.setId(id);
+        e.setType(AutoReportEventType.CLOCK_CREATED);
+        e.setUserId("U1");
+        e.setClockKind(ClockKind.IN);
+        e.setClockAt(Instant.parse("2025-01-06T09:30:00Z"));
+        e.setClockWorkDate(LocalDate.of(2025, 1, 6));
+        e.setStatus(OutboxStatus.PROCESSING);
+        return e;
+    }
+
+    @Test
+    void poll_shouldClaimAndProcessClockEvent() {
+        AutoReportEvent e = clockEvent(1L);
+        when(repo.findIdsByStatus(eq(OutboxStatus.PENDING), any())).thenReturn(List.of(1L));
+        when(repo.claim(eq(1L), any())).thenReturn(1);
+        when(repo.findById(1L)).thenReturn(Optional.of(e));
+        DailyAttendance attendance = new DailyAttendance();
+        attendance.apply(ClockKind.IN, e.getClockAt());
+        when(attendanceRepo.findByUserIdAndWorkDate("U1", LocalDate.of(2025, 1, 6))).thenReturn(Optional.of(attendance));
+
+        worker.poll();
+
+        verify(autoReportService).onClockCreated("U1", ClockKind.IN, e.getClockAt(), attendance);
+        assertThat(e.getStatus()).isEqualTo(OutboxStatus.DONE);
+        assertThat(e.getProcessedAt()).isNotNull();
+    }
+
+    @Test
+    void poll_shouldSkipEventClaimedByAnotherWorker() {
+        when(repo.findIdsByStatus(eq(OutboxStatus.PENDING), any())).thenReturn(List.of(1L));
+        when(repo.claim(eq(1L), any())).thenReturn(0);
+
+        worker.poll();
+
+        verify(repo, never()).findById(any());
+        verifyNoInteractions(autoReportService);
+    }
+
+    @Test
+    void poll_shouldRequeueOnFailure_andGiveUpAfterMaxAttempts() {
+        AutoReportEvent e = clockEvent(2L);
+        e.setAttempts(3);
+        when(repo.findIdsByStatus(eq(OutboxStatus.PENDING), any())).thenReturn(List.of(2L));
+        when(repo.claim(eq(2L), any())).thenReturn(1);
+        when(repo.findById(2L)).thenReturn(Optional.of(e));
+        when(attendanceRepo.findByUserIdAndWorkDate(eq("U1"), any())).thenReturn(Optional.of(new DailyAttendance()));
+        doThrow(new IllegalStateException("boom"))
+                .when(autoReportService).onClockCreated(any(), any(), any(), any(DailyAttendance.class));
+
+        worker.poll();
+        assertThat(e.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(e.getAttempts()).isEqualTo(4);
+        assertThat(e.getLastError()).contains("boom");
+
+        e.setStatus(OutboxStatus.PROCESSING);
+        worker.poll();
+        assertThat(e.getStatus()).isEqualTo(OutboxStatus.FAILED);
+    }
+
+    @Test
+    void process_shouldIgnoreSupersededStatusChange() {
+        Absence a = new Absence();
+        a.setStatus(AbsenceStatus.REJECTED);
+
+        AutoReportEvent e = new AutoReportEvent();
+        e.setId(3L);
+        e.setType(AutoReportEventType.ABSENCE_STATUS_CHANGED);
+        e.setAbsenceId(7L);
+        e.setPreviousStatus(AbsenceStatus.PENDING);
+        e.setNewStatus(AbsenceStatus.APPROVED);
+        e.setStatus(OutboxStatus.PROCESSING);
+
+        when(repo.findIdsByStatus(eq(OutboxStatus.PENDING), any())).thenReturn(List.of(3L));
+        when(repo.claim(eq(3L), any())).thenReturn(1);
+        when(repo.findById(3L)).thenReturn(Optional.of(e));
+        when(absenceRepo.findById(7L)).thenReturn(Optional.of(a));
+
+        worker.poll();
+
+        verify(autoReportService, never()).onAbsenceStatusChanged(any(), any(), any());
+        assertThat(e.getStatus()).isEqualTo(OutboxStatus.DONE);
+    }
+}
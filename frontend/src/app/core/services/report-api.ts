@@ -43,7 +43,7 @@ export class ReportApiService {
           targetUserId
           targetEmail
           title
-          body
+          preview
           createdAt
         }
       }
@@ -66,7 +66,7 @@ export class ReportApiService {
           targetUserId
           targetEmail
           title
-          body
+          preview
           createdAt
         }
       }
@@ -89,7 +89,7 @@ export class ReportApiService {
           targetUserId
           targetEmail
           title
-          body
+          preview
           createdAt
         }
       }
@@ -101,4 +101,28 @@ export class ReportApiService {
       catchError(() => of([]))
     );
   }
+
+  getReport(id: string): Observable<Report | null> {
+    const query = `
+      query Report($id: ID!) {
+        report(id: $id) {
+          id
+          authorId
+          authorEmail
+          targetUserId
+          targetEmail
+          title
+          body
+          createdAt
+        }
+      }
+    `;
+    return this.http.post<GraphqlPayload<{ report: Report | null }>>(this.api, {
+      query,
+      variables: { id }
+    }).pipe(
+      map((res: GraphqlPayload<{ report: Report | null }>) => res.data.report),
+      catchError(() => of(null))
+    );
+  }
 }
@@ -60,6 +60,7 @@ describe('ReportsComponent', () => {
       getAllReports: jest.fn(),
       getReportsForMe: jest.fn(),
       getMyReports: jest.fn(),
+      getReport: jest.fn(),
     } as unknown as jest.Mocked<ReportApiService>;
 
     mockSession = { user: { roles: [] } };
@@ -343,6 +344,20 @@ describe('ReportsComponent', () => {
       expect(component.filteredReports.length).toBe(1);
     }));
 
+    it('should filter by preview when the body is not loaded', fakeAsync(() => {
+      reportApiMock.getAllReports.mockReturnValue(of([
+        { id: '7', title: 'Listed', preview: 'Overtime on Friday', createdAt: '2024-01-15T10:00:00Z' },
+      ]));
+      createComponent();
+      fixture.detectChanges();
+      tick();
+
+      component.searchTerm = 'friday';
+      component.applyFilter();
+
+      expect(component.filteredReports.length).toBe(1);
+    }));
+
     it('should filter by authorEmail', fakeAsync(() => {
       createComponent();
       fixture.detectChanges();
@@ -480,6 +495,26 @@ describe('ReportsComponent', () => {
       expect(component.selectedReport).toBeNull();
     }));
 
+    it('should fetch the body of a listed report when it is opened', fakeAsync(() => {
+      createComponent();
+      fixture.detectChanges();
+      tick();
+
+      const listed: Report = { id: '9', title: 'Listed', preview: 'Start of the…', createdAt: '2024-01-15T10:00:00Z' };
+      reportApiMock.getReport.mockReturnValue(of({ ...listed, body: 'Start of the whole body' }));
+
+      component.selectReport(listed);
+      tick();
+
+      expect(reportApiMock.getReport).toHaveBeenCalledWith('9');
+      expect(component.selectedReport?.body).toBe('Start of the whole body');
+
+      // reopening does not fetch again
+      component.selectReport(listed);
+      component.selectReport(listed);
+      expect(reportApiMock.getReport).toHaveBeenCalledTimes(1);
+    }));
+
     it('should switch to different report', fakeAsync(() => {
       createComponent();
       fixture.detectChanges();
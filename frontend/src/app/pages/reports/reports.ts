@@ -144,7 +144,7 @@ export class ReportsComponent implements OnInit {
       this.filteredReports = this.reports.filter(
         (report) =>
           report.title?.toLowerCase().includes(term) ||
-          report.body?.toLowerCase().includes(term) ||
+          (report.body ?? report.preview)?.toLowerCase().includes(term) ||
           report.authorEmail?.toLowerCase().includes(term) ||
           report.targetEmail?.toLowerCase().includes(term)
       );
@@ -191,7 +191,20 @@ export class ReportsComponent implements OnInit {
   }
 
   selectReport(report: Report): void {
-    this.selectedReport = this.selectedReport?.id === report.id ? null : report;
+    if (this.selectedReport?.id === report.id) {
+      this.selectedReport = null;
+      return;
+    }
+    this.selectedReport = report;
+    // lists only carry a preview: the body is fetched once, when the report is opened
+    if (report.body !== undefined) return;
+    this.reportApi.getReport(report.id).subscribe((full: Report | null) => {
+      if (!full) return;
+      report.body = full.body ?? '';
+      if (this.selectedReport?.id === report.id) {
+        this.selectedReport = { ...report };
+      }
+    });
   }
 
   formatDate(dateStr?: string): string {
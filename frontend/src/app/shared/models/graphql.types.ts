@@ -68,6 +68,7 @@ export interface Report {
   targetEmail?: string;
   title: string;
   body?: string;
+  preview?: string;
   createdAt?: string;
 }
 